@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.frameworkadmin.equinox;
+
+import java.io.File;
+import java.net.URI;
+import java.util.*;
+import java.util.jar.JarFile;
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.equinox.internal.frameworkadmin.utils.Utils;
+
+/**
+ * The manifests of the bundles read by a manipulator, by location. A manifest is read
+ * again when the time stamp or the length of the bundle, or of the manifest of a
+ * directory bundle, has changed. Only the bundles on the file system are cached.
+ */
+class BundleManifestCache {
+	private static final String FILE_SCHEME = "file"; //$NON-NLS-1$
+
+	private static class Entry {
+		final long timestamp;
+		final long length;
+		final Dictionary<String, String> manifest;
+
+		Entry(long timestamp, long length, Dictionary<String, String> manifest) {
+			this.timestamp = timestamp;
+			this.length = length;
+			this.manifest = manifest;
+		}
+	}
+
+	private final Map<URI, Entry> manifests = new HashMap<URI, Entry>();
+
+	/**
+	 * Returns a copy of the OSGi manifest of the bundle at the given location, or
+	 * <code>null</code> as {@link Utils#getOSGiManifest(URI)} does.
+	 */
+	synchronized Dictionary<String, String> getManifest(URI location) {
+		if (location == null || !FILE_SCHEME.equals(location.getScheme()))
+			return Utils.getOSGiManifest(location);
+		File stamped = getStampedFile(location);
+		if (stamped == null)
+			return Utils.getOSGiManifest(location);
+		long timestamp = stamped.lastModified();
+		long length = stamped.length();
+		Entry entry = manifests.get(location);
+		if (entry != null && entry.timestamp == timestamp && entry.length == length)
+			return copy(entry.manifest);
+
+		Dictionary<String, String> manifest = Utils.getOSGiManifest(location);
+		if (manifest != null && timestamp != 0)
+			manifests.put(location, new Entry(timestamp, length, copy(manifest)));
+		else
+			manifests.remove(location);
+		return manifest;
+	}
+
+	/**
+	 * Returns whether the manifest of the bundle at the given location is cached and the
+	 * bundle is unchanged since it was read.
+	 */
+	synchronized boolean isCurrent(URI location) {
+		Entry entry = manifests.get(location);
+		if (entry == null)
+			return false;
+		File stamped = getStampedFile(location);
+		return entry.timestamp == stamped.lastModified() && entry.length == stamped.length();
+	}
+
+	private static File getStampedFile(URI location) {
+		File bundle = URIUtil.toFile(location);
+		if (bundle == null)
+			return null;
+		// a directory bundle changes with its manifest
+		return bundle.isDirectory() ? new File(bundle, JarFile.MANIFEST_NAME) : bundle;
+	}
+
+	private static Dictionary<String, String> copy(Dictionary<String, String> manifest) {
+		Dictionary<String, String> result = new Hashtable<String, String>(manifest.size());
+		for (Enumeration<String> keys = manifest.keys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			result.put(key, manifest.get(key));
+		}
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -222,6 +222,14 @@ public class EquinoxBundlesState implements BundlesState {
 	 */
 	private HashMap<String, BundleDescription> nameVersionStateIndex = new HashMap<String, BundleDescription>();
 	private final PlatformAdmin platformAdmin;
+	private final BundleManifestCache manifestCache;
+
+	/**
+	 * The properties and the framework jar the state was composed with, it can only be
+	 * updated incrementally as long as they are unchanged.
+	 */
+	private Properties composedProperties;
+	private File composedFwJar;
 
 	/**
 	 * If useFwPersistentData flag equals false, this constructor will not take
@@ -231,11 +239,13 @@ public class EquinoxBundlesState implements BundlesState {
 	 * @param fwAdmin
 	 * @param manipulator
 	 * @param useFwPersistentData
+	 * @param manifestCache
 	 */
-	EquinoxBundlesState(BundleContext context, EquinoxFwAdminImpl fwAdmin, Manipulator manipulator, PlatformAdmin admin, boolean useFwPersistentData) {
+	EquinoxBundlesState(BundleContext context, EquinoxFwAdminImpl fwAdmin, Manipulator manipulator, PlatformAdmin admin, boolean useFwPersistentData, BundleManifestCache manifestCache) {
 		this.context = context;
 		this.fwAdmin = fwAdmin;
 		this.platformAdmin = admin;
+		this.manifestCache = manifestCache;
 		// copy manipulator object for avoiding modifying the parameters of the
 		// manipulator.
 		this.manipulator = fwAdmin.getManipulator();
@@ -252,12 +262,14 @@ public class EquinoxBundlesState implements BundlesState {
 	 * @param fwAdmin
 	 * @param manipulator
 	 * @param platformProperties
+	 * @param manifestCache
 	 */
-	EquinoxBundlesState(BundleContext context, EquinoxFwAdminImpl fwAdmin, Manipulator manipulator, PlatformAdmin admin, Properties platformProperties) {
+	EquinoxBundlesState(BundleContext context, EquinoxFwAdminImpl fwAdmin, Manipulator manipulator, PlatformAdmin admin, Properties platformProperties, BundleManifestCache manifestCache) {
 		super();
 		this.context = context;
 		this.fwAdmin = fwAdmin;
 		this.platformAdmin = admin;
+		this.manifestCache = manifestCache;
 		// copy manipulator object for avoiding modifying the parameters of the
 		// manipulator.
 		this.manipulator = fwAdmin.getManipulator();
@@ -296,10 +308,74 @@ public class EquinoxBundlesState implements BundlesState {
 		File fwJar = getSystemBundleFromBundleInfos(configData);
 		launcherData.setFwJar(fwJar);
 		this.setFwJar(fwJar);
-		composeState(configData.getBundles(), properties, null);
+		if (composeState(configData.getBundles(), properties, null)) {
+			composedProperties = new Properties();
+			composedProperties.putAll(properties);
+			composedFwJar = fwJar;
+		}
 		resolve(true);
 	}
 
+	/**
+	 * Brings this state up to date with the bundles of the given manipulator. Only the
+	 * bundles that were added or removed since the state was composed or last updated are
+	 * installed or uninstalled, and the state is resolved incrementally.
+	 * 
+	 * @param source the manipulator this state was created for
+	 * @param properties the properties the state would be composed with
+	 * @return <code>false</code> if the state can not be updated and must be composed again
+	 */
+	boolean update(Manipulator source, Properties properties) {
+		if (composedProperties == null || !composedProperties.equals(properties))
+			return false;
+		ConfigData sourceData = source.getConfigData();
+		File fwJar = getSystemBundleFromBundleInfos(sourceData);
+		if (fwJar == null ? composedFwJar != null : !fwJar.equals(composedFwJar))
+			return false;
+
+		BundleInfo[] bInfos = sourceData.getBundles();
+		Set<BundleDescription> kept = new HashSet<BundleDescription>();
+		for (int i = 0; i < bInfos.length; i++) {
+			// a bundle replaced at the same location is installed again
+			BundleDescription bundle = getBundleByLocation(bInfos[i].getLocation());
+			if (bundle != null && manifestCache.isCurrent(bInfos[i].getLocation()))
+				kept.add(bundle);
+		}
+		// the system bundle must keep its id
+		BundleDescription systemBundle = state.getBundle(0);
+		if (systemBundle != null && !kept.contains(systemBundle))
+			return false;
+
+		SimpleBundlesState.checkAvailability(fwAdmin);
+		manipulator.setLauncherData(source.getLauncherData());
+		setFwJar(fwJar);
+		manipulator.setConfigData(sourceData);
+		ConfigData configData = manipulator.getConfigData();
+		configData.setBundles(null);
+
+		BundleDescription[] bundles = state.getBundles();
+		for (int i = 0; i < bundles.length; i++) {
+			if (!kept.contains(bundles[i]))
+				removeBundleFromState(bundles[i]);
+		}
+		for (int i = 0; i < bInfos.length; i++) {
+			BundleDescription bundle = getBundleByLocation(bInfos[i].getLocation());
+			if (bundle != null && kept.contains(bundle)) {
+				bInfos[i].setBundleId(bundle.getBundleId());
+				configData.addBundle(bInfos[i]);
+				continue;
+			}
+			try {
+				installBundle(bInfos[i]);
+			} catch (RuntimeException e) {
+				//catch the exception and continue
+				Log.log(LogService.LOG_ERROR, this, "update()", "BundleInfo:" + bInfos[i], e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		resolve(true);
+		return true;
+	}
+
 	/**
 	 * compose state. If it cannot compose it by somehow, false is returned.
 	 * 
@@ -553,7 +629,7 @@ public class EquinoxBundlesState implements BundlesState {
 		if (getBundleByLocation(realLocation) != null)
 			return;
 
-		Dictionary<String, String> manifest = Utils.getOSGiManifest(realLocation);
+		Dictionary<String, String> manifest = manifestCache.getManifest(realLocation);
 		if (manifest == null)
 			return;
 
@@ -686,7 +762,7 @@ public class EquinoxBundlesState implements BundlesState {
 
 		if (id != DEFAULT_TIMESTAMP) {
 			try {
-				Dictionary<String, String> manifest = Utils.getOSGiManifest(bInfo.getLocation());
+				Dictionary<String, String> manifest = manifestCache.getManifest(bInfo.getLocation());
 				if (manifest == null) {
 					Log.log(LogService.LOG_WARNING, this, "uninstallBundle(BundleInfo)", NLS.bind(Messages.exception_bundleManifest, bInfo.getLocation())); //$NON-NLS-1$
 					return;
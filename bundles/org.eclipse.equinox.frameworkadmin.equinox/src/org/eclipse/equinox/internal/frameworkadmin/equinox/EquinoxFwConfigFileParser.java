@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -506,19 +506,26 @@ public class EquinoxFwConfigFileParser {
 
 	private void saveProperties(File outputFile, Properties configProps) throws IOException {
 		String header = "This configuration file was written by: " + this.getClass().getName(); //$NON-NLS-1$
+		// written aside and renamed, the launcher never reads a partially written configuration
+		File tempFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp"); //$NON-NLS-1$
 		FileOutputStream out = null;
 		try {
-			out = new FileOutputStream(outputFile);
+			out = new FileOutputStream(tempFile);
 			configProps.store(out, header);
-			Log.log(LogService.LOG_INFO, NLS.bind(Messages.log_propertiesSaved, outputFile));
+			out.close();
+			out = null;
 		} finally {
-			try {
-				out.flush();
-				out.close();
-			} catch (IOException e) {
-				e.printStackTrace();
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				tempFile.delete();
 			}
 		}
+		Utils.replaceFile(tempFile, outputFile);
+		Log.log(LogService.LOG_INFO, NLS.bind(Messages.log_propertiesSaved, outputFile));
 	}
 
 	private void filterPropertiesFromSharedArea(Properties configProps, Manipulator manipulator) {
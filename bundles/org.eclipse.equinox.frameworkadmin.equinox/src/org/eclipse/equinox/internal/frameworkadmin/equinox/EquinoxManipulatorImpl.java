@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -110,6 +110,9 @@ public class EquinoxManipulatorImpl implements Manipulator {
 	EquinoxLauncherData launcherData = new EquinoxLauncherData(EquinoxConstants.FW_NAME, EquinoxConstants.FW_VERSION, EquinoxConstants.LAUNCHER_NAME, EquinoxConstants.LAUNCHER_VERSION);
 	BundleContext context = null;
 	private Properties platformProperties = new Properties();
+	private final BundleManifestCache manifestCache = new BundleManifestCache();
+	// the state of the last call to getBundlesState(), updated with the bundles changed since
+	private EquinoxBundlesState lastBundlesState;
 
 	@SuppressWarnings("rawtypes")
 	ServiceTracker cmTracker;
@@ -151,10 +154,15 @@ public class EquinoxManipulatorImpl implements Manipulator {
 		if (!EquinoxBundlesState.checkFullySupported())
 			return new SimpleBundlesState(fwAdmin, this, EquinoxConstants.FW_SYMBOLIC_NAME);
 
-		if (platformProperties.isEmpty())
-			return new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, false);
-		// XXX checking if fwDependent or fwIndependent platformProperties are updated after the platformProperties was created might be required for better implementation.
-		return new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, platformProperties);
+		if (lastBundlesState != null && lastBundlesState.update(this, platformProperties.isEmpty() ? configData.getProperties() : platformProperties))
+			return lastBundlesState;
+		if (platformProperties.isEmpty()) {
+			lastBundlesState = new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, false, manifestCache);
+		} else {
+			// XXX checking if fwDependent or fwIndependent platformProperties are updated after the platformProperties was created might be required for better implementation.
+			lastBundlesState = new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, platformProperties, manifestCache);
+		}
+		return lastBundlesState;
 	}
 
 	public ConfigData getConfigData() throws FrameworkAdminRuntimeException {
@@ -333,7 +341,7 @@ public class EquinoxManipulatorImpl implements Manipulator {
 
 		BundlesState bundlesState = null;
 		if (EquinoxBundlesState.checkFullySupported()) {
-			bundlesState = new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, !launcherData.isClean());
+			bundlesState = new EquinoxBundlesState(context, fwAdmin, this, platformAdmin, !launcherData.isClean(), manifestCache);
 			platformProperties = ((EquinoxBundlesState) bundlesState).getPlatformProperties();
 		} else {
 			bundlesState = new SimpleBundlesState(fwAdmin, this, EquinoxConstants.FW_SYMBOLIC_NAME);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,6 +46,35 @@ public class ManipulatorTests extends AbstractFwkAdminTest {
 		assertTrue(bundles.indexOf("org.eclipse.osgi") == -1);
 	}
 
+	public void testSaveReplacesConfiguration() throws Exception {
+		File installFolder = getTestFolder("saveReplacesConfiguration");
+		File configurationFolder = new File(installFolder, "configuration");
+		Manipulator manipulator = getFrameworkManipulator(configurationFolder, new File(installFolder, "foo"));
+
+		BundleInfo osgiBi = new BundleInfo("org.eclipse.osgi", "3.3.1", URIUtil.toURI(FileLocator.resolve(Activator.getContext().getBundle().getEntry("dataFile/org.eclipse.osgi.jar"))), 0, true);
+		BundleInfo configuratorBi = new BundleInfo("org.eclipse.equinox.simpleconfigurator", "1.0.0", URIUtil.toURI(FileLocator.resolve(Activator.getContext().getBundle().getEntry("dataFile/org.eclipse.equinox.simpleconfigurator.jar"))), 1, true);
+		ConfigData configData = manipulator.getConfigData();
+		configData.addBundle(osgiBi);
+		configData.addBundle(configuratorBi);
+
+		// the bundles are looked up without copying them
+		assertSame(configuratorBi, configData.getBundle(new BundleInfo("org.eclipse.equinox.simpleconfigurator", "1.0.0", null, -1, false)));
+		assertNull(configData.getBundle(new BundleInfo("org.eclipse.equinox.simpleconfigurator", "2.0.0", null, -1, false)));
+
+		manipulator.save(false);
+		configData.getBundle(configuratorBi).setStartLevel(2);
+		manipulator.save(false);
+
+		File configIni = new File(configurationFolder, "config.ini");
+		assertTrue(configIni.exists());
+		assertFalse(new File(configurationFolder, "config.ini.tmp").exists());
+		Properties properties = new Properties();
+		InputStream in = new BufferedInputStream(new FileInputStream(configIni));
+		properties.load(in);
+		in.close();
+		assertTrue((String) properties.get("osgi.bundles"), ((String) properties.get("osgi.bundles")).indexOf("org.eclipse.equinox.simpleconfigurator.jar@2:start") != -1);
+	}
+
 	public void testBug277553_installAreaFromFwJar() throws Exception {
 		File folder = getTestFolder("installAreaFromFwJar");
 		File fwJar = new File(folder, "plugins/org.eclipse.osgi.jar");
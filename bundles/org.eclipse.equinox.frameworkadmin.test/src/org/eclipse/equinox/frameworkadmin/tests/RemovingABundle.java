@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,8 @@
  *******************************************************************************/
 package org.eclipse.equinox.frameworkadmin.tests;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.jar.*;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.equinox.frameworkadmin.BundleInfo;
@@ -53,4 +53,98 @@ public class RemovingABundle extends FwkAdminAndSimpleConfiguratorTest {
 
 		assertNotContent(getBundleTxt(), "bundle_1");
 	}
+
+	public void testExpectedStateFollowsChanges() throws IllegalStateException, FrameworkAdminRuntimeException, IOException, BundleException {
+		Manipulator m2 = getEquinoxFrameworkAdmin().getManipulator();
+
+		LauncherData launcherData2 = m2.getLauncherData();
+		launcherData2.setFwConfigLocation(getConfigurationFolder());
+		launcherData2.setLauncher(new File(getInstallFolder(), "eclipse"));
+
+		try {
+			m2.load();
+		} catch (IllegalStateException e) {
+			//TODO We ignore the framework JAR location not set exception
+		}
+		BundlesState state = m2.getBundlesState();
+		BundleInfo[] composed = m2.getExpectedState();
+		assertTrue(contains(composed, "bundle_1"));
+
+		// the state of the manipulator is updated with the removed and added bundles
+		BundleInfo info = m2.getConfigData().getBundle(new BundleInfo("bundle_1", "1.0.0", null, 0, false));
+		assertNotNull(info);
+		m2.getConfigData().removeBundle(info);
+		assertFalse(contains(m2.getExpectedState(), "bundle_1"));
+		assertSame(state, m2.getBundlesState());
+		m2.getConfigData().addBundle(info);
+		BundleInfo[] updated = m2.getExpectedState();
+		assertTrue(contains(updated, "bundle_1"));
+		assertSame(state, m2.getBundlesState());
+
+		// the bundles kept across the updates keep their ids
+		for (int i = 0; i < composed.length; i++) {
+			if (!"bundle_1".equals(composed[i].getSymbolicName()))
+				assertEquals(composed[i].getSymbolicName(), composed[i].getBundleId(), getBundleId(updated, composed[i].getSymbolicName()));
+		}
+
+		// a bundle changed at the same location is read and installed again
+		File jar = new File(getInstallFolder(), "plugins/bundle_2_1.0.0.jar");
+		writeBundleJar(jar, "bundle_2", null);
+		m2.getConfigData().addBundle(new BundleInfo("bundle_2", "1.0.0", jar.toURI(), 4, false));
+		long installed = getBundleId(m2.getExpectedState(), "bundle_2");
+		long bundle1 = getBundleId(m2.getExpectedState(), "bundle_1");
+		assertEquals(installed, getBundleId(m2.getExpectedState(), "bundle_2"));
+
+		assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+		long touched = getBundleId(m2.getExpectedState(), "bundle_2");
+		assertTrue("a bundle whose time stamp changed must be installed again", touched != installed);
+
+		long timestamp = jar.lastModified();
+		writeBundleJar(jar, "bundle_2", "about.txt");
+		assertTrue(jar.setLastModified(timestamp));
+		long rewritten = getBundleId(m2.getExpectedState(), "bundle_2");
+		assertTrue("a bundle whose length changed must be installed again", rewritten != touched);
+
+		assertEquals(bundle1, getBundleId(m2.getExpectedState(), "bundle_1"));
+		assertSame(state, m2.getBundlesState());
+
+		m2.getConfigData().removeBundle(info);
+		m2.save(false);
+		assertNotContent(getBundleTxt(), "bundle_1");
+	}
+
+	private static void writeBundleJar(File jar, String symbolicName, String entry) throws IOException {
+		Manifest manifest = new Manifest();
+		Attributes attributes = manifest.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.putValue("Bundle-ManifestVersion", "2");
+		attributes.putValue("Bundle-SymbolicName", symbolicName);
+		attributes.putValue("Bundle-Version", "1.0.0");
+		jar.getParentFile().mkdirs();
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(jar), manifest);
+		try {
+			if (entry != null) {
+				output.putNextEntry(new JarEntry(entry));
+				output.write(entry.getBytes());
+				output.closeEntry();
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	private static long getBundleId(BundleInfo[] bundles, String symbolicName) {
+		for (int i = 0; i < bundles.length; i++)
+			if (symbolicName.equals(bundles[i].getSymbolicName()))
+				return bundles[i].getBundleId();
+		fail(symbolicName + " is not in the state");
+		return -1;
+	}
+
+	private static boolean contains(BundleInfo[] bundles, String symbolicName) {
+		for (int i = 0; i < bundles.length; i++)
+			if (symbolicName.equals(bundles[i].getSymbolicName()))
+				return true;
+		return false;
+	}
 }
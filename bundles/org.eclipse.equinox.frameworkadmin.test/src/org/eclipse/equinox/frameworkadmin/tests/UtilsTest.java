@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2010 IBM Corporation and others.
+ *  Copyright (c) 2005, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -10,9 +10,10 @@
  *******************************************************************************/
 package org.eclipse.equinox.frameworkadmin.tests;
 
-import java.io.File;
+import java.io.*;
 import java.net.URI;
 import org.eclipse.equinox.internal.frameworkadmin.equinox.utils.FileUtils;
+import org.eclipse.equinox.internal.frameworkadmin.utils.Utils;
 import org.eclipse.equinox.internal.provisional.frameworkadmin.Manipulator;
 import org.eclipse.osgi.service.environment.Constants;
 
@@ -65,4 +66,44 @@ public class UtilsTest extends AbstractFwkAdminTest {
 		URI res = FileUtils.getEclipseRealLocation(manipulator, "org.foo");
 		assertEquals(res, foo.toURI());
 	}
+
+	public void testReplaceFile() throws Exception {
+		File folder = Activator.getContext().getDataFile("replaceFile");
+		folder.mkdirs();
+		File target = new File(folder, "config.ini");
+		File source = new File(folder, "config.ini.tmp");
+		writeFile(target, "old");
+		writeFile(source, "new");
+		Utils.replaceFile(source, target);
+		assertEquals("new", readFile(target));
+		assertFalse(source.exists());
+
+		// a source that can not take the place of the target leaves the target as it was
+		try {
+			Utils.replaceFile(source, target);
+			fail("the missing source must not replace the target");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals("new", readFile(target));
+		assertFalse(new File(folder, "config.ini.bak").exists());
+	}
+
+	private static void writeFile(File file, String content) throws IOException {
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String readFile(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			return reader.readLine();
+		} finally {
+			reader.close();
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -386,6 +386,37 @@ public class Utils {
 		return st;
 	}
 
+	/**
+	 * Replaces the target by the completely written source, so that the readers of the target
+	 * never see a partially written file.
+	 * <p>
+	 * Where a rename does not replace an existing file, which is always the case on Windows,
+	 * the target is first renamed aside to a <code>.bak</code> file next to it. There is then
+	 * a short window in which the target is missing. If the source can not take its place,
+	 * the old target is put back and the source is kept, so that neither content is lost.
+	 * </p>
+	 * 
+	 * @param source the new content, in the same directory as the target
+	 * @param target the file to replace
+	 * @throws IOException if the source can not be renamed to the target
+	 */
+	public static void replaceFile(File source, File target) throws IOException {
+		if (source.renameTo(target))
+			return;
+		File aside = new File(target.getParentFile(), target.getName() + ".bak"); //$NON-NLS-1$
+		aside.delete();
+		if (target.exists() && !target.renameTo(aside)) {
+			// the target is untouched, the new content is given up
+			source.delete();
+			throw new IOException("Failed to rename " + target + " to " + aside); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (!source.renameTo(target)) {
+			aside.renameTo(target);
+			throw new IOException("Failed to rename " + source + " to " + target); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		aside.delete();
+	}
+
 	/**
 	 * Sort by increasing order of startlevels.
 	 * 
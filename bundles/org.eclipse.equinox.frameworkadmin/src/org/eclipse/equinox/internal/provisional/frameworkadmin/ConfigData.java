@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2010 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -29,8 +29,8 @@ public class ConfigData {
 	final private String launcherVersion;
 	private int beginningFwStartLevel = BundleInfo.NO_LEVEL;
 	private int initialBundleStartLevel = BundleInfo.NO_LEVEL;
-	// List of BundleInfo
-	private LinkedHashSet<BundleInfo> bundlesList = new LinkedHashSet<BundleInfo>();
+	// List of BundleInfo, each one mapped to itself so that it can be looked up
+	private LinkedHashMap<BundleInfo, BundleInfo> bundlesList = new LinkedHashMap<BundleInfo, BundleInfo>();
 
 	private Properties properties = new Properties();
 
@@ -43,7 +43,8 @@ public class ConfigData {
 	}
 
 	public void addBundle(BundleInfo bundleInfo) {
-		bundlesList.add(bundleInfo);
+		if (!bundlesList.containsKey(bundleInfo))
+			bundlesList.put(bundleInfo, bundleInfo);
 	}
 
 	public int getBeginingFwStartLevel() {
@@ -54,10 +55,18 @@ public class ConfigData {
 		if (bundlesList.size() == 0)
 			return new BundleInfo[0];
 		BundleInfo[] ret = new BundleInfo[bundlesList.size()];
-		bundlesList.toArray(ret);
+		bundlesList.values().toArray(ret);
 		return ret;
 	}
 
+	/**
+	 * Returns the bundle of this configuration equal to the given one, or <code>null</code>.
+	 * Unlike {@link #getBundles()} the bundles are not copied.
+	 */
+	public BundleInfo getBundle(BundleInfo bundleInfo) {
+		return bundlesList.get(bundleInfo);
+	}
+
 	public String getProperty(String key) {
 		return properties.getProperty(key);
 	}
@@ -99,7 +108,7 @@ public class ConfigData {
 	public boolean removeBundle(BundleInfo bundleInfo) {
 		if (bundleInfo == null)
 			throw new IllegalArgumentException("Bundle info can't be null:" + bundleInfo); //$NON-NLS-1$
-		return bundlesList.remove(bundleInfo);
+		return bundlesList.remove(bundleInfo) != null;
 	}
 
 	public void setBeginningFwStartLevel(int startLevel) {
@@ -110,7 +119,7 @@ public class ConfigData {
 		bundlesList.clear();
 		if (bundleInfos != null)
 			for (int i = 0; i < bundleInfos.length; i++)
-				bundlesList.add(bundleInfos[i]);
+				addBundle(bundleInfos[i]);
 	}
 
 	public void setProperty(String key, String value) {
@@ -149,7 +158,7 @@ public class ConfigData {
 		else {
 			sb.append("bundlesList=\n"); //$NON-NLS-1$
 			int i = 0;
-			for (Iterator<BundleInfo> iter = bundlesList.iterator(); iter.hasNext();) {
+			for (Iterator<BundleInfo> iter = bundlesList.values().iterator(); iter.hasNext();) {
 				sb.append("\tbundlesList[" + i + "]=" + iter.next().toString() + "\n"); //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
 				i++;
 			}
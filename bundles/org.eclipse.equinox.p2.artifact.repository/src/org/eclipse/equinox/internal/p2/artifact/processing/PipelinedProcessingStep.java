@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.processing;
+
+import java.io.*;
+import java.util.concurrent.*;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
+
+/**
+ * A step that hands the data written to it over to a worker thread, which writes it into
+ * the destination. Placed in front of a processing step, it lets the thread that produces
+ * the data, typically a download, carry on while the step processes the previous data.
+ * <p>
+ * The data is passed in chunks through a bounded queue, so a producer that is much faster
+ * than the step still waits once the queue is full. A failure of the destination is reported
+ * to the producer on its next write, and when the step is closed. Closing the step waits
+ * for the worker to write all the data, then closes the destination on the calling thread.
+ * </p>
+ * <p>
+ * A worker that finds nothing to write for a while gives its thread back, the next data
+ * starts a new one. A step that is dropped without being closed therefore does not keep
+ * a thread waiting forever.
+ * </p>
+ */
+public class PipelinedProcessingStep extends ProcessingStep {
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int QUEUE_SIZE = 16;
+	private static final long IDLE_TIMEOUT = 10; // seconds
+	// markers, compared by identity
+	private static final byte[] FLUSH = new byte[0];
+	private static final byte[] END = new byte[0];
+
+	private static ExecutorService executor;
+
+	private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+	private byte[] chunk;
+	private int count;
+	private volatile Throwable failure;
+
+	// a worker retires only once the queue is empty, both checked under the lock
+	private final Object lock = new Object();
+	private Future<?> worker;
+	private boolean running;
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "p2 processing step"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	public void write(int b) throws IOException {
+		if (chunk == null)
+			chunk = new byte[CHUNK_SIZE];
+		chunk[count++] = (byte) b;
+		if (count == chunk.length)
+			sendChunk();
+	}
+
+	public void write(byte[] bytes, int off, int len) throws IOException {
+		while (len > 0) {
+			if (chunk == null)
+				chunk = new byte[CHUNK_SIZE];
+			int length = Math.min(len, chunk.length - count);
+			System.arraycopy(bytes, off, chunk, count, length);
+			count += length;
+			off += length;
+			len -= length;
+			if (count == chunk.length)
+				sendChunk();
+		}
+	}
+
+	public void flush() throws IOException {
+		sendChunk();
+		if (worker != null)
+			send(FLUSH);
+	}
+
+	public void close() throws IOException {
+		try {
+			sendChunk();
+		} finally {
+			if (worker != null) {
+				// the worker must see the end even after a failure, it discards the data until then
+				put(END);
+				waitForWorker();
+			}
+		}
+		try {
+			checkFailure();
+		} finally {
+			super.close();
+		}
+	}
+
+	private void sendChunk() throws IOException {
+		if (count == 0)
+			return;
+		byte[] data = chunk;
+		if (count < chunk.length) {
+			data = new byte[count];
+			System.arraycopy(chunk, 0, data, 0, count);
+		} else {
+			chunk = null;
+		}
+		count = 0;
+		send(data);
+	}
+
+	private void send(byte[] data) throws IOException {
+		checkFailure();
+		put(data);
+	}
+
+	/*
+	 * Queues the data, starting a worker if the previous one has retired.
+	 */
+	private void put(byte[] data) throws IOException {
+		synchronized (lock) {
+			if (queue.offer(data)) {
+				startWorker();
+				return;
+			}
+		}
+		// the queue is full, the running worker can not retire before it has taken the data
+		try {
+			queue.put(data);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		synchronized (lock) {
+			startWorker();
+		}
+	}
+
+	private void startWorker() {
+		if (running)
+			return;
+		running = true;
+		worker = getExecutor().submit(new Runnable() {
+			public void run() {
+				drain();
+			}
+		});
+	}
+
+	private void waitForWorker() throws IOException {
+		Future<?> current;
+		synchronized (lock) {
+			current = worker;
+		}
+		try {
+			current.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			failure = e.getCause();
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		Throwable cause = failure;
+		if (cause == null)
+			return;
+		if (cause instanceof IOException)
+			throw (IOException) cause;
+		if (cause instanceof RuntimeException)
+			throw (RuntimeException) cause;
+		if (cause instanceof Error)
+			throw (Error) cause;
+		IOException ioException = new IOException(cause.getMessage());
+		ioException.initCause(cause);
+		throw ioException;
+	}
+
+	/*
+	 * Runs on the worker thread until the end marker is taken from the queue, or until
+	 * nothing was written for a while.
+	 */
+	void drain() {
+		OutputStream destination = getDestination();
+		while (true) {
+			byte[] data;
+			try {
+				data = queue.poll(IDLE_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// discard the data from now on, a producer may be waiting for room in the queue
+				failure = new InterruptedIOException();
+				continue;
+			}
+			if (data == null) {
+				synchronized (lock) {
+					if (queue.isEmpty()) {
+						running = false;
+						return;
+					}
+				}
+				continue;
+			}
+			if (data == END) {
+				synchronized (lock) {
+					running = false;
+				}
+				return;
+			}
+			if (failure != null)
+				continue;
+			try {
+				if (data == FLUSH)
+					destination.flush();
+				else
+					destination.write(data, 0, data.length);
+			} catch (Throwable t) {
+				failure = t;
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.processors.checksum;
+
+import java.io.*;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumCalculator;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Verifies any number of checksums of the bytes written through it, reading each byte once.
+ * @see ChecksumCalculator
+ */
+public class ChecksumVerifier extends ProcessingStep {
+
+	private final Map<String, String> expected;
+	private ChecksumCalculator calculator;
+
+	/**
+	 * @param expected the expected checksums as hex strings, by checksum id
+	 */
+	public ChecksumVerifier(Map<String, String> expected) {
+		super();
+		this.expected = expected;
+		String[] ids = expected.keySet().toArray(new String[expected.size()]);
+		try {
+			calculator = new ChecksumCalculator(ids);
+		} catch (NoSuchAlgorithmException e) {
+			setStatus(new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.Error_checksum_unavailable, expected.keySet()), e));
+		}
+		for (Entry<String, String> entry : expected.entrySet()) {
+			if (!isHex(entry.getValue()))
+				setStatus(new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.Error_invalid_checksum, entry.getKey().toUpperCase(), entry.getValue())));
+		}
+	}
+
+	private static boolean isHex(String value) {
+		if (value == null || value.length() == 0 || value.length() % 2 != 0)
+			return false;
+		for (int i = 0; i < value.length(); i++) {
+			if (Character.digit(value.charAt(i), 16) == -1)
+				return false;
+		}
+		return true;
+	}
+
+	public void write(int b) throws IOException {
+		if (calculator != null)
+			calculator.update(b);
+		getDestination().write(b);
+	}
+
+	public void write(byte[] bytes, int off, int len) throws IOException {
+		if (calculator != null)
+			calculator.update(bytes, off, len);
+		getDestination().write(bytes, off, len);
+	}
+
+	/**
+	 * Updates the checksums with the content of a file that the caller transfers to the
+	 * destination of this step directly instead of writing it through this step.
+	 */
+	public void updateDigest(File file) throws IOException {
+		if (calculator != null)
+			calculator.update(file);
+	}
+
+	public OutputStream getDestination() {
+		return super.getDestination();
+	}
+
+	public void close() throws IOException {
+		if (calculator != null) {
+			Map<String, String> actual = calculator.getChecksums();
+			for (Entry<String, String> entry : expected.entrySet()) {
+				String id = entry.getKey();
+				// if the checksums don't line up set the status to error.
+				if (!actual.get(id).equalsIgnoreCase(entry.getValue())) {
+					int code = ChecksumCalculator.MD5.equals(id) ? ProvisionException.ARTIFACT_MD5_NOT_MATCH : ProvisionException.ARTIFACT_CHECKSUM_NOT_MATCH;
+					setStatus(new Status(IStatus.ERROR, Activator.ID, code, NLS.bind(Messages.Error_unexpected_checksum, new Object[] {id.toUpperCase(), entry.getValue(), actual.get(id)}), null));
+				}
+			}
+		}
+		super.close();
+	}
+}
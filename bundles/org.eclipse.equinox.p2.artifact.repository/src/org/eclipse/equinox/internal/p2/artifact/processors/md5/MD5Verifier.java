@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.p2.artifact.processors.md5;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import org.eclipse.core.runtime.IStatus;
@@ -68,6 +70,38 @@ public class MD5Verifier extends ProcessingStep {
 		getDestination().write(b);
 	}
 
+	public void write(byte[] bytes, int off, int len) throws IOException {
+		md5.update(bytes, off, len);
+		getDestination().write(bytes, off, len);
+	}
+
+	/**
+	 * Updates the digest with the content of a file that the caller transfers to the
+	 * destination of this step directly instead of writing it through this step.
+	 */
+	public void updateDigest(File file) throws IOException {
+		if (md5 == null)
+			return;
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long length = Math.min(size - position, 64 * 1024 * 1024);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				md5.update(buffer);
+				position += length;
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	public OutputStream getDestination() {
+		return super.getDestination();
+	}
+
 	public void close() throws IOException {
 		byte[] digest = md5.digest();
 		StringBuffer buf = new StringBuffer();
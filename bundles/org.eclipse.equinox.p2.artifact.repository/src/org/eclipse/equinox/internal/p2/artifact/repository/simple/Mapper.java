@@ -13,14 +13,14 @@ package org.eclipse.equinox.internal.p2.artifact.repository.simple;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Dictionary;
-import java.util.Hashtable;
+import java.util.*;
 import org.eclipse.core.runtime.URIUtil;
 import org.osgi.framework.*;
 
 public class Mapper {
 	private Filter[] filters;
 	private String[] outputStrings;
+	private Rule[] rules;
 
 	private static final String REPOURL = "repoUrl"; //$NON-NLS-1$
 	private static final String CLASSIFIER = "classifier"; //$NON-NLS-1$
@@ -28,9 +28,108 @@ public class Mapper {
 	private static final String ID = "id"; //$NON-NLS-1$
 	private static final String VERSION = "version"; //$NON-NLS-1$
 
+	// the values a rule can test and a template can refer to, by index
+	private static final String[] VARIABLES = {REPOURL, CLASSIFIER, ID, VERSION, FORMAT};
+	private static final int UNKNOWN = -1;
+
+	private static final int CACHE_SIZE = 4096;
+
+	/*
+	 * A mapping rule compiled from its filter and output string. When the filter is a conjunction
+	 * of equality tests, such as the rules of the simple repository, the tests are checked on the
+	 * values directly. Other filters are matched by the framework against a dictionary.
+	 */
+	private static class Rule {
+		final Filter filter;
+		final int[] tested; // null when the filter could not be compiled
+		final String[] expected;
+		final Object[] template; // literal strings and Integer variable indexes
+
+		Rule(Filter filter, String outputString) {
+			this.filter = filter;
+			List<Integer> testedList = new ArrayList<Integer>();
+			List<String> expectedList = new ArrayList<String>();
+			if (filter != null && compileFilter(filter.toString(), testedList, expectedList)) {
+				tested = new int[testedList.size()];
+				for (int i = 0; i < tested.length; i++)
+					tested[i] = testedList.get(i).intValue();
+				expected = expectedList.toArray(new String[expectedList.size()]);
+			} else {
+				tested = null;
+				expected = null;
+			}
+			template = compileTemplate(outputString);
+		}
+
+		boolean matches(String[] values) {
+			if (filter == null)
+				return false;
+			if (tested == null)
+				return filter.match(toDictionary(values));
+			for (int i = 0; i < tested.length; i++) {
+				if (!expected[i].equals(values[tested[i]]))
+					return false;
+			}
+			return true;
+		}
+
+		URI apply(String[] values) {
+			StringBuffer output = new StringBuffer();
+			for (int i = 0; i < template.length; i++) {
+				if (template[i] instanceof String) {
+					output.append((String) template[i]);
+				} else {
+					int variable = ((Integer) template[i]).intValue();
+					String value = variable == UNKNOWN ? null : values[variable];
+					if (variable == 0 && value != null && value.endsWith("/")) //$NON-NLS-1$
+						// currently our mapping rules assume the repo URL is not "/" terminated. 
+						// This may be the case for repoURLs in the root of a URL space e.g. root of a jar file or file:/c:/
+						value = value.substring(0, value.length() - 1);
+					if (value != null)
+						output.append(value);
+				}
+			}
+			try {
+				return URIUtil.fromString(output.toString());
+			} catch (URISyntaxException e) {
+				return null;
+			}
+		}
+	}
+
+	/*
+	 * The values of a mapping, used as key of the cache.
+	 */
+	private static class Key {
+		final String[] values;
+		final int hash;
+
+		Key(String[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(values, ((Key) obj).values);
+		}
+	}
+
+	private final Map<Key, URI> cache = new LinkedHashMap<Key, URI>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L; // not serialized
+
+		protected boolean removeEldestEntry(Map.Entry<Key, URI> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
 	public Mapper() {
 		filters = new Filter[0];
 		outputStrings = new String[0];
+		rules = new Rule[0];
 	}
 
 	/**
@@ -49,74 +148,116 @@ public class Mapper {
 				e.printStackTrace();
 			}
 		}
+		Rule[] compiled = new Rule[mappingRules.length];
+		for (int i = 0; i < mappingRules.length; i++)
+			compiled[i] = new Rule(filters[i], outputStrings[i]);
+		synchronized (cache) {
+			rules = compiled;
+			cache.clear();
+		}
 	}
 
 	public URI map(URI repositoryLocation, String classifier, String id, String version, String format) {
 		String locationString = URIUtil.toUnencodedString(repositoryLocation);
-		Dictionary<String, Object> values = new Hashtable<String, Object>(5);
-		if (repositoryLocation != null)
-			values.put(REPOURL, locationString);
-
-		if (classifier != null)
-			values.put(CLASSIFIER, classifier);
-
-		if (id != null)
-			values.put(ID, id);
-
-		if (version != null)
-			values.put(VERSION, version);
-
-		if (format != null)
-			values.put(FORMAT, format);
-
-		for (int i = 0; i < filters.length; i++) {
-			if (filters[i].match(values))
-				return doReplacement(outputStrings[i], locationString, classifier, id, version, format);
+		Key key = new Key(new String[] {repositoryLocation == null ? null : locationString, classifier, id, version, format});
+		Rule[] current;
+		synchronized (cache) {
+			URI result = cache.get(key);
+			if (result != null)
+				return result;
+			current = rules;
+		}
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].matches(key.values)) {
+				URI result = current[i].apply(key.values);
+				if (result != null) {
+					synchronized (cache) {
+						if (rules == current)
+							cache.put(key, result);
+					}
+				}
+				return result;
+			}
 		}
 		return null;
 	}
 
-	private URI doReplacement(String pattern, String repoLocation, String classifier, String id, String version, String format) {
-		try {
-			// currently our mapping rules assume the repo URL is not "/" terminated. 
-			// This may be the case for repoURLs in the root of a URL space e.g. root of a jar file or file:/c:/
-			if (repoLocation.endsWith("/")) //$NON-NLS-1$
-				repoLocation = repoLocation.substring(0, repoLocation.length() - 1);
-
-			StringBuffer output = new StringBuffer(pattern);
-			int index = 0;
-			while (index < output.length()) {
-				int beginning = output.indexOf("${", index); //$NON-NLS-1$
-				if (beginning == -1)
-					return URIUtil.fromString(output.toString());
-
-				int end = output.indexOf("}", beginning); //$NON-NLS-1$
-				if (end == -1)
-					return URIUtil.fromString(pattern);
-
-				String varName = output.substring(beginning + 2, end);
-				String varValue = null;
-				if (varName.equalsIgnoreCase(CLASSIFIER)) {
-					varValue = classifier;
-				} else if (varName.equalsIgnoreCase(ID)) {
-					varValue = id;
-				} else if (varName.equalsIgnoreCase(VERSION)) {
-					varValue = version;
-				} else if (varName.equalsIgnoreCase(REPOURL)) {
-					varValue = repoLocation;
-				} else if (varName.equalsIgnoreCase(FORMAT)) {
-					varValue = format;
-				}
-				if (varValue == null)
-					varValue = ""; //$NON-NLS-1$
+	private static Dictionary<String, Object> toDictionary(String[] values) {
+		Dictionary<String, Object> result = new Hashtable<String, Object>(5);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null)
+				result.put(VARIABLES[i], values[i]);
+		}
+		return result;
+	}
+
+	private static int indexOf(String variable) {
+		for (int i = 0; i < VARIABLES.length; i++) {
+			if (VARIABLES[i].equalsIgnoreCase(variable))
+				return i;
+		}
+		return UNKNOWN;
+	}
 
-				output.replace(beginning, end + 1, varValue);
-				index = beginning + varValue.length();
+	/*
+	 * Compiles filters of the form (&(key=value)...) or (key=value) where the values have no
+	 * wildcards or escapes. Returns false for any other filter.
+	 */
+	static boolean compileFilter(String filter, List<Integer> tested, List<String> expected) {
+		String items = filter;
+		if (items.startsWith("(&") && items.endsWith(")")) //$NON-NLS-1$ //$NON-NLS-2$
+			items = items.substring(2, items.length() - 1);
+		int index = 0;
+		while (index < items.length()) {
+			char c = items.charAt(index);
+			if (c == ' ') {
+				index++;
+				continue;
 			}
-			return URIUtil.fromString(output.toString());
-		} catch (URISyntaxException e) {
-			return null;
+			int end = items.indexOf(')', index);
+			if (c != '(' || end == -1)
+				return false;
+			String item = items.substring(index + 1, end);
+			int equals = item.indexOf('=');
+			if (equals <= 0 || item.indexOf('(') >= 0 || item.indexOf('*') >= 0 || item.indexOf('\\') >= 0 || item.indexOf(' ') >= 0)
+				return false;
+			char operator = item.charAt(equals - 1);
+			if (operator == '~' || operator == '<' || operator == '>')
+				return false;
+			int variable = indexOf(item.substring(0, equals));
+			if (variable == UNKNOWN)
+				return false;
+			tested.add(Integer.valueOf(variable));
+			expected.add(item.substring(equals + 1));
+			index = end + 1;
+		}
+		return !tested.isEmpty();
+	}
+
+	/*
+	 * Splits an output string into literals and variables. A "${" without a closing "}" makes the
+	 * whole output string a literal, unknown variables are replaced by nothing.
+	 */
+	static Object[] compileTemplate(String pattern) {
+		if (pattern == null)
+			return new Object[] {""}; //$NON-NLS-1$
+		List<Object> result = new ArrayList<Object>();
+		int index = 0;
+		while (index < pattern.length()) {
+			int beginning = pattern.indexOf("${", index); //$NON-NLS-1$
+			if (beginning == -1)
+				break;
+			int end = pattern.indexOf("}", beginning); //$NON-NLS-1$
+			if (end == -1)
+				return new Object[] {pattern};
+			if (beginning > index)
+				result.add(pattern.substring(index, beginning));
+			result.add(Integer.valueOf(indexOf(pattern.substring(beginning + 2, end))));
+			index = end + 1;
 		}
+		if (index < pattern.length())
+			result.add(pattern.substring(index));
+		return result.toArray();
 	}
 
 	public String toString() {
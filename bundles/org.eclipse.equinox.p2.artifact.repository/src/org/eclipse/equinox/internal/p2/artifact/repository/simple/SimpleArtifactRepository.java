@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,13 +18,14 @@ package org.eclipse.equinox.internal.p2.artifact.repository.simple;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.equinox.internal.p2.artifact.processors.md5.MD5Verifier;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
 import org.eclipse.equinox.internal.p2.artifact.repository.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.Messages;
 import org.eclipse.equinox.internal.p2.core.helpers.FileUtils;
@@ -33,6 +34,7 @@ import org.eclipse.equinox.internal.p2.metadata.expression.CompoundIterator;
 import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.internal.p2.repository.DownloadStatus;
 import org.eclipse.equinox.internal.p2.repository.Transport;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumCalculator;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.*;
 import org.eclipse.equinox.internal.provisional.p2.repository.IStateful;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
@@ -102,6 +104,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		private File file;
 		private IStatus status = Status.OK_STATUS;
 		private OutputStream firstLink;
+		private FileOutputStream fileTarget;
 
 		public ArtifactOutputStream(OutputStream os, IArtifactDescriptor descriptor) {
 			this(os, descriptor, null);
@@ -113,6 +116,43 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 			this.file = file;
 		}
 
+		ArtifactOutputStream(OutputStream os, IArtifactDescriptor descriptor, File file, FileOutputStream fileTarget) {
+			this(os, descriptor, file);
+			this.fileTarget = fileTarget;
+		}
+
+		/**
+		 * Returns whether {@link #transferFrom(File)} can hand the copy to the file system.
+		 */
+		boolean canTransfer() {
+			return fileTarget != null;
+		}
+
+		/**
+		 * Appends the content of the given file to the artifact. The bytes are moved by
+		 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+		 * rather than through a buffer in memory.
+		 * 
+		 * @return the number of bytes copied
+		 */
+		long transferFrom(File in) throws IOException {
+			// whatever was written through the buffer so far has to precede the transferred bytes
+			destination.flush();
+			FileInputStream input = new FileInputStream(in);
+			try {
+				FileChannel source = input.getChannel();
+				FileChannel target = fileTarget.getChannel();
+				long size = source.size();
+				long position = 0;
+				while (position < size)
+					position += source.transferTo(position, size - position, target);
+				count += size;
+				return size;
+			} finally {
+				input.close();
+			}
+		}
+
 		public void close() throws IOException {
 			if (closed)
 				return;
@@ -435,8 +475,11 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	private synchronized OutputStream addPostSteps(ProcessingStepHandler handler, IArtifactDescriptor descriptor, OutputStream destination, IProgressMonitor monitor) {
 		ArrayList<ProcessingStep> steps = new ArrayList<ProcessingStep>();
 		steps.add(new SignatureVerifier());
-		if (MD5_ARTIFACT_CHECK_ENABLED && descriptor.getProperty(IArtifactDescriptor.ARTIFACT_MD5) != null)
-			steps.add(new MD5Verifier(descriptor.getProperty(IArtifactDescriptor.ARTIFACT_MD5)));
+		Map<String, String> checksums = ChecksumCalculator.getArtifactChecksums(descriptor);
+		if (!MD5_ARTIFACT_CHECK_ENABLED)
+			checksums.remove(ChecksumCalculator.MD5);
+		if (!checksums.isEmpty())
+			steps.add(new ChecksumVerifier(checksums));
 		if (steps.isEmpty())
 			return destination;
 		ProcessingStep[] stepArray = steps.toArray(new ProcessingStep[steps.size()]);
@@ -448,8 +491,9 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		ArrayList<ProcessingStep> steps = new ArrayList<ProcessingStep>();
 		if (IArtifactDescriptor.TYPE_ZIP.equals(descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE)))
 			steps.add(new ZipVerifierStep());
-		if (MD5_CHECK_ENABLED && descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_MD5) != null)
-			steps.add(new MD5Verifier(descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_MD5)));
+		ProcessingStep verifier = createDownloadVerifier(descriptor);
+		if (verifier != null)
+			steps.add(verifier);
 		// Add steps here if needed
 		if (steps.isEmpty())
 			return destination;
@@ -458,6 +502,17 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return handler.link(stepArray, destination, monitor);
 	}
 
+	/**
+	 * Returns a step verifying all the checksums of the transferred bytes declared by the
+	 * given descriptor in a single pass, or <code>null</code> if there is nothing to verify.
+	 */
+	public static ProcessingStep createDownloadVerifier(IArtifactDescriptor descriptor) {
+		Map<String, String> checksums = ChecksumCalculator.getDownloadChecksums(descriptor);
+		if (!MD5_CHECK_ENABLED)
+			checksums.remove(ChecksumCalculator.MD5);
+		return checksums.isEmpty() ? null : new ChecksumVerifier(checksums);
+	}
+
 	private byte[] bytesFromHexString(String string) {
 		byte[] bytes = new byte[UniversalUniqueIdentifier.BYTES_SIZE];
 		for (int i = 0; i < string.length(); i += 2) {
@@ -629,6 +684,10 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	 * @return the number of bytes written.
 	 */
 	private IStatus copyFileToStream(File in, OutputStream out, IProgressMonitor monitor) {
+		ArtifactOutputStream fileTarget = getTransferTarget(out);
+		if (fileTarget != null)
+			return transferFileToStream(in, out, fileTarget, monitor);
+
 		// Buffer filled with contents from the stream at a time
 		int bufferSize = 16 * 1024;
 		byte[] buffer = new byte[bufferSize];
@@ -660,10 +719,55 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return status;
 	}
 
+	/**
+	 * Returns the artifact stream of a local file repository that the given stream ends in, if the bytes
+	 * can be handed to it directly. That is the case when there are no processing steps in between, or
+	 * only a checksum verifier which can compute its digests from the file instead.
+	 */
+	private ArtifactOutputStream getTransferTarget(OutputStream out) {
+		OutputStream target = out;
+		if (target instanceof ChecksumVerifier && ((ChecksumVerifier) target).getStatus().isOK())
+			target = ((ChecksumVerifier) target).getDestination();
+		if (target instanceof ArtifactOutputStream && ((ArtifactOutputStream) target).canTransfer())
+			return (ArtifactOutputStream) target;
+		return null;
+	}
+
+	/**
+	 * Copy a file to the file backing an artifact stream without going through user space buffers.
+	 * A verifier in front of the artifact stream is fed from the source file so it still checks the result on close.
+	 */
+	private IStatus transferFileToStream(File in, OutputStream out, ArtifactOutputStream target, IProgressMonitor monitor) {
+		SubMonitor sub = SubMonitor.convert(monitor, Messages.downloading + in.getName(), 2);
+		IStatus status = new DownloadStatus(IStatus.OK, Activator.ID, Status.OK_STATUS.getMessage());
+		try {
+			long start = System.currentTimeMillis();
+			if (out instanceof ChecksumVerifier)
+				((ChecksumVerifier) out).updateDigest(in);
+			sub.worked(1);
+			long size = target.transferFrom(in);
+			sub.worked(1);
+			long end = System.currentTimeMillis();
+			((DownloadStatus) status).setFileSize(size);
+			((DownloadStatus) status).setLastModified(in.lastModified());
+			((DownloadStatus) status).setTransferRate(size / Math.max((end - start), 1) * 1000);
+		} catch (IOException ioe) {
+			status = new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.error_copying_local_file, in.getAbsolutePath()), ioe);
+		}
+		sub.done();
+		return status;
+	}
+
 	private IStatus downloadArtifact(IArtifactDescriptor descriptor, URI mirrorLocation, OutputStream destination, IProgressMonitor monitor) {
+		return downloadArtifact(descriptor, mirrorLocation, destination, 0, monitor);
+	}
+
+	private IStatus downloadArtifact(IArtifactDescriptor descriptor, URI mirrorLocation, OutputStream destination, long offset, IProgressMonitor monitor) {
 		//Bug 340352: transport has performance overhead of 100ms and more, bypass it for local copies
 		IStatus result = Status.OK_STATUS;
-		if (mirrorLocation.getScheme().equals(SimpleArtifactRepositoryFactory.PROTOCOL_FILE))
+		if (offset > 0)
+			result = getTransport().download(mirrorLocation, destination, offset, monitor);
+		else if (mirrorLocation.getScheme().equals(SimpleArtifactRepositoryFactory.PROTOCOL_FILE))
 			result = copyFileToStream(new File(mirrorLocation), destination, monitor);
 		else
 			result = getTransport().download(mirrorLocation, destination, monitor);
@@ -732,6 +836,27 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return downloadArtifact(descriptor, destination, monitor);
 	}
 
+	/**
+	 * Writes the bytes of the artifact from the given offset on into the destination, for a caller
+	 * that already holds the first bytes from an interrupted transfer. Like
+	 * {@link #getRawArtifact(IArtifactDescriptor, OutputStream, IProgressMonitor)} the bytes are
+	 * fetched from the best available mirror, and a failure returns {@link #CODE_RETRY} while
+	 * other mirrors are left. No processing step is applied and the destination is not closed.
+	 */
+	public IStatus getRawArtifact(IArtifactDescriptor descriptor, OutputStream destination, long offset, IProgressMonitor monitor) {
+		if (offset <= 0)
+			return getRawArtifact(descriptor, destination, monitor);
+		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
+			load(new NullProgressMonitor());
+		}
+		if (monitor.isCanceled())
+			return Status.CANCEL_STATUS;
+		URI baseLocation = isFolderBased(descriptor) ? null : getLocation(descriptor);
+		if (baseLocation == null)
+			return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.no_location, descriptor));
+		return downloadArtifact(descriptor, getMirror(baseLocation, monitor), destination, offset, monitor);
+	}
+
 	public synchronized IArtifactDescriptor[] getArtifactDescriptors(IArtifactKey key) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
@@ -950,6 +1075,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		}
 
 		OutputStream target = null;
+		FileOutputStream fileTarget = null;
 		try {
 			if (isFolderBased(newDescriptor)) {
 				mkdirs(outputFile);
@@ -962,12 +1088,13 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 				mkdirs(parent);
 				if (!parent.isDirectory())
 					throw failedWrite(new IOException(NLS.bind(Messages.sar_failedMkdir, parent.toString())));
-				target = new FileOutputStream(file);
+				fileTarget = new FileOutputStream(file);
+				target = fileTarget;
 			}
 
 			// finally create and return an output stream suitably wrapped so that when it is 
 			// closed the repository is updated with the descriptor
-			return new ArtifactOutputStream(new BufferedOutputStream(target), newDescriptor, outputFile);
+			return new ArtifactOutputStream(new BufferedOutputStream(target), newDescriptor, outputFile, fileTarget);
 		} catch (IOException e) {
 			throw failedWrite(e);
 		}
@@ -1248,7 +1375,8 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 					((JarOutputStream) os).putNextEntry(new JarEntry(new Path(artifactsFile.getAbsolutePath()).lastSegment()));
 				}
 				super.setProperty(IRepository.PROP_TIMESTAMP, Long.toString(System.currentTimeMillis()), new NullProgressMonitor());
-				new SimpleArtifactRepositoryIO(getProvisioningAgent()).write(this, os);
+				// a compressed repository is not meant to be read by people, it does not need to be indented
+				new SimpleArtifactRepositoryIO(getProvisioningAgent()).write(this, os, !compress);
 			} catch (IOException e) {
 				// TODO proper exception handling
 				e.printStackTrace();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.equinox.internal.p2.artifact.repository.simple;
 import java.io.*;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.Callable;
 import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
@@ -52,15 +53,16 @@ public class SimpleArtifactRepositoryIO {
 	}
 
 	/**
-	 * Writes the given artifact repository to the stream.
+	 * Writes the given artifact repository to the stream, indenting the XML when
+	 * <code>indent</code> is <code>true</code>.
 	 * This method performs buffering, and closes the stream when finished.
 	 */
-	public void write(SimpleArtifactRepository repository, OutputStream output) {
+	public void write(SimpleArtifactRepository repository, OutputStream output, boolean indent) {
 		OutputStream bufferedOutput = null;
 		try {
 			try {
 				bufferedOutput = new BufferedOutputStream(output);
-				Writer repositoryWriter = new Writer(bufferedOutput);
+				Writer repositoryWriter = new Writer(bufferedOutput, indent);
 				repositoryWriter.write(repository);
 			} finally {
 				if (bufferedOutput != null) {
@@ -218,8 +220,8 @@ public class SimpleArtifactRepositoryIO {
 	// XML writer for a SimpleArtifactRepository
 	protected class Writer extends XMLWriter implements XMLConstants {
 
-		public Writer(OutputStream output) throws IOException {
-			super(output, PI_DEFAULTS);
+		public Writer(OutputStream output, boolean indent) throws IOException {
+			super(output, PI_DEFAULTS, indent);
 		}
 
 		/**
@@ -460,14 +462,23 @@ public class SimpleArtifactRepositoryIO {
 			}
 		}
 
+		/*
+		 * When the collection is large, this thread only reads the artifacts, each descriptor is
+		 * completed on another thread as soon as its artifact has been read. The descriptors are
+		 * added in document order.
+		 */
 		protected class ArtifactsHandler extends AbstractHandler {
 
 			private Set<SimpleArtifactDescriptor> artifacts;
+			// completes the descriptors read, null when they are completed on this thread
+			private ParallelBuild<SimpleArtifactDescriptor> parallelBuild = null;
 
 			public ArtifactsHandler(AbstractHandler parentHandler, Attributes attributes) {
 				super(parentHandler, ARTIFACTS_ELEMENT);
 				String size = parseOptionalAttribute(attributes, COLLECTION_SIZE_ATTRIBUTE);
 				artifacts = (size != null ? new LinkedHashSet<SimpleArtifactDescriptor>(Integer.parseInt(size)) : new LinkedHashSet<SimpleArtifactDescriptor>(4));
+				if (size != null && isParallelBuild(Integer.parseInt(size)))
+					parallelBuild = new ParallelBuild<SimpleArtifactDescriptor>();
 			}
 
 			public Set<SimpleArtifactDescriptor> getArtifacts() {
@@ -476,11 +487,16 @@ public class SimpleArtifactRepositoryIO {
 
 			public void startElement(String name, Attributes attributes) {
 				if (name.equals(ARTIFACT_ELEMENT)) {
-					new ArtifactHandler(this, attributes, artifacts);
+					new ArtifactHandler(this, attributes, artifacts, parallelBuild);
 				} else {
 					invalidElement(name, attributes);
 				}
 			}
+
+			protected void finished() {
+				if (parallelBuild != null)
+					artifacts.addAll(parallelBuild.finish());
+			}
 		}
 
 		protected class ArtifactHandler extends AbstractHandler {
@@ -494,9 +510,20 @@ public class SimpleArtifactRepositoryIO {
 			private PropertiesHandler repositoryPropertiesHandler = null;
 			private ProcessingStepsHandler processingStepsHandler = null;
 
+			private ParallelBuild<SimpleArtifactDescriptor> parallelBuild;
+
 			public ArtifactHandler(AbstractHandler parentHandler, Attributes attributes, Set<SimpleArtifactDescriptor> artifacts) {
+				this(parentHandler, attributes, artifacts, null);
+			}
+
+			/*
+			 * Creates a handler whose descriptor is completed by the given parallel build once
+			 * the artifact has been read, if parallelBuild is not null.
+			 */
+			public ArtifactHandler(AbstractHandler parentHandler, Attributes attributes, Set<SimpleArtifactDescriptor> artifacts, ParallelBuild<SimpleArtifactDescriptor> parallelBuild) {
 				super(parentHandler, ARTIFACT_ELEMENT);
 				this.artifacts = artifacts;
+				this.parallelBuild = parallelBuild;
 				String[] values = parseRequiredAttributes(attributes, required);
 				Version version = checkVersion(ARTIFACT_ELEMENT, VERSION_ATTRIBUTE, values[2]);
 				// TODO: resolve access restriction on ArtifactKey construction
@@ -529,17 +556,34 @@ public class SimpleArtifactRepositoryIO {
 
 			protected void finished() {
 				if (isValidXML() && currentArtifact != null) {
-					Map<String, String> properties = (propertiesHandler == null ? new OrderedProperties(0) : propertiesHandler.getProperties());
-					currentArtifact.addProperties(properties);
+					if (parallelBuild != null) {
+						parallelBuild.submit(new Callable<SimpleArtifactDescriptor>() {
+							public SimpleArtifactDescriptor call() {
+								build();
+								return currentArtifact;
+							}
+						});
+					} else {
+						build();
+						artifacts.add(currentArtifact);
+					}
+				}
+			}
 
-					properties = (repositoryPropertiesHandler == null ? new OrderedProperties(0) : repositoryPropertiesHandler.getProperties());
-					currentArtifact.addRepositoryProperties(properties);
+			/*
+			 * Completes the descriptor with what has been read. This does not use the XML reader,
+			 * and may run on another thread than the one that read the artifact.
+			 */
+			void build() {
+				Map<String, String> properties = (propertiesHandler == null ? new OrderedProperties(0) : propertiesHandler.getProperties());
+				currentArtifact.addProperties(properties);
 
-					IProcessingStepDescriptor[] processingSteps = (processingStepsHandler == null ? new ProcessingStepDescriptor[0] //
-							: processingStepsHandler.getProcessingSteps());
-					currentArtifact.setProcessingSteps(processingSteps);
-					artifacts.add(currentArtifact);
-				}
+				properties = (repositoryPropertiesHandler == null ? new OrderedProperties(0) : repositoryPropertiesHandler.getProperties());
+				currentArtifact.addRepositoryProperties(properties);
+
+				IProcessingStepDescriptor[] processingSteps = (processingStepsHandler == null ? new ProcessingStepDescriptor[0] //
+						: processingStepsHandler.getProcessingSteps());
+				currentArtifact.setProcessingSteps(processingSteps);
 			}
 		}
 
@@ -14,6 +14,7 @@ package org.eclipse.equinox.internal.provisional.p2.artifact.repository.processi
 import java.io.OutputStream;
 import java.util.ArrayList;
 import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.artifact.processing.PipelinedProcessingStep;
 import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository.ArtifactOutputStream;
 import org.eclipse.equinox.internal.provisional.p2.repository.IStateful;
@@ -29,6 +30,13 @@ public class ProcessingStepHandler {
 
 	private static final String PROCESSING_STEPS_EXTENSION_ID = "org.eclipse.equinox.p2.artifact.repository.processingSteps"; //$NON-NLS-1$
 
+	/**
+	 * System property that makes new handlers run every linked step on a thread of its own.
+	 */
+	public static final String PROP_PIPELINED = "eclipse.p2.processing.pipelined"; //$NON-NLS-1$
+
+	private boolean pipelined = Boolean.getBoolean(PROP_PIPELINED);
+
 	//TODO This method can go
 	public static IStatus checkStatus(OutputStream output) {
 		return getStatus(output, true);
@@ -92,7 +100,7 @@ public class ProcessingStepHandler {
 			// Errors past this should be bogus as they rely on output from this step
 			return status.getSeverity();
 
-		OutputStream destination = getDestination(stream);
+		OutputStream destination = getDestination(skipHandOver(stream));
 		if (destination == null || !(destination instanceof IStateful))
 			return status.getSeverity();
 		int result = collectErrorStatus(destination, list);
@@ -102,6 +110,7 @@ public class ProcessingStepHandler {
 	}
 
 	public static IStatus getStatus(OutputStream stream) {
+		stream = skipHandOver(stream);
 		if (stream instanceof IStateful)
 			return ((IStateful) stream).getStatus();
 		return Status.OK_STATUS;
@@ -110,7 +119,7 @@ public class ProcessingStepHandler {
 	private static int collectStatus(OutputStream stream, ArrayList<IStatus> list) {
 		IStatus status = getStatus(stream);
 		list.add(status);
-		OutputStream destination = getDestination(stream);
+		OutputStream destination = getDestination(skipHandOver(stream));
 		if (destination == null || !(destination instanceof IStateful))
 			return status.getSeverity();
 		int result = collectStatus(destination, list);
@@ -119,6 +128,13 @@ public class ProcessingStepHandler {
 		return status.getSeverity() > result ? status.getSeverity() : result;
 	}
 
+	// the steps that hand data over to another thread are not part of the results
+	private static OutputStream skipHandOver(OutputStream stream) {
+		while (stream instanceof PipelinedProcessingStep)
+			stream = ((ProcessingStep) stream).getDestination();
+		return stream;
+	}
+
 	private static OutputStream getDestination(OutputStream stream) {
 		if (stream instanceof ProcessingStep)
 			return ((ProcessingStep) stream).getDestination();
@@ -164,12 +180,30 @@ public class ProcessingStepHandler {
 		return link(steps, output, monitor);
 	}
 
+	/**
+	 * Sets whether the steps linked by this handler each run on a thread of their own. The
+	 * thread writing into the chain then only hands the data over to the first step, and steps
+	 * that verify or transform the data do not slow down the thread producing it.
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
 	public OutputStream link(ProcessingStep[] steps, OutputStream output, IProgressMonitor monitor) {
 		OutputStream previous = output;
 		for (int i = steps.length - 1; i >= 0; i--) {
 			ProcessingStep step = steps[i];
 			step.link(previous, monitor);
 			previous = step;
+			if (pipelined) {
+				ProcessingStep handOver = new PipelinedProcessingStep();
+				handOver.link(previous, monitor);
+				previous = handOver;
+			}
 		}
 		if (steps.length == 0)
 			return previous;
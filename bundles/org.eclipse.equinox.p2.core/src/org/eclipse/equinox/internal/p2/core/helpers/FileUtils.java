@@ -69,6 +69,9 @@ public class FileUtils {
 				throw ioException;
 			}
 		}
+		File[] extracted = extractZipFile(zipFile, outputDir);
+		if (extracted != null)
+			return extracted;
 		InputStream in = new FileInputStream(zipFile);
 		try {
 			return unzipStream(in, zipFile.length(), outputDir, null, null);
@@ -87,6 +90,9 @@ public class FileUtils {
 	 * monitor may be null.
 	 */
 	public static File[] unzipFile(File zipFile, File outputDir, String taskName, IProgressMonitor monitor) throws IOException {
+		File[] extracted = extractZipFile(zipFile, outputDir);
+		if (extracted != null)
+			return extracted;
 		InputStream in = new FileInputStream(zipFile);
 		try {
 			return unzipStream(in, zipFile.length(), outputDir, taskName, monitor);
@@ -100,6 +106,28 @@ public class FileUtils {
 		}
 	}
 
+	/*
+	 * Extract the zip file from its central directory, returns null if it must be streamed instead.
+	 */
+	private static File[] extractZipFile(File zipFile, final File outputDir) throws IOException {
+		try {
+			return ZipExtractor.extract(zipFile, new ZipExtractor.IEntryHandler() {
+				public File getTarget(ZipEntry entry) {
+					return new File(outputDir, entry.getName());
+				}
+
+				public void replace(File existing) {
+					existing.delete();
+				}
+			});
+		} catch (IOException e) {
+			// add the file name to the message
+			IOException ioException = new IOException(NLS.bind(Messages.Util_Error_Unzipping, zipFile, e.getMessage()));
+			ioException.initCause(e);
+			throw ioException;
+		}
+	}
+
 	/**
 	 * Unzip from an InputStream to an output directory.
 	 */
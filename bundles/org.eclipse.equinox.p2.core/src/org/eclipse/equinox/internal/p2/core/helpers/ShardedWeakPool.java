@@ -0,0 +1,153 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.core.helpers;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.equinox.p2.core.IPool;
+import org.eclipse.equinox.p2.core.WeakPool;
+
+/**
+ * A {@link WeakPool} that can be shared by any number of threads. The objects are spread
+ * over shards by hash code, each shard locked on its own, so that threads adding different
+ * objects rarely wait for each other. The number of objects of a shard is bounded: a full
+ * shard is emptied before the next object is added, which loses sharing but never
+ * correctness since the pool only ever returns objects equal to the given one.
+ * <p>
+ * The pool counts its hits and misses to tell whether sharing a kind of object pays off.
+ * </p>
+ */
+public class ShardedWeakPool<T> implements IPool<T> {
+	private static final int DEFAULT_SHARDS = 16;
+
+	private final String name;
+	private final Map<T, WeakReference<T>>[] shards;
+	private final int mask;
+	private final int shardCapacity;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param name the name of the pool, for the statistics
+	 * @param capacity the maximum number of objects of the pool
+	 */
+	public ShardedWeakPool(String name, int capacity) {
+		this(name, capacity, DEFAULT_SHARDS);
+	}
+
+	/**
+	 * @param name the name of the pool, for the statistics
+	 * @param capacity the maximum number of objects of the pool
+	 * @param shardCount the number of shards, rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public ShardedWeakPool(String name, int capacity, int shardCount) {
+		int count = 1;
+		while (count < shardCount)
+			count <<= 1;
+		this.name = name;
+		this.shards = new Map[count];
+		for (int i = 0; i < count; i++)
+			shards[i] = new WeakHashMap<T, WeakReference<T>>();
+		this.mask = count - 1;
+		this.shardCapacity = Math.max(1, capacity / count);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.p2.core.IPool#add(T)
+	 */
+	public T add(T newObject) {
+		if (newObject == null)
+			return null;
+
+		int hash = newObject.hashCode();
+		// spread the high bits, the shards are selected by the low ones
+		Map<T, WeakReference<T>> shard = shards[(hash ^ (hash >>> 16)) & mask];
+		synchronized (shard) {
+			WeakReference<T> weakReference = shard.get(newObject);
+			if (weakReference != null) {
+				T reference = weakReference.get();
+				if (reference != null) {
+					hits.incrementAndGet();
+					return reference;
+				}
+			}
+			if (shard.size() >= shardCapacity) {
+				shard.clear();
+				evictions.incrementAndGet();
+			}
+			shard.put(newObject, new WeakReference<T>(newObject));
+		}
+		misses.incrementAndGet();
+		return newObject;
+	}
+
+	/**
+	 * Returns the number of objects in the pool that have not been garbage collected.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < shards.length; i++) {
+			synchronized (shards[i]) {
+				size += shards[i].size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all the objects of the pool and resets its statistics.
+	 */
+	public void clear() {
+		for (int i = 0; i < shards.length; i++) {
+			synchronized (shards[i]) {
+				shards[i].clear();
+			}
+		}
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of times {@link #add(Object)} returned a pooled object.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of times {@link #add(Object)} added the given object.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of times a full shard was emptied.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public String toString() {
+		long h = getHits();
+		long total = h + getMisses();
+		return name + ": " + size() + " objects, " + h + " hits, " + getMisses() + " misses (" + (total == 0 ? 0 : h * 100 / total) + "% hits), " + getEvictions() + " evictions"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+	}
+}
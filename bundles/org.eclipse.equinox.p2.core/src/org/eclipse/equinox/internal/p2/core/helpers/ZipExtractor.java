@@ -0,0 +1,204 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.core.helpers;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Extracts a zip file from its central directory, writing the content of independent
+ * entries concurrently.
+ * <p>
+ * Everything that has to be deterministic happens on the calling thread, in the order of
+ * the central directory: the selection of the entries, the creation of directories and the
+ * handling of the files about to be replaced. Only the content of the files is written by
+ * the worker threads, into files that are preallocated to the size of their entry.
+ * </p>
+ */
+public class ZipExtractor {
+
+	/**
+	 * Decides where the entries of a zip file go. All methods are called on the thread
+	 * that runs the extraction, in the order of the entries in the zip file.
+	 */
+	public static interface IEntryHandler {
+		/**
+		 * Returns the file the entry is extracted to, or <code>null</code> if the entry
+		 * must be skipped.
+		 */
+		public File getTarget(ZipEntry entry);
+
+		/**
+		 * Called before the given existing file is replaced by an extracted entry.
+		 * The handler must move the file out of the way.
+		 */
+		public void replace(File existing) throws IOException;
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// below this amount of content the thread hand-off costs more than it saves
+	private static final long PARALLEL_THRESHOLD = 1024 * 1024;
+	private static final int MAX_WORKERS = 4;
+
+	private static class Task implements Callable<Object> {
+		final ZipFile zip;
+		final File target;
+		ZipEntry entry;
+
+		Task(ZipFile zip, ZipEntry entry, File target) {
+			this.zip = zip;
+			this.entry = entry;
+			this.target = target;
+		}
+
+		public Object call() throws IOException {
+			extract(zip, entry, target, new byte[BUFFER_SIZE]);
+			return null;
+		}
+	}
+
+	/**
+	 * Extracts the given zip file. Returns the files and directories that were extracted,
+	 * in the order of the entries in the zip file, or <code>null</code> if the central
+	 * directory of the zip file cannot be read. Such files may still be extracted by
+	 * streaming them through a {@link ZipInputStream}.
+	 *
+	 * @throws IOException if the zip file cannot be read, or has no entries
+	 */
+	public static File[] extract(File zipFile, IEntryHandler handler) throws IOException {
+		ZipFile zip;
+		try {
+			zip = new ZipFile(zipFile);
+		} catch (ZipException e) {
+			return null;
+		}
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			if (!entries.hasMoreElements())
+				throw new IOException(Messages.Util_Invalid_Zip_File_Format);
+
+			List<File> extracted = new ArrayList<File>();
+			// a file that occurs twice in the zip is written once, with the content of the last entry
+			Map<File, Task> tasks = new LinkedHashMap<File, Task>();
+			long totalSize = 0;
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				File outFile = handler.getTarget(entry);
+				if (outFile == null)
+					continue;
+				extracted.add(outFile);
+				if (entry.isDirectory()) {
+					outFile.mkdirs();
+					continue;
+				}
+				Task task = tasks.get(outFile);
+				if (task != null) {
+					task.entry = entry;
+					continue;
+				}
+				if (outFile.exists())
+					handler.replace(outFile);
+				else
+					outFile.getParentFile().mkdirs();
+				tasks.put(outFile, new Task(zip, entry, outFile));
+				if (entry.getSize() > 0)
+					totalSize += entry.getSize();
+			}
+
+			int workers = Math.min(Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()), tasks.size());
+			if (workers > 1 && totalSize >= PARALLEL_THRESHOLD) {
+				extractInParallel(tasks.values(), workers);
+			} else {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				for (Task task : tasks.values())
+					extract(zip, task.entry, task.target, buffer);
+			}
+			return extracted.toArray(new File[extracted.size()]);
+		} finally {
+			zip.close();
+		}
+	}
+
+	private static void extractInParallel(Collection<Task> tasks, int workers) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>(tasks.size());
+			for (Task task : tasks)
+				futures.add(executor.submit(task));
+			for (Future<Object> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					for (Future<Object> other : futures)
+						other.cancel(false);
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException)
+						throw (IOException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					IOException ioException = new IOException(cause.getMessage());
+					ioException.initCause(cause);
+					throw ioException;
+				} catch (InterruptedException e) {
+					for (Future<Object> other : futures)
+						other.cancel(true);
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				// the zip file is closed by the caller, the workers must be done with it
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	static void extract(ZipFile zip, ZipEntry entry, File outFile, byte[] buffer) throws IOException {
+		RandomAccessFile out;
+		try {
+			out = new RandomAccessFile(outFile, "rw"); //$NON-NLS-1$
+		} catch (FileNotFoundException e) {
+			// TEMP: ignore this for now in case we're trying to replace
+			// a running eclipse.exe
+			return;
+		}
+		try {
+			long size = entry.getSize();
+			if (size > 0)
+				out.setLength(size);
+			InputStream in = zip.getInputStream(entry);
+			try {
+				long written = 0;
+				int len;
+				while ((len = in.read(buffer)) != -1) {
+					out.write(buffer, 0, len);
+					written += len;
+				}
+				// "rw" does not truncate an existing file, and the size recorded in the central
+				// directory is not to be trusted either
+				out.setLength(written);
+			} finally {
+				in.close();
+			}
+		} finally {
+			out.close();
+		}
+		outFile.setLastModified(entry.getTime());
+	}
+}
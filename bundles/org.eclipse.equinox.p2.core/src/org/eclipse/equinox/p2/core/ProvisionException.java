@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2011 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -107,6 +107,13 @@ public class ProvisionException extends CoreException {
 	 */
 	public static final int ARTIFACT_MD5_NOT_MATCH = 1203;
 
+	/**
+	 * Status code constant (value 1204) indicating an artifact's checksum, other
+	 * than its md5, does not match the expected value.
+	 * @since 2.5
+	 */
+	public static final int ARTIFACT_CHECKSUM_NOT_MATCH = 1204;
+
 	/**
 	 * Creates a new exception with the given status object.  The message
 	 * of the given status is used as the exception message.
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *      agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.util.*;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IInstallableUnitFragment;
+
+/**
+ * The result of a successful resolution, computed by the {@link Projector} or read
+ * from the {@link PlannerCache}.
+ */
+public interface ISolution {
+	/**
+	 * Returns the installable units of the solution, without the entry point of the resolution.
+	 */
+	public Collection<IInstallableUnit> extractSolution();
+
+	/**
+	 * Returns the hosts each fragment of the solution is attached to.
+	 */
+	public Map<IInstallableUnitFragment, List<IInstallableUnit>> getFragmentAssociation();
+}
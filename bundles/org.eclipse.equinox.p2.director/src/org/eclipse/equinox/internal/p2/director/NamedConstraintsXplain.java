@@ -0,0 +1,84 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *      agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.math.BigInteger;
+import java.util.*;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.pb.tools.DependencyHelper;
+import org.sat4j.pb.tools.XplainPB;
+import org.sat4j.specs.*;
+import org.sat4j.tools.xplain.MinimizationStrategy;
+
+/**
+ * An explainer minimizing the explanations with a given strategy. The explainer created
+ * by a {@link DependencyHelper} for its own explanations always uses the default strategy
+ * of SAT4J, so a helper using this explainer as its solver is created with its own
+ * explanations disabled, and this explainer names the constraints itself: every
+ * constraint added is named after the last explanation given to {@link #setName}.
+ */
+class NamedConstraintsXplain extends XplainPB {
+	private final Map<IConstr, Explanation> names = new HashMap<IConstr, Explanation>();
+	private Explanation name;
+
+	NamedConstraintsXplain(IPBSolver solver, MinimizationStrategy strategy) {
+		super(solver);
+		setMinimizationStrategy(strategy);
+	}
+
+	/**
+	 * Sets the explanation naming the constraints added from now on.
+	 */
+	void setName(Explanation explanation) {
+		name = explanation;
+	}
+
+	/**
+	 * Returns the explanations of the constraints which can not be satisfied together,
+	 * as {@link DependencyHelper#why()} does. Must be called after the solver proved that
+	 * the problem has no solution.
+	 */
+	Set<Explanation> why() throws TimeoutException {
+		Set<Explanation> explanation = new TreeSet<Explanation>();
+		for (IConstr constr : explain()) {
+			Explanation named = names.get(constr);
+			if (named != null)
+				explanation.add(named);
+		}
+		return explanation;
+	}
+
+	private IConstr named(IConstr constr) {
+		if (constr != null && name != null)
+			names.put(constr, name);
+		return constr;
+	}
+
+	public IConstr addClause(IVecInt literals) throws ContradictionException {
+		return named(super.addClause(literals));
+	}
+
+	public IConstr addAtLeast(IVecInt literals, int degree) throws ContradictionException {
+		return named(super.addAtLeast(literals, degree));
+	}
+
+	public IConstr addAtMost(IVecInt literals, int degree) throws ContradictionException {
+		return named(super.addAtMost(literals, degree));
+	}
+
+	public IConstr addExactly(IVecInt literals, int n) throws ContradictionException {
+		return named(super.addExactly(literals, n));
+	}
+
+	public IConstr addPseudoBoolean(IVecInt lits, IVec<BigInteger> coeffs, boolean moreThan, BigInteger d) throws ContradictionException {
+		return named(super.addPseudoBoolean(lits, coeffs, moreThan, d));
+	}
+}
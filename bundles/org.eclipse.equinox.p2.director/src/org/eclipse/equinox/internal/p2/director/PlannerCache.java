@@ -0,0 +1,355 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *      agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * A cache of the solutions found by the {@link Projector}, kept on disk so that planning the
+ * same request again, in this or in a later session, skips the encoding and the solving.
+ * <p>
+ * A solution is stored under a digest of everything the projector reads: the metadata of
+ * the installable units of the slice, the requirements of the entry point, the roots, the
+ * installed units, the selection context and the options. A change to the content of a
+ * repository changes the slice and thus the key, so an entry never has to be invalidated;
+ * the least recently used entries are deleted beyond {@link #MAX_ENTRIES}.
+ * </p>
+ */
+public class PlannerCache {
+	/**
+	 * The name of the framework property that enables the cache for all the requests.
+	 */
+	public static final String PROP_PLANNER_CACHE = "eclipse.p2.planner.cache"; //$NON-NLS-1$
+
+	/**
+	 * The name of the provisioning context property that enables the cache for a request.
+	 */
+	public static final String CONTEXT_PLANNER_CACHE = "org.eclipse.equinox.p2.planner.cache"; //$NON-NLS-1$
+
+	static final String CACHE_FOLDER = "plannerCache"; //$NON-NLS-1$
+	private static final String SUFFIX = ".solution"; //$NON-NLS-1$
+	private static final int FORMAT_VERSION = 1;
+	private static final int MAX_ENTRIES = 64;
+
+	private final File folder;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	static class CachedSolution implements ISolution {
+		private final List<IInstallableUnit> solution;
+		private final Map<IInstallableUnitFragment, List<IInstallableUnit>> fragments;
+
+		CachedSolution(List<IInstallableUnit> solution, Map<IInstallableUnitFragment, List<IInstallableUnit>> fragments) {
+			this.solution = solution;
+			this.fragments = fragments;
+		}
+
+		public Collection<IInstallableUnit> extractSolution() {
+			// the callers modify the solution
+			return new ArrayList<IInstallableUnit>(solution);
+		}
+
+		public Map<IInstallableUnitFragment, List<IInstallableUnit>> getFragmentAssociation() {
+			return fragments;
+		}
+	}
+
+	/**
+	 * @param folder the folder holding the solutions, created when the first one is stored
+	 */
+	public PlannerCache(File folder) {
+		this.folder = folder;
+	}
+
+	/**
+	 * Computes the key of the resolution of the given slice with the given arguments of
+	 * {@link Projector#encode(IInstallableUnit, IInstallableUnit[], IQueryable, Collection, org.eclipse.core.runtime.IProgressMonitor)}.
+	 * The entry point is identified by its requirements, its id changes with every request.
+	 */
+	public String computeKey(IQueryable<IInstallableUnit> slice, IInstallableUnit entryPoint, IInstallableUnit[] existingRoots, IQueryable<IInstallableUnit> installedIUs, Collection<IInstallableUnit> newRoots, Map<String, String> selectionContext, boolean considerMetaRequirements, boolean userDefined) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+		List<String> units = new ArrayList<String>();
+		for (Iterator<IInstallableUnit> iter = slice.query(QueryUtil.createIUAnyQuery(), null).iterator(); iter.hasNext();) {
+			IInstallableUnit iu = iter.next();
+			if (iu != entryPoint)
+				units.add(describe(iu));
+		}
+		update(digest, "slice", units); //$NON-NLS-1$
+
+		StringBuffer entry = new StringBuffer();
+		describeRequirements(entry, entryPoint.getRequirements());
+		describeRequirements(entry, entryPoint.getMetaRequirements());
+		update(digest, "entry", Collections.singletonList(entry.toString())); //$NON-NLS-1$
+
+		update(digest, "existing", identify(Arrays.asList(existingRoots).iterator())); //$NON-NLS-1$
+		update(digest, "installed", identify(installedIUs.query(QueryUtil.createIUAnyQuery(), null).iterator())); //$NON-NLS-1$
+		update(digest, "new", identify(newRoots.iterator())); //$NON-NLS-1$
+
+		List<String> context = new ArrayList<String>();
+		for (Map.Entry<String, String> property : new TreeMap<String, String>(selectionContext).entrySet())
+			context.add(property.getKey() + '=' + property.getValue());
+		context.add("metaRequirements=" + considerMetaRequirements); //$NON-NLS-1$
+		context.add("userDefined=" + userDefined); //$NON-NLS-1$
+		update(digest, "context", context); //$NON-NLS-1$
+
+		byte[] bytes = digest.digest();
+		StringBuffer key = new StringBuffer(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			key.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+			key.append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the solution stored under the given key, made of the installable units of the
+	 * given slice, or <code>null</code> if there is none.
+	 */
+	public ISolution get(String key, IQueryable<IInstallableUnit> slice) {
+		File file = new File(folder, key + SUFFIX);
+		if (!file.isFile()) {
+			misses.incrementAndGet();
+			return null;
+		}
+		Map<String, IInstallableUnit> units = new HashMap<String, IInstallableUnit>();
+		for (Iterator<IInstallableUnit> iter = slice.query(QueryUtil.createIUAnyQuery(), null).iterator(); iter.hasNext();) {
+			IInstallableUnit iu = iter.next();
+			units.put(identify(iu), iu);
+		}
+		List<IInstallableUnit> solution;
+		Map<IInstallableUnitFragment, List<IInstallableUnit>> fragments;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != FORMAT_VERSION)
+				return miss(file);
+			int count = in.readInt();
+			solution = new ArrayList<IInstallableUnit>(count);
+			for (int i = 0; i < count; i++) {
+				IInstallableUnit iu = units.get(in.readUTF());
+				if (iu == null)
+					return miss(file);
+				solution.add(iu);
+			}
+			count = in.readInt();
+			fragments = new HashMap<IInstallableUnitFragment, List<IInstallableUnit>>(count);
+			for (int i = 0; i < count; i++) {
+				IInstallableUnit fragment = units.get(in.readUTF());
+				if (!(fragment instanceof IInstallableUnitFragment))
+					return miss(file);
+				int hostCount = in.readInt();
+				List<IInstallableUnit> hosts = new ArrayList<IInstallableUnit>(hostCount);
+				for (int j = 0; j < hostCount; j++) {
+					IInstallableUnit host = units.get(in.readUTF());
+					if (host == null)
+						return miss(file);
+					hosts.add(host);
+				}
+				fragments.put((IInstallableUnitFragment) fragment, hosts);
+			}
+		} catch (IOException e) {
+			log("Unable to read the planner cache entry " + file, e); //$NON-NLS-1$
+			return miss(file);
+		} finally {
+			close(in);
+		}
+		// the most recently used entries are kept
+		file.setLastModified(System.currentTimeMillis());
+		hits.incrementAndGet();
+		return new CachedSolution(solution, fragments);
+	}
+
+	/**
+	 * Stores the given solution under the given key.
+	 */
+	public void put(String key, ISolution solution) {
+		if (!folder.isDirectory() && !folder.mkdirs())
+			return;
+		File file = new File(folder, key + SUFFIX);
+		File temp = new File(folder, key + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(FORMAT_VERSION);
+			Collection<IInstallableUnit> units = solution.extractSolution();
+			out.writeInt(units.size());
+			for (IInstallableUnit iu : units)
+				out.writeUTF(identify(iu));
+			Map<IInstallableUnitFragment, List<IInstallableUnit>> fragments = solution.getFragmentAssociation();
+			out.writeInt(fragments.size());
+			for (Map.Entry<IInstallableUnitFragment, List<IInstallableUnit>> fragment : fragments.entrySet()) {
+				out.writeUTF(identify(fragment.getKey()));
+				out.writeInt(fragment.getValue().size());
+				for (IInstallableUnit host : fragment.getValue())
+					out.writeUTF(identify(host));
+			}
+			out.close();
+			out = null;
+			// readers never see a partially written entry
+			file.delete();
+			if (!temp.renameTo(file))
+				temp.delete();
+		} catch (IOException e) {
+			log("Unable to write the planner cache entry " + file, e); //$NON-NLS-1$
+			close(out);
+			temp.delete();
+			return;
+		}
+		prune();
+	}
+
+	private void prune() {
+		File[] entries = folder.listFiles(new FileFilter() {
+			public boolean accept(File pathname) {
+				return pathname.getName().endsWith(SUFFIX);
+			}
+		});
+		if (entries == null || entries.length <= MAX_ENTRIES)
+			return;
+		Arrays.sort(entries, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				long m1 = f1.lastModified();
+				long m2 = f2.lastModified();
+				return m1 < m2 ? 1 : (m1 == m2 ? 0 : -1);
+			}
+		});
+		for (int i = MAX_ENTRIES; i < entries.length; i++)
+			entries[i].delete();
+	}
+
+	/**
+	 * Deletes all the entries of the cache.
+	 */
+	public void clear() {
+		File[] entries = folder.listFiles();
+		if (entries != null)
+			for (int i = 0; i < entries.length; i++)
+				entries[i].delete();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private ISolution miss(File file) {
+		// a stale or damaged entry
+		file.delete();
+		misses.incrementAndGet();
+		return null;
+	}
+
+	private static void update(MessageDigest digest, String section, List<String> values) {
+		Collections.sort(values);
+		try {
+			digest.update(section.getBytes("UTF-8")); //$NON-NLS-1$
+			for (String value : values) {
+				digest.update((byte) 0);
+				digest.update(value.getBytes("UTF-8")); //$NON-NLS-1$
+			}
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e.getMessage());
+		}
+		digest.update((byte) 1);
+	}
+
+	private static String identify(IInstallableUnit iu) {
+		return iu.getId() + '\u0000' + iu.getVersion();
+	}
+
+	private static List<String> identify(Iterator<IInstallableUnit> ius) {
+		List<String> result = new ArrayList<String>();
+		while (ius.hasNext())
+			result.add(identify(ius.next()));
+		return result;
+	}
+
+	/**
+	 * Describes everything the projector reads from an installable unit.
+	 */
+	private static String describe(IInstallableUnit iu) {
+		StringBuffer result = new StringBuffer(256);
+		result.append(identify(iu)).append('\u0000').append(iu.isSingleton());
+		describeFilter(result, iu.getFilter());
+		describeRequirements(result, iu.getRequirements());
+		describeRequirements(result, iu.getMetaRequirements());
+		for (IProvidedCapability capability : iu.getProvidedCapabilities())
+			result.append('\u0000').append(capability.getNamespace()).append('/').append(capability.getName()).append('/').append(capability.getVersion());
+		if (iu instanceof IInstallableUnitFragment)
+			describeRequirements(result, ((IInstallableUnitFragment) iu).getHost());
+		if (iu instanceof IInstallableUnitPatch) {
+			IInstallableUnitPatch patch = (IInstallableUnitPatch) iu;
+			for (IRequirementChange change : patch.getRequirementsChange()) {
+				describeRequirement(result.append("\u0000change"), change.applyOn()); //$NON-NLS-1$
+				describeRequirement(result, change.newValue());
+			}
+			describeRequirement(result.append("\u0000lifeCycle"), patch.getLifeCycle()); //$NON-NLS-1$
+			IRequirement[][] scope = patch.getApplicabilityScope();
+			for (int i = 0; i < scope.length; i++)
+				describeRequirements(result.append("\u0000scope"), Arrays.asList(scope[i])); //$NON-NLS-1$
+		}
+		return result.toString();
+	}
+
+	private static void describeRequirements(StringBuffer result, Collection<IRequirement> requirements) {
+		for (IRequirement requirement : requirements)
+			describeRequirement(result, requirement);
+	}
+
+	private static void describeRequirement(StringBuffer result, IRequirement requirement) {
+		result.append('\u0000');
+		if (requirement == null)
+			return;
+		IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+		result.append(matches).append(Arrays.asList(matches.getParameters()));
+		result.append('/').append(requirement.getMin()).append('/').append(requirement.getMax()).append('/').append(requirement.isGreedy());
+		describeFilter(result, requirement.getFilter());
+	}
+
+	private static void describeFilter(StringBuffer result, IMatchExpression<IInstallableUnit> filter) {
+		if (filter != null)
+			result.append("\u0000filter ").append(filter).append(Arrays.asList(filter.getParameters())); //$NON-NLS-1$
+	}
+
+	private static void close(Closeable stream) {
+		if (stream == null)
+			return;
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	private static void log(String message, Throwable e) {
+		LogHelper.log(new Status(IStatus.WARNING, DirectorActivator.PI_DIRECTOR, message, e));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others. All rights reserved. This
+ * Copyright (c) 2007, 2017 IBM Corporation and others. All rights reserved. This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -27,18 +27,20 @@ import org.eclipse.equinox.p2.metadata.*;
 import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
 import org.eclipse.equinox.p2.query.*;
 import org.eclipse.osgi.util.NLS;
+import org.sat4j.minisat.restarts.ArminRestarts;
 import org.sat4j.minisat.restarts.LubyRestarts;
 import org.sat4j.pb.*;
 import org.sat4j.pb.core.PBSolverResolution;
 import org.sat4j.pb.tools.*;
 import org.sat4j.specs.*;
+import org.sat4j.tools.xplain.MinimizationStrategy;
 
 /**
  * This class is the interface between SAT4J and the planner. It produces a
  * boolean satisfiability problem, invokes the solver, and converts the solver result
  * back into information understandable by the planner.
  */
-public class Projector {
+public class Projector implements ISolution {
 	/**
 	 * The name of a Java system property specifying the timeout to set in the SAT solver.
 	 * Note this value is not a time, but rather a conflict count. Essentially the solver
@@ -49,6 +51,11 @@ public class Projector {
 	 * The default SAT solver timeout (in number of conflicts). See bug 372529 for discussion.
 	 */
 	private static final int DEFAULT_SOLVER_TIMEOUT = 10000;
+	/**
+	 * The number of solver configurations available to a portfolio of projectors.
+	 * @see SimplePlanner#getPortfolioSize(org.eclipse.equinox.p2.engine.ProvisioningContext)
+	 */
+	static final int SOLVER_CONFIGURATIONS = 4;
 	static boolean DEBUG = Tracing.DEBUG_PLANNER_PROJECTOR;
 	private static boolean DEBUG_ENCODING = Tracing.DEBUG_PLANNER_PROJECTOR_ENCODING;
 	private IQueryable<IInstallableUnit> picker;
@@ -62,6 +69,8 @@ public class Projector {
 	private IInstallableUnit selectionContext;
 
 	DependencyHelper<Object, Explanation> dependencyHelper;
+	private MinimizationStrategy explanationStrategy;
+	private NamedConstraintsXplain explainer; //Explains the failures when a strategy is set, instead of the dependency helper
 	private Collection<IInstallableUnit> solution;
 	private Collection<Object> assumptions;
 
@@ -81,6 +90,8 @@ public class Projector {
 
 	private boolean emptyBecauseFiltered;
 	private boolean userDefinedFunction;
+	private int solverConfiguration;
+	private boolean unsatisfiable;
 
 	static class AbstractVariable {
 		//		private String name;
@@ -103,7 +114,7 @@ public class Projector {
 	 * Job for computing SAT failure explanation in the background.
 	 */
 	class ExplanationJob extends Job {
-		private Set<Explanation> explanation;
+		private volatile Set<Explanation> explanation;
 
 		public ExplanationJob() {
 			super(Messages.Planner_NoSolution);
@@ -117,7 +128,10 @@ public class Projector {
 
 		protected void canceling() {
 			super.canceling();
-			dependencyHelper.stopExplanation();
+			if (explainer != null)
+				explainer.cancelExplanation();
+			else
+				dependencyHelper.stopExplanation();
 		}
 
 		public Set<Explanation> getExplanationResult() {
@@ -131,7 +145,7 @@ public class Projector {
 				Tracing.debug("Determining cause of failure: " + start); //$NON-NLS-1$
 			}
 			try {
-				explanation = dependencyHelper.why();
+				explanation = computeExplanation();
 				if (DEBUG) {
 					long stop = System.currentTimeMillis();
 					Tracing.debug("Explanation found: " + (stop - start)); //$NON-NLS-1$
@@ -183,14 +197,7 @@ public class Projector {
 			if (DEBUG_ENCODING) {
 				solver = new UserFriendlyPBStringSolver<Object>();
 			} else {
-				if (userDefinedFunction) {
-					PBSolverResolution mysolver = SolverFactory.newCompetPBResLongWLMixedConstraintsObjectiveExpSimp();
-					mysolver.setSimplifier(mysolver.SIMPLE_SIMPLIFICATION);
-					mysolver.setRestartStrategy(new LubyRestarts(512));
-					solver = mysolver;
-				} else {
-					solver = SolverFactory.newEclipseP2();
-				}
+				solver = createSolver(solverConfiguration);
 			}
 			int timeout = DEFAULT_SOLVER_TIMEOUT;
 			String timeoutString = null;
@@ -219,7 +226,10 @@ public class Projector {
 			} else {
 				if (userDefinedFunction)
 					dependencyHelper = new SteppedTimeoutLexicoHelper<Object, Explanation>(solver);
-				else
+				else if (explanationStrategy != null) {
+					explainer = new NamedConstraintsXplain(solver, explanationStrategy);
+					dependencyHelper = new DependencyHelper<Object, Explanation>(explainer, false);
+				} else
 					dependencyHelper = new DependencyHelper<Object, Explanation>(solver);
 			}
 			List<IInstallableUnit> iusToOrder = new ArrayList<IInstallableUnit>(queryResult.toSet());
@@ -255,12 +265,53 @@ public class Projector {
 		}
 	}
 
+	/**
+	 * Creates the solver of the given configuration. The first configuration is the one used
+	 * outside of a portfolio, the others vary the restarts, the data structures and the
+	 * simplification of the learned clauses. Every configuration finds the optimum of the
+	 * objective function: the standard function is optimized by the solver itself, as
+	 * {@link SolverFactory#newEclipseP2()} does, the user defined one by the lexico helper.
+	 */
+	private IPBSolver createSolver(int configuration) {
+		// the user defined function has always been solved with the second configuration
+		int index = userDefinedFunction ? (configuration == 0 ? 1 : configuration == 1 ? 0 : configuration) : configuration;
+		PBSolverResolution mysolver;
+		switch (index) {
+			case 0 :
+				if (!userDefinedFunction)
+					return SolverFactory.newEclipseP2();
+				// the data structures and the restarts of newEclipseP2, without its optimization
+				mysolver = SolverFactory.newCompetPBResHTMixedConstraintsObjectiveExpSimp();
+				mysolver.setRestartStrategy(new ArminRestarts());
+				break;
+			case 1 :
+				mysolver = SolverFactory.newCompetPBResLongWLMixedConstraintsObjectiveExpSimp();
+				mysolver.setSimplifier(mysolver.SIMPLE_SIMPLIFICATION);
+				mysolver.setRestartStrategy(new LubyRestarts(512));
+				break;
+			case 2 :
+				mysolver = SolverFactory.newCompetPBResHTMixedConstraintsObjectiveExpSimp();
+				mysolver.setSimplifier(mysolver.EXPENSIVE_SIMPLIFICATION);
+				break;
+			default :
+				mysolver = SolverFactory.newCompetPBResWLMixedConstraintsObjectiveExpSimp();
+				mysolver.setSimplifier(mysolver.NO_SIMPLIFICATION);
+				mysolver.setRestartStrategy(new LubyRestarts(100));
+				break;
+		}
+		if (userDefinedFunction)
+			return mysolver;
+		return new OptToPBSATAdapter(new PseudoOptDecorator(mysolver));
+	}
+
 	private void createConstraintsForNonGreedy() throws ContradictionException {
 		for (IInstallableUnit iu : nonGreedyIUs) {
 			AbstractVariable var = getNonGreedyVariable(iu);
 			List<Object> providers = nonGreedyProvider.get(var);
 			if (providers == null || providers.size() == 0) {
-				dependencyHelper.setFalse(var, new Explanation.MissingGreedyIU(iu));
+				Explanation explanation = new Explanation.MissingGreedyIU(iu);
+				name(explanation);
+				dependencyHelper.setFalse(var, explanation);
 			} else {
 				createImplication(var, providers, Explanation.OPTIONAL_REQUIREMENT);//FIXME
 			}
@@ -319,7 +370,9 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(iu + "=0"); //$NON-NLS-1$
 		}
-		dependencyHelper.setFalse(iu, new Explanation.MissingIU(iu, req, iu == this.entryPoint));
+		Explanation explanation = new Explanation.MissingIU(iu, req, iu == this.entryPoint);
+		name(explanation);
+		dependencyHelper.setFalse(iu, explanation);
 	}
 
 	// Check whether the requirement is applicable
@@ -379,7 +432,9 @@ public class Projector {
 		if (req.getMin() > 0) {
 			if (matches.isEmpty()) {
 				if (iu == entryPoint && emptyBecauseFiltered) {
-					dependencyHelper.setFalse(iu, new NotInstallableRoot(req));
+					Explanation explanation = new NotInstallableRoot(req);
+					name(explanation);
+					dependencyHelper.setFalse(iu, explanation);
 				} else {
 					missingRequirement(iu, req);
 				}
@@ -461,11 +516,16 @@ public class Projector {
 	public void processIU(IInstallableUnit iu, boolean isRootIU) throws ContradictionException {
 		iu = iu.unresolved();
 		Map<Version, IInstallableUnit> iuSlice = slice.get(iu.getId());
-		if (iuSlice == null) {
-			iuSlice = new HashMap<Version, IInstallableUnit>();
-			slice.put(iu.getId(), iuSlice);
+		if (iuSlice == null || (iuSlice.size() == 1 && iuSlice.containsKey(iu.getVersion()))) {
+			//Most ids have a single version in the slice, only a conflict needs a real map
+			slice.put(iu.getId(), Collections.singletonMap(iu.getVersion(), iu));
+		} else {
+			if (iuSlice.size() == 1) {
+				iuSlice = new HashMap<Version, IInstallableUnit>(iuSlice);
+				slice.put(iu.getId(), iuSlice);
+			}
+			iuSlice.put(iu.getVersion(), iu);
 		}
-		iuSlice.put(iu.getVersion(), iu);
 		if (!isApplicable(iu)) {
 			createNegation(iu, null);
 			return;
@@ -883,6 +943,7 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + left + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		name(name);
 		for (Object r : right)
 			dependencyHelper.implication(new Object[] {left}).impliesNot(r).named(name);
 	}
@@ -891,6 +952,7 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + left + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		name(name);
 		dependencyHelper.implication(new Object[] {left}).implies(right.toArray()).named(name);
 	}
 
@@ -898,6 +960,7 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + Arrays.asList(left) + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		name(name);
 		dependencyHelper.implication(left).implies(right.toArray()).named(name);
 	}
 
@@ -953,7 +1016,15 @@ public class Projector {
 			}
 			Tracing.debug("At most 1 of " + b); //$NON-NLS-1$
 		}
-		dependencyHelper.atMost(1, (Object[]) ius).named(new Explanation.Singleton(ius));
+		Explanation explanation = new Explanation.Singleton(ius);
+		name(explanation);
+		dependencyHelper.atMost(1, (Object[]) ius).named(explanation);
+	}
+
+	// names the constraints added next for the explainer, the dependency helper is given the name of each constraint
+	private void name(Explanation explanation) {
+		if (explainer != null)
+			explainer.setName(explanation);
 	}
 
 	private AbstractVariable getAbstractVariable(IRequirement req) {
@@ -1001,6 +1072,7 @@ public class Projector {
 					Tracing.debug("Unsatisfiable !"); //$NON-NLS-1$
 					Tracing.debug("Solver solution NOT found: " + (stop - start)); //$NON-NLS-1$
 				}
+				unsatisfiable = true;
 				result = new MultiStatus(DirectorActivator.PI_DIRECTOR, SimplePlanner.UNSATISFIABLE, result.getChildren(), Messages.Planner_Unsatisfiable_problem, null);
 				result.merge(new Status(IStatus.ERROR, DirectorActivator.PI_DIRECTOR, SimplePlanner.UNSATISFIABLE, Messages.Planner_Unsatisfiable_problem, null));
 			}
@@ -1044,6 +1116,32 @@ public class Projector {
 		return solution;
 	}
 
+	/**
+	 * Computes the explanation of the failure from the solver which proved that the
+	 * problem is unsatisfiable, a projector whose solver did not answer has no explanation.
+	 */
+	Set<Explanation> computeExplanation() throws TimeoutException {
+		if (!unsatisfiable)
+			return Collections.<Explanation> emptySet();
+		return explainer == null ? dependencyHelper.why() : explainer.why();
+	}
+
+	/**
+	 * Sets how the explanations are minimized, instead of the deletion based minimization
+	 * of SAT4J. Must be called before {@link #encode}, and is ignored for a user defined
+	 * optimization function.
+	 */
+	public void setExplanationStrategy(MinimizationStrategy strategy) {
+		explanationStrategy = strategy;
+	}
+
+	/**
+	 * Returns whether the solver of this projector proved that the problem is unsatisfiable.
+	 */
+	boolean isUnsatisfiable() {
+		return unsatisfiable;
+	}
+
 	public Set<Explanation> getExplanation(IProgressMonitor monitor) {
 		ExplanationJob job = new ExplanationJob();
 		job.schedule();
@@ -1102,4 +1200,20 @@ public class Projector {
 	public void setUserDefined(boolean containsKey) {
 		userDefinedFunction = containsKey;
 	}
+
+	/**
+	 * Sets the configuration of the solver, between 0 and {@link #SOLVER_CONFIGURATIONS}
+	 * exclusive. Must be called before {@link #encode}.
+	 */
+	public void setSolverConfiguration(int configuration) {
+		solverConfiguration = configuration;
+	}
+
+	/**
+	 * Stops the solver, which then reports a timeout unless it has already answered.
+	 */
+	public void stopSolver() {
+		if (dependencyHelper != null)
+			dependencyHelper.stopSolver();
+	}
 }
\ No newline at end of file
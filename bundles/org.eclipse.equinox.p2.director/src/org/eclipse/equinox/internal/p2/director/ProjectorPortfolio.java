@@ -0,0 +1,243 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *      agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.util.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.*;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.sat4j.tools.xplain.*;
+
+/**
+ * Solves the same problem with several projectors using differently configured solvers
+ * in parallel. Each projector encodes the problem into its own solver in the job solving
+ * it, so the encodings run in parallel too. The first projector to find a solution or to
+ * prove that there is none wins, the others are stopped. When none of them answers, the result is the one
+ * of the first projector, as if it had been solving alone.
+ * <p>
+ * The explanation of a failure is computed by the projectors whose solver proved that
+ * the problem is unsatisfiable, the winner and the ones which answered before being
+ * stopped, without solving the problem again. Each projector minimizes the cause of the
+ * failure with a different strategy, and the first minimal explanation found is reported
+ * without waiting for the others.
+ */
+class ProjectorPortfolio {
+	private final Projector[] projectors;
+	private final IInstallableUnit entryPoint;
+	private final IInstallableUnit[] alreadyExistingRoots;
+	private final IQueryable<IInstallableUnit> installedIUs;
+	private final Collection<IInstallableUnit> newRoots;
+	private final IStatus[] results;
+	private final SolverJob[] jobs;
+	private int running;
+	private int winner = -1;
+	private boolean stopped;
+
+	/**
+	 * Job encoding the problem into the solver of one projector of the portfolio and invoking it.
+	 */
+	class SolverJob extends Job {
+		private final int index;
+
+		SolverJob(int index) {
+			super(Messages.Director_Task_Resolving_Dependencies);
+			this.index = index;
+			setSystem(true);
+		}
+
+		public boolean belongsTo(Object family) {
+			return family == ProjectorPortfolio.this;
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			IStatus result = null;
+			try {
+				projectors[index].encode(entryPoint, alreadyExistingRoots, installedIUs, newRoots, monitor);
+				// a projector stopped while encoding has no solver to stop yet
+				if (!isStopped(index))
+					result = projectors[index].invokeSolver(monitor);
+			} catch (OperationCanceledException e) {
+				// stopped while encoding
+			} finally {
+				solved(index, result == null ? Status.CANCEL_STATUS : result);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Creates a portfolio of projectors which have not encoded the problem yet. The arguments
+	 * are those of {@link Projector#encode}, the progress of the encoding is not reported.
+	 */
+	ProjectorPortfolio(Projector[] projectors, IInstallableUnit entryPoint, IInstallableUnit[] alreadyExistingRoots, IQueryable<IInstallableUnit> installedIUs, Collection<IInstallableUnit> newRoots) {
+		this.projectors = projectors;
+		this.entryPoint = entryPoint;
+		this.alreadyExistingRoots = alreadyExistingRoots;
+		this.installedIUs = installedIUs;
+		this.newRoots = newRoots;
+		// the first projector keeps the default strategy of SAT4J
+		for (int i = 1; i < projectors.length; i++)
+			projectors[i].setExplanationStrategy(createStrategy(i - 1));
+		this.results = new IStatus[projectors.length];
+		this.jobs = new SolverJob[projectors.length];
+	}
+
+	/**
+	 * Encodes the problem and runs the solvers of all the projectors until one answers,
+	 * and returns its result.
+	 */
+	IStatus solve(IProgressMonitor monitor) {
+		long start = 0;
+		if (Projector.DEBUG) {
+			start = System.currentTimeMillis();
+			Tracing.debug("Invoking a portfolio of " + projectors.length + " solvers: " + start); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		synchronized (this) {
+			running = projectors.length;
+			for (int i = 0; i < projectors.length; i++)
+				jobs[i] = new SolverJob(i);
+		}
+		for (int i = 0; i < jobs.length; i++)
+			jobs[i].schedule();
+		try {
+			synchronized (this) {
+				while (winner < 0 && running > 0) {
+					if (monitor.isCanceled()) {
+						stopAll();
+						return Status.CANCEL_STATUS;
+					}
+					try {
+						wait(100);
+					} catch (InterruptedException e) {
+						// check the monitor and the solvers again
+					}
+				}
+				if (winner < 0)
+					winner = 0;
+				if (Projector.DEBUG)
+					Tracing.debug("Portfolio answered by solver " + winner + " in: " + (System.currentTimeMillis() - start) + " ms."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return results[winner];
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Computes the explanation of the failure of the problem in parallel with all the
+	 * projectors which proved that it is unsatisfiable, and returns the first explanation found.
+	 */
+	Set<Explanation> explain(IProgressMonitor monitor) {
+		List<Projector.ExplanationJob> explanationJobs = new ArrayList<Projector.ExplanationJob>(projectors.length);
+		IJobChangeListener listener = new JobChangeAdapter() {
+			public void done(IJobChangeEvent event) {
+				synchronized (ProjectorPortfolio.this) {
+					ProjectorPortfolio.this.notifyAll();
+				}
+			}
+		};
+		for (int i = 0; i < projectors.length; i++) {
+			// a projector which has been stopped would have to solve the problem again
+			if (!projectors[i].isUnsatisfiable())
+				continue;
+			Projector.ExplanationJob job = projectors[i].new ExplanationJob();
+			job.addJobChangeListener(listener);
+			explanationJobs.add(job);
+		}
+		for (Job job : explanationJobs)
+			job.schedule();
+		monitor.setTaskName(Messages.Planner_NoSolution);
+		IProgressMonitor pm = new InfiniteProgress(monitor);
+		pm.beginTask(Messages.Planner_NoSolution, 1000);
+		try {
+			synchronized (this) {
+				while (true) {
+					boolean running = false;
+					for (int i = 0; i < explanationJobs.size(); i++) {
+						Set<Explanation> explanation = explanationJobs.get(i).getExplanationResult();
+						if (explanation != null && !explanation.isEmpty()) {
+							if (Projector.DEBUG)
+								Tracing.debug("Explanation found by explanation job " + i); //$NON-NLS-1$
+							cancel(explanationJobs);
+							return explanation;
+						}
+						if (explanation == null && explanationJobs.get(i).getState() != Job.NONE)
+							running = true;
+					}
+					if (!running)
+						return Collections.<Explanation> emptySet();
+					if (monitor.isCanceled()) {
+						cancel(explanationJobs);
+						throw new OperationCanceledException();
+					}
+					pm.worked(1);
+					try {
+						wait(100);
+					} catch (InterruptedException e) {
+						// check the monitor and the explanations again
+					}
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private static MinimizationStrategy createStrategy(int index) {
+		switch (index) {
+			case 0 :
+				return new QuickXplainStrategy();
+			case 1 :
+				return new InsertionStrategy();
+			default :
+				return new QuickXplain2001Strategy();
+		}
+	}
+
+	private static void cancel(List<? extends Job> jobs) {
+		for (Job job : jobs)
+			job.cancel();
+	}
+
+	/**
+	 * Returns the projector whose result has been returned by {@link #solve(IProgressMonitor)}.
+	 */
+	synchronized Projector getWinner() {
+		return projectors[winner < 0 ? 0 : winner];
+	}
+
+	synchronized boolean isStopped(int index) {
+		return stopped && index != winner;
+	}
+
+	synchronized void solved(int index, IStatus result) {
+		results[index] = result;
+		running--;
+		if (winner < 0 && (result.isOK() || result.getCode() == SimplePlanner.UNSATISFIABLE)) {
+			winner = index;
+			stopAll();
+		}
+		notifyAll();
+	}
+
+	private void stopAll() {
+		stopped = true;
+		for (int i = 0; i < projectors.length; i++) {
+			if (i != winner) {
+				// a solver which has not started yet does not run at all
+				jobs[i].cancel();
+				projectors[i].stopSolver();
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others. All rights reserved. This
+ * Copyright (c) 2007, 2017 IBM Corporation and others. All rights reserved. This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -12,6 +12,7 @@
  ******************************************************************************/
 package org.eclipse.equinox.internal.p2.director;
 
+import java.io.File;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.*;
@@ -43,12 +44,33 @@ public class SimplePlanner implements IPlanner {
 	private static final String ID_IU_FOR_ACTIONS = "org.eclipse.equinox.p2.engine.actions.root"; //$NON-NLS-1$
 	private static final String EXPLANATION = "org.eclipse.equinox.p2.director.explain"; //$NON-NLS-1$
 	private static final String CONSIDER_METAREQUIREMENTS = "org.eclipse.equinox.p2.planner.resolveMetaRequirements"; //$NON-NLS-1$
+	/**
+	 * The context property specifying the number of differently configured solvers to run in
+	 * parallel on each resolution, or <code>true</code> to run as many as there are processors.
+	 */
+	public static final String CONTEXT_PORTFOLIO = "org.eclipse.equinox.p2.planner.portfolio"; //$NON-NLS-1$
+	/**
+	 * The framework property specifying the size of the portfolio for the requests
+	 * without the {@link #CONTEXT_PORTFOLIO} context property.
+	 */
+	public static final String PROP_PORTFOLIO = "eclipse.p2.planner.portfolio"; //$NON-NLS-1$
+	/**
+	 * The framework property specifying, in megabytes, the heap the projectors of a resolution
+	 * may use. Defaults to the heap still available when the resolution starts.
+	 */
+	public static final String PROP_MEMORY_BUDGET = "eclipse.p2.planner.memory"; //$NON-NLS-1$
+	/**
+	 * The heap retained by the encoding of each installable unit of a slice, measured on
+	 * large synthetic slices and dominated by the clauses and variable maps of the solver.
+	 */
+	public static final int ENCODING_BYTES_PER_IU = 2048;
 
 	static final int UNSATISFIABLE = 1; //status code indicating that the problem is not satisfiable
 
 	private final IProvisioningAgent agent;
 	private final IProfileRegistry profileRegistry;
 	private final IEngine engine;
+	private PlannerCache plannerCache;
 
 	private IProvisioningPlan generateProvisioningPlan(Collection<IInstallableUnit> fromState, Collection<IInstallableUnit> toState, ProfileChangeRequest changeRequest, IProvisioningPlan installerPlan, ProvisioningContext context) {
 		IProvisioningPlan plan = engine.createPlan(changeRequest.getProfile(), context);
@@ -248,30 +270,26 @@ public class SimplePlanner implements IPlanner {
 	}
 
 	private IInstallableUnit[] gatherAvailableInstallableUnits(IInstallableUnit[] additionalSource, ProvisioningContext context, IProgressMonitor monitor) {
-		Map<String, IInstallableUnit> resultsMap = new HashMap<String, IInstallableUnit>();
+		//The units are their own keys, they are equal when their id and version are
+		Map<IInstallableUnit, IInstallableUnit> resultsMap = new HashMap<IInstallableUnit, IInstallableUnit>();
 		if (additionalSource != null) {
-			for (int i = 0; i < additionalSource.length; i++) {
-				String key = additionalSource[i].getId() + "_" + additionalSource[i].getVersion().toString(); //$NON-NLS-1$
-				resultsMap.put(key, additionalSource[i]);
-			}
+			for (int i = 0; i < additionalSource.length; i++)
+				resultsMap.put(additionalSource[i], additionalSource[i]);
 		}
 		if (context == null) {
 			context = new ProvisioningContext(agent);
 		} else {
-			for (IInstallableUnit iu : context.getExtraInstallableUnits()) {
-				String key = iu.getId() + '_' + iu.getVersion().toString();
-				resultsMap.put(key, iu);
-			}
+			for (IInstallableUnit iu : context.getExtraInstallableUnits())
+				resultsMap.put(iu, iu);
 		}
 		SubMonitor sub = SubMonitor.convert(monitor, 1000);
 		IQueryable<IInstallableUnit> queryable = context.getMetadata(sub.newChild(500));
 		IQueryResult<IInstallableUnit> matches = queryable.query(QueryUtil.createIUQuery(null, VersionRange.emptyRange), sub.newChild(500));
 		for (Iterator<IInstallableUnit> it = matches.iterator(); it.hasNext();) {
 			IInstallableUnit iu = it.next();
-			String key = iu.getId() + "_" + iu.getVersion().toString(); //$NON-NLS-1$
-			IInstallableUnit currentIU = resultsMap.get(key);
+			IInstallableUnit currentIU = resultsMap.get(iu);
 			if (currentIU == null || hasHigherFidelity(iu, currentIU))
-				resultsMap.put(key, iu);
+				resultsMap.put(iu, iu);
 		}
 		sub.done();
 		Collection<IInstallableUnit> results = resultsMap.values();
@@ -334,13 +352,41 @@ public class SimplePlanner implements IPlanner {
 				plan.setStatus(slicer.getStatus());
 				return plan;
 			}
+			// the units encoded by each projector, the slice of the slicer is always an array
+			int sliceSize = slice instanceof QueryableArray ? ((QueryableArray) slice).size() + profileChangeRequest.getAdditions().size() : 0;
 			@SuppressWarnings("unchecked")
 			final IQueryable<IInstallableUnit>[] queryables = new IQueryable[] {slice, new QueryableArray(profileChangeRequest.getAdditions().toArray(new IInstallableUnit[profileChangeRequest.getAdditions().size()]))};
 			slice = new CompoundQueryable<IInstallableUnit>(queryables);
-			Projector projector = new Projector(slice, newSelectionContext, slicer.getNonGreedyIUs(), satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
-			projector.setUserDefined(profileChangeRequest.getPropertiesToAdd().containsKey("_internal_user_defined_"));
-			projector.encode((IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile, profileChangeRequest.getAdditions(), sub.newChild(ExpandWork / 4));
-			IStatus s = projector.invokeSolver(sub.newChild(ExpandWork / 4));
+			boolean userDefined = profileChangeRequest.getPropertiesToAdd().containsKey("_internal_user_defined_"); //$NON-NLS-1$
+			PlannerCache cache = getPlannerCache(context);
+			String cacheKey = null;
+			if (cache != null) {
+				cacheKey = cache.computeKey(slice, (IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile, profileChangeRequest.getAdditions(), newSelectionContext, satisfyMetaRequirements(profileChangeRequest.getProfileProperties()), userDefined);
+				ISolution cached = cacheKey == null ? null : cache.get(cacheKey, slice);
+				if (cached != null)
+					return cached;
+			}
+			// each projector of a portfolio encodes the shared slice into its own solver, in parallel with the others
+			int portfolioSize = getPortfolioSize(context);
+			if (portfolioSize > 1)
+				portfolioSize = boundPortfolioSize(portfolioSize, sliceSize, getMemoryBudget());
+			Projector[] projectors = new Projector[portfolioSize];
+			for (int i = 0; i < projectors.length; i++) {
+				projectors[i] = new Projector(slice, newSelectionContext, slicer.getNonGreedyIUs(), satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
+				projectors[i].setUserDefined(userDefined);
+				projectors[i].setSolverConfiguration(i);
+			}
+			Projector projector = projectors[0];
+			ProjectorPortfolio portfolio = null;
+			IStatus s;
+			if (projectors.length == 1) {
+				projector.encode((IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile, profileChangeRequest.getAdditions(), sub.newChild(ExpandWork / 4));
+				s = projector.invokeSolver(sub.newChild(ExpandWork / 4));
+			} else {
+				portfolio = new ProjectorPortfolio(projectors, (IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile, profileChangeRequest.getAdditions());
+				s = portfolio.solve(sub.newChild(ExpandWork / 2));
+				projector = portfolio.getWinner();
+			}
 			if (s.getSeverity() == IStatus.CANCEL) {
 				IProvisioningPlan plan = engine.createPlan(profile, context);
 				plan.setStatus(s);
@@ -355,7 +401,7 @@ public class SimplePlanner implements IPlanner {
 				}
 
 				//Extract the explanation
-				Set<Explanation> explanation = projector.getExplanation(sub.newChild(ExpandWork / 4));
+				Set<Explanation> explanation = portfolio == null ? projector.getExplanation(sub.newChild(ExpandWork / 4)) : portfolio.explain(sub.newChild(ExpandWork / 4));
 				IStatus explanationStatus = convertExplanationToStatus(explanation);
 
 				Map<IInstallableUnit, RequestStatus>[] changes = buildDetailedErrors(profileChangeRequest);
@@ -372,12 +418,87 @@ public class SimplePlanner implements IPlanner {
 				LogHelper.log(s);
 			s = Status.OK_STATUS;
 
+			if (cacheKey != null)
+				cache.put(cacheKey, projector);
 			return projector;
 		} finally {
 			sub.done();
 		}
 	}
 
+	/**
+	 * Returns the cache of the solutions when it is enabled for the given context, either by the
+	 * {@link PlannerCache#CONTEXT_PLANNER_CACHE} context property or for all the requests by the
+	 * {@link PlannerCache#PROP_PLANNER_CACHE} framework property.
+	 */
+	public PlannerCache getPlannerCache(ProvisioningContext context) {
+		String enabled = context == null ? null : context.getProperty(PlannerCache.CONTEXT_PLANNER_CACHE);
+		if (enabled == null && DirectorActivator.context != null)
+			enabled = DirectorActivator.context.getProperty(PlannerCache.PROP_PLANNER_CACHE);
+		if (!Boolean.TRUE.toString().equalsIgnoreCase(enabled))
+			return null;
+		synchronized (this) {
+			if (plannerCache == null) {
+				IAgentLocation location = (IAgentLocation) agent.getService(IAgentLocation.SERVICE_NAME);
+				File dataArea = location == null ? null : URIUtil.toFile(location.getDataArea(DirectorActivator.PI_DIRECTOR));
+				if (dataArea == null)
+					return null;
+				plannerCache = new PlannerCache(new File(dataArea, PlannerCache.CACHE_FOLDER));
+			}
+			return plannerCache;
+		}
+	}
+
+	/**
+	 * Returns the number of projectors solving each resolution in parallel with differently
+	 * configured solvers, as specified by the {@link #CONTEXT_PORTFOLIO} context property or
+	 * else by the {@link #PROP_PORTFOLIO} framework property. A portfolio is never larger than
+	 * the number of solver configurations, and defaults to a single projector.
+	 */
+	public static int getPortfolioSize(ProvisioningContext context) {
+		String size = context == null ? null : context.getProperty(CONTEXT_PORTFOLIO);
+		if (size == null && DirectorActivator.context != null)
+			size = DirectorActivator.context.getProperty(PROP_PORTFOLIO);
+		if (size == null)
+			return 1;
+		if (Boolean.TRUE.toString().equalsIgnoreCase(size))
+			return Math.min(Projector.SOLVER_CONFIGURATIONS, Runtime.getRuntime().availableProcessors());
+		try {
+			return Math.max(1, Math.min(Projector.SOLVER_CONFIGURATIONS, Integer.parseInt(size.trim())));
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the number of projectors of the given portfolio whose encodings of a slice of the
+	 * given size fit in the given budget, in bytes. At least one projector is always kept, a
+	 * resolution that does not fit with one projector does not fit at all.
+	 */
+	public static int boundPortfolioSize(int size, int sliceSize, long budget) {
+		long encoding = (long) sliceSize * ENCODING_BYTES_PER_IU;
+		if (encoding == 0)
+			return size;
+		return (int) Math.max(1, Math.min(size, budget / encoding));
+	}
+
+	/**
+	 * Returns the heap, in bytes, the projectors of a resolution may use as specified by the
+	 * {@link #PROP_MEMORY_BUDGET} framework property, or else the heap still available.
+	 */
+	public static long getMemoryBudget() {
+		String budget = DirectorActivator.context == null ? null : DirectorActivator.context.getProperty(PROP_MEMORY_BUDGET);
+		if (budget != null) {
+			try {
+				return Math.max(0, Long.parseLong(budget.trim())) * 1024 * 1024;
+			} catch (NumberFormatException e) {
+				// fall back to the available heap
+			}
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+	}
+
 	public IProvisioningPlan getProvisioningPlan(IProfileChangeRequest request, ProvisioningContext context, IProgressMonitor monitor) {
 		ProfileChangeRequest pcr = (ProfileChangeRequest) request;
 		SubMonitor sub = SubMonitor.convert(monitor, ExpandWork);
@@ -389,12 +510,12 @@ public class SimplePlanner implements IPlanner {
 			if (resolutionResult instanceof IProvisioningPlan)
 				return (IProvisioningPlan) resolutionResult;
 
-			Collection<IInstallableUnit> newState = ((Projector) resolutionResult).extractSolution();
+			Collection<IInstallableUnit> newState = ((ISolution) resolutionResult).extractSolution();
 			Collection<IInstallableUnit> fullState = new ArrayList<IInstallableUnit>();
 			fullState.addAll(newState);
-			newState = AttachmentHelper.attachFragments(newState.iterator(), ((Projector) resolutionResult).getFragmentAssociation());
+			newState = AttachmentHelper.attachFragments(newState.iterator(), ((ISolution) resolutionResult).getFragmentAssociation());
 
-			IProvisioningPlan temporaryPlan = generatePlan((Projector) resolutionResult, newState, pcr, context);
+			IProvisioningPlan temporaryPlan = generatePlan((ISolution) resolutionResult, newState, pcr, context);
 
 			//Create a plan for installing necessary pieces to complete the installation (e.g touchpoint actions)
 			return createInstallerPlan(pcr.getProfile(), pcr, fullState, newState, temporaryPlan, context, sub.newChild(ExpandWork / 2));
@@ -552,7 +673,7 @@ public class SimplePlanner implements IPlanner {
 			return plan;
 		}
 
-		initialPlan.setInstallerPlan(generatePlan((Projector) externalInstallerPlan, null, agentRequest, initialContext));
+		initialPlan.setInstallerPlan(generatePlan((ISolution) externalInstallerPlan, null, agentRequest, initialContext));
 		return initialPlan;
 	}
 
@@ -591,6 +712,7 @@ public class SimplePlanner implements IPlanner {
 		agentCtx.setMetadataRepositories(new URI[0]);
 		ArrayList<IInstallableUnit> extraIUs = new ArrayList<IInstallableUnit>(unattachedState);
 		agentCtx.setExtraInstallableUnits(extraIUs);
+		copyResolutionProperties(initialContext, agentCtx);
 		Object agentSolution = getSolutionFor(agentRequest, agentCtx, monitor.newChild(3));
 		if (agentSolution instanceof IProvisioningPlan && ((IProvisioningPlan) agentSolution).getStatus().getSeverity() == IStatus.ERROR) {
 			MultiStatus agentStatus = new MultiStatus(DirectorActivator.PI_DIRECTOR, 0, Messages.Planner_actions_and_software_incompatible, null);
@@ -604,11 +726,11 @@ public class SimplePlanner implements IPlanner {
 		}
 
 		//Compute the installer plan. It is the difference between what is currently in the profile and the solution we just computed
-		Collection<IInstallableUnit> agentState = ((Projector) agentSolution).extractSolution();
+		Collection<IInstallableUnit> agentState = ((ISolution) agentSolution).extractSolution();
 		agentState.remove(metaRequirementIU); //Remove the fake IU
-		agentState = AttachmentHelper.attachFragments(agentState.iterator(), ((Projector) agentSolution).getFragmentAssociation());
+		agentState = AttachmentHelper.attachFragments(agentState.iterator(), ((ISolution) agentSolution).getFragmentAssociation());
 
-		ProvisioningContext noRepoContext = createNoRepoContext(initialRequest);
+		ProvisioningContext noRepoContext = createNoRepoContext(initialRequest, initialContext);
 		//...This computes the attachment of what is currently in the profile 
 		Object initialSolution = getSolutionFor(new ProfileChangeRequest(new EverythingOptionalProfile(initialRequest.getProfile())), noRepoContext, new NullProgressMonitor());
 		if (initialSolution instanceof IProvisioningPlan) {
@@ -616,7 +738,7 @@ public class SimplePlanner implements IPlanner {
 			return (IProvisioningPlan) initialSolution;
 		}
 		Iterator<IInstallableUnit> profileState = initialRequest.getProfile().query(QueryUtil.createIUAnyQuery(), null).iterator();
-		Collection<IInstallableUnit> initialState = AttachmentHelper.attachFragments(profileState, ((Projector) initialSolution).getFragmentAssociation());
+		Collection<IInstallableUnit> initialState = AttachmentHelper.attachFragments(profileState, ((ISolution) initialSolution).getFragmentAssociation());
 
 		IProvisioningPlan agentPlan = generateProvisioningPlan(initialState, agentState, initialRequest, null, initialContext);
 
@@ -625,13 +747,13 @@ public class SimplePlanner implements IPlanner {
 	}
 
 	//Compute the set of operands based on the solution obtained previously
-	private IProvisioningPlan generatePlan(Projector newSolution, Collection<IInstallableUnit> newState, ProfileChangeRequest request, ProvisioningContext context) {
+	private IProvisioningPlan generatePlan(ISolution newSolution, Collection<IInstallableUnit> newState, ProfileChangeRequest request, ProvisioningContext context) {
 		//Compute the attachment of the new state if not provided
 		if (newState == null) {
 			newState = newSolution.extractSolution();
 			newState = AttachmentHelper.attachFragments(newState.iterator(), newSolution.getFragmentAssociation());
 		}
-		ProvisioningContext noRepoContext = createNoRepoContext(request);
+		ProvisioningContext noRepoContext = createNoRepoContext(request, context);
 
 		//Compute the attachment of the previous state
 		Object initialSolution = getSolutionFor(new ProfileChangeRequest(new EverythingOptionalProfile(request.getProfile())), noRepoContext, new NullProgressMonitor());
@@ -640,21 +762,34 @@ public class SimplePlanner implements IPlanner {
 			return (IProvisioningPlan) initialSolution;
 		}
 		Iterator<IInstallableUnit> profileState = request.getProfile().query(QueryUtil.createIUAnyQuery(), null).iterator();
-		Collection<IInstallableUnit> initialState = AttachmentHelper.attachFragments(profileState, ((Projector) initialSolution).getFragmentAssociation());
+		Collection<IInstallableUnit> initialState = AttachmentHelper.attachFragments(profileState, ((ISolution) initialSolution).getFragmentAssociation());
 
 		//Generate the plan
 		return generateProvisioningPlan(initialState, newState, request, null, context);
 	}
 
-	private ProvisioningContext createNoRepoContext(ProfileChangeRequest request) {
+	private ProvisioningContext createNoRepoContext(ProfileChangeRequest request, ProvisioningContext context) {
 		ProvisioningContext noRepoContext = new ProvisioningContext(agent);
 		noRepoContext.setMetadataRepositories(new URI[0]);
 		noRepoContext.setArtifactRepositories(new URI[0]);
 		noRepoContext.setProperty(INCLUDE_PROFILE_IUS, Boolean.FALSE.toString());
 		noRepoContext.setExtraInstallableUnits(new ArrayList<IInstallableUnit>(request.getProfile().query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).toUnmodifiableSet()));
+		copyResolutionProperties(context, noRepoContext);
 		return noRepoContext;
 	}
 
+	// The intermediate resolutions of a request use the cache and the portfolio when the request does
+	private void copyResolutionProperties(ProvisioningContext from, ProvisioningContext to) {
+		if (from == null)
+			return;
+		String value = from.getProperty(PlannerCache.CONTEXT_PLANNER_CACHE);
+		if (value != null)
+			to.setProperty(PlannerCache.CONTEXT_PLANNER_CACHE, value);
+		value = from.getProperty(CONTEXT_PORTFOLIO);
+		if (value != null)
+			to.setProperty(CONTEXT_PORTFOLIO, value);
+	}
+
 	private IInstallableUnit getPreviousIUForMetaRequirements(IProfile profile, String iuId, IProgressMonitor monitor) {
 		IQueryResult<IInstallableUnit> c = profile.query(QueryUtil.createIUQuery(iuId), monitor);
 		if (c.isEmpty())
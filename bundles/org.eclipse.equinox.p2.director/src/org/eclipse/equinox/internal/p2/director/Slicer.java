@@ -27,7 +27,6 @@ public class Slicer {
 	private final IQueryable<IInstallableUnit> possibilites;
 	private final boolean considerMetaRequirements;
 	protected final IInstallableUnit selectionContext;
-	private final Map<String, Map<Version, IInstallableUnit>> slice; //The IUs that have been considered to be part of the problem
 	private final MultiStatus result;
 
 	private LinkedList<IInstallableUnit> toProcess;
@@ -42,11 +41,11 @@ public class Slicer {
 		this.possibilites = possibilites;
 		this.selectionContext = selectionContext;
 		this.considerMetaRequirements = considerMetaRequirements;
-		slice = new HashMap<String, Map<Version, IInstallableUnit>>();
 		result = new MultiStatus(DirectorActivator.PI_DIRECTOR, IStatus.OK, Messages.Planner_Problems_resolving_plan, null);
 	}
 
 	public IQueryable<IInstallableUnit> slice(IInstallableUnit[] ius, IProgressMonitor monitor) {
+		IQueryable<IInstallableUnit> sliced = null;
 		try {
 			long start = 0;
 			if (DEBUG) {
@@ -64,7 +63,9 @@ public class Slicer {
 				}
 				processIU(toProcess.removeFirst());
 			}
-			computeNonGreedyIUs();
+			sliced = new QueryableArray(considered.toArray(new IInstallableUnit[considered.size()]));
+			considered = null;
+			computeNonGreedyIUs(sliced);
 			if (DEBUG) {
 				long stop = System.currentTimeMillis();
 				System.out.println("Slicing complete: " + (stop - start)); //$NON-NLS-1$
@@ -76,11 +77,11 @@ public class Slicer {
 			LogHelper.log(result);
 		if (result.getSeverity() == IStatus.ERROR)
 			return null;
-		return new QueryableArray(considered.toArray(new IInstallableUnit[considered.size()]));
+		return sliced;
 	}
 
-	private void computeNonGreedyIUs() {
-		IQueryable<IInstallableUnit> queryable = new QueryableArray(considered.toArray(new IInstallableUnit[considered.size()]));
+	// The slice is only built once, its capability index is shared with the projector
+	private void computeNonGreedyIUs(IQueryable<IInstallableUnit> queryable) {
 		Iterator<IInstallableUnit> it = queryable.query(QueryUtil.ALL_UNITS, new NullProgressMonitor()).iterator();
 		while (it.hasNext()) {
 			Collection<IRequirement> reqs = getRequirements(it.next().unresolved());
@@ -121,13 +122,6 @@ public class Slicer {
 	protected void processIU(IInstallableUnit iu) {
 		iu = iu.unresolved();
 
-		Map<Version, IInstallableUnit> iuSlice = slice.get(iu.getId());
-		if (iuSlice == null) {
-
-			iuSlice = new HashMap<Version, IInstallableUnit>();
-			slice.put(iu.getId(), iuSlice);
-		}
-		iuSlice.put(iu.getVersion(), iu);
 		if (!isApplicable(iu)) {
 			return;
 		}
@@ -187,9 +181,8 @@ public class Slicer {
 			if (!isApplicable(match))
 				continue;
 			validMatches++;
-			Map<Version, IInstallableUnit> iuSlice = slice.get(match.getId());
-			if (iuSlice == null || !iuSlice.containsKey(match.getVersion()))
-				consider(match);
+			// the considered IUs are the slice, an IU equals its resolved form
+			consider(match);
 		}
 
 		if (validMatches == 0) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2010 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -25,6 +25,10 @@ public class ProfileWriter extends MetadataWriter implements ProfileXMLConstants
 		super(output, processingInstructions);
 	}
 
+	public ProfileWriter(OutputStream output, ProcessingInstruction[] processingInstructions, boolean indent) throws IOException {
+		super(output, processingInstructions, indent);
+	}
+
 	public void writeProfile(IProfile profile) {
 		start(PROFILE_ELEMENT);
 		attribute(ID_ATTRIBUTE, profile.getProfileId());
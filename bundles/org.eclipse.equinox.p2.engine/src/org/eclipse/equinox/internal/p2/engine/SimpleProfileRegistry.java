@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others. All rights reserved. This
+ * Copyright (c) 2007, 2017 IBM Corporation and others. All rights reserved. This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -601,7 +601,8 @@ public class SimpleProfileRegistry implements IProfileRegistry, IAgentService {
 				os = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(profileFile)));
 			else
 				os = new BufferedOutputStream(new FileOutputStream(profileFile));
-			Writer writer = new Writer(os);
+			// a gzipped profile is not meant to be read by people, it does not need to be indented
+			Writer writer = new Writer(os, !shouldGzipFile);
 			writer.writeProfile(profile);
 		} catch (IOException e) {
 			profile.setTimestamp(previousTimestamp);
@@ -689,8 +690,8 @@ public class SimpleProfileRegistry implements IProfileRegistry, IAgentService {
 
 	static class Writer extends ProfileWriter {
 
-		public Writer(OutputStream output) throws IOException {
-			super(output, new ProcessingInstruction[] {ProcessingInstruction.makeTargetVersionInstruction(PROFILE_TARGET, ProfileXMLConstants.CURRENT_VERSION)});
+		public Writer(OutputStream output, boolean indent) throws IOException {
+			super(output, new ProcessingInstruction[] {ProcessingInstruction.makeTargetVersionInstruction(PROFILE_TARGET, ProfileXMLConstants.CURRENT_VERSION)}, indent);
 		}
 	}
 
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.jarprocessor;
+
+import java.io.*;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.jar.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs pack200 and unpack200 through the java.util.jar.Pack200 API of the running VM
+ * instead of launching a VM per jar. The methods take the same command lines as the
+ * commands, with {@link Utils#IN_PROCESS} in place of the command, and return the exit
+ * code the command would have returned. The options that have no equivalent in the API
+ * make the methods fail rather than be silently ignored.
+ */
+public class InProcessPack200 {
+	private static Boolean available = null;
+
+	public static synchronized boolean isAvailable() {
+		if (available == null) {
+			try {
+				Class.forName("java.util.jar.Pack200"); //$NON-NLS-1$
+				available = Boolean.TRUE;
+			} catch (ClassNotFoundException e) {
+				available = Boolean.FALSE;
+			} catch (LinkageError e) {
+				available = Boolean.FALSE;
+			}
+		}
+		return available.booleanValue();
+	}
+
+	/**
+	 * Same as <code>pack200 [options] output input</code>.
+	 */
+	public static int pack(String[] cmd, boolean verbose) {
+		if (cmd.length < 3)
+			return -1;
+		Pack200.Packer packer = Pack200.newPacker();
+		SortedMap<String, String> properties = packer.properties();
+		boolean repack = false;
+		boolean gzip = true;
+		int passFiles = 0;
+		for (int i = 1; i < cmd.length - 2; i++) {
+			String arg = cmd[i];
+			if (arg.equals("-r") || arg.equals("--repack")) //$NON-NLS-1$ //$NON-NLS-2$
+				repack = true;
+			else if (arg.equals("-g") || arg.equals("--no-gzip")) //$NON-NLS-1$ //$NON-NLS-2$
+				gzip = false;
+			else if (arg.equals("-G") || arg.equals("--strip-debug")) //$NON-NLS-1$ //$NON-NLS-2$
+				properties.put("com.sun.java.util.jar.pack.strip.debug", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+			else if (arg.equals("-O") || arg.equals("--no-keep-file-order")) //$NON-NLS-1$ //$NON-NLS-2$
+				properties.put(Pack200.Packer.KEEP_FILE_ORDER, Pack200.Packer.FALSE);
+			else if (arg.equals("-v") || arg.equals("--verbose") || arg.equals("-q") || arg.equals("--quiet") || arg.startsWith("-J")) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				continue;
+			else if (!putValue(properties, arg, "-E", "--effort=", Pack200.Packer.EFFORT) //$NON-NLS-1$ //$NON-NLS-2$
+					&& !putValue(properties, arg, "-S", "--segment-limit=", Pack200.Packer.SEGMENT_LIMIT) //$NON-NLS-1$ //$NON-NLS-2$
+					&& !putValue(properties, arg, "-H", "--deflate-hint=", Pack200.Packer.DEFLATE_HINT) //$NON-NLS-1$ //$NON-NLS-2$
+					&& !putValue(properties, arg, "-m", "--modification-time=", Pack200.Packer.MODIFICATION_TIME) //$NON-NLS-1$ //$NON-NLS-2$
+					&& !putValue(properties, arg, "-U", "--unknown-attribute=", Pack200.Packer.UNKNOWN_ATTRIBUTE) //$NON-NLS-1$ //$NON-NLS-2$
+					&& !putValue(properties, arg, "-P", "--pass-file=", Pack200.Packer.PASS_FILE_PFX + passFiles++)) //$NON-NLS-1$ //$NON-NLS-2$
+				return unsupported(arg, verbose);
+		}
+		File output = new File(cmd[cmd.length - 2]);
+		File input = new File(cmd[cmd.length - 1]);
+		try {
+			if (repack) {
+				ByteArrayOutputStream packed = new ByteArrayOutputStream((int) input.length());
+				pack(packer, input, packed);
+				unpack(Pack200.newUnpacker(), new ByteArrayInputStream(packed.toByteArray()), output);
+			} else {
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(output));
+				try {
+					if (gzip)
+						out = new GZIPOutputStream(out);
+					pack(packer, input, out);
+				} finally {
+					out.close();
+				}
+			}
+		} catch (IOException e) {
+			if (verbose)
+				e.printStackTrace();
+			output.delete();
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Same as <code>unpack200 [options] input output</code>.
+	 */
+	public static int unpack(String[] cmd, boolean verbose) {
+		if (cmd.length < 3)
+			return -1;
+		Pack200.Unpacker unpacker = Pack200.newUnpacker();
+		boolean remove = false;
+		for (int i = 1; i < cmd.length - 2; i++) {
+			String arg = cmd[i];
+			if (arg.equals("-r") || arg.equals("--remove-pack-file")) //$NON-NLS-1$ //$NON-NLS-2$
+				remove = true;
+			else if (arg.equals("-v") || arg.equals("--verbose") || arg.equals("-q") || arg.equals("--quiet")) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				continue;
+			else if (!putValue(unpacker.properties(), arg, "-H", "--deflate-hint=", Pack200.Unpacker.DEFLATE_HINT)) //$NON-NLS-1$ //$NON-NLS-2$
+				return unsupported(arg, verbose);
+		}
+		File input = new File(cmd[cmd.length - 2]);
+		File output = new File(cmd[cmd.length - 1]);
+		try {
+			// the unpacker recognizes a gzipped input by itself
+			unpack(unpacker, new BufferedInputStream(new FileInputStream(input)), output);
+		} catch (IOException e) {
+			if (verbose)
+				e.printStackTrace();
+			output.delete();
+			return 1;
+		}
+		if (remove)
+			input.delete();
+		return 0;
+	}
+
+	private static boolean putValue(Map<String, String> properties, String arg, String shortOption, String longOption, String key) {
+		String value = null;
+		if (arg.startsWith(longOption))
+			value = arg.substring(longOption.length());
+		else if (arg.startsWith(shortOption) && arg.length() > shortOption.length())
+			value = arg.substring(shortOption.length());
+		if (value == null)
+			return false;
+		properties.put(key, value);
+		return true;
+	}
+
+	private static int unsupported(String arg, boolean verbose) {
+		if (verbose)
+			System.out.println("Error: the option " + arg + " is not supported when running in process."); //$NON-NLS-1$ //$NON-NLS-2$
+		return 2;
+	}
+
+	private static void pack(Pack200.Packer packer, File input, OutputStream out) throws IOException {
+		JarFile jar = new JarFile(input, false);
+		try {
+			packer.pack(jar, out);
+		} finally {
+			Utils.close(jar);
+		}
+	}
+
+	private static void unpack(Pack200.Unpacker unpacker, InputStream in, File output) throws IOException {
+		JarOutputStream out = null;
+		try {
+			out = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(output)));
+			unpacker.unpack(in, out);
+		} finally {
+			Utils.close(in);
+			Utils.close(out);
+		}
+	}
+}
@@ -30,6 +30,9 @@ public class Main {
 		System.out.println();
 		System.out.println("-outputDir <dir>  the output directory"); //$NON-NLS-1$
 		System.out.println("-verbose        verbose mode "); //$NON-NLS-1$
+		System.out.println("-threads <n>    process up to n jars at the same time"); //$NON-NLS-1$
+		System.out.println("-stream         copy the entries of a zip input that are not"); //$NON-NLS-1$
+		System.out.println("                processed without recompressing them"); //$NON-NLS-1$
 	}
 
 	public static JarProcessorExecutor.Options processArguments(String[] args) {
@@ -63,7 +66,16 @@ public class Main {
 				options.verbose = true;
 			}  else if (args[i].equals("-processAll")) { //$NON-NLS-1$
 				options.processAll = true;
-			} 
+			} else if (args[i].equals("-stream")) { //$NON-NLS-1$
+				options.stream = true;
+			} else if (args[i].equals("-threads") && i < args.length - 2) { //$NON-NLS-1$
+				try {
+					options.threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					printUsage();
+					return null;
+				}
+			}
 		}
 
 		options.input = new File(args[i]);
@@ -21,10 +21,16 @@ public class PackStep extends CommandStep {
 
 	private Set<String> exclusions = Collections.emptySet();
 
-	public static boolean canPack() {
+	public static synchronized boolean canPack() {
 		if (canPack != null)
 			return canPack.booleanValue();
 
+		if (Utils.isInProcess()) {
+			canPack = Boolean.valueOf(InProcessPack200.isAvailable());
+			packCommand = canPack.booleanValue() ? Utils.IN_PROCESS : null;
+			return canPack.booleanValue();
+		}
+
 		String[] locations = Utils.getPack200Commands("pack200"); //$NON-NLS-1$
 		if (locations == null) {
 			canPack = Boolean.FALSE;
@@ -77,7 +83,7 @@ public class PackStep extends CommandStep {
 			File outputFile = new File(workingDirectory, input.getName() + Utils.PACKED_SUFFIX);
 			try {
 				String[] cmd = getCommand(input, outputFile, inf, containers);
-				int result = execute(cmd, verbose);
+				int result = executePack(cmd);
 				if (result != 0 && verbose)
 					System.out.println("Error: " + result + " was returned from command: " + Utils.concat(cmd)); //$NON-NLS-1$ //$NON-NLS-2$
 			} catch (IOException e) {
@@ -90,7 +96,20 @@ public class PackStep extends CommandStep {
 		return null;
 	}
 
+	/**
+	 * Runs the given pack200 command line, in this VM if {@link Utils#IN_PROCESS} is the command.
+	 */
+	protected int executePack(String[] cmd) {
+		if (Utils.IN_PROCESS.equals(cmd[0]))
+			return InProcessPack200.pack(cmd, verbose);
+		return execute(cmd, verbose);
+	}
+
 	protected boolean shouldPack(File input, List<Properties> containers, Properties inf) {
+		return shouldPack(input, containers, inf, verbose);
+	}
+
+	private boolean shouldPack(File input, List<Properties> containers, Properties inf, boolean verbose) {
 		//1: exclude by containers
 		// innermost jar is first on the list, it can override outer jars
 		for (Iterator<Properties> iterator = containers.iterator(); iterator.hasNext();) {
@@ -169,13 +188,9 @@ public class PackStep extends CommandStep {
 			return false;
 
 		//don't be verbose to check if we should mark the inf
-		boolean v = verbose;
-		verbose = false;
-		if (!shouldPack(input, containers, inf)) {
-			verbose = v;
+		//the flag is passed rather than toggled on the step, which may process several jars at once
+		if (!shouldPack(input, containers, inf, false))
 			return false;
-		}
-		verbose = v;
 
 		//mark as conditioned if not previously marked.  A signed jar is assumed to be previously conditioned.
 		if (inf.getProperty(Utils.MARK_PROPERTY) != null)
@@ -54,7 +54,7 @@ public class PackUnpackStep extends PackStep {
 				cmd[1] = "-r"; //$NON-NLS-1$
 				System.arraycopy(tmp, 1, cmd, 2, tmp.length - 1);
 
-				int result = execute(cmd, verbose);
+				int result = executePack(cmd);
 				if (result == 0 && tempFile.exists()) {
 					File finalFile = new File(workingDirectory, input.getName());
 					if (finalFile.exists())
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.jarprocessor;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the central directory of a zip file so that its entries can be copied into another
+ * zip file as they are stored, without inflating and deflating them again.
+ * @see RawZipWriter#copyEntry(RawZipFile, RawZipFile.Entry)
+ */
+public class RawZipFile {
+	static final int LOCAL_HEADER = 0x04034b50;
+	static final int CENTRAL_HEADER = 0x02014b50;
+	static final int END_HEADER = 0x06054b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_HEADER_SIZE = 22;
+	// the zip64 extensions are not supported, the files are limited to the regular offsets
+	static final long MAX_SIZE = 0xFFFFFFFFL;
+
+	public static class Entry {
+		final String name;
+		final byte[] nameBytes;
+		final int flags;
+		final int method;
+		final int dosTime;
+		final long crc;
+		final long compressedSize;
+		final long size;
+		final long offset;
+
+		Entry(String name, byte[] nameBytes, int flags, int method, int dosTime, long crc, long compressedSize, long size, long offset) {
+			this.name = name;
+			this.nameBytes = nameBytes;
+			this.flags = flags;
+			this.method = method;
+			this.dosTime = dosTime;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.offset = offset;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private final RandomAccessFile file;
+	private final Map<String, Entry> entries;
+
+	private RawZipFile(RandomAccessFile file, Map<String, Entry> entries) {
+		this.file = file;
+		this.entries = entries;
+	}
+
+	/**
+	 * Opens the given zip file, or returns <code>null</code> if the entries of the file
+	 * cannot be copied as they are: the file uses zip64 extensions, encryption or is not
+	 * a zip file at all.
+	 */
+	public static RawZipFile open(File zip) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(zip, "r"); //$NON-NLS-1$
+		Map<String, Entry> entries = null;
+		try {
+			entries = readCentralDirectory(file);
+		} finally {
+			if (entries == null)
+				file.close();
+		}
+		return new RawZipFile(file, entries);
+	}
+
+	private static Map<String, Entry> readCentralDirectory(RandomAccessFile file) throws IOException {
+		long length = file.length();
+		if (length < END_HEADER_SIZE || length > MAX_SIZE)
+			return null;
+		// the end header is followed by a comment of at most 64k
+		int tailSize = (int) Math.min(length, END_HEADER_SIZE + 0xFFFF);
+		byte[] tail = new byte[tailSize];
+		file.seek(length - tailSize);
+		file.readFully(tail);
+		int end = -1;
+		for (int i = tailSize - END_HEADER_SIZE; i >= 0; i--) {
+			if (getInt(tail, i) == END_HEADER) {
+				end = i;
+				break;
+			}
+		}
+		if (end == -1 || getShort(tail, end + 4) != 0 || getShort(tail, end + 6) != 0)
+			return null;
+		int count = getShort(tail, end + 10);
+		long directorySize = getUnsignedInt(tail, end + 12);
+		long directoryOffset = getUnsignedInt(tail, end + 16);
+		if (count == 0xFFFF || directoryOffset + directorySize > length)
+			return null;
+
+		byte[] directory = new byte[(int) directorySize];
+		file.seek(directoryOffset);
+		file.readFully(directory);
+		Map<String, Entry> result = new HashMap<String, Entry>(count * 2);
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			if (position + CENTRAL_HEADER_SIZE > directory.length || getInt(directory, position) != CENTRAL_HEADER)
+				return null;
+			int flags = getShort(directory, position + 8);
+			int method = getShort(directory, position + 10);
+			int dosTime = getInt(directory, position + 12);
+			long crc = getUnsignedInt(directory, position + 16);
+			long compressedSize = getUnsignedInt(directory, position + 20);
+			long size = getUnsignedInt(directory, position + 24);
+			int nameLength = getShort(directory, position + 28);
+			int extraLength = getShort(directory, position + 30);
+			int commentLength = getShort(directory, position + 32);
+			long offset = getUnsignedInt(directory, position + 42);
+			if ((flags & 1) != 0 || compressedSize == MAX_SIZE || size == MAX_SIZE || offset == MAX_SIZE)
+				return null;
+			byte[] nameBytes = new byte[nameLength];
+			System.arraycopy(directory, position + CENTRAL_HEADER_SIZE, nameBytes, 0, nameLength);
+			String name = new String(nameBytes, "UTF-8"); //$NON-NLS-1$
+			result.put(name, new Entry(name, nameBytes, flags, method, dosTime, crc, compressedSize, size, offset));
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return result;
+	}
+
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Writes the stored, possibly compressed, data of the given entry to the output.
+	 */
+	void transferData(Entry entry, OutputStream output, byte[] buffer) throws IOException {
+		byte[] header = new byte[LOCAL_HEADER_SIZE];
+		file.seek(entry.offset);
+		file.readFully(header);
+		if (getInt(header, 0) != LOCAL_HEADER)
+			throw new IOException("Invalid local header for " + entry.name); //$NON-NLS-1$
+		file.seek(entry.offset + LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28));
+		long remaining = entry.compressedSize;
+		while (remaining > 0) {
+			int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (read == -1)
+				throw new EOFException();
+			output.write(buffer, 0, read);
+			remaining -= read;
+		}
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+
+	static int getShort(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+	}
+
+	static int getInt(byte[] bytes, int offset) {
+		return getShort(bytes, offset) | getShort(bytes, offset + 2) << 16;
+	}
+
+	static long getUnsignedInt(byte[] bytes, int offset) {
+		return getInt(bytes, offset) & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.jarprocessor;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Writes a zip file whose entries are either deflated from a stream, like ZipOutputStream
+ * does, or copied as they are stored in another zip file.
+ */
+public class RawZipWriter {
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+	private static final int FLAG_UTF8 = 0x800;
+	private static final int VERSION = 20;
+	private static final int MAX_ENTRIES = 0xFFFF;
+
+	private final OutputStream output;
+	private final List<RawZipFile.Entry> written = new ArrayList<RawZipFile.Entry>();
+	private final Set<String> names = new HashSet<String>();
+	private final byte[] buffer = new byte[8192];
+	private final byte[] header = new byte[RawZipFile.CENTRAL_HEADER_SIZE];
+	private Deflater deflater = null;
+	private long position = 0;
+
+	public RawZipWriter(OutputStream output) {
+		this.output = new BufferedOutputStream(output, 64 * 1024);
+	}
+
+	/**
+	 * Adds an entry with the content of the stream, deflated.
+	 * @throws ZipException if an entry of the same name was already added
+	 */
+	public void addEntry(String name, long time, InputStream input) throws IOException {
+		checkName(name);
+		byte[] nameBytes = name.getBytes("UTF-8"); //$NON-NLS-1$
+		int flags = FLAG_DATA_DESCRIPTOR | (nameBytes.length != name.length() ? FLAG_UTF8 : 0);
+		long offset = position;
+		writeLocalHeader(flags, ZipEntry.DEFLATED, toDosTime(time), 0, 0, 0, nameBytes);
+
+		if (deflater == null)
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		else
+			deflater.reset();
+		CRC32 crc = new CRC32();
+		byte[] deflated = new byte[buffer.length];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			crc.update(buffer, 0, read);
+			deflater.setInput(buffer, 0, read);
+			while (!deflater.needsInput())
+				write(deflated, 0, deflater.deflate(deflated));
+		}
+		deflater.finish();
+		while (!deflater.finished())
+			write(deflated, 0, deflater.deflate(deflated));
+		if (deflater.getBytesRead() > RawZipFile.MAX_SIZE)
+			throw new ZipException("entry too large: " + name); //$NON-NLS-1$
+
+		RawZipFile.Entry entry = new RawZipFile.Entry(name, nameBytes, flags, ZipEntry.DEFLATED, toDosTime(time), crc.getValue(), deflater.getBytesWritten(), deflater.getBytesRead(), offset);
+		putInt(header, 0, DATA_DESCRIPTOR);
+		putInt(header, 4, (int) entry.crc);
+		putInt(header, 8, (int) entry.compressedSize);
+		putInt(header, 12, (int) entry.size);
+		write(header, 0, 16);
+		written.add(entry);
+	}
+
+	/**
+	 * Adds an entry of the source zip file, copying its data as it is stored in the source.
+	 * @throws ZipException if an entry of the same name was already added
+	 */
+	public void copyEntry(RawZipFile source, RawZipFile.Entry entry) throws IOException {
+		checkName(entry.name);
+		// the sizes are known, they go in the local header instead of a data descriptor
+		int flags = entry.flags & ~FLAG_DATA_DESCRIPTOR;
+		long offset = position;
+		writeLocalHeader(flags, entry.method, entry.dosTime, entry.crc, entry.compressedSize, entry.size, entry.nameBytes);
+		source.transferData(entry, output, buffer);
+		position += entry.compressedSize;
+		checkPosition();
+		written.add(new RawZipFile.Entry(entry.name, entry.nameBytes, flags, entry.method, entry.dosTime, entry.crc, entry.compressedSize, entry.size, offset));
+	}
+
+	/**
+	 * Writes the central directory and closes the output.
+	 */
+	public void close() throws IOException {
+		try {
+			long directoryOffset = position;
+			for (RawZipFile.Entry entry : written) {
+				putInt(header, 0, RawZipFile.CENTRAL_HEADER);
+				putShort(header, 4, VERSION);
+				putShort(header, 6, VERSION);
+				putShort(header, 8, entry.flags);
+				putShort(header, 10, entry.method);
+				putInt(header, 12, entry.dosTime);
+				putInt(header, 16, (int) entry.crc);
+				putInt(header, 20, (int) entry.compressedSize);
+				putInt(header, 24, (int) entry.size);
+				putShort(header, 28, entry.nameBytes.length);
+				// no extra field, comment, disk number or attributes
+				Arrays.fill(header, 30, 42, (byte) 0);
+				putInt(header, 42, (int) entry.offset);
+				write(header, 0, RawZipFile.CENTRAL_HEADER_SIZE);
+				write(entry.nameBytes, 0, entry.nameBytes.length);
+			}
+			long directorySize = position - directoryOffset;
+			putInt(header, 0, RawZipFile.END_HEADER);
+			putShort(header, 4, 0);
+			putShort(header, 6, 0);
+			putShort(header, 8, written.size());
+			putShort(header, 10, written.size());
+			putInt(header, 12, (int) directorySize);
+			putInt(header, 16, (int) directoryOffset);
+			putShort(header, 20, 0);
+			write(header, 0, RawZipFile.END_HEADER_SIZE);
+		} finally {
+			if (deflater != null)
+				deflater.end();
+			output.close();
+		}
+	}
+
+	private void checkName(String name) throws ZipException {
+		if (!names.add(name))
+			throw new ZipException("duplicate entry: " + name); //$NON-NLS-1$
+		if (names.size() > MAX_ENTRIES)
+			throw new ZipException("too many entries"); //$NON-NLS-1$
+	}
+
+	private void writeLocalHeader(int flags, int method, int dosTime, long crc, long compressedSize, long size, byte[] nameBytes) throws IOException {
+		putInt(header, 0, RawZipFile.LOCAL_HEADER);
+		putShort(header, 4, VERSION);
+		putShort(header, 6, flags);
+		putShort(header, 8, method);
+		putInt(header, 10, dosTime);
+		putInt(header, 14, (int) crc);
+		putInt(header, 18, (int) compressedSize);
+		putInt(header, 22, (int) size);
+		putShort(header, 26, nameBytes.length);
+		putShort(header, 28, 0);
+		write(header, 0, RawZipFile.LOCAL_HEADER_SIZE);
+		write(nameBytes, 0, nameBytes.length);
+	}
+
+	private void write(byte[] bytes, int offset, int length) throws IOException {
+		output.write(bytes, offset, length);
+		position += length;
+		checkPosition();
+	}
+
+	private void checkPosition() throws ZipException {
+		if (position > RawZipFile.MAX_SIZE)
+			throw new ZipException("zip file too large"); //$NON-NLS-1$
+	}
+
+	private static int toDosTime(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16 | calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	private static void putShort(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >> 8);
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		putShort(bytes, offset, value);
+		putShort(bytes, offset + 2, value >> 16);
+	}
+}
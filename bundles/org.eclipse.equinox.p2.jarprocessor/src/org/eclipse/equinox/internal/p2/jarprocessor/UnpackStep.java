@@ -24,10 +24,16 @@ public class UnpackStep extends CommandStep {
 	private static Boolean canUnpack = null;
 	private static String unpackCommand = null;
 
-	public static boolean canUnpack() {
+	public static synchronized boolean canUnpack() {
 		if (canUnpack != null)
 			return canUnpack.booleanValue();
 
+		if (Utils.isInProcess()) {
+			canUnpack = Boolean.valueOf(InProcessPack200.isAvailable());
+			unpackCommand = canUnpack.booleanValue() ? Utils.IN_PROCESS : null;
+			return canUnpack.booleanValue();
+		}
+
 		String[] locations = Utils.getPack200Commands("unpack200"); //$NON-NLS-1$
 		if (locations == null) {
 			canUnpack = Boolean.FALSE;
@@ -90,7 +96,7 @@ public class UnpackStep extends CommandStep {
 					} else {
 						cmd = new String[] {unpackCommand, input.getCanonicalPath(), unpacked.getCanonicalPath()};
 					}
-					int result = execute(cmd, verbose);
+					int result = Utils.IN_PROCESS.equals(unpackCommand) ? InProcessPack200.unpack(cmd, verbose) : execute(cmd, verbose);
 					if (result != 0 && verbose)
 						System.out.println("Error: " + result + " was returned from command: " + Utils.concat(cmd)); //$NON-NLS-1$ //$NON-NLS-2$
 				} catch (IOException e) {
@@ -65,6 +65,8 @@ public class Utils {
 	public static final String JRE = "@jre"; //$NON-NLS-1$
 	public static final String PATH = "@path"; //$NON-NLS-1$
 	public static final String NONE = "@none"; //$NON-NLS-1$
+	// run pack200, unpack200 and the jar verification in this VM instead of launching commands
+	public static final String IN_PROCESS = "@inprocess"; //$NON-NLS-1$
 
 	public static final String PACKED_SUFFIX = ".pack.gz"; //$NON-NLS-1$
 	public static final String JAR_SUFFIX = ".jar"; //$NON-NLS-1$
@@ -105,7 +107,7 @@ public class Utils {
 		String[] locations = null;
 		String prop = System.getProperty(PACK200_PROPERTY);
 		String javaHome = System.getProperty("java.home"); //$NON-NLS-1$
-		if (NONE.equals(prop)) {
+		if (NONE.equals(prop) || IN_PROCESS.equals(prop)) {
 			return null;
 		} else if (JRE.equals(prop)) {
 			locations = new String[] {javaHome + "/bin/" + cmd}; //$NON-NLS-1$
@@ -119,6 +121,14 @@ public class Utils {
 		return locations;
 	}
 
+	/**
+	 * Returns whether the pack200 property asks for the steps to run in this VM.
+	 * @see #IN_PROCESS
+	 */
+	public static boolean isInProcess() {
+		return IN_PROCESS.equals(System.getProperty(PACK200_PROPERTY));
+	}
+
 	/**
 	 * Transfers all available bytes from the given input stream to the given
 	 * output stream. Closes both streams if close == true, regardless of failure. 
@@ -282,6 +292,13 @@ public class Utils {
 			//not a jar, could be a pack.gz
 			return false;
 		}
+		return shouldSkipJar(inf, processAll);
+	}
+
+	/**
+	 * Returns whether a jar with the given eclipse.inf should be skipped.
+	 */
+	public static boolean shouldSkipJar(Properties inf, boolean processAll) {
 		String exclude = inf.getProperty(MARK_EXCLUDE);
 
 		//was marked as exclude, we should skip
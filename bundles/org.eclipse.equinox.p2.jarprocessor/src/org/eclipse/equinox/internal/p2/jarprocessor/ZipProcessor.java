@@ -29,6 +29,10 @@ public class ZipProcessor {
 	private Properties properties = null;
 	private Set<String> packExclusions = null;
 	private Set<String> signExclusions = null;
+	// only one of them is used, the raw output copies the entries that are not processed as they are
+	private ZipOutputStream zipOut = null;
+	private RawZipWriter rawOut = null;
+	private RawZipFile rawZip = null;
 
 	public void setExecutor(JarProcessorExecutor executor) {
 		this.executor = executor;
@@ -57,6 +61,9 @@ public class ZipProcessor {
 			System.out.println("Processing " + zipFile.getPath()); //$NON-NLS-1$
 		ZipFile zip = new ZipFile(zipFile);
 		initialize(zip);
+		rawZip = options.stream ? RawZipFile.open(zipFile) : null;
+		if (options.stream && rawZip == null && options.verbose)
+			System.out.println(zipFile.getPath() + " cannot be streamed, its entries are recompressed."); //$NON-NLS-1$
 
 		String extension = options.unpack ? "pack.gz" : ".jar"; //$NON-NLS-1$ //$NON-NLS-2$
 		File tempDir = new File(getWorkingDirectory(), "temp_" + zipFile.getName()); //$NON-NLS-1$
@@ -72,7 +79,10 @@ public class ZipProcessor {
 		File parent = outputFile.getParentFile();
 		if (!parent.exists())
 			parent.mkdirs();
-		ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(outputFile));
+		if (rawZip != null)
+			rawOut = new RawZipWriter(new FileOutputStream(outputFile));
+		else
+			zipOut = new ZipOutputStream(new FileOutputStream(outputFile));
 		Enumeration<? extends ZipEntry> entries = zip.entries();
 		if (entries.hasMoreElements()) {
 			for (ZipEntry entry = entries.nextElement(); entry != null; entry = entries.hasMoreElements() ? (ZipEntry) entries.nextElement() : null) {
@@ -86,7 +96,11 @@ public class ZipProcessor {
 
 				File extractedFile = null;
 
-				if (entry.getName().endsWith(extension) && (pack || sign || repack || options.unpack)) {
+				if (rawZip != null && !options.unpack && entry.getName().endsWith(extension) && (pack || sign || repack) && shouldSkipEntry(zip, entry)) {
+					//the marker is read from the entry, a jar that is skipped is not extracted
+					if (options.verbose)
+						System.out.println(entry.getName() + " is not marked, skipping."); //$NON-NLS-1$
+				} else if (entry.getName().endsWith(extension) && (pack || sign || repack || options.unpack)) {
 					extractedFile = new File(tempDir, name);
 					parent = extractedFile.getParentFile();
 					if (!parent.exists())
@@ -128,10 +142,8 @@ public class ZipProcessor {
 											System.out.println("Adding " + newName + " to " + outputFile.getPath()); //$NON-NLS-1$ //$NON-NLS-2$
 											System.out.println();
 										}
-										ZipEntry zipEntry = new ZipEntry(newName);
 										entryStream = new FileInputStream(modifiedFile);
-										zipOut.putNextEntry(zipEntry);
-										Utils.transferStreams(entryStream, zipOut, false); //we want to keep zipOut open
+										addEntry(newName, entry, entryStream);
 										entryStream.close();
 										Utils.clear(modifiedFile);
 									} catch (IOException e) {
@@ -164,11 +176,11 @@ public class ZipProcessor {
 					}
 				}
 				if (entryStream != null) {
-					ZipEntry newEntry = new ZipEntry(name);
 					try {
-						zipOut.putNextEntry(newEntry);
-						Utils.transferStreams(entryStream, zipOut, false);
-						zipOut.closeEntry();
+						if (rawZip != null && extractedFile == null)
+							copyEntry(entry);
+						else
+							addEntry(name, entry, entryStream);
 					} catch (ZipException e) {
 						if (options.verbose) {
 							System.out.println("Warning: " + name + " already exists in " + outputFile.getName() + ".  Skipping."); //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
@@ -186,7 +198,15 @@ public class ZipProcessor {
 				}
 			}
 		}
-		zipOut.close();
+		if (rawOut != null) {
+			rawOut.close();
+			rawZip.close();
+		} else {
+			zipOut.close();
+		}
+		rawOut = null;
+		rawZip = null;
+		zipOut = null;
 		zip.close();
 
 		File finalFile = new File(getWorkingDirectory(), zipFile.getName());
@@ -196,6 +216,49 @@ public class ZipProcessor {
 		Utils.clear(tempDir);
 	}
 
+	private void addEntry(String name, ZipEntry source, InputStream entryStream) throws IOException {
+		if (rawOut != null) {
+			rawOut.addEntry(name, source.getTime(), entryStream);
+		} else {
+			zipOut.putNextEntry(new ZipEntry(name));
+			Utils.transferStreams(entryStream, zipOut, false); //we want to keep zipOut open
+			zipOut.closeEntry();
+		}
+	}
+
+	/*
+	 * Copies an entry that is not processed without inflating and deflating it again.
+	 */
+	private void copyEntry(ZipEntry entry) throws IOException {
+		RawZipFile.Entry rawEntry = rawZip.getEntry(entry.getName());
+		if (rawEntry == null)
+			throw new IOException("Missing entry " + entry.getName()); //$NON-NLS-1$
+		rawOut.copyEntry(rawZip, rawEntry);
+	}
+
+	/*
+	 * Same as extracting the jar and checking Utils.shouldSkipJar, reading the jar from the zip.
+	 */
+	private boolean shouldSkipEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		Properties inf = null;
+		ZipInputStream jar = new ZipInputStream(zip.getInputStream(entry));
+		try {
+			for (ZipEntry nested = jar.getNextEntry(); nested != null; nested = jar.getNextEntry()) {
+				if (nested.getName().equals(Utils.MARK_FILE_NAME)) {
+					inf = new Properties();
+					inf.load(jar);
+					break;
+				}
+			}
+		} catch (ZipException e) {
+			//not a jar, process it as usual
+			return false;
+		} finally {
+			jar.close();
+		}
+		return Utils.shouldSkipJar(inf != null ? inf : new Properties(), options.processAll);
+	}
+
 	private void initialize(ZipFile zip) {
 		ZipEntry entry = zip.getEntry("pack.properties"); //$NON-NLS-1$
 		properties = new Properties();
@@ -9,10 +9,10 @@
 
 package org.eclipse.equinox.internal.p2.jarprocessor.verifier;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.List;
-import java.util.Properties;
+import java.io.*;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import org.eclipse.equinox.internal.p2.jarprocessor.CommandStep;
 import org.eclipse.equinox.internal.p2.jarprocessor.Utils;
 
@@ -21,10 +21,16 @@ public class VerifyStep extends CommandStep {
 	static String verifyCommand = "jarsigner"; //$NON-NLS-1$
 	static Boolean canVerify = null;
 
-	public static boolean canVerify() {
+	public static synchronized boolean canVerify() {
 		if (canVerify != null)
 			return canVerify.booleanValue();
 
+		if (Utils.isInProcess()) {
+			verifyCommand = Utils.IN_PROCESS;
+			canVerify = Boolean.TRUE;
+			return true;
+		}
+
 		String javaHome = System.getProperty("java.home"); //$NON-NLS-1$
 		String command = javaHome + "/../bin/jarsigner"; //$NON-NLS-1$
 		int result = execute(new String[] {command});
@@ -51,6 +57,10 @@ public class VerifyStep extends CommandStep {
 
 	public File postProcess(File input, File workingDirectory, List<Properties> containers) {
 		if (canVerify() && verifyCommand != null) {
+			if (Utils.IN_PROCESS.equals(verifyCommand)) {
+				System.out.println("Verifying " + input.getName() + ":  " + verify(input)); //$NON-NLS-1$ //$NON-NLS-2$
+				return input;
+			}
 			try {
 				System.out.print("Verifying " + input.getName() + ":  "); //$NON-NLS-1$ //$NON-NLS-2$
 				String[] cmd = new String[] {verifyCommand, "-verify", input.getCanonicalPath()}; //$NON-NLS-1$
@@ -67,6 +77,49 @@ public class VerifyStep extends CommandStep {
 		return null;
 	}
 
+	/*
+	 * Does what jarsigner -verify does through the JarFile API: reading each entry
+	 * checks its digest against the signature, a mismatch throws a SecurityException.
+	 */
+	private String verify(File input) {
+		JarFile jar = null;
+		try {
+			jar = new JarFile(input, true);
+			boolean signed = false;
+			boolean unsigned = false;
+			byte[] buffer = new byte[8192];
+			for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+				JarEntry entry = entries.nextElement();
+				InputStream in = jar.getInputStream(entry);
+				try {
+					while (in.read(buffer) != -1) {
+						//read to the end to verify the digest
+					}
+				} finally {
+					in.close();
+				}
+				String name = entry.getName().toUpperCase();
+				if (entry.isDirectory() || name.startsWith("META-INF/")) //$NON-NLS-1$
+					continue;
+				if (entry.getCodeSigners() == null)
+					unsigned = true;
+				else
+					signed = true;
+			}
+			if (!signed)
+				return "jar is unsigned."; //$NON-NLS-1$
+			return unsigned ? "jar verified, but some entries are not signed." : "jar verified."; //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (SecurityException e) {
+			return "jarsigner: java.lang.SecurityException: " + e.getMessage(); //$NON-NLS-1$
+		} catch (IOException e) {
+			if (verbose)
+				e.printStackTrace();
+			return "jarsigner error: " + e.getMessage(); //$NON-NLS-1$
+		} finally {
+			Utils.close(jar);
+		}
+	}
+
 	public File preProcess(File input, File workingDirectory, List<Properties> containers) {
 		return null;
 	}
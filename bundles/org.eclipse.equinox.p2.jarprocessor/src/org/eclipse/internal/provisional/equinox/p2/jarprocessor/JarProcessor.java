@@ -12,6 +12,8 @@ package org.eclipse.internal.provisional.equinox.p2.jarprocessor;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.*;
 import org.eclipse.equinox.internal.p2.jarprocessor.*;
 
@@ -24,6 +26,8 @@ public class JarProcessor {
 	private boolean verbose = false;
 	private boolean processAll = false;
 	private LinkedList<Properties> containingInfs = new LinkedList<Properties>();
+	private ExecutorService executor = null;
+	private static final AtomicInteger tempDirs = new AtomicInteger();
 
 	static public JarProcessor getUnpackProcessor(Properties properties) {
 		if (!canPerformUnpack())
@@ -66,6 +70,19 @@ public class JarProcessor {
 		this.processAll = all;
 	}
 
+	/**
+	 * Sets the executor on which the nested jars of a jar are processed concurrently.
+	 * The process steps must then support being called for several jars at the same time.
+	 * By default, or when <code>null</code>, the nested jars are processed one after the other.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
 	public void addProcessStep(IProcessStep step) {
 		steps.add(step);
 	}
@@ -184,6 +201,11 @@ public class JarProcessor {
 			}
 		}
 
+		if (executor != null) {
+			extractEntriesConcurrently(jar, tempDir, data, inf);
+			return;
+		}
+
 		Enumeration<JarEntry> entries = jar.entries();
 		if (entries.hasMoreElements()) {
 			for (JarEntry entry = entries.nextElement(); entry != null; entry = entries.hasMoreElements() ? (JarEntry) entries.nextElement() : null) {
@@ -196,22 +218,8 @@ public class JarProcessor {
 						System.out.println("Processing nested file: " + name); //$NON-NLS-1$
 					}
 					//extract entry to temp directory
-					File extracted = new File(tempDir, name);
+					File extracted = extract(jar, entry, tempDir);
 					File parentDir = extracted.getParentFile();
-					if (!parentDir.exists())
-						parentDir.mkdirs();
-
-					InputStream in = null;
-					OutputStream out = null;
-					try {
-						in = jar.getInputStream(entry);
-						out = new BufferedOutputStream(new FileOutputStream(extracted));
-						Utils.transferStreams(in, out, true); //this will close both streams
-					} finally {
-						Utils.close(in);
-						Utils.close(out);
-					}
-					extracted.setLastModified(entry.getTime());
 
 					//recurse
 					String dir = getWorkingDirectory();
@@ -234,6 +242,111 @@ public class JarProcessor {
 		}
 	}
 
+	/*
+	 * Same as the loop of extractEntries, except that all the nested jars are extracted first and
+	 * then processed on the executor. The calling thread runs the nested jars that no thread of the
+	 * executor has started yet, so waiting for the nested jars never uses up the executor threads.
+	 */
+	private void extractEntriesConcurrently(JarFile jar, File tempDir, Map<String, String> data, Properties inf) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<File> extractedFiles = new ArrayList<File>();
+		List<FutureTask<File>> tasks = new ArrayList<FutureTask<File>>();
+		Enumeration<JarEntry> entries = jar.entries();
+		while (entries.hasMoreElements()) {
+			JarEntry entry = entries.nextElement();
+			String name = entry.getName();
+			if (recursionEffect(name) == null)
+				continue;
+			if (verbose) {
+				for (int i = 0; i <= depth; i++)
+					System.out.print("  "); //$NON-NLS-1$
+				System.out.println("Processing nested file: " + name); //$NON-NLS-1$
+			}
+			final File extracted = extract(jar, entry, tempDir);
+			final JarProcessor nested = createNestedProcessor(extracted.getParentFile(), inf);
+			tasks.add(new FutureTask<File>(new Callable<File>() {
+				public File call() throws IOException {
+					return nested.processJar(extracted);
+				}
+			}));
+			names.add(name);
+			extractedFiles.add(extracted);
+		}
+
+		for (FutureTask<File> task : tasks) {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				//the task is run below
+			}
+		}
+
+		Throwable failure = null;
+		for (int i = 0; i < tasks.size(); i++) {
+			FutureTask<File> task = tasks.get(i);
+			task.run();
+			File result;
+			try {
+				result = task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} catch (ExecutionException e) {
+				if (failure == null)
+					failure = e.getCause();
+				continue;
+			}
+			String name = names.get(i);
+			File extracted = extractedFiles.get(i);
+			String newName = name.substring(0, name.length() - extracted.getName().length()) + result.getName();
+			data.put(name, newName);
+
+			//delete the extracted item leaving the recursion result
+			if (!name.equals(newName))
+				extracted.delete();
+		}
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	private JarProcessor createNestedProcessor(File workingDir, Properties inf) throws IOException {
+		JarProcessor nested = new JarProcessor();
+		// the steps are only read while processing
+		nested.steps = steps;
+		nested.workingDirectory = workingDir.getCanonicalPath();
+		nested.depth = depth;
+		nested.verbose = verbose;
+		nested.processAll = processAll;
+		nested.executor = executor;
+		nested.containingInfs = new LinkedList<Properties>(containingInfs);
+		nested.containingInfs.addFirst(inf);
+		return nested;
+	}
+
+	private File extract(JarFile jar, JarEntry entry, File tempDir) throws IOException {
+		File extracted = new File(tempDir, entry.getName());
+		File parentDir = extracted.getParentFile();
+		if (!parentDir.exists())
+			parentDir.mkdirs();
+
+		InputStream in = null;
+		OutputStream out = null;
+		try {
+			in = jar.getInputStream(entry);
+			out = new BufferedOutputStream(new FileOutputStream(extracted));
+			Utils.transferStreams(in, out, true); //this will close both streams
+		} finally {
+			Utils.close(in);
+			Utils.close(out);
+		}
+		extracted.setLastModified(entry.getTime());
+		return extracted;
+	}
+
 	private File preProcess(File input, File tempDir) {
 		File result = null;
 		for (Iterator<IProcessStep> iter = steps.iterator(); iter.hasNext();) {
@@ -301,7 +414,11 @@ public class JarProcessor {
 				tempDir = new File(workingDir, "temp." + workingFile.getName()); //$NON-NLS-1$
 			} else {
 				File parent = workingDir.getParentFile();
-				tempDir = new File(parent, "temp_" + depth + '_' + workingFile.getName()); //$NON-NLS-1$
+				String name = "temp_" + depth + '_' + workingFile.getName(); //$NON-NLS-1$
+				// nested jars of the same name in different folders of a jar can be processed at the same time
+				if (executor != null)
+					name += '_' + Integer.toString(tempDirs.incrementAndGet());
+				tempDir = new File(parent, name);
 			}
 
 			JarFile jar = null;
@@ -12,8 +12,8 @@
 package org.eclipse.internal.provisional.equinox.p2.jarprocessor;
 
 import java.io.*;
-import java.util.Properties;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.ZipException;
 import org.eclipse.equinox.internal.p2.jarprocessor.*;
 
@@ -27,14 +27,53 @@ public class JarProcessorExecutor {
 		public boolean verbose = false;
 		public boolean processAll = false;
 		public File input = null;
+		/**
+		 * The number of jars processed at the same time, nested jars included.
+		 */
+		public int threads = 1;
+		/**
+		 * Whether the entries of a zip that are not processed are copied as they are stored,
+		 * without recompressing them.
+		 */
+		public boolean stream = false;
 	}
 
 	protected Options options = null;
 	private Set<String> packExclusions = null;
 	private Set<String> signExclusions = null;
+	private ExecutorService executor = null;
+	private List<Future<?>> pending = null;
 
 	public void runJarProcessor(Options processOptions) {
 		this.options = processOptions;
+		if (options.threads > 1) {
+			executor = Executors.newFixedThreadPool(options.threads, new ThreadFactory() {
+				private int count = 0;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "JarProcessor " + ++count); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pending = new ArrayList<Future<?>>();
+		}
+		try {
+			runJarProcessor();
+		} finally {
+			if (executor != null) {
+				try {
+					waitForPending();
+				} finally {
+					executor.shutdown();
+					executor = null;
+					pending = null;
+				}
+			}
+		}
+	}
+
+	private void runJarProcessor() {
 		if (options.input.isFile() && options.input.getName().endsWith(".zip")) { //$NON-NLS-1$
 			ZipProcessor processor = new ZipProcessor();
 			processor.setWorkingDirectory(options.outputDir);
@@ -154,37 +193,88 @@ public class JarProcessorExecutor {
 			if (files[i].isDirectory()) {
 				processDirectory(files[i], filter, verbose, processor, packProperties);
 			} else if (filter.accept(files[i])) {
-				try {
+				if (executor != null)
+					submit(files[i], verbose, processor, packProperties);
+				else
+					processFile(files[i], verbose, processor, packProperties);
+			}
+		}
+	}
+
+	private void processFile(File file, boolean verbose, JarProcessor processor, Properties packProperties) {
+		try {
+			processor.clearProcessSteps();
+			if (options.unpack) {
+				addUnpackStep(processor, packProperties, options);
+				processor.processJar(file);
+			} else {
+				String name = getRelativeName(file);
+				boolean sign = shouldSign(name);
+				boolean repack = shouldRepack(name);
+
+				if (repack || sign) {
 					processor.clearProcessSteps();
-					if (options.unpack) {
-						addUnpackStep(processor, packProperties, options);
-						processor.processJar(files[i]);
-					} else {
-						String name = getRelativeName(files[i]);
-						boolean sign = shouldSign(name);
-						boolean repack = shouldRepack(name);
-
-						if (repack || sign) {
-							processor.clearProcessSteps();
-							if (repack)
-								addPackUnpackStep(processor, packProperties, options);
-							if (sign)
-								addSignStep(processor, packProperties, options);
-							files[i] = processor.processJar(files[i]);
-						}
-
-						if (shouldPack(name)) {
-							processor.clearProcessSteps();
-							addPackStep(processor, packProperties, options);
-							processor.processJar(files[i]);
-						}
-					}
-				} catch (IOException e) {
-					if (verbose)
-						e.printStackTrace();
+					if (repack)
+						addPackUnpackStep(processor, packProperties, options);
+					if (sign)
+						addSignStep(processor, packProperties, options);
+					file = processor.processJar(file);
+				}
+
+				if (shouldPack(name)) {
+					processor.clearProcessSteps();
+					addPackStep(processor, packProperties, options);
+					processor.processJar(file);
 				}
 			}
+		} catch (IOException e) {
+			if (verbose)
+				e.printStackTrace();
+		}
+	}
+
+	/*
+	 * Processes the file on the executor with its own processor, set up like the given one is now:
+	 * the working directory of the given processor changes as the folders are walked.
+	 */
+	private void submit(final File file, final boolean verbose, JarProcessor processor, final Properties packProperties) {
+		final JarProcessor copy = createJarProcessor();
+		copy.setWorkingDirectory(processor.getWorkingDirectory());
+		copy.setVerbose(options.verbose);
+		copy.setProcessAll(options.processAll);
+		copy.setExecutor(executor);
+		pending.add(executor.submit(new Runnable() {
+			public void run() {
+				processFile(file, verbose, copy, packProperties);
+			}
+		}));
+	}
+
+	private void waitForPending() {
+		Throwable failure = null;
+		for (Future<?> future : pending) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				if (failure == null)
+					failure = e.getCause();
+			}
 		}
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	/**
+	 * Creates the processors that process the jars when several jars are processed
+	 * at the same time, see {@link Options#threads}.
+	 */
+	protected JarProcessor createJarProcessor() {
+		return new JarProcessor();
 	}
 
 	protected void processDirectory(File input, FileFilter filter, boolean verbose, JarProcessor processor, Properties packProperties) throws FileNotFoundException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -83,13 +83,13 @@ public class MetadataRepositoryIO {
 	}
 
 	/**
-	 *
+	 * Writes the repository, indenting the XML when <code>indent</code> is <code>true</code>.
 	 */
-	public void write(IMetadataRepository repository, OutputStream output) throws IOException {
+	public void write(IMetadataRepository repository, OutputStream output, boolean indent) throws IOException {
 		OutputStream bufferedOutput = null;
 		try {
 			bufferedOutput = new BufferedOutputStream(output);
-			Writer repositoryWriter = new Writer(bufferedOutput, repository.getClass());
+			Writer repositoryWriter = new Writer(bufferedOutput, repository.getClass(), indent);
 			repositoryWriter.write(repository);
 		} finally {
 			if (bufferedOutput != null) {
@@ -123,8 +123,8 @@ public class MetadataRepositoryIO {
 	// XML writer for a IMetadataRepository
 	protected class Writer extends MetadataWriter implements XMLConstants {
 
-		public Writer(OutputStream output, Class<? extends IMetadataRepository> repositoryClass) throws IOException {
-			super(output, createPI(repositoryClass));
+		public Writer(OutputStream output, Class<? extends IMetadataRepository> repositoryClass, boolean indent) throws IOException {
+			super(output, createPI(repositoryClass), indent);
 		}
 
 		/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,10 +14,12 @@ package org.eclipse.equinox.internal.p2.metadata.repository.io;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.Map.Entry;
 import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
 import org.eclipse.equinox.internal.p2.persistence.XMLParser;
 import org.eclipse.equinox.p2.metadata.*;
 import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
@@ -33,6 +35,9 @@ import org.xml.sax.ContentHandler;
 public abstract class MetadataParser extends XMLParser implements XMLConstants {
 	static final ILicense[] NO_LICENSES = new ILicense[0];
 
+	// Work of the unit being read that is left to the thread building the unit, see InstallableUnitsHandler
+	List<Runnable> deferredWork = null;
+
 	public MetadataParser(BundleContext context, String bundleId) {
 		super(context, bundleId);
 	}
@@ -90,12 +95,33 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 		}
 	}
 
+	/**
+	 * Runs work that does not need the XML reader, such as parsing filters and expressions,
+	 * either now or later on the thread that builds the current unit.
+	 */
+	protected void defer(Runnable work) {
+		if (deferredWork != null)
+			deferredWork.add(work);
+		else
+			work.run();
+	}
+
+	/**
+	 * Handler for a collection of units. When the collection is large, this thread only reads
+	 * the units, each unit is built on another thread as soon as it has been read. The units
+	 * keep their document order.
+	 */
 	protected class InstallableUnitsHandler extends AbstractMetadataHandler {
 		private ArrayList<InstallableUnitDescription> units;
+		// builds the units read, null when they are built on this thread
+		private ParallelBuild<InstallableUnitDescription> parallelBuild = null;
 
 		public InstallableUnitsHandler(AbstractHandler parentHandler, Attributes attributes) {
 			super(parentHandler, INSTALLABLE_UNITS_ELEMENT);
-			units = new ArrayList<InstallableUnitDescription>(getOptionalSize(attributes, 4));
+			int size = getOptionalSize(attributes, 4);
+			units = new ArrayList<InstallableUnitDescription>(size);
+			if (isParallelBuild(size))
+				parallelBuild = new ParallelBuild<InstallableUnitDescription>();
 		}
 
 		public IInstallableUnit[] getUnits() {
@@ -109,11 +135,16 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 
 		public void startElement(String name, Attributes attributes) {
 			if (name.equals(INSTALLABLE_UNIT_ELEMENT)) {
-				new InstallableUnitHandler(this, attributes, units);
+				new InstallableUnitHandler(this, attributes, units, parallelBuild);
 			} else {
 				invalidElement(name, attributes);
 			}
 		}
+
+		protected void finished() {
+			if (parallelBuild != null)
+				units.addAll(parallelBuild.finish());
+		}
 	}
 
 	protected class InstallableUnitHandler extends AbstractHandler {
@@ -142,15 +173,32 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 
 		private List<InstallableUnitDescription> units;
 
+		private ParallelBuild<InstallableUnitDescription> parallelBuild;
+		private List<Runnable> work;
+
 		public InstallableUnitHandler(AbstractHandler parentHandler, Attributes attributes, List<InstallableUnitDescription> units) {
+			this(parentHandler, attributes, units, null);
+		}
+
+		/**
+		 * Creates a handler whose unit is built by the given parallel build once it has been read,
+		 * if <code>parallelBuild</code> is not null. The built unit is then not added to <code>units</code>.
+		 */
+		public InstallableUnitHandler(AbstractHandler parentHandler, Attributes attributes, List<InstallableUnitDescription> units, ParallelBuild<InstallableUnitDescription> parallelBuild) {
 			super(parentHandler, INSTALLABLE_UNIT_ELEMENT);
+			this.parallelBuild = parallelBuild;
+			if (parallelBuild != null) {
+				work = new ArrayList<Runnable>();
+				deferredWork = work;
+			}
 			String[] values = parseAttributes(attributes, REQUIRED_IU_ATTRIBUTES, OPTIONAL_IU_ATTRIBUTES);
 			this.units = units;
 			//skip entire IU if the id is missing
 			if (values[0] == null)
 				return;
 
-			id = values[0];
+			// the ids of the units are also the names of their capabilities and requirements
+			id = MetadataPools.share(values[0]);
 			version = checkVersion(INSTALLABLE_UNIT_ELEMENT, VERSION_ATTRIBUTE, values[1]);
 			singleton = checkBoolean(INSTALLABLE_UNIT_ELEMENT, SINGLETON_ATTRIBUTE, values[2], true).booleanValue();
 		}
@@ -257,78 +305,100 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 		}
 
 		protected void finished() {
-			if (isValidXML()) {
-				if (requirementChangesHandler != null) {
-					currentUnit = new MetadataFactory.InstallableUnitPatchDescription();
-					((InstallableUnitPatchDescription) currentUnit).setRequirementChanges(requirementChangesHandler.getRequirementChanges().toArray(new IRequirementChange[requirementChangesHandler.getRequirementChanges().size()]));
-					if (applicabilityScopeHandler != null)
-						((InstallableUnitPatchDescription) currentUnit).setApplicabilityScope(applicabilityScopeHandler.getScope());
-					if (lifeCycleHandler != null)
-						((InstallableUnitPatchDescription) currentUnit).setLifeCycle(lifeCycleHandler.getLifeCycleRequirement());
-				} else if (hostRequiredCapabilitiesHandler == null || hostRequiredCapabilitiesHandler.getHostRequiredCapabilities().length == 0) {
-					currentUnit = new InstallableUnitDescription();
-				} else {
-					currentUnit = new MetadataFactory.InstallableUnitFragmentDescription();
-					((InstallableUnitFragmentDescription) currentUnit).setHost(hostRequiredCapabilitiesHandler.getHostRequiredCapabilities());
-				}
-				currentUnit.setId(id);
-				currentUnit.setVersion(version);
-				currentUnit.setSingleton(singleton);
-				OrderedProperties properties = (propertiesHandler == null ? new OrderedProperties(0) : propertiesHandler.getProperties());
-				String updateFrom = null;
-				VersionRange updateRange = null;
-				for (Entry<String, String> e : properties.entrySet()) {
-					String key = e.getKey();
-					String value = e.getValue();
-					//Backward compatibility
-					if (key.equals("equinox.p2.update.from")) { //$NON-NLS-1$
-						updateFrom = value;
-						continue;
-					}
-					if (key.equals("equinox.p2.update.range")) { //$NON-NLS-1$
-						updateRange = new VersionRange(value);
-						continue;
+			deferredWork = null;
+			if (!isValidXML())
+				return;
+			if (parallelBuild != null) {
+				parallelBuild.submit(new Callable<InstallableUnitDescription>() {
+					public InstallableUnitDescription call() {
+						return build();
 					}
-					//End of backward compatibility
-					currentUnit.setProperty(key, value);
-				}
+				});
+			} else {
+				units.add(build());
+			}
+		}
+
+		/*
+		 * Creates the description of the unit from what has been read. This does not use the
+		 * XML reader, and may run on another thread than the one that read the unit.
+		 */
+		InstallableUnitDescription build() {
+			if (work != null) {
+				for (Runnable deferred : work)
+					deferred.run();
+				work = null;
+			}
+			if (requirementChangesHandler != null) {
+				currentUnit = new MetadataFactory.InstallableUnitPatchDescription();
+				((InstallableUnitPatchDescription) currentUnit).setRequirementChanges(requirementChangesHandler.getRequirementChanges().toArray(new IRequirementChange[requirementChangesHandler.getRequirementChanges().size()]));
+				if (applicabilityScopeHandler != null)
+					((InstallableUnitPatchDescription) currentUnit).setApplicabilityScope(applicabilityScopeHandler.getScope());
+				if (lifeCycleHandler != null)
+					((InstallableUnitPatchDescription) currentUnit).setLifeCycle(lifeCycleHandler.getLifeCycleRequirement());
+			} else if (hostRequiredCapabilitiesHandler == null || hostRequiredCapabilitiesHandler.getHostRequiredCapabilities().length == 0) {
+				currentUnit = new InstallableUnitDescription();
+			} else {
+				currentUnit = new MetadataFactory.InstallableUnitFragmentDescription();
+				((InstallableUnitFragmentDescription) currentUnit).setHost(hostRequiredCapabilitiesHandler.getHostRequiredCapabilities());
+			}
+			currentUnit.setId(id);
+			currentUnit.setVersion(version);
+			currentUnit.setSingleton(singleton);
+			OrderedProperties properties = (propertiesHandler == null ? new OrderedProperties(0) : propertiesHandler.getProperties());
+			String updateFrom = null;
+			VersionRange updateRange = null;
+			for (Entry<String, String> e : properties.entrySet()) {
+				String key = e.getKey();
+				String value = e.getValue();
 				//Backward compatibility
-				if (updateFrom != null && updateRange != null)
-					currentUnit.setUpdateDescriptor(MetadataFactory.createUpdateDescriptor(updateFrom, updateRange, IUpdateDescriptor.NORMAL, null));
+				if (key.equals("equinox.p2.update.from")) { //$NON-NLS-1$
+					updateFrom = value;
+					continue;
+				}
+				if (key.equals("equinox.p2.update.range")) { //$NON-NLS-1$
+					updateRange = MetadataPools.parseVersionRange(value);
+					continue;
+				}
 				//End of backward compatibility
+				currentUnit.setProperty(key, value);
+			}
+			//Backward compatibility
+			if (updateFrom != null && updateRange != null)
+				currentUnit.setUpdateDescriptor(MetadataFactory.createUpdateDescriptor(updateFrom, updateRange, IUpdateDescriptor.NORMAL, null));
+			//End of backward compatibility
 
-				if (licensesHandler != null) {
-					currentUnit.setLicenses(licensesHandler.getLicenses());
-				}
+			if (licensesHandler != null) {
+				currentUnit.setLicenses(licensesHandler.getLicenses());
+			}
 
-				if (copyrightHandler != null) {
-					ICopyright copyright = copyrightHandler.getCopyright();
-					currentUnit.setCopyright(copyright);
-				}
+			if (copyrightHandler != null) {
+				ICopyright copyright = copyrightHandler.getCopyright();
+				currentUnit.setCopyright(copyright);
+			}
 
-				IProvidedCapability[] providedCapabilities = (providedCapabilitiesHandler == null ? new IProvidedCapability[0] : providedCapabilitiesHandler.getProvidedCapabilities());
-				currentUnit.setCapabilities(providedCapabilities);
-				IRequirement[] requiredCapabilities = (requiredCapabilitiesHandler == null ? new IRequirement[0] : requiredCapabilitiesHandler.getRequiredCapabilities());
-				currentUnit.setRequirements(requiredCapabilities);
-				IRequirement[] metaRequiredCapabilities = (metaRequiredCapabilitiesHandler == null ? new IRequirement[0] : metaRequiredCapabilitiesHandler.getMetaRequiredCapabilities());
-				currentUnit.setMetaRequirements(metaRequiredCapabilities);
-				if (filterHandler != null) {
-					currentUnit.setFilter(filterHandler.getText());
-				}
-				IArtifactKey[] artifacts = (artifactsHandler == null ? new IArtifactKey[0] : artifactsHandler.getArtifactKeys());
-				currentUnit.setArtifacts(artifacts);
-				if (touchpointTypeHandler != null) {
-					currentUnit.setTouchpointType(touchpointTypeHandler.getTouchpointType());
-				} else {
-					// TODO: create an error
-				}
-				ITouchpointData[] touchpointData = (touchpointDataHandler == null ? new ITouchpointData[0] : touchpointDataHandler.getTouchpointData());
-				for (int i = 0; i < touchpointData.length; i++)
-					currentUnit.addTouchpointData(touchpointData[i]);
-				if (updateDescriptorHandler != null)
-					currentUnit.setUpdateDescriptor(updateDescriptorHandler.getUpdateDescriptor());
-				units.add(currentUnit);
+			IProvidedCapability[] providedCapabilities = (providedCapabilitiesHandler == null ? new IProvidedCapability[0] : providedCapabilitiesHandler.getProvidedCapabilities());
+			currentUnit.setCapabilities(providedCapabilities);
+			IRequirement[] requiredCapabilities = (requiredCapabilitiesHandler == null ? new IRequirement[0] : requiredCapabilitiesHandler.getRequiredCapabilities());
+			currentUnit.setRequirements(requiredCapabilities);
+			IRequirement[] metaRequiredCapabilities = (metaRequiredCapabilitiesHandler == null ? new IRequirement[0] : metaRequiredCapabilitiesHandler.getMetaRequiredCapabilities());
+			currentUnit.setMetaRequirements(metaRequiredCapabilities);
+			if (filterHandler != null) {
+				currentUnit.setFilter(filterHandler.getText());
+			}
+			IArtifactKey[] artifacts = (artifactsHandler == null ? new IArtifactKey[0] : artifactsHandler.getArtifactKeys());
+			currentUnit.setArtifacts(artifacts);
+			if (touchpointTypeHandler != null) {
+				currentUnit.setTouchpointType(touchpointTypeHandler.getTouchpointType());
+			} else {
+				// TODO: create an error
 			}
+			ITouchpointData[] touchpointData = (touchpointDataHandler == null ? new ITouchpointData[0] : touchpointDataHandler.getTouchpointData());
+			for (int i = 0; i < touchpointData.length; i++)
+				currentUnit.addTouchpointData(touchpointData[i]);
+			if (updateDescriptorHandler != null)
+				currentUnit.setUpdateDescriptor(updateDescriptorHandler.getUpdateDescriptor());
+			return currentUnit;
 		}
 	}
 
@@ -372,7 +442,12 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 
 		protected void finished() {
 			if (children != null) {
-				scopes.add(children.getRequiredCapabilities());
+				// the requirements may not have been created yet
+				defer(new Runnable() {
+					public void run() {
+						scopes.add(children.getRequiredCapabilities());
+					}
+				});
 			}
 		}
 	}
@@ -424,7 +499,12 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 		}
 
 		protected void finished() {
-			requirementChanges.add(MetadataFactory.createRequirementChange(from.size() == 0 ? null : (IRequirement) from.get(0), to.size() == 0 ? null : (IRequirement) to.get(0)));
+			// the requirements may not have been created yet
+			defer(new Runnable() {
+				public void run() {
+					requirementChanges.add(MetadataFactory.createRequirementChange(from.size() == 0 ? null : (IRequirement) from.get(0), to.size() == 0 ? null : (IRequirement) to.get(0)));
+				}
+			});
 		}
 	}
 
@@ -619,6 +699,17 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 		protected void finished() {
 			if (!isValidXML())
 				return;
+			// keep the place of the requirement, it may be created on the thread that builds the unit
+			final int index = capabilities.size();
+			capabilities.add(null);
+			defer(new Runnable() {
+				public void run() {
+					capabilities.set(index, createRequirement());
+				}
+			});
+		}
+
+		IRequirement createRequirement() {
 			IMatchExpression<IInstallableUnit> filter = null;
 			if (filterHandler != null) {
 				try {
@@ -638,7 +729,7 @@ public abstract class MetadataParser extends XMLParser implements XMLConstants {
 				requirement = MetadataFactory.createRequirement(matchExpr, filter, min, max, greedy, description);
 			} else
 				requirement = MetadataFactory.createRequirement(namespace, name, range, filter, min, max, greedy, description);
-			capabilities.add(requirement);
+			return requirement;
 		}
 
 		private String removeWhiteSpace(String s) {
@@ -30,6 +30,10 @@ public class MetadataWriter extends XMLWriter implements XMLConstants {
 		// TODO: add a processing instruction for the metadata version
 	}
 
+	public MetadataWriter(OutputStream output, ProcessingInstruction[] piElements, boolean indent) throws UnsupportedEncodingException {
+		super(output, piElements, indent);
+	}
+
 	/**
 	 * Writes a list of {@link IInstallableUnit}.
 	 * @param units An Iterator of {@link IInstallableUnit}.
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata;
+
+import java.util.Collection;
+import org.eclipse.equinox.p2.metadata.*;
+
+/**
+ * Matches the provided capabilities of an installable unit against the name, namespace
+ * and version bounds of a {@link RequiredCapability}, with the same result as evaluating
+ * the predefined match expression of the requirement but without the evaluation context,
+ * the member lookups and the coercing comparisons. A <code>null</code> bound is unbounded.
+ * @Immutable
+ */
+public final class CapabilityMatcher {
+	private final String name;
+	private final String namespace;
+	private final Version min;
+	private final boolean includeMin;
+	private final Version max;
+	private final boolean includeMax;
+	private final boolean strict;
+
+	CapabilityMatcher(String name, String namespace, Version min, boolean includeMin, Version max, boolean includeMax, boolean strict) {
+		this.name = name;
+		this.namespace = namespace;
+		this.min = min;
+		this.includeMin = includeMin;
+		this.max = max;
+		this.includeMax = includeMax;
+		this.strict = strict;
+	}
+
+	public boolean isMatch(IInstallableUnit candidate) {
+		Collection<IProvidedCapability> capabilities = candidate.getProvidedCapabilities();
+		for (IProvidedCapability capability : capabilities) {
+			if (name.equals(capability.getName()) && namespace.equals(capability.getNamespace()) && isIncluded(capability.getVersion()))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean isIncluded(Version version) {
+		if (version == null)
+			return false;
+		if (strict)
+			return min.equals(version);
+		if (min != null) {
+			int cmp = min.compareTo(version);
+			if (includeMin ? cmp > 0 : cmp >= 0)
+				return false;
+		}
+		if (max != null) {
+			int cmp = max.compareTo(version);
+			if (includeMax ? cmp < 0 : cmp <= 0)
+				return false;
+		}
+		return true;
+	}
+}
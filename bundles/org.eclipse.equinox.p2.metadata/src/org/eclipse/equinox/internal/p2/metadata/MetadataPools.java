@@ -0,0 +1,141 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.equinox.internal.p2.core.helpers.ShardedWeakPool;
+import org.eclipse.equinox.p2.metadata.*;
+
+/**
+ * The pools that share the immutable metadata objects of all the repositories and profiles
+ * loaded in the VM. The versions, version ranges, capabilities and requirements created by
+ * the parsers and by {@link MetadataFactory} go through these pools, so that the many equal
+ * instances read from different repositories collapse into one. The pools hold their
+ * objects weakly and are bounded, they never keep metadata alive.
+ * <p>
+ * Only the objects whose equal instances are interchangeable are shared. An OSGi version
+ * is equal to a raw version with the same vector, but they print differently, so only the
+ * OSGi versions and the objects made of them are shared. Requirements are equal regardless
+ * of their description, so a requirement is only shared with one of the same description.
+ * </p><p>
+ * Sharing is disabled with <code>-Declipse.p2.metadata.pools=false</code>.
+ * </p>
+ */
+public class MetadataPools {
+	private static final int CAPACITY = 1 << 20;
+	private static final int RANGE_TEXT_CAPACITY = 1 << 13;
+
+	public static final boolean ENABLED = !"false".equals(System.getProperty("eclipse.p2.metadata.pools")); //$NON-NLS-1$//$NON-NLS-2$
+
+	public static final ShardedWeakPool<String> STRINGS = new ShardedWeakPool<String>("strings", CAPACITY); //$NON-NLS-1$
+	public static final ShardedWeakPool<Version> VERSIONS = new ShardedWeakPool<Version>("versions", CAPACITY); //$NON-NLS-1$
+	public static final ShardedWeakPool<VersionRange> VERSION_RANGES = new ShardedWeakPool<VersionRange>("version ranges", CAPACITY); //$NON-NLS-1$
+	public static final ShardedWeakPool<IProvidedCapability> CAPABILITIES = new ShardedWeakPool<IProvidedCapability>("capabilities", CAPACITY); //$NON-NLS-1$
+	public static final ShardedWeakPool<IRequirement> REQUIREMENTS = new ShardedWeakPool<IRequirement>("requirements", CAPACITY); //$NON-NLS-1$
+
+	// the ranges parsed from each range text, emptied when full
+	private static final Map<String, VersionRange> RANGES_BY_TEXT = new ConcurrentHashMap<String, VersionRange>();
+
+	private MetadataPools() {
+		// static helpers only
+	}
+
+	public static String share(String value) {
+		return ENABLED ? STRINGS.add(value) : value;
+	}
+
+	public static Version share(Version version) {
+		if (!ENABLED || !(version instanceof OSGiVersion))
+			return version;
+		return VERSIONS.add(version);
+	}
+
+	public static VersionRange share(VersionRange range) {
+		if (!ENABLED || range == null || !isShared(range))
+			return range;
+		return VERSION_RANGES.add(range);
+	}
+
+	public static IProvidedCapability share(IProvidedCapability capability) {
+		if (!ENABLED || capability == null || capability.getClass() != ProvidedCapability.class || !isShared(capability.getVersion()))
+			return capability;
+		return CAPABILITIES.add(capability);
+	}
+
+	/**
+	 * Shares a requirement created from a namespace, a name and the given range.
+	 */
+	public static IRequirement share(IRequirement requirement, VersionRange range) {
+		if (!ENABLED || (range != null && !isShared(range)))
+			return requirement;
+		IRequirement shared = REQUIREMENTS.add(requirement);
+		String description = requirement.getDescription();
+		if (description == null ? shared.getDescription() != null : !description.equals(shared.getDescription()))
+			return requirement;
+		return shared;
+	}
+
+	/**
+	 * Returns the range parsed from the given text. The few thousand range texts of the
+	 * requirements of a repository are each parsed once and the range is then reused.
+	 *
+	 * @param text the text of the range, see {@link VersionRange#VersionRange(String)}
+	 * @return the range
+	 * @throws IllegalArgumentException if the text is not a valid range
+	 */
+	public static VersionRange parseVersionRange(String text) {
+		if (!ENABLED || text == null)
+			return new VersionRange(text);
+		VersionRange range = RANGES_BY_TEXT.get(text);
+		if (range == null) {
+			range = share(new VersionRange(text));
+			if (RANGES_BY_TEXT.size() >= RANGE_TEXT_CAPACITY)
+				RANGES_BY_TEXT.clear();
+			RANGES_BY_TEXT.put(text, range);
+		}
+		return range;
+	}
+
+	/**
+	 * Whether the version can be shared, or is one of the constants.
+	 */
+	private static boolean isShared(Version version) {
+		return version instanceof OSGiVersion || version == Version.emptyVersion || version == Version.MAX_VERSION;
+	}
+
+	private static boolean isShared(VersionRange range) {
+		return isShared(range.getMinimum()) && isShared(range.getMaximum());
+	}
+
+	/**
+	 * Empties the pools and resets their statistics.
+	 */
+	public static void clear() {
+		STRINGS.clear();
+		VERSIONS.clear();
+		VERSION_RANGES.clear();
+		CAPABILITIES.clear();
+		REQUIREMENTS.clear();
+		RANGES_BY_TEXT.clear();
+	}
+
+	/**
+	 * Returns the size and the hit rate of each pool, one pool per line.
+	 */
+	public static String getStatistics() {
+		StringBuffer result = new StringBuffer();
+		ShardedWeakPool<?>[] pools = new ShardedWeakPool<?>[] {STRINGS, VERSIONS, VERSION_RANGES, CAPABILITIES, REQUIREMENTS};
+		for (int i = 0; i < pools.length; i++)
+			result.append(pools[i]).append('\n');
+		return result.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,14 @@ public class OSGiVersion extends BasicVersion {
 
 	private final Comparable<?> qualifier;
 
+	/**
+	 * The major, minor and micro numbers packed in one value that sorts like them, or -1
+	 * when one of them does not fit in {@link #KEY_BITS} bits.
+	 */
+	private final transient long key;
+
+	private static final int KEY_BITS = 21;
+
 	static {
 		allowedOSGiChars = new boolean[128];
 		for (int c = '0'; c <= '9'; ++c)
@@ -82,36 +90,112 @@ public class OSGiVersion extends BasicVersion {
 		return (major == 0 && minor == 0 && micro == 0 && qualifier == VersionVector.MINS_VALUE) ? (BasicVersion) emptyVersion : new OSGiVersion(major, minor, micro, qualifier);
 	}
 
+	/**
+	 * Parses a plain OSGi version, <code>major[.minor[.micro[.qualifier]]]</code>, straight
+	 * from the string without building the vector of the general version format.
+	 *
+	 * @param version The string to be parsed
+	 * @param start Start position in the <code>version</code> string
+	 * @param maxPos End position in the <code>version</code> string
+	 * @return the version, or <code>null</code> when the string is not a plain OSGi version
+	 * and must be parsed, or rejected, by the general parser
+	 */
+	static BasicVersion parse(String version, int start, int maxPos) {
+		int pos = start;
+		int major = 0;
+		int minor = 0;
+		int micro = 0;
+		int segment = 0;
+		for (; segment < 3 && pos < maxPos; ++segment) {
+			if (segment > 0) {
+				if (version.charAt(pos) != '.')
+					return null;
+				++pos;
+			}
+			int value = 0;
+			int digits = 0;
+			while (pos < maxPos) {
+				char c = version.charAt(pos);
+				if (c < '0' || c > '9')
+					break;
+				// larger numbers could overflow, leave them to the general parser
+				if (++digits > 9)
+					return null;
+				value = value * 10 + (c - '0');
+				++pos;
+			}
+			if (digits == 0)
+				return null;
+			if (segment == 0)
+				major = value;
+			else if (segment == 1)
+				minor = value;
+			else
+				micro = value;
+		}
+
+		Comparable<?> qualifier = VersionVector.MINS_VALUE;
+		if (pos < maxPos) {
+			if (segment < 3 || version.charAt(pos) != '.' || ++pos == maxPos)
+				return null;
+			boolean[] allowed = allowedOSGiChars;
+			for (int idx = pos; idx < maxPos; ++idx) {
+				char c = version.charAt(idx);
+				if (c < '-' || c > 'z' || !allowed[c])
+					return null;
+			}
+			String q = version.substring(pos, maxPos);
+			qualifier = IVersionFormat.DEFAULT_MAX_STRING_TRANSLATION.equals(q) ? VersionVector.MAXS_VALUE : q;
+		}
+		return (major == 0 && minor == 0 && micro == 0 && qualifier == VersionVector.MINS_VALUE) ? (BasicVersion) emptyVersion : new OSGiVersion(major, minor, micro, qualifier);
+	}
+
 	public OSGiVersion(int major, int minor, int micro, Comparable<? extends Object> qualifier) {
 		this.major = major;
 		this.minor = minor;
 		this.micro = micro;
 		if (!isValidOSGiQualifier(qualifier))
 			throw new IllegalArgumentException(NLS.bind(Messages._0_is_not_a_valid_qualifier_in_osgi_1, "qualifier", this)); //$NON-NLS-1$
-		//intern the qualifier string to avoid duplication
-		if (qualifier instanceof String)
-			qualifier = ((String) qualifier).intern();
+		//share the qualifier string to avoid duplication
+		if (qualifier instanceof String && qualifier != VersionVector.MINS_VALUE)
+			qualifier = MetadataPools.share((String) qualifier);
 		this.qualifier = qualifier;
+		this.key = computeKey(major, minor, micro);
+	}
+
+	private static long computeKey(int major, int minor, int micro) {
+		int limit = 1 << KEY_BITS;
+		if (major < 0 || major >= limit || minor < 0 || minor >= limit || micro < 0 || micro >= limit)
+			return -1;
+		return ((long) major << (2 * KEY_BITS)) | ((long) minor << KEY_BITS) | micro;
 	}
 
 	public int compareTo(Version v) {
-		int result;
+		if (v == this)
+			return 0;
 		if (!(v instanceof OSGiVersion)) {
+			// every OSGi version lies between the two constants
+			if (v == MAX_VERSION)
+				return -1;
+			if (v == emptyVersion && !(major == 0 && minor == 0 && micro == 0))
+				return 1;
 			BasicVersion ov = (BasicVersion) v;
-			result = VersionVector.compare(getVector(), null, ov.getVector(), ov.getPad());
+			return VersionVector.compare(getVector(), null, ov.getVector(), ov.getPad());
+		}
+		OSGiVersion ov = (OSGiVersion) v;
+		if (key >= 0 && ov.key >= 0) {
+			if (key != ov.key)
+				return key < ov.key ? -1 : 1;
 		} else {
-			OSGiVersion ov = (OSGiVersion) v;
-			result = major - ov.major;
-			if (result == 0) {
-				result = minor - ov.minor;
-				if (result == 0) {
-					result = micro - ov.micro;
-					if (result == 0)
-						result = VersionVector.compareSegments(qualifier, ov.qualifier);
-				}
-			}
+			if (major != ov.major)
+				return major < ov.major ? -1 : 1;
+			if (minor != ov.minor)
+				return minor < ov.minor ? -1 : 1;
+			if (micro != ov.micro)
+				return micro < ov.micro ? -1 : 1;
 		}
-		return result;
+		// shared qualifiers are most often the same instance
+		return qualifier == ov.qualifier ? 0 : VersionVector.compareSegments(qualifier, ov.qualifier);
 	}
 
 	public boolean equals(Object object) {
@@ -217,10 +301,7 @@ public class OSGiVersion extends BasicVersion {
 	}
 
 	private Object readResolve() {
-		OSGiVersion v = this;
-		// Preserve the empty string singleton.
-		if (qualifier.equals(VersionVector.MINS_VALUE))
-			v = new OSGiVersion(major, minor, micro, VersionVector.MINS_VALUE);
-		return v;
+		// Preserve the empty string singleton and compute the transient key.
+		return new OSGiVersion(major, minor, micro, qualifier.equals(VersionVector.MINS_VALUE) ? VersionVector.MINS_VALUE : qualifier);
 	}
 }
@@ -254,6 +254,9 @@ public class OmniVersion extends BasicVersion {
 	}
 
 	public int compareTo(Version v) {
+		// the constants are compared with OSGi versions without building their vectors
+		if (v instanceof OSGiVersion && (this == MAX_VERSION || this == emptyVersion))
+			return -v.compareTo(this);
 		BasicVersion ov = (BasicVersion) v;
 		return VersionVector.compare(vector, padValue, ov.getVector(), ov.getPad());
 	}
@@ -272,6 +272,44 @@ public class RequiredCapability implements IRequiredCapability, IMemberProvider
 		return expr;
 	}
 
+	/**
+	 * Returns a matcher that gives the same result as the given expression with the given
+	 * parameters, or <code>null</code> if the expression is not one of the predefined
+	 * requirement expressions.
+	 */
+	public static CapabilityMatcher createMatcher(IExpression expr, Object[] params) {
+		// the requirements created here share the very same expression instances
+		int count = params.length;
+		if (count < 2 || count > 4 || !(params[0] instanceof String && params[1] instanceof String))
+			return null;
+		String name = (String) params[0];
+		String namespace = (String) params[1];
+		if (expr == allVersionsExpression)
+			return count == 2 ? new CapabilityMatcher(name, namespace, null, true, null, true, false) : null;
+		if (count < 3 || !(params[2] instanceof Version))
+			return null;
+		Version low = (Version) params[2];
+		if (count == 3) {
+			if (expr == strictVersionExpression)
+				return new CapabilityMatcher(name, namespace, low, true, low, true, true);
+			if (expr == openEndedExpression || expr == openEndedNonInclusiveExpression)
+				return new CapabilityMatcher(name, namespace, low, expr == openEndedExpression, null, true, false);
+			return null;
+		}
+		if (!(params[3] instanceof Version))
+			return null;
+		Version high = (Version) params[3];
+		if (expr == range_II_Expression)
+			return new CapabilityMatcher(name, namespace, low, true, high, true, false);
+		if (expr == range_IN_Expression)
+			return new CapabilityMatcher(name, namespace, low, true, high, false, false);
+		if (expr == range_NI_Expression)
+			return new CapabilityMatcher(name, namespace, low, false, high, true, false);
+		if (expr == range_NN_Expression)
+			return new CapabilityMatcher(name, namespace, low, false, high, false, false);
+		return null;
+	}
+
 	private static boolean isPredefined(IExpression expr) {
 		return expr.equals(allVersionsExpression) || expr.equals(range_II_Expression) || expr.equals(range_IN_Expression) || expr.equals(range_NI_Expression) || expr.equals(range_NN_Expression) || expr.equals(strictVersionExpression) || expr.equals(openEndedExpression) || expr.equals(openEndedNonInclusiveExpression);
 	}
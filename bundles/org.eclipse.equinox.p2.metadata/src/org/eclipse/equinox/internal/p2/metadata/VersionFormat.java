@@ -262,6 +262,11 @@ public class VersionFormat implements IVersionFormat, Serializable {
 	}
 
 	public Version parse(String version) {
+		if (this == OSGI_FORMAT) {
+			BasicVersion osgiVersion = OSGiVersion.parse(version, 0, version.length());
+			if (osgiVersion != null)
+				return osgiVersion;
+		}
 		List<Comparable<?>> vector = parse(version, 0, version.length());
 		return (this == OSGI_FORMAT) ? OSGiVersion.fromVector(vector) : OmniVersion.fromVector(vector, this, version);
 	}
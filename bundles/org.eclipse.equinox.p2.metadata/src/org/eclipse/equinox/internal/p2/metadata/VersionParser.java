@@ -73,7 +73,10 @@ public abstract class VersionParser {
 		VersionFormat fmt = null;
 		char c = version.charAt(pos);
 		if (isDigit(c)) {
-			return OSGiVersion.fromVector(VersionFormat.OSGI_FORMAT.parse(version, pos, maxPos));
+			BasicVersion osgiVersion = OSGiVersion.parse(version, pos, maxPos);
+			if (osgiVersion == null)
+				osgiVersion = OSGiVersion.fromVector(VersionFormat.OSGI_FORMAT.parse(version, pos, maxPos));
+			return MetadataPools.share(osgiVersion);
 		}
 
 		if (!isLetter(c))
@@ -144,7 +147,7 @@ public abstract class VersionParser {
 				//
 				if (vector == null)
 					throw new IllegalArgumentException(NLS.bind(Messages.only_format_specified_0, version.substring(start, maxPos)));
-				return fmt == VersionFormat.OSGI_FORMAT ? OSGiVersion.fromVector(vector) : OmniVersion.fromVector(vector, fmt, null);
+				return fmt == VersionFormat.OSGI_FORMAT ? MetadataPools.share(OSGiVersion.fromVector(vector)) : OmniVersion.fromVector(vector, fmt, null);
 			}
 		}
 
@@ -163,7 +166,7 @@ public abstract class VersionParser {
 			//
 			vector = fmt.parse(version, pos, maxPos);
 		}
-		return fmt == VersionFormat.OSGI_FORMAT ? OSGiVersion.fromVector(vector) : OmniVersion.fromVector(vector, fmt, version.substring(pos));
+		return fmt == VersionFormat.OSGI_FORMAT ? MetadataPools.share(OSGiVersion.fromVector(vector)) : OmniVersion.fromVector(vector, fmt, version.substring(pos));
 	}
 
 	static boolean isDigit(char c) {
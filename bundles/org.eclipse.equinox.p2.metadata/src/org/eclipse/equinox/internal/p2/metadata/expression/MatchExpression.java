@@ -12,6 +12,9 @@ package org.eclipse.equinox.internal.p2.metadata.expression;
 
 import java.util.Arrays;
 import org.eclipse.equinox.internal.p2.core.helpers.CollectionUtils;
+import org.eclipse.equinox.internal.p2.metadata.CapabilityMatcher;
+import org.eclipse.equinox.internal.p2.metadata.RequiredCapability;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.expression.*;
 
 /**
@@ -23,9 +26,16 @@ public class MatchExpression<T> extends Unary implements IMatchExpression<T> {
 	private static final Object[] noParams = new Object[0];
 	private final Object[] parameters;
 
+	/**
+	 * Matches installable units without evaluating the expression when the expression
+	 * is one of the requirement expressions, <code>null</code> otherwise.
+	 */
+	private final CapabilityMatcher capabilityMatcher;
+
 	MatchExpression(Expression expression, Object[] parameters) {
 		super(expression);
 		this.parameters = parameters == null ? noParams : parameters;
+		this.capabilityMatcher = RequiredCapability.createMatcher(expression, this.parameters);
 	}
 
 	public boolean accept(IExpressionVisitor visitor) {
@@ -73,11 +83,15 @@ public class MatchExpression<T> extends Unary implements IMatchExpression<T> {
 	}
 
 	public boolean isMatch(IEvaluationContext context, T value) {
+		if (capabilityMatcher != null && value instanceof IInstallableUnit)
+			return capabilityMatcher.isMatch((IInstallableUnit) value);
 		ExpressionFactory.THIS.setValue(context, value);
 		return Boolean.TRUE == operand.evaluate(context);
 	}
 
 	public boolean isMatch(T value) {
+		if (capabilityMatcher != null && value instanceof IInstallableUnit)
+			return capabilityMatcher.isMatch((IInstallableUnit) value);
 		return isMatch(createContext(), value);
 	}
 
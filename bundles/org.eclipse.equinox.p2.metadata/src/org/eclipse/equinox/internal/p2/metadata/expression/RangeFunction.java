@@ -11,6 +11,7 @@
 package org.eclipse.equinox.internal.p2.metadata.expression;
 
 
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
 import org.eclipse.equinox.p2.metadata.VersionRange;
 
 /**
@@ -27,7 +28,7 @@ public final class RangeFunction extends Function {
 	}
 
 	Object createInstance(Object arg) {
-		return new VersionRange((String) arg);
+		return MetadataPools.parseVersionRange((String) arg);
 	}
 
 	public String getOperator() {
@@ -426,7 +426,7 @@ public final class MetadataFactory {
 	 * @param version The capability version
 	 */
 	public static IProvidedCapability createProvidedCapability(String namespace, String name, Version version) {
-		return new ProvidedCapability(namespace, name, version);
+		return MetadataPools.share(new ProvidedCapability(MetadataPools.share(namespace), MetadataPools.share(name), MetadataPools.share(version)));
 	}
 
 	/**
@@ -445,7 +445,8 @@ public final class MetadataFactory {
 	 * @return the requirement
 	 */
 	public static IRequirement createRequirement(String namespace, String name, VersionRange range, IMatchExpression<IInstallableUnit> filter, boolean optional, boolean multiple) {
-		return new RequiredCapability(namespace, name, range, filter, optional ? 0 : 1, multiple ? Integer.MAX_VALUE : 1, true, null);
+		range = MetadataPools.share(range);
+		return MetadataPools.share(new RequiredCapability(MetadataPools.share(namespace), MetadataPools.share(name), range, filter, optional ? 0 : 1, multiple ? Integer.MAX_VALUE : 1, true, null), range);
 	}
 
 	/**
@@ -462,7 +463,8 @@ public final class MetadataFactory {
 	 * @return the requirement
 	 */
 	public static IRequirement createRequirement(String namespace, String name, VersionRange range, IMatchExpression<IInstallableUnit> filter, int minCard, int maxCard, boolean greedy) {
-		return new RequiredCapability(namespace, name, range, filter, minCard, maxCard, greedy, null);
+		range = MetadataPools.share(range);
+		return MetadataPools.share(new RequiredCapability(MetadataPools.share(namespace), MetadataPools.share(name), range, filter, minCard, maxCard, greedy, null), range);
 	}
 
 	/**
@@ -495,7 +497,8 @@ public final class MetadataFactory {
 	 * @return the requirement
 	 */
 	public static IRequirement createRequirement(String namespace, String name, VersionRange range, String filter, boolean optional, boolean multiple, boolean greedy) {
-		return new RequiredCapability(namespace, name, range, filter, optional, multiple, greedy);
+		range = MetadataPools.share(range);
+		return MetadataPools.share(new RequiredCapability(MetadataPools.share(namespace), MetadataPools.share(name), range, filter, optional, multiple, greedy), range);
 	}
 
 	/**
@@ -513,7 +516,8 @@ public final class MetadataFactory {
 	 * @return the requirement
 	 */
 	public static IRequirement createRequirement(String namespace, String name, VersionRange range, IMatchExpression<IInstallableUnit> filter, int minCard, int maxCard, boolean greedy, String description) {
-		return new RequiredCapability(namespace, name, range, filter, minCard, maxCard, greedy, description);
+		range = MetadataPools.share(range);
+		return MetadataPools.share(new RequiredCapability(MetadataPools.share(namespace), MetadataPools.share(name), range, filter, minCard, maxCard, greedy, description), range);
 	}
 
 	/**
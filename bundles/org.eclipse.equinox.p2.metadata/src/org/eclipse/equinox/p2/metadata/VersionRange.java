@@ -239,12 +239,12 @@ public class VersionRange implements Serializable {
 		} else {
 			if (fmt == null)
 				fmt = VersionFormat.OSGI_FORMAT;
-			minVersion = fmt.parse(minStr);
+			minVersion = MetadataPools.share(fmt.parse(minStr));
 			if (maxStr != null) {
 				if (maxStr.equals(minStr))
 					maxVersion = minVersion;
 				else
-					maxVersion = fmt.parse(maxStr);
+					maxVersion = MetadataPools.share(fmt.parse(maxStr));
 			} else {
 				maxVersion = Version.MAX_VERSION;
 			}
@@ -22,7 +22,12 @@ import org.eclipse.equinox.internal.p2.metadata.expression.parser.QLParser;
  */
 public final class ExpressionUtil {
 	private static final IExpressionParser expressionParser = new QLParser(ExpressionFactory.INSTANCE);
-	private static final LDAPFilterParser ldapFilterParser = new LDAPFilterParser(ExpressionFactory.INSTANCE);
+	// one filter parser per thread, so that metadata read on several threads does not contend for it
+	private static final ThreadLocal<LDAPFilterParser> ldapFilterParser = new ThreadLocal<LDAPFilterParser>() {
+		protected LDAPFilterParser initialValue() {
+			return new LDAPFilterParser(ExpressionFactory.INSTANCE);
+		}
+	};
 	public static final IExpression TRUE_EXPRESSION = ExpressionFactory.INSTANCE.constant(Boolean.TRUE);
 	public static final IExpression FALSE_EXPRESSION = ExpressionFactory.INSTANCE.constant(Boolean.FALSE);
 
@@ -55,7 +60,7 @@ public final class ExpressionUtil {
 	 */
 	public static IFilterExpression parseLDAP(String filter) throws IllegalArgumentException {
 		filter = trimmedOrNull(filter);
-		return filter == null ? null : ldapFilterParser.parse(filter);
+		return filter == null ? null : ldapFilterParser.get().parse(filter);
 	}
 
 	/**
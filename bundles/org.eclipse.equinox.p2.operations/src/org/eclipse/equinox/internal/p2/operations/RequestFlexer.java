@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013 Red Hat, Inc. and others
+ * Copyright (c) 2013, 2017 Red Hat, Inc. and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -51,6 +51,7 @@ public class RequestFlexer {
 	private boolean foundDifferentVersionsForElementsToInstall = false;
 	private boolean foundDifferentVersionsForElementsInstalled = false;
 	private Set<IInstallableUnit> futureOptionalIUs;
+	private Map<IInstallableUnit, Collection<IInstallableUnit>> updatesCache;
 
 	public RequestFlexer(IPlanner planner) {
 		this.planner = planner;
@@ -80,6 +81,14 @@ public class RequestFlexer {
 		ensureProductPresence = productPresent;
 	}
 
+	/**
+	 * Shares the updates found for the installable units with other instances
+	 * loosening the same request against the same context.
+	 */
+	public void setUpdatesCache(Map<IInstallableUnit, Collection<IInstallableUnit>> cache) {
+		updatesCache = cache;
+	}
+
 	public IProfileChangeRequest getChangeRequest(IProfileChangeRequest request, IProfile prof, IProgressMonitor monitor) {
 		this.profile = prof;
 		SubMonitor sub = SubMonitor.convert(monitor, 2);
@@ -317,11 +326,16 @@ public class RequestFlexer {
 
 	private Collection<IInstallableUnit> findUpdates(IInstallableUnit iu, IProgressMonitor monitor) {
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 1);
+		Collection<IInstallableUnit> cached = updatesCache == null ? null : updatesCache.get(iu);
+		if (cached != null)
+			return new HashSet<IInstallableUnit>(cached);
 		Collection<IInstallableUnit> availableUpdates = new HashSet<IInstallableUnit>();
 		IQueryResult<IInstallableUnit> updatesAvailable = planner.updatesFor(iu, provisioningContext, subMonitor.split(1));
 		for (Iterator<IInstallableUnit> iterator = updatesAvailable.iterator(); iterator.hasNext();) {
 			availableUpdates.add(iterator.next());
 		}
+		if (updatesCache != null)
+			updatesCache.put(iu, new HashSet<IInstallableUnit>(availableUpdates));
 		return availableUpdates;
 	}
 
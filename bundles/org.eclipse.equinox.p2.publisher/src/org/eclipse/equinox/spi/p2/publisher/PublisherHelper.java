@@ -16,6 +16,7 @@ package org.eclipse.equinox.spi.p2.publisher;
 
 import java.io.File;
 import java.util.*;
+import java.util.Map.Entry;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
 import org.eclipse.equinox.internal.p2.metadata.BasicVersion;
 import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumProducer;
@@ -107,11 +108,10 @@ public class PublisherHelper {
 				descriptor.setProperty(IArtifactDescriptor.ARTIFACT_SIZE, Long.toString(pathOnDisk.length()));
 				descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, Long.toString(pathOnDisk.length()));
 			}
-			if (info == null || (info.getArtifactOptions() & IPublisherInfo.A_NO_MD5) == 0) {
-				String md5 = ChecksumProducer.computeMD5(pathOnDisk);
-				if (md5 != null)
-					descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_MD5, md5);
-			}
+			boolean md5 = info == null || (info.getArtifactOptions() & IPublisherInfo.A_NO_MD5) == 0;
+			Map<String, String> checksums = ChecksumProducer.computeDownloadProperties(pathOnDisk, md5);
+			for (Entry<String, String> checksum : checksums.entrySet())
+				descriptor.setProperty(checksum.getKey(), checksum.getValue());
 		}
 		return result;
 	}
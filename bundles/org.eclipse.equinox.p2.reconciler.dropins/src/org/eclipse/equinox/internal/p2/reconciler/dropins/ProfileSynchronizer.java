@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others. All rights reserved.
+ * Copyright (c) 2007, 2017 IBM Corporation and others. All rights reserved.
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v1.0 which accompanies this distribution,
  * and is available at http://www.eclipse.org/legal/epl-v10.html
@@ -13,6 +13,8 @@ package org.eclipse.equinox.internal.p2.reconciler.dropins;
 
 import java.io.*;
 import java.net.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.Map.Entry;
 import org.eclipse.core.runtime.*;
@@ -45,6 +47,7 @@ import org.osgi.framework.ServiceReference;
 public class ProfileSynchronizer {
 	private static final String RECONCILER_APPLICATION_ID = "org.eclipse.equinox.p2.reconciler.application"; //$NON-NLS-1$
 	private static final String TIMESTAMPS_FILE_PREFIX = "timestamps"; //$NON-NLS-1$
+	private static final String DIGESTS_FILE_PREFIX = "digests"; //$NON-NLS-1$
 	private static final String PROFILE_TIMESTAMP = "PROFILE"; //$NON-NLS-1$
 	private static final String NO_TIMESTAMP = "-1"; //$NON-NLS-1$
 	private static final String PROP_FROM_DROPINS = "org.eclipse.equinox.p2.reconciler.dropins"; //$NON-NLS-1$
@@ -62,6 +65,9 @@ public class ProfileSynchronizer {
 
 	final Map<String, IMetadataRepository> repositoryMap;
 	private Map<String, String> timestamps;
+	// the IUs and the digests of the contents of the repositories, by location
+	private Map<String, IQueryResult<IInstallableUnit>> contents;
+	private Map<String, String> digests;
 	private final IProvisioningAgent agent;
 
 	/*
@@ -325,6 +331,135 @@ public class ProfileSynchronizer {
 		} catch (IOException e) {
 			//Ignore
 		}
+		writeDigests();
+	}
+
+	/*
+	 * Write out the digests of the contents of the repositories so the next reconciliation
+	 * only has to consider the locations whose contents have changed.
+	 */
+	private void writeDigests() {
+		Map<String, String> values = new HashMap<String, String>(getDigests());
+		// the reconciliation has changed the profile, the next one must compare with the changed profile
+		IProfileRegistry profileRegistry = (IProfileRegistry) agent.getService(IProfileRegistry.SERVICE_NAME);
+		IProfile reconciled = profileRegistry == null ? null : profileRegistry.getProfile(profile.getProfileId());
+		values.put(PROFILE_TIMESTAMP, Long.toString((reconciled != null ? reconciled : profile).getTimestamp()));
+		File file = Activator.getContext().getDataFile(DIGESTS_FILE_PREFIX + profile.getProfileId().hashCode());
+		try {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				CollectionUtils.storeProperties(values, os, "Digests for " + profile.getProfileId()); //$NON-NLS-1$
+			} finally {
+				os.close();
+			}
+		} catch (IOException e) {
+			// the next reconciliation will consider all the locations
+			file.delete();
+		}
+	}
+
+	/*
+	 * Read the digests of the contents of the repositories written by the last reconciliation.
+	 */
+	private Map<String, String> readDigests() {
+		if (Boolean.TRUE.toString().equalsIgnoreCase(System.getProperty(PROP_IGNORE_USER_CONFIGURATION)))
+			return new HashMap<String, String>();
+		File file = Activator.getContext().getDataFile(DIGESTS_FILE_PREFIX + profile.getProfileId().hashCode());
+		try {
+			InputStream is = new BufferedInputStream(new FileInputStream(file));
+			try {
+				return CollectionUtils.loadProperties(is);
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			Activator.trace("Digest file not available, considering all locations."); //$NON-NLS-1$
+			return new HashMap<String, String>();
+		}
+	}
+
+	/*
+	 * Return the locations of the repositories whose contents have changed since the last
+	 * reconciliation, or null if all of the repositories have to be considered.
+	 */
+	private Collection<String> getChangedLocations() {
+		Map<String, String> lastDigests = readDigests();
+		// the profile might have been modified since, e.g. by an install from the UI
+		String lastProfileTimestamp = lastDigests.remove(PROFILE_TIMESTAMP);
+		if (lastProfileTimestamp == null || !lastProfileTimestamp.equals(Long.toString(profile.getTimestamp())))
+			return null;
+		Collection<String> result = new ArrayList<String>();
+		Map<String, String> currentDigests = getDigests();
+		for (String location : repositoryMap.keySet()) {
+			String lastDigest = lastDigests.remove(location);
+			String digest = currentDigests.get(location);
+			if (digest == null || !digest.equals(lastDigest))
+				result.add(location);
+		}
+		// a repository has been removed
+		if (!lastDigests.isEmpty())
+			return null;
+		if (Tracing.DEBUG_RECONCILER)
+			Tracing.debug("[reconciler] Changed locations: " + result); //$NON-NLS-1$
+		return result;
+	}
+
+	/*
+	 * Return the IUs of each of our repos, by location.
+	 */
+	private Map<String, IQueryResult<IInstallableUnit>> getContents() {
+		if (contents == null) {
+			contents = new HashMap<String, IQueryResult<IInstallableUnit>>();
+			for (Entry<String, IMetadataRepository> entry : repositoryMap.entrySet())
+				contents.put(entry.getKey(), entry.getValue().query(QueryUtil.createIUAnyQuery(), null));
+		}
+		return contents;
+	}
+
+	/*
+	 * Return the digests of the contents of our repos, by location.
+	 */
+	private Map<String, String> getDigests() {
+		if (digests == null) {
+			digests = new HashMap<String, String>();
+			for (Entry<String, IQueryResult<IInstallableUnit>> entry : getContents().entrySet()) {
+				String digest = computeDigest(entry.getValue());
+				if (digest != null)
+					digests.put(entry.getKey(), digest);
+			}
+		}
+		return digests;
+	}
+
+	/*
+	 * Return a digest of the identities and the file names of the given IUs, or null
+	 * if it cannot be computed.
+	 */
+	private static String computeDigest(IQueryResult<IInstallableUnit> units) {
+		List<String> values = new ArrayList<String>();
+		for (Iterator<IInstallableUnit> iter = units.iterator(); iter.hasNext();) {
+			IInstallableUnit iu = iter.next();
+			values.add(iu.getId() + '\u0000' + iu.getVersion() + '\u0000' + iu.getProperty(RepositoryListener.FILE_NAME));
+		}
+		Collections.sort(values);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			for (String value : values) {
+				digest.update(value.getBytes("UTF-8")); //$NON-NLS-1$
+				digest.update((byte) 1);
+			}
+			byte[] bytes = digest.digest();
+			StringBuffer result = new StringBuffer(bytes.length * 2);
+			for (int i = 0; i < bytes.length; i++) {
+				result.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+				result.append(Character.forDigit(bytes[i] & 0xf, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		} catch (UnsupportedEncodingException e) {
+			return null;
+		}
 	}
 
 	/*
@@ -551,14 +686,40 @@ public class ProfileSynchronizer {
 	 * the old bundle and then re-install the new one. This is because the IUs for the moved bundles are
 	 * considered the same but they really differ in an IU property. (file location, which is not considered
 	 * as part of equality)
+	 * 
+	 * The IUs of the locations whose contents are unchanged since the last reconciliation are only added
+	 * if they are not installed from the dropins yet. Null is returned if there is nothing to do.
 	 */
 	public ReconcilerProfileChangeRequest createProfileChangeRequest(ProvisioningContext context) {
+		return createProfileChangeRequest(context, getChangedLocations());
+	}
+
+	/*
+	 * Return the profile change request as above, considering the IUs of the given locations only
+	 * if they are already installed from the dropins. All the locations are considered if null.
+	 */
+	private ReconcilerProfileChangeRequest createProfileChangeRequest(ProvisioningContext context, Collection<String> changedLocations) {
 		ReconcilerProfileChangeRequest request = new ReconcilerProfileChangeRequest(profile);
 
 		boolean resolve = Boolean.parseBoolean(profile.getProperty("org.eclipse.equinox.p2.resolve")); //$NON-NLS-1$
 		if (resolve)
 			request.removeProfileProperty("org.eclipse.equinox.p2.resolve"); //$NON-NLS-1$
 
+		if (changedLocations != null && changedLocations.isEmpty() && !resolve) {
+			if (Tracing.DEBUG_RECONCILER)
+				Tracing.debug("[reconciler] Contents of the repositories unchanged."); //$NON-NLS-1$
+			return null;
+		}
+
+		// the IUs of the changed locations, or null if all of them have to be added again
+		Set<IInstallableUnit> changedIUs = null;
+		if (changedLocations != null) {
+			changedIUs = new HashSet<IInstallableUnit>();
+			for (String location : changedLocations)
+				changedIUs.addAll(getContents().get(location).toUnmodifiableSet());
+		}
+		Set<IInstallableUnit> unchanged = new HashSet<IInstallableUnit>();
+
 		List<IInstallableUnit> toRemove = new ArrayList<IInstallableUnit>();
 		List<IInstallableUnit> toMove = new ArrayList<IInstallableUnit>();
 
@@ -591,6 +752,11 @@ public class ProfileSynchronizer {
 					toMove.add(iu);
 					continue;
 				}
+				// the IU of an unchanged location is already installed the way it would be added
+				if (changedIUs != null && !changedIUs.contains(iu) && isInstalledFromDropins(existing)) {
+					unchanged.add(iu);
+					continue;
+				}
 			}
 			// even though we are adding all IUs below, we need to explicitly set the properties for
 			// them as well. Do that here.
@@ -635,8 +801,15 @@ public class ProfileSynchronizer {
 			return null;
 		}
 
-		// everything from the drop-ins must be considered for addition/removal everytime so add all here
-		request.addAll(all);
+		// everything from the drop-ins must be considered for addition/removal everytime so add all here,
+		// except what is known to be installed already from an unchanged location
+		if (unchanged.isEmpty()) {
+			request.addAll(all);
+		} else {
+			for (IInstallableUnit iu : all)
+				if (!unchanged.contains(iu))
+					request.add(iu);
+		}
 		request.removeAll(toRemove);
 		request.moveAll(toMove);
 
@@ -644,6 +817,20 @@ public class ProfileSynchronizer {
 		return request;
 	}
 
+	/*
+	 * Return whether the given IU of the profile has the properties set for the IUs
+	 * installed from the dropins.
+	 */
+	private boolean isInstalledFromDropins(IInstallableUnit iu) {
+		if (!Boolean.TRUE.toString().equals(profile.getInstallableUnitProperty(iu, PROP_FROM_DROPINS)))
+			return false;
+		if (!INCLUSION_OPTIONAL.equals(profile.getInstallableUnitProperty(iu, INCLUSION_RULES)))
+			return false;
+		if (!Integer.toString(IProfile.LOCK_UNINSTALL).equals(profile.getInstallableUnitProperty(iu, IProfile.PROP_PROFILE_LOCKED_IU)))
+			return false;
+		return !QueryUtil.isGroup(iu) || Boolean.TRUE.toString().equals(profile.getInstallableUnitProperty(iu, IProfile.PROP_PROFILE_ROOT_IU));
+	}
+
 	/*
 	 * Create and return a negated requirement saying that the given IU must not exist in the profile.
 	 */
@@ -763,8 +950,8 @@ public class ProfileSynchronizer {
 	private IQueryResult<IInstallableUnit> getAllIUsFromRepos() {
 		// TODO: Should consider using a sequenced iterator here instead of collecting
 		Collector<IInstallableUnit> allRepos = new Collector<IInstallableUnit>();
-		for (IMetadataRepository repository : repositoryMap.values()) {
-			allRepos.addAll(repository.query(QueryUtil.createIUAnyQuery(), null));
+		for (IQueryResult<IInstallableUnit> units : getContents().values()) {
+			allRepos.addAll(units);
 		}
 		return allRepos;
 	}
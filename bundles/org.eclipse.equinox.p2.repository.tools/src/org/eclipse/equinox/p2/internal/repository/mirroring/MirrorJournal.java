@@ -0,0 +1,251 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.internal.repository.mirroring;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumCalculator;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+
+/**
+ * A persistent record of the artifacts transferred into a local destination repository.
+ * The journal is an append-only text file with one line per state change of a descriptor.
+ * It lets a mirror run that was interrupted, or a nightly sync of the same source, skip the
+ * descriptors that were completed before and resume partial downloads.
+ * <p>
+ * Each line has the form <code>state offset checksum descriptor</code>, where the
+ * checksum is one advertised by the source when the state was recorded.
+ * </p>
+ */
+public class MirrorJournal {
+	public static final String JOURNAL_FOLDER = ".p2mirror"; //$NON-NLS-1$
+	private static final String JOURNAL_FILE = "journal"; //$NON-NLS-1$
+	private static final String PARTIAL_EXTENSION = ".part"; //$NON-NLS-1$
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	private static final String NO_CHECKSUM = "-"; //$NON-NLS-1$
+
+	static final String STATE_STARTED = "started"; //$NON-NLS-1$
+	static final String STATE_COMPLETED = "completed"; //$NON-NLS-1$
+	static final String STATE_FAILED = "failed"; //$NON-NLS-1$
+
+	private static class Entry {
+		final String state;
+		final long offset;
+		final String checksum;
+
+		Entry(String state, long offset, String checksum) {
+			this.state = state;
+			this.offset = offset;
+			this.checksum = checksum;
+		}
+	}
+
+	private final File folder;
+	private final File journalFile;
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private Writer writer;
+
+	/**
+	 * Opens the journal kept in the given destination repository folder. The existing
+	 * journal is compacted to the last recorded state of every descriptor.
+	 */
+	public MirrorJournal(File repositoryFolder) throws IOException {
+		folder = new File(repositoryFolder, JOURNAL_FOLDER);
+		journalFile = new File(folder, JOURNAL_FILE);
+		if (journalFile.exists())
+			read();
+		compact();
+	}
+
+	/**
+	 * Forgets all recorded transfers, for example because the destination has been cleaned.
+	 */
+	public synchronized void reset() throws IOException {
+		entries.clear();
+		File[] partials = folder.listFiles();
+		if (partials != null) {
+			for (int i = 0; i < partials.length; i++) {
+				if (partials[i].getName().endsWith(PARTIAL_EXTENSION))
+					partials[i].delete();
+			}
+		}
+		compact();
+	}
+
+	/**
+	 * Returns whether the descriptor was completely transferred by a previous run and
+	 * the checksum advertised by the source has not changed since.
+	 */
+	public synchronized boolean isCompleted(IArtifactDescriptor descriptor) {
+		Entry entry = entries.get(getId(descriptor));
+		return entry != null && STATE_COMPLETED.equals(entry.state) && entry.checksum.equals(getChecksum(descriptor));
+	}
+
+	/**
+	 * Returns the number of bytes of the descriptor that were already transferred into
+	 * its partial file, or 0 if the transfer has to start from scratch.
+	 */
+	public synchronized long getOffset(IArtifactDescriptor descriptor) {
+		Entry entry = entries.get(getId(descriptor));
+		File partial = getPartialFile(descriptor);
+		if (entry == null || STATE_COMPLETED.equals(entry.state) || !entry.checksum.equals(getChecksum(descriptor)) || !partial.exists()) {
+			partial.delete();
+			return 0;
+		}
+		return partial.length();
+	}
+
+	/**
+	 * Returns the file in which a partial download of the descriptor is kept between runs.
+	 */
+	public File getPartialFile(IArtifactDescriptor descriptor) {
+		String key = getId(descriptor) + ' ' + getChecksum(descriptor);
+		try {
+			try {
+				byte[] bytes = MessageDigest.getInstance("SHA-256").digest(key.getBytes(ENCODING)); //$NON-NLS-1$
+				StringBuffer name = new StringBuffer(bytes.length * 2);
+				for (int i = 0; i < bytes.length; i++) {
+					name.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+					name.append(Character.forDigit(bytes[i] & 0xf, 16));
+				}
+				return new File(folder, name + PARTIAL_EXTENSION);
+			} catch (NoSuchAlgorithmException e) {
+				// the whole key, escaped, is just as unambiguous
+				return new File(folder, URLEncoder.encode(key, ENCODING) + PARTIAL_EXTENSION);
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(ENCODING);
+		}
+	}
+
+	public synchronized void started(IArtifactDescriptor descriptor, long offset) {
+		record(descriptor, STATE_STARTED, offset);
+	}
+
+	public synchronized void completed(IArtifactDescriptor descriptor) {
+		getPartialFile(descriptor).delete();
+		record(descriptor, STATE_COMPLETED, 0);
+	}
+
+	public synchronized void failed(IArtifactDescriptor descriptor, long offset) {
+		record(descriptor, STATE_FAILED, offset);
+	}
+
+	/**
+	 * Flushes and closes the journal. Later updates are ignored.
+	 */
+	public synchronized void close() {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			// ignore, every line has been flushed already
+		}
+		writer = null;
+	}
+
+	private void record(IArtifactDescriptor descriptor, String state, long offset) {
+		String id = getId(descriptor);
+		String checksum = getChecksum(descriptor);
+		entries.put(id, new Entry(state, offset, checksum));
+		if (writer == null)
+			return;
+		try {
+			writeEntry(writer, id, entries.get(id));
+			writer.flush();
+		} catch (IOException e) {
+			// the journal is an optimization, a lost line only means more work next time
+			close();
+		}
+	}
+
+	private void read() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), ENCODING));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ", 4); //$NON-NLS-1$
+				// a truncated last line is what a crash leaves behind
+				if (parts.length < 4)
+					continue;
+				try {
+					entries.put(parts[3], new Entry(parts[0], Long.parseLong(parts[1]), parts[2]));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void compact() throws IOException {
+		close();
+		if (!folder.exists() && !folder.mkdirs())
+			throw new IOException(folder.getAbsolutePath());
+		File temp = new File(folder, JOURNAL_FILE + ".tmp"); //$NON-NLS-1$
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), ENCODING));
+		try {
+			for (Map.Entry<String, Entry> entry : entries.entrySet())
+				writeEntry(out, entry.getKey(), entry.getValue());
+		} finally {
+			out.close();
+		}
+		journalFile.delete();
+		if (!temp.renameTo(journalFile))
+			throw new IOException(journalFile.getAbsolutePath());
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), ENCODING));
+	}
+
+	private static void writeEntry(Writer out, String id, Entry entry) throws IOException {
+		out.write(entry.state);
+		out.write(' ');
+		out.write(Long.toString(entry.offset));
+		out.write(' ');
+		out.write(entry.checksum);
+		out.write(' ');
+		out.write(id);
+		out.write('\n');
+	}
+
+	/*
+	 * Identify a descriptor the way ArtifactDescriptor.equals does, by its key and format.
+	 */
+	static String getId(IArtifactDescriptor descriptor) {
+		String format = descriptor.getProperty(IArtifactDescriptor.FORMAT);
+		return descriptor.getArtifactKey().toExternalForm() + ',' + (format == null ? "canonical" : format); //$NON-NLS-1$
+	}
+
+	/*
+	 * The checksum advertised by the source, used to detect artifacts that changed since they were recorded.
+	 */
+	static String getChecksum(IArtifactDescriptor descriptor) {
+		String checksum = descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_MD5);
+		if (checksum == null)
+			checksum = descriptor.getProperty(IArtifactDescriptor.ARTIFACT_MD5);
+		if (checksum != null)
+			return checksum;
+		// any other checksum the source declares, tagged with its id
+		Map<String, String> checksums = ChecksumCalculator.getDownloadChecksums(descriptor);
+		if (checksums.isEmpty())
+			checksums = ChecksumCalculator.getArtifactChecksums(descriptor);
+		if (!checksums.isEmpty()) {
+			Map.Entry<String, String> first = checksums.entrySet().iterator().next();
+			return first.getKey() + '=' + first.getValue();
+		}
+		String size = descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE);
+		return size == null ? NO_CHECKSUM : "size=" + size; //$NON-NLS-1$
+	}
+}
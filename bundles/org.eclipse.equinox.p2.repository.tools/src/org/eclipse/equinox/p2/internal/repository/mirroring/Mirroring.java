@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2010 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -12,10 +12,14 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.internal.repository.mirroring;
 
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.CompositeArtifactRepository;
 import org.eclipse.equinox.internal.p2.artifact.repository.RawMirrorRequest;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.repository.Transport;
 import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.internal.repository.tools.Activator;
@@ -33,13 +37,17 @@ import org.eclipse.osgi.util.NLS;
  * A utility class that performs mirroring of artifacts between repositories.
  */
 public class Mirroring {
+	// artifacts smaller than this are downloaded again rather than resumed
+	private static final long RESUME_THRESHOLD = 1024 * 1024;
+	private static final String ARTIFACT_FOLDER = "artifact.folder"; //$NON-NLS-1$
+
 	private IArtifactRepository source;
 	private IArtifactRepository destination;
 	private IArtifactRepository baseline;
 	private boolean raw;
 	private boolean compare = false;
 	private boolean validate = false;
-	private IArtifactComparator comparator;
+	private ThreadLocal<IArtifactComparator> comparator = new ThreadLocal<IArtifactComparator>();
 	private IQuery<IArtifactDescriptor> compareExclusionQuery = null;
 	private Set<IArtifactDescriptor> compareExclusions = Collections.<IArtifactDescriptor> emptySet();
 	private String comparatorID;
@@ -48,11 +56,21 @@ public class Mirroring {
 	private Transport transport;
 	private boolean includePacked = true;
 	private boolean mirrorProperties = false;
+	private int workerCount = 1;
+	private int maxConnectionsPerHost = 0;
+	private Map<String, Semaphore> hostPermits = new HashMap<String, Semaphore>();
+	private MirrorJournal journal;
 
+	/*
+	 * Comparators are free to keep state between calls, so every worker thread gets its own instance.
+	 */
 	private IArtifactComparator getComparator() {
-		if (comparator == null)
-			comparator = ArtifactComparatorFactory.getArtifactComparator(comparatorID);
-		return comparator;
+		IArtifactComparator result = comparator.get();
+		if (result == null) {
+			result = ArtifactComparatorFactory.getArtifactComparator(comparatorID);
+			comparator.set(result);
+		}
+		return result;
 	}
 
 	public Mirroring(IArtifactRepository source, IArtifactRepository destination, boolean raw) {
@@ -85,6 +103,30 @@ public class Mirroring {
 		this.mirrorProperties = properties;
 	}
 
+	/**
+	 * Sets the number of artifacts that are mirrored concurrently. A value of 1 or less
+	 * mirrors the artifacts one after the other on the calling thread.
+	 */
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Sets the maximum number of artifacts that are fetched concurrently from a single host.
+	 * A value of 0 or less means no limit other than the worker count.
+	 */
+	public void setMaxConnectionsPerHost(int maxConnections) {
+		this.maxConnectionsPerHost = maxConnections;
+	}
+
+	/**
+	 * Sets the journal used to skip descriptors that were completed by an earlier run and to
+	 * resume partial downloads of large artifacts, or <code>null</code> to mirror everything.
+	 */
+	public void setJournal(MirrorJournal journal) {
+		this.journal = journal;
+	}
+
 	public MultiStatus run(boolean failOnError, boolean verbose) {
 		if (!destination.isModifiable())
 			throw new IllegalStateException(NLS.bind(Messages.exception_destinationNotModifiable, destination.getLocation()));
@@ -104,16 +146,17 @@ public class Mirroring {
 			compareExclusions = exclusions.toUnmodifiableSet();
 		}
 
-		while (keys.hasNext()) {
-			IArtifactKey key = keys.next();
-			IArtifactDescriptor[] descriptors = source.getArtifactDescriptors(key);
-			for (int j = 0; j < descriptors.length; j++) {
-				IStatus result = mirror(descriptors[j], verbose);
-				//Only log INFO and WARNING if we want verbose logging. Always log ERRORs
-				if (!result.isOK() && (verbose || result.getSeverity() == IStatus.ERROR))
-					multiStatus.add(result);
-				//stop mirroring as soon as we have an error
-				if (failOnError && multiStatus.getSeverity() == IStatus.ERROR)
+		List<IArtifactDescriptor> descriptors = new ArrayList<IArtifactDescriptor>();
+		while (keys.hasNext())
+			descriptors.addAll(Arrays.asList(source.getArtifactDescriptors(keys.next())));
+
+		if (workerCount > 1 && descriptors.size() > 1) {
+			if (!mirrorInParallel(descriptors, failOnError, verbose, multiStatus))
+				return multiStatus;
+		} else {
+			for (IArtifactDescriptor descriptor : descriptors) {
+				IStatus result = journaledMirror(descriptor, verbose, comparatorLog);
+				if (!addResult(multiStatus, result, verbose, failOnError))
 					return multiStatus;
 			}
 		}
@@ -143,9 +186,143 @@ public class Mirroring {
 		return multiStatus;
 	}
 
-	private IStatus mirror(IArtifactDescriptor sourceDescriptor, boolean verbose) {
+	/*
+	 * Add the result of mirroring a descriptor to the overall status. Returns false if mirroring should stop.
+	 */
+	private boolean addResult(MultiStatus multiStatus, IStatus result, boolean verbose, boolean failOnError) {
+		//Only log INFO and WARNING if we want verbose logging. Always log ERRORs
+		if (!result.isOK() && (verbose || result.getSeverity() == IStatus.ERROR))
+			multiStatus.add(result);
+		//stop mirroring as soon as we have an error
+		return !(failOnError && multiStatus.getSeverity() == IStatus.ERROR);
+	}
+
+	/*
+	 * Mirror the descriptors using a pool of worker threads. Results and comparator log entries are
+	 * reported in the order of the given descriptors, so the outcome reads the same as a sequential run.
+	 * Returns false if mirroring was stopped because of an error.
+	 */
+	private boolean mirrorInParallel(List<IArtifactDescriptor> descriptors, final boolean failOnError, final boolean verbose, MultiStatus multiStatus) {
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(workerCount, descriptors.size()));
+		List<Future<MirrorResult>> results = new ArrayList<Future<MirrorResult>>(descriptors.size());
+		try {
+			for (final IArtifactDescriptor descriptor : descriptors) {
+				results.add(executor.submit(new Callable<MirrorResult>() {
+					public MirrorResult call() throws Exception {
+						if (stopped.get())
+							return null;
+						Semaphore permit = getHostPermit(descriptor);
+						if (permit != null)
+							permit.acquire();
+						try {
+							BufferedMirrorLog log = comparatorLog == null ? null : new BufferedMirrorLog();
+							IStatus status = journaledMirror(descriptor, verbose, log);
+							if (failOnError && status.getSeverity() == IStatus.ERROR)
+								stopped.set(true);
+							return new MirrorResult(status, log);
+						} finally {
+							if (permit != null)
+								permit.release();
+						}
+					}
+				}));
+			}
+
+			for (Future<MirrorResult> future : results) {
+				MirrorResult result = getResult(future);
+				// skipped because an error stopped the run
+				if (result == null)
+					continue;
+				if (result.log != null)
+					result.log.replay(comparatorLog);
+				if (!addResult(multiStatus, result.status, verbose, failOnError)) {
+					for (Future<MirrorResult> pending : results)
+						pending.cancel(false);
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			executor.shutdown();
+			// let the artifacts that are in flight complete before handing the destination back
+			boolean interrupted = false;
+			while (!executor.isTerminated()) {
+				try {
+					executor.awaitTermination(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private MirrorResult getResult(Future<MirrorResult> future) {
+		try {
+			return future.get();
+		} catch (CancellationException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause.getMessage());
+		}
+	}
+
+	/*
+	 * Returns the semaphore limiting the connections to the host the descriptor is fetched from,
+	 * or null if connections are not limited.
+	 */
+	private Semaphore getHostPermit(IArtifactDescriptor descriptor) {
+		if (maxConnectionsPerHost <= 0)
+			return null;
+		IArtifactRepository repository = descriptor.getRepository() != null ? descriptor.getRepository() : source;
+		URI location = repository.getLocation();
+		String host = location == null ? null : location.getHost();
+		if (host == null)
+			host = location == null ? "" : String.valueOf(location.getScheme()); //$NON-NLS-1$
+		synchronized (hostPermits) {
+			Semaphore permit = hostPermits.get(host);
+			if (permit == null) {
+				permit = new Semaphore(maxConnectionsPerHost);
+				hostPermits.put(host, permit);
+			}
+			return permit;
+		}
+	}
+
+	/*
+	 * Mirror a descriptor, recording its progress in the journal if there is one.
+	 */
+	private IStatus journaledMirror(IArtifactDescriptor sourceDescriptor, boolean verbose, IArtifactMirrorLog log) {
 		if (!includePacked && IArtifactDescriptor.FORMAT_PACKED.equals(sourceDescriptor.getProperty(IArtifactDescriptor.FORMAT)))
 			return Status.OK_STATUS;
+		if (journal == null)
+			return mirror(sourceDescriptor, verbose, log);
+
+		// the artifact may have been removed from the destination since, or never been committed to it
+		if (journal.isCompleted(sourceDescriptor) && destination.contains(sourceDescriptor)) {
+			String message = NLS.bind(Messages.mirror_alreadyExists, sourceDescriptor, destination);
+			return new Status(IStatus.INFO, Activator.ID, ProvisionException.ARTIFACT_EXISTS, message, null);
+		}
+		journal.started(sourceDescriptor, journal.getOffset(sourceDescriptor));
+		IStatus status = mirror(sourceDescriptor, verbose, log);
+		if (status.matches(IStatus.ERROR | IStatus.CANCEL))
+			journal.failed(sourceDescriptor, journal.getPartialFile(sourceDescriptor).length());
+		else
+			journal.completed(sourceDescriptor);
+		return status;
+	}
+
+	private IStatus mirror(IArtifactDescriptor sourceDescriptor, boolean verbose, IArtifactMirrorLog log) {
 
 		IArtifactDescriptor targetDescriptor = raw ? sourceDescriptor : new ArtifactDescriptor(sourceDescriptor);
 		IArtifactDescriptor baselineDescriptor = getBaselineDescriptor(sourceDescriptor);
@@ -158,14 +335,14 @@ public class Mirroring {
 		if (comparing) {
 			if (baselineDescriptor != null) {
 				//compare source & baseline
-				compareStatus.add(compare(baseline, baselineDescriptor, source, sourceDescriptor));
+				compareStatus.add(compare(baseline, baselineDescriptor, source, sourceDescriptor, log));
 				//compare baseline & destination
 				if (destination.contains(baselineDescriptor)) {
-					compareStatus.add(compareToDestination(baselineDescriptor));
+					compareStatus.add(compareToDestination(baselineDescriptor, log));
 					return compareStatus;
 				}
 			} else if (destination.contains(targetDescriptor)) {
-				compareStatus.add(compareToDestination(sourceDescriptor));
+				compareStatus.add(compareToDestination(sourceDescriptor, log));
 				return compareStatus;
 			}
 		}
@@ -196,9 +373,10 @@ public class Mirroring {
 	 * 
 	 * Callers should verify the ProvisionException was thrown due to the artifact existing in the destination before invoking this method.
 	 * @param descriptor
+	 * @param log the log to report differences to, may be <code>null</code>
 	 * @return the status of the compare
 	 */
-	private IStatus compareToDestination(IArtifactDescriptor descriptor) {
+	private IStatus compareToDestination(IArtifactDescriptor descriptor, IArtifactMirrorLog log) {
 		IArtifactDescriptor[] destDescriptors = destination.getArtifactDescriptors(descriptor.getArtifactKey());
 		IArtifactDescriptor destDescriptor = null;
 		for (int i = 0; destDescriptor == null && i < destDescriptors.length; i++) {
@@ -207,13 +385,13 @@ public class Mirroring {
 		}
 		if (destDescriptor == null)
 			return new Status(IStatus.INFO, Activator.ID, ProvisionException.ARTIFACT_EXISTS, Messages.Mirroring_noMatchingDescriptor, null);
-		return compare(source, descriptor, destination, destDescriptor);
+		return compare(source, descriptor, destination, destDescriptor, log);
 	}
 
-	private IStatus compare(IArtifactRepository sourceRepository, IArtifactDescriptor sourceDescriptor, IArtifactRepository destRepository, IArtifactDescriptor destDescriptor) {
+	private IStatus compare(IArtifactRepository sourceRepository, IArtifactDescriptor sourceDescriptor, IArtifactRepository destRepository, IArtifactDescriptor destDescriptor, IArtifactMirrorLog log) {
 		IStatus comparison = getComparator().compare(sourceRepository, sourceDescriptor, destRepository, destDescriptor);
-		if (comparatorLog != null && !comparison.isOK())
-			comparatorLog.log(sourceDescriptor, comparison);
+		if (log != null && !comparison.isOK())
+			log.log(sourceDescriptor, comparison);
 		return comparison;
 	}
 
@@ -221,12 +399,36 @@ public class Mirroring {
 	 * Create, and execute a MirrorRequest for a given descriptor.
 	 */
 	private IStatus downloadArtifact(IArtifactRepository sourceRepo, IArtifactDescriptor destDescriptor, IArtifactDescriptor srcDescriptor) {
-		RawMirrorRequest request = new RawMirrorRequest(srcDescriptor, destDescriptor, destination, transport);
+		RawMirrorRequest request;
+		if (isResumable(srcDescriptor))
+			request = new ResumableMirrorRequest(srcDescriptor, destDescriptor, destination, transport, journal.getPartialFile(srcDescriptor));
+		else
+			request = new RawMirrorRequest(srcDescriptor, destDescriptor, destination, transport);
 		request.perform(sourceRepo, new NullProgressMonitor());
 
 		return request.getResult();
 	}
 
+	/*
+	 * Large remote artifacts of simple repositories can be downloaded into a partial file
+	 * kept by the journal, which a later run picks up where this one stopped.
+	 */
+	private boolean isResumable(IArtifactDescriptor descriptor) {
+		if (journal == null || transport == null || !(descriptor.getRepository() instanceof SimpleArtifactRepository))
+			return false;
+		if (Boolean.valueOf(descriptor.getProperty(ARTIFACT_FOLDER)).booleanValue())
+			return false;
+		URI location = ((SimpleArtifactRepository) descriptor.getRepository()).getLocation(descriptor);
+		if (location == null || "file".equals(location.getScheme())) //$NON-NLS-1$
+			return false;
+		try {
+			String size = descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE);
+			return size != null && Long.parseLong(size) >= RESUME_THRESHOLD;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
 	public void setArtifactKeys(IArtifactKey[] keys) {
 		this.keysToMirror = Arrays.asList(keys);
 	}
@@ -318,6 +520,49 @@ public class Mirroring {
 		return status;
 	}
 
+	/*
+	 * The outcome of mirroring a single descriptor on a worker thread.
+	 */
+	private static class MirrorResult {
+		final IStatus status;
+		final BufferedMirrorLog log;
+
+		MirrorResult(IStatus status, BufferedMirrorLog log) {
+			this.status = status;
+			this.log = log;
+		}
+	}
+
+	/*
+	 * Holds the comparator log entries of one descriptor until they can be written in order.
+	 */
+	private static class BufferedMirrorLog implements IArtifactMirrorLog {
+		private final List<IArtifactDescriptor> descriptors = new ArrayList<IArtifactDescriptor>();
+		private final List<IStatus> statuses = new ArrayList<IStatus>();
+
+		public void log(IArtifactDescriptor descriptor, IStatus status) {
+			descriptors.add(descriptor);
+			statuses.add(status);
+		}
+
+		public void log(IStatus status) {
+			log(null, status);
+		}
+
+		public void close() {
+			// nothing to release
+		}
+
+		void replay(IArtifactMirrorLog target) {
+			for (int i = 0; i < statuses.size(); i++) {
+				if (descriptors.get(i) == null)
+					target.log(statuses.get(i));
+				else
+					target.log(descriptors.get(i), statuses.get(i));
+			}
+		}
+	}
+
 	// Simple comparator for ArtifactDescriptors
 	protected class ArtifactDescriptorComparator implements Comparator<IArtifactDescriptor> {
 
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.internal.repository.mirroring;
+
+import java.io.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.artifact.repository.RawMirrorRequest;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
+import org.eclipse.equinox.internal.p2.core.helpers.FileUtils;
+import org.eclipse.equinox.internal.p2.repository.Transport;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStepHandler;
+import org.eclipse.equinox.p2.internal.repository.tools.Activator;
+import org.eclipse.equinox.p2.internal.repository.tools.Messages;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A raw mirror request that collects the bytes of the artifact in a partial file kept
+ * between runs, and fetches only the bytes that file does not hold yet. The complete file
+ * is then verified against all the checksums of the descriptor while it is copied into
+ * the destination.
+ * <p>
+ * The transfer goes through the same mirror selection and retries as any other raw mirror
+ * request. A retry carries on from the bytes the failed attempt had written.
+ * </p>
+ */
+public class ResumableMirrorRequest extends RawMirrorRequest {
+	private final File partial;
+	private final long size;
+
+	public ResumableMirrorRequest(IArtifactDescriptor sourceDescriptor, IArtifactDescriptor targetDescriptor, IArtifactRepository targetRepository, Transport transport, File partial) {
+		super(sourceDescriptor, targetDescriptor, targetRepository, transport);
+		this.partial = partial;
+		this.size = Long.parseLong(sourceDescriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+	}
+
+	protected IStatus getArtifact(IArtifactDescriptor descriptor, OutputStream destination, IProgressMonitor monitor) {
+		// a run that stopped after the last byte leaves nothing to fetch, asking for a range at the end of the artifact would fail
+		if (partial.length() < size) {
+			IStatus status = fetch(descriptor, monitor);
+			if (!status.isOK())
+				return status;
+		}
+		IStatus status = copyVerified(descriptor, destination, monitor);
+		// the bytes do not make up the artifact, whatever they came from
+		if (status.matches(IStatus.ERROR))
+			partial.delete();
+		return status;
+	}
+
+	/*
+	 * Appends the missing bytes to the partial file.
+	 */
+	private IStatus fetch(IArtifactDescriptor descriptor, IProgressMonitor monitor) {
+		long offset = partial.length();
+		IStatus status;
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(partial, true));
+			try {
+				status = ((SimpleArtifactRepository) descriptor.getRepository()).getRawArtifact(descriptor, out, offset, monitor);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			status = new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.Mirroring_resumeFailed, descriptor), e);
+		}
+		// a transfer that did not get a single byte, e.g. because the range was refused, starts over
+		if (!status.isOK() && partial.length() == offset)
+			partial.delete();
+		return status;
+	}
+
+	private IStatus copyVerified(IArtifactDescriptor descriptor, OutputStream destination, IProgressMonitor monitor) {
+		if (partial.length() != size)
+			return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.Mirroring_resumeFailed, descriptor));
+		ProcessingStep verifier = SimpleArtifactRepository.createDownloadVerifier(descriptor);
+		OutputStream out = destination;
+		if (verifier != null)
+			out = new ProcessingStepHandler().link(new ProcessingStep[] {verifier}, destination, monitor);
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(partial));
+			try {
+				FileUtils.copyStream(in, false, out, false);
+			} finally {
+				in.close();
+			}
+			if (verifier != null)
+				// runs the verification, the destination itself is closed by the request
+				verifier.close();
+		} catch (IOException e) {
+			return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.Mirroring_resumeFailed, descriptor), e);
+		}
+		return verifier == null ? Status.OK_STATUS : ProcessingStepHandler.getErrorStatus(verifier);
+	}
+}
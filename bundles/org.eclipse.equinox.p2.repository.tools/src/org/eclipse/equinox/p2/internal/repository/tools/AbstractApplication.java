@@ -39,6 +39,7 @@ public abstract class AbstractApplication {
 	private List<RepositoryDescriptor> destinationRepos = new ArrayList<RepositoryDescriptor>();
 
 	protected IArtifactRepository destinationArtifactRepository = null;
+	private boolean artifactDestinationAppended = true;
 	protected IMetadataRepository destinationMetadataRepository = null;
 
 	private CompositeMetadataRepository compositeMetadataRepository = null;
@@ -160,8 +161,10 @@ public abstract class AbstractApplication {
 				metadataRepoDescriptor = repo;
 		}
 
-		if (artifactRepoDescriptor != null)
+		if (artifactRepoDescriptor != null) {
 			destinationArtifactRepository = initializeDestination(artifactRepoDescriptor, artifactRepositoryManager);
+			artifactDestinationAppended = artifactRepoDescriptor.isAppend();
+		}
 		if (metadataRepoDescriptor != null)
 			destinationMetadataRepository = initializeDestination(metadataRepoDescriptor, metadataRepositoryManager);
 
@@ -177,6 +180,13 @@ public abstract class AbstractApplication {
 		return destinationArtifactRepository;
 	}
 
+	/*
+	 * Returns false if the existing content of the destination artifact repository was removed.
+	 */
+	protected boolean isArtifactDestinationAppended() {
+		return artifactDestinationAppended;
+	}
+
 	protected IMetadataRepository initializeDestination(RepositoryDescriptor toInit, IMetadataRepositoryManager mgr) throws ProvisionException {
 		try {
 			IMetadataRepository repository = addRepository(mgr, toInit.getRepoLocation(), IRepositoryManager.REPOSITORY_HINT_MODIFIABLE, null);
@@ -61,6 +61,8 @@ public class Messages extends NLS {
 	public static String Mirroring_ValidationError;
 	public static String Mirroring_missingDescriptor;
 	public static String Mirroring_differentDescriptorProperty;
+	public static String Mirroring_resumeFailed;
+	public static String Mirroring_journalUnavailable;
 
 	public static String invalidComparatorId;
 	public static String info_noMD5Infomation;
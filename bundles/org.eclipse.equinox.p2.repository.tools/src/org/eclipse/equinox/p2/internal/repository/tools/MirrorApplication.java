@@ -11,6 +11,7 @@
 package org.eclipse.equinox.p2.internal.repository.tools;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -53,6 +54,10 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 	private String[] rootIUs = null;
 	private boolean includePacked = true;
 	private boolean mirrorProperties = false;
+	private int threads = 1;
+	private int maxConnectionsPerHost = 0;
+	private boolean journal = false;
+	private MirrorJournal mirrorJournal;
 
 	private File mirrorLogFile; // file to log mirror output to (optional)
 	private File comparatorLogFile; // file to comparator output to (optional)
@@ -134,6 +139,8 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 				mirrorReferences = true;
 			else if (args[i].equalsIgnoreCase("-properties")) //$NON-NLS-1$
 				mirrorProperties = true;
+			else if (args[i].equalsIgnoreCase("-journal")) //$NON-NLS-1$
+				journal = true;
 
 			// check for args with parameters. If we are at the last argument or 
 			// if the next one has a '-' as the first character, then we can't have 
@@ -158,6 +165,10 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 				rootIUs = getArrayArgsFromString(arg, ","); //$NON-NLS-1$
 			} else if (args[i - 1].equalsIgnoreCase("-references")) {//$NON-NLS-1$
 				mirrorReferences = Boolean.parseBoolean(args[i]);
+			} else if (args[i - 1].equalsIgnoreCase("-threads")) { //$NON-NLS-1$
+				threads = Integer.parseInt(arg);
+			} else if (args[i - 1].equalsIgnoreCase("-maxConnectionsPerHost")) { //$NON-NLS-1$
+				maxConnectionsPerHost = Integer.parseInt(arg);
 			} else {
 				try {
 					if (args[i - 1].equalsIgnoreCase("-source")) { //$NON-NLS-1$
@@ -201,6 +212,10 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 		} finally {
 			finalizeRepositories();
 			finalizeLogs();
+			if (mirrorJournal != null) {
+				mirrorJournal.close();
+				mirrorJournal = null;
+			}
 		}
 		if (mirrorStatus.isOK())
 			return Status.OK_STATUS;
@@ -238,6 +253,9 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 		mirror.setTransport((Transport) agent.getService(Transport.SERVICE_NAME));
 		mirror.setIncludePacked(includePacked);
 		mirror.setMirrorProperties(mirrorProperties);
+		mirror.setWorkerCount(threads);
+		mirror.setMaxConnectionsPerHost(maxConnectionsPerHost);
+		mirror.setJournal(initializeJournal());
 
 		// If IUs have been specified then only they should be mirrored, otherwise mirror everything.
 		if (iusSpecified)
@@ -248,6 +266,30 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 		return mirror;
 	}
 
+	/*
+	 * Open the transfer journal of a local destination, if journaling was requested
+	 */
+	private MirrorJournal initializeJournal() {
+		if (!journal)
+			return null;
+		File location = URIUtil.toFile(destinationArtifactRepository.getLocation());
+		if (location == null)
+			return null;
+		try {
+			mirrorJournal = new MirrorJournal(location);
+			if (!isArtifactDestinationAppended())
+				mirrorJournal.reset();
+		} catch (IOException e) {
+			IStatus status = new Status(IStatus.WARNING, Activator.ID, NLS.bind(Messages.Mirroring_journalUnavailable, location), e);
+			if (mirrorLog != null)
+				mirrorLog.log(status);
+			else
+				LogHelper.log(status);
+			mirrorJournal = null;
+		}
+		return mirrorJournal;
+	}
+
 	private IArtifactRepository initializeBaseline() {
 		if (baseline == null)
 			return null;
@@ -473,4 +515,25 @@ public class MirrorApplication extends AbstractApplication implements IApplicati
 	public void setMirrorProperties(boolean mirrorProperties) {
 		this.mirrorProperties = mirrorProperties;
 	}
+
+	/*
+	 * Set the number of artifacts that are mirrored concurrently
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/*
+	 * Set whether a transfer journal is kept in the destination so that later runs only mirror what changed
+	 */
+	public void setJournal(boolean journal) {
+		this.journal = journal;
+	}
+
+	/*
+	 * Set the maximum number of concurrent downloads from a single host, 0 for no limit
+	 */
+	public void setMaxConnectionsPerHost(int maxConnections) {
+		this.maxConnectionsPerHost = maxConnections;
+	}
 }
@@ -15,6 +15,7 @@ package org.eclipse.equinox.p2.internal.repository.tools;
 import java.io.File;
 import java.net.URI;
 import java.util.*;
+import java.util.Map.Entry;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumProducer;
@@ -118,9 +119,9 @@ public class RecreateRepositoryApplication extends AbstractApplication {
 				newDescriptor.setProperty(IArtifactDescriptor.ARTIFACT_SIZE, size);
 				newDescriptor.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, size);
 
-				String md5 = ChecksumProducer.computeMD5(artifactFile);
-				if (md5 != null)
-					newDescriptor.setProperty(IArtifactDescriptor.DOWNLOAD_MD5, md5);
+				Map<String, String> checksums = ChecksumProducer.computeDownloadProperties(artifactFile, true);
+				for (Entry<String, String> checksum : checksums.entrySet())
+					newDescriptor.setProperty(checksum.getKey(), checksum.getValue());
 
 				File temp = new File(artifactFile.getParentFile(), artifactFile.getName() + ".pack.gz"); //$NON-NLS-1$
 				if (temp.exists()) {
@@ -145,4 +145,25 @@ public class MirrorTask extends AbstractRepositoryTask {
 	public void setMirrorProperties(boolean value) {
 		((MirrorApplication) application).setMirrorProperties(value);
 	}
+
+	/*
+	 * Set the number of artifacts that are mirrored concurrently.
+	 */
+	public void setThreads(int value) {
+		((MirrorApplication) application).setThreads(value);
+	}
+
+	/*
+	 * Set whether a transfer journal is kept in the destination repository.
+	 */
+	public void setJournal(boolean value) {
+		((MirrorApplication) application).setJournal(value);
+	}
+
+	/*
+	 * Set the maximum number of concurrent downloads from a single host.
+	 */
+	public void setMaxConnectionsPerHost(int value) {
+		((MirrorApplication) application).setMaxConnectionsPerHost(value);
+	}
 }
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.persistence;
+
+/**
+ * A bounded table that deduplicates the strings read by a parser. Unlike {@link String#intern()}
+ * the table is private to its owner and never grows: each string hashes to a single slot and
+ * replaces the previous occupant when they differ. Frequent values such as namespaces, versions
+ * and property names stay in the table, while unique values only pass through it.
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ */
+public class StringPool {
+	private static final int DEFAULT_SIZE = 8192;
+
+	private final String[] table;
+	private final int mask;
+
+	public StringPool() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * @param size the number of slots, rounded up to a power of two
+	 */
+	public StringPool(int size) {
+		int capacity = 1;
+		while (capacity < size)
+			capacity <<= 1;
+		table = new String[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Returns a string equal to the given one, which is the same instance as the one
+	 * returned for previous equal strings while they remain in the table.
+	 */
+	public String pool(String value) {
+		if (value == null)
+			return null;
+		int hash = value.hashCode();
+		// spread the high bits, the table is indexed by the low ones
+		int index = (hash ^ (hash >>> 16)) & mask;
+		String pooled = table[index];
+		if (pooled != null && pooled.equals(value))
+			return pooled;
+		table[index] = value;
+		return value;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2016 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -12,11 +12,13 @@ package org.eclipse.equinox.internal.p2.persistence;
 
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.xml.parsers.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.Activator;
 import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
 import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
 import org.eclipse.equinox.p2.metadata.Version;
 import org.eclipse.equinox.p2.metadata.VersionRange;
 import org.eclipse.osgi.util.NLS;
@@ -28,6 +30,19 @@ import org.xml.sax.helpers.DefaultHandler;
 
 public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 
+	/**
+	 * System property that disables building the elements of large collections on several threads
+	 * when set to <code>false</code>.
+	 */
+	public static final String PROP_PARALLEL_LOADING = "eclipse.p2.parallelLoading"; //$NON-NLS-1$
+
+	// the smallest collection worth building on several threads
+	private static final int PARALLEL_BUILD_THRESHOLD = 1000;
+	// how long a builder waits for the next element before giving its thread back, in milliseconds
+	private static final long PARALLEL_BUILD_IDLE_TIMEOUT = 100;
+
+	private static ExecutorService buildExecutor;
+
 	// Get the root object that is being parsed.
 	protected abstract Object getRootObject();
 
@@ -48,6 +63,13 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 	// Store a cache of previously seen URIs to avoid GC presure
 	final Map<String, URI> uris = new HashMap<String, URI>();
 
+	// Deduplicates attribute values and text, bounded and private to this parser unlike String.intern()
+	private final StringPool strings = new StringPool();
+
+	// Character data of the current element. Handlers consume it before a nested element
+	// starts or their own element ends, so a single buffer serves all of them.
+	private final StringBuffer characters = new StringBuffer();
+
 	private static ServiceTracker<SAXParserFactory, SAXParserFactory> xmlTracker = null;
 
 	public XMLParser(BundleContext context, String pluginId) {
@@ -119,6 +141,142 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 		locator = docLocator;
 	}
 
+	/**
+	 * Returns a shared instance of the given string, see {@link StringPool}.
+	 */
+	protected String pool(String value) {
+		return strings.pool(value);
+	}
+
+	/**
+	 * Returns whether the elements of a collection of the given size should be built
+	 * with a {@link ParallelBuild}.
+	 */
+	protected boolean isParallelBuild(int size) {
+		return size >= PARALLEL_BUILD_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1 && !"false".equals(System.getProperty(PROP_PARALLEL_LOADING)); //$NON-NLS-1$
+	}
+
+	private static synchronized ExecutorService getBuildExecutor() {
+		if (buildExecutor == null) {
+			buildExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "p2 XML builder"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return buildExecutor;
+	}
+
+	/**
+	 * Builds the elements of a collection on several threads while the collection is read.
+	 * An element is handed over as soon as it has been read, and its build is dropped once
+	 * it has run, so the handlers of the elements built do not stay in memory. The builds
+	 * must be independent of each other and must not use the XML reader or report errors
+	 * to the parser.
+	 * <p>
+	 * A builder that finds nothing to build for a while gives its thread back, so a
+	 * document that fails to parse before the end of the collection leaves no thread behind.
+	 * </p>
+	 */
+	protected class ParallelBuild<T> {
+		private final BlockingQueue<FutureTask<T>> queue = new LinkedBlockingQueue<FutureTask<T>>();
+		private final List<FutureTask<T>> results = new ArrayList<FutureTask<T>>();
+		private final int maxBuilders = Runtime.getRuntime().availableProcessors();
+		// a builder retires only once the queue is empty, both checked under the lock
+		private final Object lock = new Object();
+		private int builders;
+
+		public ParallelBuild() {
+			super();
+		}
+
+		/**
+		 * Hands the given build over to the builders.
+		 */
+		public void submit(final Callable<T> build) {
+			FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+				private Callable<T> pending = build;
+
+				public T call() throws Exception {
+					Callable<T> current = pending;
+					pending = null;
+					checkCancel();
+					return current.call();
+				}
+			});
+			results.add(task);
+			synchronized (lock) {
+				queue.add(task);
+				if (builders < maxBuilders) {
+					builders++;
+					getBuildExecutor().execute(new Runnable() {
+						public void run() {
+							drain();
+						}
+					});
+				}
+			}
+		}
+
+		void drain() {
+			while (true) {
+				FutureTask<T> task;
+				try {
+					task = queue.poll(PARALLEL_BUILD_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					task = null;
+				}
+				if (task == null) {
+					synchronized (lock) {
+						if (queue.isEmpty()) {
+							builders--;
+							return;
+						}
+					}
+					continue;
+				}
+				task.run();
+			}
+		}
+
+		/**
+		 * Waits for all the builds to complete and returns their results in the order they
+		 * were submitted. If builds failed, the failure of the first one is rethrown.
+		 */
+		public List<T> finish() {
+			List<T> built = new ArrayList<T>(results.size());
+			try {
+				for (FutureTask<T> result : results) {
+					try {
+						built.add(result.get());
+					} catch (ExecutionException e) {
+						cancel();
+						Throwable cause = e.getCause();
+						if (cause instanceof RuntimeException)
+							throw (RuntimeException) cause;
+						if (cause instanceof Error)
+							throw (Error) cause;
+						throw new IllegalStateException(cause);
+					} catch (InterruptedException e) {
+						cancel();
+						Thread.currentThread().interrupt();
+						throw new OperationCanceledException();
+					}
+				}
+			} finally {
+				results.clear();
+			}
+			return built;
+		}
+
+		private void cancel() {
+			for (FutureTask<T> result : results)
+				result.cancel(false);
+		}
+	}
+
 	/**
 	 * Sets the progress monitor for the parser
 	 */
@@ -134,8 +292,6 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 		protected ContentHandler parentHandler = null;
 		protected String elementHandled = null;
 
-		protected StringBuffer characters = null; // character data inside an element
-
 		public AbstractHandler() {
 			// Empty constructor for a root handler
 		}
@@ -197,27 +353,24 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 		 * @see org.xml.sax.ContentHandler#characters
 		 */
 		public void characters(char[] chars, int start, int length) {
-			if (this.characters == null) {
-				this.characters = new StringBuffer();
-			}
-			this.characters.append(chars, start, length);
+			characters.append(chars, start, length);
 		}
 
-		// Consume the characters accumulated in this.characters.
+		// Consume the accumulated characters.
 		// Called before startElement or endElement
 		private String finishCharacters() {
 			// common case -- no characters or only whitespace
-			if (this.characters == null || this.characters.length() == 0) {
+			if (characters.length() == 0) {
 				return null;
 			}
-			if (allWhiteSpace(this.characters)) {
-				this.characters.setLength(0);
+			if (allWhiteSpace(characters)) {
+				characters.setLength(0);
 				return null;
 			}
 
 			// process the characters
 			try {
-				String trimmedChars = this.characters.toString().trim();
+				String trimmedChars = characters.toString().trim();
 				if (trimmedChars.length() == 0) {
 					// this shouldn't happen due to the test for allWhiteSpace above
 					System.err.println("Unexpected non-whitespace characters: " //$NON-NLS-1$
@@ -227,7 +380,7 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 				processCharacters(trimmedChars);
 				return trimmedChars;
 			} finally {
-				this.characters.setLength(0);
+				characters.setLength(0);
 			}
 		}
 
@@ -324,7 +477,7 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 			String[] result = new String[required.length + optional.length];
 			for (int i = 0; i < attributes.getLength(); i += 1) {
 				String name = attributes.getLocalName(i);
-				String value = attributes.getValue(i).trim().intern();
+				String value = pool(attributes.getValue(i).trim());
 				int j;
 				if ((j = indexOf(required, name)) >= 0) {
 					result[j] = value;
@@ -472,7 +625,7 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 		}
 
 		protected void processCharacters(String data) {
-			this.text = data == null ? null : data.intern();
+			this.text = pool(data);
 		}
 
 	}
@@ -689,7 +842,7 @@ public abstract class XMLParser extends DefaultHandler implements XMLConstants {
 	public VersionRange checkVersionRange(String element, String attribute, String value) {
 		try {
 			if (value != null)
-				return new VersionRange(value);
+				return MetadataPools.parseVersionRange(value);
 		} catch (IllegalArgumentException iae) {
 			invalidAttributeValue(element, attribute, value);
 		} catch (NullPointerException npe) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2010 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -53,18 +53,38 @@ public class XMLWriter implements XMLConstants {
 		}
 	}
 
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] LINE_SEPARATOR = System.getProperty("line.separator", "\n").toCharArray(); //$NON-NLS-1$
+
 	private Stack<String> elements; // XML elements that have not yet been closed
 	private boolean open; // Can attributes be added to the current element?
-	private String indent; // used for each level of indentation
-
-	private PrintWriter pw;
+	private String indent; // used for each level of indentation, null when the output is not indented
+
+	/*
+	 * Characters are collected in a buffer and encoded to UTF-8 by hand into the output stream.
+	 * Like the PrintWriter that was used before, write errors are not reported to the callers.
+	 */
+	private final OutputStream output;
+	private final char[] chars = new char[BUFFER_SIZE];
+	// a surrogate pair needs 4 bytes for 2 chars, every other char at most 3 bytes
+	private final byte[] bytes = new byte[BUFFER_SIZE * 3];
+	private int count;
+	private boolean failed;
 
 	public XMLWriter(OutputStream output, ProcessingInstruction[] piElements) throws UnsupportedEncodingException {
-		this.pw = new PrintWriter(new OutputStreamWriter(output, "UTF8"), false); //$NON-NLS-1$
+		this(output, piElements, true);
+	}
+
+	/**
+	 * Creates a writer that indents nested elements when <code>indent</code> is <code>true</code>.
+	 * Output that is only read by programs, such as a compressed repository, can skip the indentation.
+	 */
+	public XMLWriter(OutputStream output, ProcessingInstruction[] piElements, boolean indent) throws UnsupportedEncodingException {
+		this.output = output;
 		println(ProcessingInstruction.XML_UTF8);
 		this.elements = new Stack<String>();
 		this.open = false;
-		this.indent = "  "; //$NON-NLS-1$
+		this.indent = indent ? "  " : null; //$NON-NLS-1$
 		if (piElements != null) {
 			for (int i = 0; i < piElements.length; i++) {
 				println(piElements[i].toString());
@@ -107,7 +127,10 @@ public class XMLWriter implements XMLConstants {
 		if (this.open) {
 			println("/>"); //$NON-NLS-1$
 		} else {
-			printlnIndented("</" + name + '>', false); //$NON-NLS-1$
+			indent();
+			print("</"); //$NON-NLS-1$
+			print(name);
+			println('>');
 		}
 		this.open = false;
 	}
@@ -115,49 +138,23 @@ public class XMLWriter implements XMLConstants {
 	public static String escape(String txt) {
 		StringBuffer buffer = null;
 		for (int i = 0; i < txt.length(); ++i) {
-			String replace;
 			char c = txt.charAt(i);
-			switch (c) {
-				case '<' :
-					replace = "&lt;"; //$NON-NLS-1$
-					break;
-				case '>' :
-					replace = "&gt;"; //$NON-NLS-1$
-					break;
-				case '"' :
-					replace = "&quot;"; //$NON-NLS-1$
-					break;
-				case '\'' :
-					replace = "&apos;"; //$NON-NLS-1$
-					break;
-				case '&' :
-					replace = "&amp;"; //$NON-NLS-1$
-					break;
-				case '\t' :
-					replace = "&#x9;"; //$NON-NLS-1$
-					break;
-				case '\n' :
-					replace = "&#xA;"; //$NON-NLS-1$
-					break;
-				case '\r' :
-					replace = "&#xD;"; //$NON-NLS-1$
-					break;
-				default :
-					// this is the set of legal xml scharacters in unicode excluding high surrogates since they cannot be represented with a char
-					// see http://www.w3.org/TR/REC-xml/#charsets
-					if ((c >= '\u0020' && c <= '\uD7FF') || (c >= '\uE000' && c <= '\uFFFD')) {
-						if (buffer != null)
-							buffer.append(c);
-						continue;
-					}
-					replace = Character.isWhitespace(c) ? " " : null; //$NON-NLS-1$
+			if (!needsEscape(c)) {
+				if (buffer != null)
+					buffer.append(c);
+				continue;
+			}
+			if (isSurrogatePair(txt, i)) {
+				if (buffer != null)
+					buffer.append(c).append(txt.charAt(i + 1));
+				i++;
+				continue;
 			}
 			if (buffer == null) {
 				buffer = new StringBuffer(txt.length() + 16);
 				buffer.append(txt.substring(0, i));
 			}
-			if (replace != null)
-				buffer.append(replace);
+			buffer.append(replacement(c));
 		}
 
 		if (buffer == null)
@@ -166,6 +163,58 @@ public class XMLWriter implements XMLConstants {
 		return buffer.toString();
 	}
 
+	private static boolean needsEscape(char c) {
+		// this is the set of legal xml characters in unicode excluding surrogates, which are only legal as a pair
+		// see http://www.w3.org/TR/REC-xml/#charsets
+		if ((c >= '\u0020' && c <= '\uD7FF') || (c >= '\uE000' && c <= '\uFFFD')) {
+			switch (c) {
+				case '<' :
+				case '>' :
+				case '"' :
+				case '\'' :
+				case '&' :
+					return true;
+				default :
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Returns whether the characters at the given index form a surrogate pair, a legal character
+	 * written as it is although needsEscape is true for each of its halves.
+	 */
+	private static boolean isSurrogatePair(String s, int index) {
+		return Character.isHighSurrogate(s.charAt(index)) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1));
+	}
+
+	/*
+	 * Returns what replaces a character for which needsEscape is true, possibly nothing.
+	 */
+	private static String replacement(char c) {
+		switch (c) {
+			case '<' :
+				return "&lt;"; //$NON-NLS-1$
+			case '>' :
+				return "&gt;"; //$NON-NLS-1$
+			case '"' :
+				return "&quot;"; //$NON-NLS-1$
+			case '\'' :
+				return "&apos;"; //$NON-NLS-1$
+			case '&' :
+				return "&amp;"; //$NON-NLS-1$
+			case '\t' :
+				return "&#x9;"; //$NON-NLS-1$
+			case '\n' :
+				return "&#xA;"; //$NON-NLS-1$
+			case '\r' :
+				return "&#xD;"; //$NON-NLS-1$
+			default :
+				return Character.isWhitespace(c) ? " " : ""; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
 	// write a boolean attribute if it doesn't have the default value
 	public void attribute(String name, boolean value, boolean defaultValue) {
 		if (value != defaultValue) {
@@ -197,7 +246,7 @@ public class XMLWriter implements XMLConstants {
 		print(' ');
 		print(name);
 		print("='"); //$NON-NLS-1$
-		print(escape(value.toString()));
+		printEscaped(value.toString());
 		print('\'');
 	}
 
@@ -216,7 +265,14 @@ public class XMLWriter implements XMLConstants {
 	}
 
 	public void flush() {
-		this.pw.flush();
+		writeBuffer(true);
+		if (failed)
+			return;
+		try {
+			output.flush();
+		} catch (IOException e) {
+			failed = true;
+		}
 	}
 
 	public void writeProperties(Map<String, String> properties) {
@@ -249,23 +305,59 @@ public class XMLWriter implements XMLConstants {
 	}
 
 	private void println(char c) {
-		this.pw.println(c);
+		print(c);
+		println();
 	}
 
 	private void println(String s) {
-		this.pw.println(s);
+		print(s);
+		println();
 	}
 
 	private void println() {
-		this.pw.println();
+		for (int i = 0; i < LINE_SEPARATOR.length; i++)
+			print(LINE_SEPARATOR[i]);
 	}
 
 	private void print(char c) {
-		this.pw.print(c);
+		if (count == chars.length)
+			writeBuffer(false);
+		chars[count++] = c;
 	}
 
 	private void print(String s) {
-		this.pw.print(s);
+		print(s, 0, s.length());
+	}
+
+	private void print(String s, int begin, int end) {
+		while (begin < end) {
+			if (count == chars.length)
+				writeBuffer(false);
+			int length = Math.min(end - begin, chars.length - count);
+			s.getChars(begin, begin + length, chars, count);
+			count += length;
+			begin += length;
+		}
+	}
+
+	/*
+	 * Same as print(escape(s)), without creating a new string: the runs of characters
+	 * between two characters that need to be escaped are copied as they are.
+	 */
+	private void printEscaped(String s) {
+		int length = s.length();
+		int run = 0;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (isSurrogatePair(s, i)) {
+				i++;
+			} else if (needsEscape(c)) {
+				print(s, run, i);
+				print(replacement(c));
+				run = i + 1;
+			}
+		}
+		print(s, run, length);
 	}
 
 	private void printlnIndented(String s, boolean escape) {
@@ -273,16 +365,65 @@ public class XMLWriter implements XMLConstants {
 			println();
 		} else {
 			indent();
-			println(escape ? escape(s) : s);
+			if (escape)
+				printEscaped(s);
+			else
+				print(s);
+			println();
 		}
 	}
 
 	private void indent() {
+		if (this.indent == null)
+			return;
 		for (int i = this.elements.size(); i > 0; i -= 1) {
 			print(this.indent);
 		}
 	}
 
+	/*
+	 * Encodes the buffered characters to UTF-8 and writes them to the output. Unless this is
+	 * the final write, a high surrogate at the end of the buffer is kept until its low surrogate
+	 * arrives. Unpaired surrogates are written as '?', as the JDK encoder does.
+	 */
+	private void writeBuffer(boolean all) {
+		int end = count;
+		if (!all && end > 0 && Character.isHighSurrogate(chars[end - 1]))
+			end--;
+		int size = 0;
+		for (int i = 0; i < end; i++) {
+			char c = chars[i];
+			if (c < 0x80) {
+				bytes[size++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[size++] = (byte) (0xC0 | (c >> 6));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+				int codePoint = Character.toCodePoint(c, chars[++i]);
+				bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+				bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+				bytes[size++] = (byte) '?';
+			} else {
+				bytes[size++] = (byte) (0xE0 | (c >> 12));
+				bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		count -= end;
+		if (count > 0)
+			chars[0] = chars[end];
+		if (failed || size == 0)
+			return;
+		try {
+			output.write(bytes, 0, size);
+		} catch (IOException e) {
+			failed = true;
+		}
+	}
+
 	public static class AttributeAfterNestedContentError extends Error {
 		private static final long serialVersionUID = 1L; // not serialized
 	}
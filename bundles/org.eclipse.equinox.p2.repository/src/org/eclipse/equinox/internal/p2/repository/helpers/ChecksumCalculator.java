@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.repository.helpers;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+
+/**
+ * Computes several digests of the same bytes in a single pass.
+ * <p>
+ * Checksums are identified by the lower case name of their algorithm, such as <code>md5</code>
+ * or <code>sha-256</code>. In artifact descriptors the MD5 checksums keep their original
+ * properties, {@link IArtifactDescriptor#DOWNLOAD_MD5} and {@link IArtifactDescriptor#ARTIFACT_MD5},
+ * the other checksums are stored in properties named after their id, such as
+ * <code>download.checksum.sha-256</code>.
+ * </p>
+ */
+public class ChecksumCalculator {
+	public static final String MD5 = "md5"; //$NON-NLS-1$
+	public static final String SHA_1 = "sha-1"; //$NON-NLS-1$
+	public static final String SHA_256 = "sha-256"; //$NON-NLS-1$
+	public static final String SHA_512 = "sha-512"; //$NON-NLS-1$
+
+	/**
+	 * The ids of the checksums that can be computed and verified, in order of preference.
+	 */
+	public static final String[] KNOWN_IDS = {SHA_512, SHA_256, SHA_1, MD5};
+
+	/**
+	 * System property listing the ids of the checksums stored in the artifact descriptors
+	 * created by the publisher, separated by commas. Only MD5 is stored by default.
+	 */
+	public static final String PROP_CHECKSUMS = "eclipse.p2.checksums"; //$NON-NLS-1$
+
+	private static final String DOWNLOAD_CHECKSUM_PREFIX = "download.checksum."; //$NON-NLS-1$
+	private static final String ARTIFACT_CHECKSUM_PREFIX = "artifact.checksum."; //$NON-NLS-1$
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private final String[] ids;
+	private final MessageDigest[] digests;
+
+	/**
+	 * Creates a calculator for the given checksums.
+	 * @throws NoSuchAlgorithmException if one of the checksums is not supported by the platform
+	 */
+	public ChecksumCalculator(String[] ids) throws NoSuchAlgorithmException {
+		this.ids = ids.clone();
+		this.digests = new MessageDigest[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			digests[i] = MessageDigest.getInstance(ids[i].toUpperCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Returns the ids of the checksums to store in new artifact descriptors.
+	 * @see #PROP_CHECKSUMS
+	 */
+	public static String[] getConfiguredIds() {
+		String value = System.getProperty(PROP_CHECKSUMS);
+		if (value == null)
+			return new String[] {MD5};
+		List<String> result = new ArrayList<String>();
+		StringTokenizer tokenizer = new StringTokenizer(value, ","); //$NON-NLS-1$
+		while (tokenizer.hasMoreTokens()) {
+			String id = tokenizer.nextToken().trim().toLowerCase(Locale.ENGLISH);
+			if (Arrays.asList(KNOWN_IDS).contains(id) && !result.contains(id))
+				result.add(id);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Returns the descriptor property holding the checksum of the transferred bytes.
+	 */
+	public static String getDownloadProperty(String id) {
+		return MD5.equals(id) ? IArtifactDescriptor.DOWNLOAD_MD5 : DOWNLOAD_CHECKSUM_PREFIX + id;
+	}
+
+	/**
+	 * Returns the descriptor property holding the checksum of the artifact in its native format.
+	 */
+	public static String getArtifactProperty(String id) {
+		return MD5.equals(id) ? IArtifactDescriptor.ARTIFACT_MD5 : ARTIFACT_CHECKSUM_PREFIX + id;
+	}
+
+	/**
+	 * Returns the checksums of the transferred bytes that the descriptor declares, by id.
+	 */
+	public static Map<String, String> getDownloadChecksums(IArtifactDescriptor descriptor) {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		for (int i = 0; i < KNOWN_IDS.length; i++) {
+			String value = descriptor.getProperty(getDownloadProperty(KNOWN_IDS[i]));
+			if (value != null)
+				result.put(KNOWN_IDS[i], value);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the checksums of the artifact in its native format that the descriptor declares, by id.
+	 */
+	public static Map<String, String> getArtifactChecksums(IArtifactDescriptor descriptor) {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		for (int i = 0; i < KNOWN_IDS.length; i++) {
+			String value = descriptor.getProperty(getArtifactProperty(KNOWN_IDS[i]));
+			if (value != null)
+				result.put(KNOWN_IDS[i], value);
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the given checksums of a file, reading it once. Returns <code>null</code> if
+	 * the file cannot be read or one of the checksums is not supported.
+	 */
+	public static Map<String, String> computeChecksums(File file, String[] ids) {
+		if (file == null || file.isDirectory() || !file.exists())
+			return null;
+		try {
+			ChecksumCalculator calculator = new ChecksumCalculator(ids);
+			calculator.update(file);
+			return calculator.getChecksums();
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public String[] getIds() {
+		return ids.clone();
+	}
+
+	public void update(int b) {
+		for (int i = 0; i < digests.length; i++)
+			digests[i].update((byte) b);
+	}
+
+	public void update(byte[] bytes, int off, int len) {
+		for (int i = 0; i < digests.length; i++)
+			digests[i].update(bytes, off, len);
+	}
+
+	/**
+	 * Updates the digests with the content of a file. Each block of the file is read once
+	 * and fed to all digests while it is in the cache.
+	 */
+	public void update(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				update(buffer, 0, read);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Completes the computation and returns the checksums as lower case hex strings, by id.
+	 * The calculator is reset.
+	 */
+	public Map<String, String> getChecksums() {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		for (int i = 0; i < digests.length; i++)
+			result.put(ids[i], toHexString(digests[i].digest()));
+		return result;
+	}
+
+	static String toHexString(byte[] digest) {
+		char[] chars = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			chars[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+			chars[2 * i + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
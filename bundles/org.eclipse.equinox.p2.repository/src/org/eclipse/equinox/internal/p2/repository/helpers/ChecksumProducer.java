@@ -12,50 +12,36 @@
 
 package org.eclipse.equinox.internal.p2.repository.helpers;
 
-import java.io.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.File;
+import java.util.*;
+import java.util.Map.Entry;
 
 public class ChecksumProducer {
 
 	public static String computeMD5(File file) {
-		if (file == null || file.isDirectory() || !file.exists())
-			return null;
-		MessageDigest md5Checker;
-		try {
-			md5Checker = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
-		} catch (NoSuchAlgorithmException e) {
-			return null;
-		}
-		InputStream fis = null;
-		try {
-			fis = new BufferedInputStream(new FileInputStream(file));
-			int read = -1;
-			final int bufferSize = 4 * 1024;
-			byte[] buffer = new byte[bufferSize];
-			while ((read = fis.read(buffer, 0, bufferSize)) != -1) {
-				md5Checker.update(buffer, 0, read);
-			}
-			byte[] digest = md5Checker.digest();
-			StringBuffer buf = new StringBuffer();
-			for (int i = 0; i < digest.length; i++) {
-				if ((digest[i] & 0xFF) < 0x10)
-					buf.append('0');
-				buf.append(Integer.toHexString(digest[i] & 0xFF));
-			}
-			return buf.toString();
-		} catch (FileNotFoundException e) {
-			return null;
-		} catch (IOException e) {
-			return null;
-		} finally {
-			if (fis != null)
-				try {
-					fis.close();
-				} catch (IOException e) {
-					// ignore
-				}
+		Map<String, String> checksums = ChecksumCalculator.computeChecksums(file, new String[] {ChecksumCalculator.MD5});
+		return checksums == null ? null : checksums.get(ChecksumCalculator.MD5);
+	}
+
+	/**
+	 * Computes the configured checksums of a file in a single pass and returns them by the
+	 * name of the download property that holds them. MD5 is left out unless <code>md5</code>
+	 * is <code>true</code>. Returns an empty map if the checksums cannot be computed.
+	 * @see ChecksumCalculator#getConfiguredIds()
+	 */
+	public static Map<String, String> computeDownloadProperties(File file, boolean md5) {
+		List<String> ids = new ArrayList<String>(Arrays.asList(ChecksumCalculator.getConfiguredIds()));
+		if (!md5)
+			ids.remove(ChecksumCalculator.MD5);
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		if (ids.isEmpty())
+			return result;
+		Map<String, String> checksums = ChecksumCalculator.computeChecksums(file, ids.toArray(new String[ids.size()]));
+		if (checksums != null) {
+			for (Entry<String, String> entry : checksums.entrySet())
+				result.put(ChecksumCalculator.getDownloadProperty(entry.getKey()), entry.getValue());
 		}
+		return result;
 	}
 
 }
@@ -22,6 +22,16 @@ public interface SarConstants {
 	/** <code>SARFILE_VERSION</code> */
 	int SARFILE_VERSION = 2;
 
+	/**
+	 * <code>SARFILE_VERSION_INDEXED</code>: the entry contents are written in chunks
+	 * and the archive ends with an index of its entries.
+	 * @see SarFile
+	 */
+	int SARFILE_VERSION_INDEXED = 3;
+
+	/** <code>SARFILE_INDEX_MARKER</code> ends an indexed archive */
+	String SARFILE_INDEX_MARKER = "SarIndex"; //$NON-NLS-1$
+
 	/**
 	 * Comment for <code>DEFAULT_ENCODING</code>
 	 */
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.sar;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * The SarFile reads the entries of an indexed org.eclipse.equinox.p2.sar archive
+ * (see {@link SarConstants#SARFILE_VERSION_INDEXED}) in any order, positioning
+ * directly at the entry through the index at the end of the archive instead of
+ * reading all the preceding entries. The streams of the entries read the file
+ * independently of each other and may be used concurrently.
+ */
+public class SarFile {
+
+	// the index offset (long) and the index marker (int length and bytes)
+	private static final int TRAILER_SIZE = 8 + 4 + SarConstants.SARFILE_INDEX_MARKER.length();
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final Map<String, Long> index;
+
+	/**
+	 * @param sarFile
+	 * @throws IOException
+	 *             if the file is not an indexed org.eclipse.equinox.p2.sar archive
+	 */
+	public SarFile(File sarFile) throws IOException {
+		file = new RandomAccessFile(sarFile, "r"); //$NON-NLS-1$
+		channel = file.getChannel();
+		boolean done = false;
+		try {
+			index = readIndex();
+			done = true;
+		} finally {
+			if (!done)
+				file.close();
+		}
+	}
+
+	private Map<String, Long> readIndex() throws IOException {
+		SarInputStream header = new SarInputStream(new ChannelInputStream(0), SarConstants.SARFILE_VERSION_INDEXED);
+		if (!SarConstants.SARFILE_MARKER.equals(header.readString()))
+			throw new IOException("Does not contain org.eclipse.equinox.p2.sar marker.");
+		if (header.readInt() != SarConstants.SARFILE_VERSION_INDEXED)
+			throw new IOException("Unsupported version.");
+
+		long length = channel.size();
+		if (length < TRAILER_SIZE)
+			throw new IOException("Missing index.");
+		SarInputStream trailer = new SarInputStream(new ChannelInputStream(length - TRAILER_SIZE), SarConstants.SARFILE_VERSION_INDEXED);
+		long indexOffset = trailer.readLong();
+		if (!SarConstants.SARFILE_INDEX_MARKER.equals(trailer.readString()) || indexOffset < 0 || indexOffset > length - TRAILER_SIZE)
+			throw new IOException("Missing index.");
+
+		SarInputStream indexStream = new SarInputStream(new ChannelInputStream(indexOffset), SarConstants.SARFILE_VERSION_INDEXED);
+		int count = indexStream.readInt();
+		Map<String, Long> result = new LinkedHashMap<String, Long>(count * 2);
+		for (int i = 0; i < count; i++) {
+			String name = indexStream.readString();
+			result.put(name, new Long(indexStream.readLong()));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the names of the entries, in the order of the archive
+	 */
+	public Collection<String> getEntryNames() {
+		return Collections.unmodifiableCollection(index.keySet());
+	}
+
+	/**
+	 * Returns the entry of the given name, or <code>null</code> if there is none.
+	 *
+	 * @param name
+	 * @return SarEntry
+	 * @throws IOException
+	 */
+	public SarEntry getEntry(String name) throws IOException {
+		Long offset = index.get(name);
+		if (offset == null)
+			return null;
+		return new SarEntry(new SarInputStream(new ChannelInputStream(offset.longValue()), SarConstants.SARFILE_VERSION_INDEXED));
+	}
+
+	/**
+	 * Returns a stream of the content of the entry of the given name, or
+	 * <code>null</code> if there is none. The content of an entry that is a zip
+	 * is an archive that can be read with a {@link SarInputStream}.
+	 *
+	 * @param name
+	 * @return InputStream
+	 * @throws IOException
+	 */
+	public InputStream getInputStream(String name) throws IOException {
+		Long offset = index.get(name);
+		if (offset == null)
+			return null;
+		SarInputStream entryStream = new SarInputStream(new ChannelInputStream(offset.longValue()), SarConstants.SARFILE_VERSION_INDEXED);
+		if (entryStream.getNextEntry() == null)
+			throw new IOException("Invalid index entry: " + name);
+		return entryStream;
+	}
+
+	/**
+	 * Closes the archive, and with it the streams of its entries.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Reads the file from the given position, without moving the position of the
+	 * channel, so that any number of these streams can read the file at once.
+	 */
+	private class ChannelInputStream extends InputStream {
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private long position;
+
+		ChannelInputStream(long position) {
+			this.position = position;
+			buffer.flip();
+		}
+
+		private boolean fill() throws IOException {
+			if (buffer.hasRemaining())
+				return true;
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			buffer.flip();
+			if (read <= 0)
+				return false;
+			position += read;
+			return true;
+		}
+
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+
+		public long skip(long n) throws IOException {
+			if (n <= 0)
+				return 0;
+			int buffered = buffer.remaining();
+			if (n <= buffered) {
+				buffer.position(buffer.position() + (int) n);
+				return n;
+			}
+			buffer.position(buffer.limit());
+			long skipped = Math.min(n - buffered, Math.max(0, channel.size() - position));
+			position += skipped;
+			return buffered + skipped;
+		}
+	}
+}
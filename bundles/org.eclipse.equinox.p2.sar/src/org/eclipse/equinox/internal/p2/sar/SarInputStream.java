@@ -43,11 +43,24 @@ public class SarInputStream extends InputStream {
 
 		// SarFile version
 		version = dataInputStream.readInt();
-		if (version != SarConstants.SARFILE_VERSION) {
+		if (version != SarConstants.SARFILE_VERSION && version != SarConstants.SARFILE_VERSION_INDEXED) {
 			throw new IOException("Unsupported version.");
 		}
 	}
 
+	/**
+	 * Constructor for a SarInputStream positioned at an entry header of an
+	 * archive of the given version, past the marker and version of the archive.
+	 * 
+	 * @param inputStream
+	 * @param version
+	 * @see SarFile
+	 */
+	SarInputStream(InputStream inputStream, int version) {
+		this.dataInputStream = new DataInputStream(inputStream);
+		this.version = version;
+	}
+
 	/**
 	 * Closes this stream.
 	 * 
@@ -97,12 +110,18 @@ public class SarInputStream extends InputStream {
 	 *             on error
 	 */
 	public SarEntry getNextEntry() throws IOException {
+		if (contentStream != null)
+			closeEntry();
 		SarEntry sarEntry = new SarEntry(this);
 		if (sarEntry.isEof())
 			return null;
 
-		byte[] content = readBytes();
-		contentStream = new ByteArrayInputStream(content);
+		if (version == SarConstants.SARFILE_VERSION_INDEXED) {
+			contentStream = new ChunkedInputStream();
+		} else {
+			byte[] content = readBytes();
+			contentStream = new ByteArrayInputStream(content);
+		}
 		return sarEntry;
 
 	}
@@ -113,7 +132,10 @@ public class SarInputStream extends InputStream {
 	 * @throws IOException
 	 */
 	public void closeEntry() throws IOException {
+		if (contentStream == null)
+			return;
 		contentStream.close();
+		contentStream = null;
 	}
 
 	/**
@@ -176,6 +198,8 @@ public class SarInputStream extends InputStream {
 	 *             on error
 	 */
 	public int read() throws IOException {
+		if (contentStream == null)
+			return -1;
 		return contentStream.read();
 	}
 
@@ -197,7 +221,55 @@ public class SarInputStream extends InputStream {
 	 *             on error
 	 */
 	public int read(byte[] buffer, int offset, int numToRead) throws IOException {
+		if (contentStream == null)
+			return -1;
 		return contentStream.read(buffer, offset, numToRead);
 	}
 
+	/**
+	 * Reads the content of an entry of an indexed archive, which is written in
+	 * chunks that are preceded by their length and ended by an empty chunk.
+	 * Closing the stream skips the rest of the content.
+	 */
+	private class ChunkedInputStream extends InputStream {
+		private int remaining = 0;
+		private boolean eof = false;
+
+		private boolean nextChunk() throws IOException {
+			while (!eof && remaining == 0) {
+				remaining = dataInputStream.readInt();
+				if (remaining < 0)
+					throw new IOException("Invalid chunk length.");
+				eof = remaining == 0;
+			}
+			return !eof;
+		}
+
+		public int read() throws IOException {
+			if (!nextChunk())
+				return -1;
+			remaining--;
+			return dataInputStream.readUnsignedByte();
+		}
+
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (!nextChunk())
+				return -1;
+			int read = dataInputStream.read(buffer, offset, Math.min(length, remaining));
+			if (read == -1)
+				throw new EOFException();
+			remaining -= read;
+			return read;
+		}
+
+		public void close() throws IOException {
+			while (nextChunk()) {
+				dataInputStream.skipBytes(remaining);
+				remaining = 0;
+			}
+		}
+	}
+
 }
\ No newline at end of file
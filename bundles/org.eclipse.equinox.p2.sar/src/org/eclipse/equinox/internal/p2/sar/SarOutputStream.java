@@ -12,27 +12,57 @@
 package org.eclipse.equinox.internal.p2.sar;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The SarOutputStream writes a stream archive as an OutputStream. Methods are
  * provided to put entries, and then write their contents by writing to this
  * stream using write().
+ * <p>
+ * An archive of version {@link SarConstants#SARFILE_VERSION_INDEXED} writes the
+ * contents in chunks as they come instead of buffering whole entries, and ends
+ * with an index of the entries that {@link SarFile} reads to access them directly.
+ * </p>
  */
 public class SarOutputStream extends OutputStream {
 
+	static final int CHUNK_SIZE = 64 * 1024;
+
 	private boolean finished;
+	private final CountingOutputStream countingStream;
 	private final DataOutputStream dataOutputStream;
 	private final DirectByteArrayOutputStream entryContent;
+	private final boolean indexed;
+	private final List<String> indexNames;
+	private final List<Long> indexOffsets;
 
 	/**
 	 * @param outputStream
 	 * @throws IOException
 	 */
 	public SarOutputStream(OutputStream outputStream) throws IOException {
-		dataOutputStream = new DataOutputStream(outputStream);
-		entryContent = new DirectByteArrayOutputStream(16 * 1024);
+		this(outputStream, SarConstants.SARFILE_VERSION);
+	}
+
+	/**
+	 * @param outputStream
+	 * @param version
+	 *            {@link SarConstants#SARFILE_VERSION} or
+	 *            {@link SarConstants#SARFILE_VERSION_INDEXED}
+	 * @throws IOException
+	 */
+	public SarOutputStream(OutputStream outputStream, int version) throws IOException {
+		if (version != SarConstants.SARFILE_VERSION && version != SarConstants.SARFILE_VERSION_INDEXED)
+			throw new IllegalArgumentException("Unsupported version: " + version); //$NON-NLS-1$
+		indexed = version == SarConstants.SARFILE_VERSION_INDEXED;
+		countingStream = new CountingOutputStream(outputStream);
+		dataOutputStream = new DataOutputStream(countingStream);
+		entryContent = new DirectByteArrayOutputStream(indexed ? CHUNK_SIZE : 16 * 1024);
+		indexNames = indexed ? new ArrayList<String>() : null;
+		indexOffsets = indexed ? new ArrayList<Long>() : null;
 		writeString(SarConstants.SARFILE_MARKER);
-		dataOutputStream.writeInt(SarConstants.SARFILE_VERSION);
+		dataOutputStream.writeInt(version);
 		finished = false;
 	}
 
@@ -57,6 +87,8 @@ public class SarOutputStream extends OutputStream {
 			return;
 
 		writeEOFRecord();
+		if (indexed)
+			writeIndex();
 		finished = true;
 	}
 
@@ -73,6 +105,10 @@ public class SarOutputStream extends OutputStream {
 	 * @throws IOException
 	 */
 	public void putNextEntry(SarEntry entry) throws IOException {
+		if (indexed) {
+			indexNames.add(entry.getName());
+			indexOffsets.add(new Long(countingStream.count));
+		}
 		entry.writeTo(this);
 	}
 
@@ -86,6 +122,19 @@ public class SarOutputStream extends OutputStream {
 	 * @throws IOException
 	 */
 	public void closeEntry() throws IOException {
+		if (indexed) {
+			writeChunk();
+			// an empty chunk ends the content
+			dataOutputStream.writeInt(0);
+			return;
+		}
+		writeBytes(entryContent.getBuffer(), entryContent.getBufferLength());
+		entryContent.reset();
+	}
+
+	private void writeChunk() throws IOException {
+		if (entryContent.getBufferLength() == 0)
+			return;
 		writeBytes(entryContent.getBuffer(), entryContent.getBufferLength());
 		entryContent.reset();
 	}
@@ -159,7 +208,7 @@ public class SarOutputStream extends OutputStream {
 	public void write(int b) throws IOException {
 		byte[] bytes = new byte[1];
 		bytes[0] = (byte) b;
-		entryContent.write(bytes);
+		write(bytes, 0, 1);
 	}
 
 	/**
@@ -172,7 +221,7 @@ public class SarOutputStream extends OutputStream {
 	 * @see java.io.OutputStream#write(byte[])
 	 */
 	public void write(byte[] bytes) throws IOException {
-		entryContent.write(bytes, 0, bytes.length);
+		write(bytes, 0, bytes.length);
 	}
 
 	/**
@@ -190,7 +239,18 @@ public class SarOutputStream extends OutputStream {
 	 * @see java.io.OutputStream#write(byte[], int, int)
 	 */
 	public void write(byte[] bytes, int offset, int numToWrite) throws IOException {
-		entryContent.write(bytes, offset, numToWrite);
+		if (!indexed) {
+			entryContent.write(bytes, offset, numToWrite);
+			return;
+		}
+		while (numToWrite > 0) {
+			int length = Math.min(numToWrite, CHUNK_SIZE - entryContent.getBufferLength());
+			entryContent.write(bytes, offset, length);
+			if (entryContent.getBufferLength() == CHUNK_SIZE)
+				writeChunk();
+			offset += length;
+			numToWrite -= length;
+		}
 	}
 
 	/**
@@ -203,4 +263,44 @@ public class SarOutputStream extends OutputStream {
 		eofEntry.writeTo(this);
 	}
 
+	/**
+	 * Write the index of the entries: the number of entries, the name and the
+	 * offset of the header of each entry, followed by the offset of the index and
+	 * the index marker.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeIndex() throws IOException {
+		long indexOffset = countingStream.count;
+		dataOutputStream.writeInt(indexNames.size());
+		for (int i = 0; i < indexNames.size(); i++) {
+			writeString(indexNames.get(i));
+			dataOutputStream.writeLong(indexOffsets.get(i).longValue());
+		}
+		dataOutputStream.writeLong(indexOffset);
+		writeString(SarConstants.SARFILE_INDEX_MARKER);
+		dataOutputStream.flush();
+	}
+
+	/**
+	 * Counts the bytes written to the archive, the offsets of the index are based on it.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
 }
@@ -64,9 +64,21 @@ public class SarUtil {
 	 * @throws IOException
 	 */
 	public static void zipToSar(File zipFile, File sarFile) throws IOException {
+		zipToSar(zipFile, sarFile, SarConstants.SARFILE_VERSION);
+	}
+
+	/**
+	 * @param zipFile
+	 * @param sarFile
+	 * @param version
+	 *            the version of the sar, {@link SarConstants#SARFILE_VERSION_INDEXED}
+	 *            to read it as a {@link SarFile}
+	 * @throws IOException
+	 */
+	public static void zipToSar(File zipFile, File sarFile, int version) throws IOException {
 		InputStream zipInputStream = new BufferedInputStream(new FileInputStream(zipFile));
 		OutputStream sarOutputStream = new BufferedOutputStream(new FileOutputStream(sarFile));
-		SarUtil.zipToSar(zipInputStream, sarOutputStream);
+		SarUtil.zipToSar(zipInputStream, true, sarOutputStream, true, version);
 	}
 
 	/**
@@ -86,7 +98,20 @@ public class SarUtil {
 	 * @throws IOException
 	 */
 	public static void zipToSar(InputStream zippedInputStream, boolean closeIn, OutputStream saredOutputStream, boolean closeOut) throws IOException {
-		zipToSarNoClose(zippedInputStream, saredOutputStream);
+		zipToSar(zippedInputStream, closeIn, saredOutputStream, closeOut, SarConstants.SARFILE_VERSION);
+	}
+
+	/**
+	 * @param zippedInputStream
+	 * @param closeIn
+	 * @param saredOutputStream
+	 * @param closeOut
+	 * @param version
+	 *            the version of the sar
+	 * @throws IOException
+	 */
+	public static void zipToSar(InputStream zippedInputStream, boolean closeIn, OutputStream saredOutputStream, boolean closeOut, int version) throws IOException {
+		zipToSarNoClose(zippedInputStream, saredOutputStream, version);
 
 		if (closeIn)
 			zippedInputStream.close();
@@ -134,12 +159,13 @@ public class SarUtil {
 	/**
 	 * @param zippedInputStream
 	 * @param saredOutputStream
+	 * @param version
 	 * @throws IOException
 	 */
-	private static void zipToSarNoClose(InputStream zippedInputStream, OutputStream saredOutputStream) throws IOException {
+	private static void zipToSarNoClose(InputStream zippedInputStream, OutputStream saredOutputStream, int version) throws IOException {
 
 		ZipInputStream zipInputStream = new ZipInputStream(zippedInputStream);
-		SarOutputStream sarOutputStream = new SarOutputStream(saredOutputStream);
+		SarOutputStream sarOutputStream = new SarOutputStream(saredOutputStream, version);
 
 		ZipEntry zipEntry;
 		byte[] buf = new byte[BUFFER_SIZE];
@@ -148,7 +174,7 @@ public class SarUtil {
 			SarEntry sarEntry = new SarEntry(zipEntry, isZip);
 			sarOutputStream.putNextEntry(sarEntry);
 			if (isZip) {
-				zipToSarNoClose(zipInputStream, sarOutputStream);
+				zipToSarNoClose(zipInputStream, sarOutputStream, version);
 			} else {
 				int read;
 				while ((read = zipInputStream.read(buf)) != -1) {
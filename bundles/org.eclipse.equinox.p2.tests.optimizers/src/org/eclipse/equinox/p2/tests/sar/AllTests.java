@@ -22,6 +22,7 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(DirectByteArrayOutputStreamTest.class);
 		suite.addTestSuite(SarTest.class);
 		suite.addTestSuite(SarEntryTest.class);
+		suite.addTestSuite(SarFileTest.class);
 		return suite;
 	}
 
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.sar;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+import junit.framework.TestCase;
+import org.eclipse.equinox.internal.p2.sar.*;
+import org.eclipse.equinox.p2.tests.optimizers.TestData;
+
+/**
+ * Test the indexed sar archives.
+ */
+public class SarFileTest extends TestCase {
+
+	/**
+	 * @throws IOException
+	 */
+	public void testIndexedZipToSarAndBack() throws IOException {
+		File originalZipFile = TestData.getTempFile("sar", "test.zip");
+		File sarFile = TestData.createTempFile("test.sar");
+		File recreatedZipFile = TestData.createTempFile("test.zip");
+		File indexedSarFile = TestData.createTempFile("indexed.sar");
+		File indexedRecreatedZipFile = TestData.createTempFile("indexed.zip");
+
+		SarUtil.zipToSar(originalZipFile, sarFile);
+		SarUtil.sarToZip(sarFile, recreatedZipFile);
+		SarUtil.zipToSar(originalZipFile, indexedSarFile, SarConstants.SARFILE_VERSION_INDEXED);
+		SarUtil.sarToZip(indexedSarFile, indexedRecreatedZipFile);
+
+		// both versions hold the same entries
+		TestData.assertEquals(recreatedZipFile, indexedRecreatedZipFile);
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	public void testRandomAccess() throws IOException {
+		byte[] large = new byte[200 * 1024];
+		new Random(0).nextBytes(large);
+		ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		ZipOutputStream nestedZip = new ZipOutputStream(nested);
+		nestedZip.putNextEntry(new ZipEntry("nested.txt"));
+		nestedZip.write("nested".getBytes());
+		nestedZip.close();
+
+		String[] names = new String[] {"a.txt", "large.bin", "lib/nested.jar", "empty.txt", "z.txt"};
+		byte[][] contents = new byte[][] {"a".getBytes(), large, nested.toByteArray(), new byte[0], "z".getBytes()};
+		File zipFile = TestData.createTempFile("random.zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		for (int i = 0; i < names.length; i++) {
+			zip.putNextEntry(new ZipEntry(names[i]));
+			zip.write(contents[i]);
+			zip.closeEntry();
+		}
+		zip.close();
+
+		File sarFile = TestData.createTempFile("random.sar");
+		SarUtil.zipToSar(zipFile, sarFile, SarConstants.SARFILE_VERSION_INDEXED);
+
+		SarFile sar = new SarFile(sarFile);
+		try {
+			assertEquals(Arrays.asList(names), new ArrayList<String>(sar.getEntryNames()));
+			assertNull(sar.getEntry("missing.txt"));
+			assertNull(sar.getInputStream("missing.txt"));
+			// read backwards, each entry is found through the index
+			for (int i = names.length - 1; i >= 0; i--) {
+				SarEntry entry = sar.getEntry(names[i]);
+				assertEquals(names[i], entry.getName());
+				assertEquals(names[i].endsWith(".jar"), entry.isZip());
+				if (!entry.isZip())
+					assertTrue(names[i], Arrays.equals(contents[i], readFully(sar.getInputStream(names[i]))));
+			}
+
+			// the content of a zip entry is a nested sar
+			SarInputStream nestedSar = new SarInputStream(sar.getInputStream("lib/nested.jar"));
+			assertEquals("nested.txt", nestedSar.getNextEntry().getName());
+			assertEquals("nested", new String(readFully(nestedSar)));
+			assertNull(nestedSar.getNextEntry());
+
+			// streams of several entries can be read at once
+			InputStream first = sar.getInputStream("large.bin");
+			InputStream second = sar.getInputStream("large.bin");
+			byte[] buffer = new byte[1000];
+			assertEquals(buffer.length, first.read(buffer));
+			assertEquals(large[0], (byte) second.read());
+			assertEquals(large[buffer.length], (byte) first.read());
+			first.close();
+			second.close();
+		} finally {
+			sar.close();
+		}
+
+		// the indexed sar still reads sequentially, skipping the unread content
+		SarInputStream sarIn = new SarInputStream(new BufferedInputStream(new FileInputStream(sarFile)));
+		try {
+			for (int i = 0; i < names.length; i++)
+				assertEquals(names[i], sarIn.getNextEntry().getName());
+			assertNull(sarIn.getNextEntry());
+		} finally {
+			sarIn.close();
+		}
+	}
+
+	public void testNotIndexed() throws IOException {
+		File sarFile = TestData.createTempFile("test.sar");
+		SarUtil.zipToSar(TestData.getTempFile("sar", "test.zip"), sarFile);
+		try {
+			new SarFile(sarFile).close();
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1)
+			bytes.write(buffer, 0, read);
+		in.close();
+		return bytes.toByteArray();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2010 IBM Corporation and others.
+ *  Copyright (c) 2005, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -10,12 +10,16 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.tests.artifact.repository;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.util.Iterator;
+import java.io.*;
+import java.util.*;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
+import org.eclipse.equinox.internal.p2.artifact.repository.RawMirrorRequest;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumCalculator;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStepHandler;
 import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.Version;
 import org.eclipse.equinox.p2.query.IQueryResult;
@@ -62,6 +66,86 @@ public class MD5Tests extends AbstractProvisioningTest {
 		}
 	}
 
+	public void testLocalRawMirror() throws Exception {
+		IArtifactDescriptor feature = repo.getArtifactDescriptors(new ArtifactKey("org.eclipse.update.feature", "aaFeature", Version.create("1.0.0")))[0];
+
+		//local to local copies are handed to the file system, the MD5 is still verified
+		IArtifactRepository target = createArtifactRepository(new File(getTempFolder(), "good").toURI(), null);
+		RawMirrorRequest request = new RawMirrorRequest(feature, feature, target, getTransport());
+		request.perform(repo, new NullProgressMonitor());
+		assertOK("1.0", request.getResult());
+		assertTrue("1.1", target.contains(feature));
+		File copy = ((IFileArtifactRepository) target).getArtifactFile(feature);
+		assertEquals("1.2", 670, copy.length());
+		assertEquals("1.3", "670", target.getArtifactDescriptors(feature.getArtifactKey())[0].getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+
+		ArtifactDescriptor corrupt = new ArtifactDescriptor(feature);
+		corrupt.setProperty(IArtifactDescriptor.DOWNLOAD_MD5, "8eb801058775b83c00ca37082ce57b40");
+		target = createArtifactRepository(new File(getTempFolder(), "bad").toURI(), null);
+		request = new RawMirrorRequest(corrupt, corrupt, target, getTransport());
+		request.perform(repo, new NullProgressMonitor());
+		assertNotOK("2.0", request.getResult());
+		assertFalse("2.1", target.contains(corrupt));
+	}
+
+	public void testChecksumVerifier() throws IOException {
+		Map<String, String> expected = new LinkedHashMap<String, String>();
+		expected.put(ChecksumCalculator.SHA_256, "532eaabd9574880dbf76b9b8cc00832c20a6ec113d682299550d7a6e0f345e25");
+		expected.put(ChecksumCalculator.MD5, "0CBC6611F5540BD0809A388DC95A615B");
+		ChecksumVerifier verifier = new ChecksumVerifier(expected);
+		ByteArrayOutputStream result = new ByteArrayOutputStream(10);
+		OutputStream stream = new ProcessingStepHandler().link(new ProcessingStep[] {verifier}, result, new NullProgressMonitor());
+		stream.write("Test".getBytes());
+		stream.close();
+		assertEquals("1.0", "Test", result.toString());
+		assertOK("1.1", verifier.getStatus());
+
+		// a single wrong checksum fails the verification
+		expected.put(ChecksumCalculator.SHA_1, "0000000000000000000000000000000000000000");
+		verifier = new ChecksumVerifier(expected);
+		stream = new ProcessingStepHandler().link(new ProcessingStep[] {verifier}, new ByteArrayOutputStream(10), new NullProgressMonitor());
+		stream.write("Test".getBytes());
+		stream.close();
+		assertEquals("2.0", IStatus.ERROR, verifier.getStatus().getSeverity());
+		assertEquals("2.1", ProvisionException.ARTIFACT_CHECKSUM_NOT_MATCH, verifier.getStatus().getCode());
+
+		// a wrong MD5 keeps the code of the MD5 verifier
+		expected.put(ChecksumCalculator.SHA_1, "640ab2bae07bedc4c163f679a746f7ab7fb5d1fa");
+		expected.put(ChecksumCalculator.MD5, "00000000000000000000000000000000");
+		verifier = new ChecksumVerifier(expected);
+		stream = new ProcessingStepHandler().link(new ProcessingStep[] {verifier}, new ByteArrayOutputStream(10), new NullProgressMonitor());
+		stream.write("Test".getBytes());
+		stream.close();
+		assertEquals("2.2", IStatus.ERROR, verifier.getStatus().getSeverity());
+		assertEquals("2.3", ProvisionException.ARTIFACT_MD5_NOT_MATCH, verifier.getStatus().getCode());
+
+		expected.put(ChecksumCalculator.SHA_1, "not a checksum");
+		assertEquals("3.0", IStatus.ERROR, new ChecksumVerifier(expected).getStatus().getSeverity());
+	}
+
+	public void testComputeChecksums() throws IOException {
+		File file = new File(getTempFolder(), "test.txt");
+		writeBuffer(file, new StringBuffer("Test"));
+		Map<String, String> checksums = ChecksumCalculator.computeChecksums(file, new String[] {ChecksumCalculator.MD5, ChecksumCalculator.SHA_256});
+		assertEquals("1.0", "0cbc6611f5540bd0809a388dc95a615b", checksums.get(ChecksumCalculator.MD5));
+		assertEquals("1.1", "532eaabd9574880dbf76b9b8cc00832c20a6ec113d682299550d7a6e0f345e25", checksums.get(ChecksumCalculator.SHA_256));
+		assertEquals("1.2", IArtifactDescriptor.DOWNLOAD_MD5, ChecksumCalculator.getDownloadProperty(ChecksumCalculator.MD5));
+		assertEquals("1.3", "download.checksum.sha-256", ChecksumCalculator.getDownloadProperty(ChecksumCalculator.SHA_256));
+	}
+
+	public void testLocalRawMirrorOtherChecksum() throws Exception {
+		IArtifactDescriptor feature = repo.getArtifactDescriptors(new ArtifactKey("org.eclipse.update.feature", "aaFeature", Version.create("1.0.0")))[0];
+
+		//checksums other than MD5 are verified as well
+		ArtifactDescriptor corrupt = new ArtifactDescriptor(feature);
+		corrupt.setProperty(ChecksumCalculator.getDownloadProperty(ChecksumCalculator.SHA_256), "532eaabd9574880dbf76b9b8cc00832c20a6ec113d682299550d7a6e0f345e25");
+		IArtifactRepository target = createArtifactRepository(new File(getTempFolder(), "bad").toURI(), null);
+		RawMirrorRequest request = new RawMirrorRequest(corrupt, corrupt, target, getTransport());
+		request.perform(repo, new NullProgressMonitor());
+		assertNotOK("1.0", request.getResult());
+		assertFalse("1.1", target.contains(corrupt));
+	}
+
 	protected void tearDown() throws Exception {
 		getArtifactRepositoryManager().removeRepository(testRepo.toURI());
 		super.tearDown();
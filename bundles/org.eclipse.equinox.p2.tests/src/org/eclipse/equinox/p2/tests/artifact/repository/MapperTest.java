@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.artifact.repository;
+
+import java.net.URI;
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.Mapper;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+import org.eclipse.equinox.p2.tests.TestActivator;
+
+public class MapperTest extends AbstractProvisioningTest {
+	private static final String[][] RULES = {{"(& (classifier=osgi.bundle) (format=packed))", "${repoUrl}/plugins/${id}_${version}.jar.pack.gz"}, //
+			{"(& (classifier=osgi.bundle))", "${repoUrl}/plugins/${id}_${version}.jar"}, //
+			{"(classifier=binary)", "${repoUrl}/binary/${ID}_${version}${unknown}"}, //
+			{"(& (classifier=org.eclipse.*) (format=packed))", "${repoUrl}/features/${id}_${version}.jar.pack.gz"}, //
+			{"(| (classifier=other) (id=other))", "${repoUrl}/other/${id}_${version"}};
+
+	private Mapper mapper;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		mapper = new Mapper();
+		mapper.initialize(TestActivator.getContext(), RULES);
+	}
+
+	public void testEqualityRules() throws Exception {
+		URI repo = new URI("file:/tmp/repo");
+		assertEquals("1.0", new URI("file:/tmp/repo/plugins/a_1.0.0.jar.pack.gz"), mapper.map(repo, "osgi.bundle", "a", "1.0.0", "packed"));
+		assertEquals("1.1", new URI("file:/tmp/repo/plugins/a_1.0.0.jar"), mapper.map(repo, "osgi.bundle", "a", "1.0.0", null));
+		assertEquals("1.2", new URI("file:/tmp/repo/plugins/a_1.0.0.jar"), mapper.map(repo, "osgi.bundle", "a", "1.0.0", "other"));
+		assertEquals("1.3", new URI("file:/tmp/repo/binary/a_1.0.0"), mapper.map(repo, "binary", "a", "1.0.0", null));
+		assertNull("1.4", mapper.map(repo, "unknown", "a", "1.0.0", null));
+		// the result is cached, a second lookup must give the same answer
+		assertEquals("1.5", new URI("file:/tmp/repo/plugins/a_1.0.0.jar"), mapper.map(repo, "osgi.bundle", "a", "1.0.0", null));
+		assertEquals("1.6", new URI("file:/tmp/other/plugins/a_1.0.0.jar"), mapper.map(new URI("file:/tmp/other"), "osgi.bundle", "a", "1.0.0", null));
+	}
+
+	public void testOtherRules() throws Exception {
+		URI repo = new URI("file:/tmp/repo/");
+		assertEquals("1.0", new URI("file:/tmp/repo/features/f_1.0.0.jar.pack.gz"), mapper.map(repo, "org.eclipse.update.feature", "f", "1.0.0", "packed"));
+		assertNull("1.1", mapper.map(repo, "org.eclipse.update.feature", "f", "1.0.0", null));
+		// an unterminated variable leaves the output string as it is
+		assertEquals("1.2", URIUtil.fromString("${repoUrl}/other/${id}_${version"), mapper.map(repo, "x", "other", "1.0.0", null));
+		assertEquals("1.3", new URI("file:/tmp/repo/binary/a_1.0.0"), mapper.map(repo, "binary", "a", "1.0.0", null));
+	}
+
+	public void testEncodedLocation() throws Exception {
+		URI repo = new URI("file:/tmp/a%20b");
+		assertEquals("1.0", new URI("file:/tmp/a%20b/plugins/a%20b_1.0.0.jar"), mapper.map(repo, "osgi.bundle", "a b", "1.0.0", null));
+	}
+}
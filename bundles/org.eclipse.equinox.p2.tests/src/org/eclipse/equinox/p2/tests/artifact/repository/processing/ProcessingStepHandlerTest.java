@@ -124,6 +124,50 @@ public class ProcessingStepHandlerTest extends AbstractProvisioningTest {
 		assertTrue(Arrays.equals(new byte[] {3, 5, 7, 9, 11}, result.toByteArray()));
 	}
 
+	public void testPipelinedPSs() throws IOException {
+		handler.setPipelined(true);
+		ProcessingStep[] steps = new ProcessingStep[] {new Adder(1), new Multiplier(2)};
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		OutputStream testStream = handler.link(steps, result, monitor);
+		byte[] data = new byte[300000];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (i % 100);
+		testStream.write(data[0]);
+		testStream.write(data, 1, data.length - 1);
+		testStream.close();
+		byte[] expected = new byte[data.length];
+		for (int i = 0; i < data.length; i++)
+			expected[i] = (byte) ((data[i] + 1) * 2);
+		assertTrue(Arrays.equals(expected, result.toByteArray()));
+		assertTrue(ProcessingStepHandler.getStatus(testStream, true).isOK());
+	}
+
+	public void testPipelinedPSFailure() {
+		handler.setPipelined(true);
+		ProcessingStep failing = new ProcessingStep() {
+			public void write(int b) throws IOException {
+				throw new IOException("failing step");
+			}
+		};
+		OutputStream testStream = handler.link(new ProcessingStep[] {new Adder(1), failing}, new ByteArrayOutputStream(), monitor);
+		IOException failure = null;
+		try {
+			// more than the hand over can queue, the writes must not block once the step failed
+			for (int i = 0; i < 100; i++)
+				testStream.write(new byte[64 * 1024]);
+		} catch (IOException e) {
+			failure = e;
+		}
+		try {
+			testStream.close();
+		} catch (IOException e) {
+			if (failure == null)
+				failure = e;
+		}
+		assertNotNull("1.0", failure);
+		assertEquals("1.1", "failing step", failure.getMessage());
+	}
+
 	public void testExecuteOnePack200UnpackerPS() throws IOException {
 		//this test is only applicable if pack200 is available
 		if (!PackStep.canPack())
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2010 IBM Corporation and others.
+ *  Copyright (c) 2005, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -11,8 +11,12 @@
 package org.eclipse.equinox.p2.tests.jarprocessor;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.jar.*;
+import java.util.zip.*;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.equinox.internal.p2.jarprocessor.PackStep;
+import org.eclipse.equinox.internal.p2.jarprocessor.*;
 import org.eclipse.equinox.internal.p2.jarprocessor.verifier.Verifier;
 import org.eclipse.equinox.internal.p2.jarprocessor.verifier.VerifyStep;
 import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
@@ -125,4 +129,269 @@ public class JarProcessorTests extends AbstractProvisioningTest {
 			newOut.close();
 		}
 	}
+
+	public void testInProcessPackUnpackVerify() throws Exception {
+		String oldProperty = System.getProperty(Utils.PACK200_PROPERTY);
+		System.setProperty(Utils.PACK200_PROPERTY, Utils.IN_PROCESS);
+		resetCommands();
+		try {
+			if (!PackStep.canPack() || !UnpackStep.canUnpack() || !VerifyStep.canVerify())
+				return;
+
+			File workingDir = getTestFolder("testInProcessPackUnpackVerify");
+			File input = new File(workingDir, "in");
+			File packed = new File(workingDir, "packed");
+			File unpacked = new File(workingDir, "unpacked");
+			input.mkdirs();
+			String[] names = new String[] {"META-INF/MANIFEST.MF", "plugin.xml", "a/b.txt", "empty.txt"};
+			byte[][] contents = new byte[][] {"Manifest-Version: 1.0\r\n\r\n".getBytes(), "<plugin/>".getBytes(), "text text text".getBytes(), new byte[0]};
+			writeJar(new File(input, "a.jar"), names, contents);
+
+			PrintStream oldOut = System.out;
+			PrintStream newOut = new PrintStream(new FileOutputStream(workingDir + "/out.out"));
+			ByteArrayOutputStream verifyOut = new ByteArrayOutputStream();
+			try {
+				System.setOut(newOut);
+				Options options = new Options();
+				options.pack = true;
+				options.outputDir = packed.getAbsolutePath();
+				options.input = input;
+				new JarProcessorExecutor().runJarProcessor(options);
+				assertTrue("1.0", new File(packed, "a.jar" + Utils.PACKED_SUFFIX).exists());
+
+				options = new Options();
+				options.unpack = true;
+				options.outputDir = unpacked.getAbsolutePath();
+				options.input = packed;
+				new JarProcessorExecutor().runJarProcessor(options);
+
+				System.setOut(new PrintStream(verifyOut));
+				File result = new File(unpacked, "a.jar");
+				assertEquals("2.0", result, new VerifyStep(new Properties(), false).postProcess(result, workingDir, Collections.<Properties> emptyList()));
+			} finally {
+				System.setOut(oldOut);
+				newOut.close();
+			}
+			// the verification is done through the JarFile API rather than by jarsigner
+			assertEquals("2.1", "Verifying a.jar:  jar is unsigned.", verifyOut.toString().trim());
+
+			JarFile jar = new JarFile(new File(unpacked, "a.jar"));
+			try {
+				for (int i = 0; i < names.length; i++) {
+					JarEntry entry = jar.getJarEntry(names[i]);
+					assertNotNull("3.0 " + names[i], entry);
+					assertTrue("3.1 " + names[i], Arrays.equals(contents[i], readFully(jar.getInputStream(entry))));
+				}
+			} finally {
+				jar.close();
+			}
+		} finally {
+			if (oldProperty == null)
+				System.clearProperty(Utils.PACK200_PROPERTY);
+			else
+				System.setProperty(Utils.PACK200_PROPERTY, oldProperty);
+			resetCommands();
+		}
+	}
+
+	/*
+	 * The steps look up their commands once, they have to look them up again when the selector changes.
+	 */
+	private static void resetCommands() throws Exception {
+		Class<?>[] steps = new Class<?>[] {PackStep.class, UnpackStep.class, VerifyStep.class};
+		String[] fields = new String[] {"canPack", "canUnpack", "canVerify"};
+		for (int i = 0; i < steps.length; i++) {
+			Field field = steps[i].getDeclaredField(fields[i]);
+			field.setAccessible(true);
+			field.set(null, null);
+		}
+	}
+
+	public void testConcurrentProcessing() throws Exception {
+		File workingDir = getTestFolder("testConcurrentProcessing");
+		File input = new File(workingDir, "in");
+		File output = new File(workingDir, "out");
+		input.mkdirs();
+		for (int i = 0; i < 6; i++) {
+			// nested jars of the same name in different folders must not share their temporary folders
+			byte[] nested = createJar(new String[] {"a.txt", "b.jar"}, new byte[][] {("text " + i).getBytes(), createJar(new String[] {"c.txt"}, new byte[][] {"c".getBytes()})});
+			writeJar(new File(input, "outer" + i + ".jar"), new String[] {"lib/nested.jar", "other/nested.jar", "plugin.xml"}, new byte[][] {nested, nested, "<plugin/>".getBytes()});
+		}
+
+		final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+		final IProcessStep recorder = new IProcessStep() {
+			public String recursionEffect(String entryName) {
+				return entryName.endsWith(".jar") ? entryName : null;
+			}
+
+			public File preProcess(File file, File workingDirectory, List<Properties> containers) {
+				return null;
+			}
+
+			public File postProcess(File file, File workingDirectory, List<Properties> containers) {
+				processed.add(file.getName() + " " + containers.size());
+				return file;
+			}
+
+			public String getStepName() {
+				return "Record";
+			}
+
+			public boolean adjustInf(File file, Properties inf, List<Properties> containers) {
+				return false;
+			}
+		};
+
+		Options options = new Options();
+		options.signCommand = "record";
+		options.processAll = true;
+		options.threads = 3;
+		options.outputDir = output.getAbsolutePath();
+		options.input = input;
+		new JarProcessorExecutor() {
+			public void addSignStep(JarProcessor processor, Properties properties, Options processOptions) {
+				processor.addProcessStep(recorder);
+			}
+		}.runJarProcessor(options);
+
+		assertEquals("1.0", 6 * (1 + 2 + 2), processed.size());
+		for (int i = 0; i < 6; i++) {
+			assertTrue("1.1." + i, processed.contains("outer" + i + ".jar 0"));
+			File result = new File(output, "outer" + i + ".jar");
+			assertTrue("1.2." + i, result.exists());
+			JarFile jar = new JarFile(result);
+			try {
+				assertNotNull("1.3." + i, jar.getEntry("lib/nested.jar"));
+				assertNotNull("1.4." + i, jar.getEntry("other/nested.jar"));
+				assertNotNull("1.5." + i, jar.getEntry("plugin.xml"));
+			} finally {
+				jar.close();
+			}
+		}
+		assertEquals("2.0", 6 * 2, Collections.frequency(processed, "nested.jar 1"));
+		assertEquals("2.1", 6 * 2, Collections.frequency(processed, "b.jar 2"));
+		String[] left = output.list();
+		assertEquals("3.0", 6, left.length);
+	}
+
+	public void testStreamZip() throws Exception {
+		File workingDir = getTestFolder("testStreamZip");
+		File input = new File(workingDir, "feature.zip");
+		File output = new File(workingDir, "out");
+		byte[] marked = createJar(new String[] {"META-INF/eclipse.inf", "a.txt"}, new byte[][] {"pack200.conditioned = true".getBytes(), "marked".getBytes()});
+		byte[] unmarked = createJar(new String[] {"a.txt"}, new byte[][] {"unmarked".getBytes()});
+		String[] names = new String[] {"plugins/marked.jar", "plugins/unmarked.jar", "readme.txt", "stored.txt", "caf\u00e9.txt"};
+		byte[][] contents = new byte[][] {marked, unmarked, "readme readme readme".getBytes(), "stored".getBytes(), "accent".getBytes()};
+		ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(input));
+		for (int i = 0; i < names.length; i++) {
+			ZipEntry entry = new ZipEntry(names[i]);
+			if (names[i].equals("stored.txt")) {
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(contents[i].length);
+				CRC32 crc = new CRC32();
+				crc.update(contents[i]);
+				entry.setCrc(crc.getValue());
+			}
+			zipOut.putNextEntry(entry);
+			zipOut.write(contents[i]);
+			zipOut.closeEntry();
+		}
+		zipOut.close();
+
+		final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+		Options options = new Options();
+		options.signCommand = "record";
+		options.stream = true;
+		options.outputDir = output.getAbsolutePath();
+		options.input = input;
+		new JarProcessorExecutor() {
+			public void addSignStep(JarProcessor processor, Properties properties, Options processOptions) {
+				processor.addProcessStep(new IProcessStep() {
+					public String recursionEffect(String entryName) {
+						return null;
+					}
+
+					public File preProcess(File file, File workingDirectory, List<Properties> containers) {
+						return null;
+					}
+
+					public File postProcess(File file, File workingDirectory, List<Properties> containers) {
+						processed.add(file.getName());
+						return file;
+					}
+
+					public String getStepName() {
+						return "Record";
+					}
+
+					public boolean adjustInf(File file, Properties inf, List<Properties> containers) {
+						return false;
+					}
+				});
+			}
+		}.runJarProcessor(options);
+
+		// the jar that is not marked is skipped without being extracted
+		assertEquals("1.0", Collections.singletonList("marked.jar"), processed);
+
+		File result = new File(output, "feature.zip");
+		ZipFile zip = new ZipFile(result);
+		try {
+			for (int i = 0; i < names.length; i++) {
+				ZipEntry entry = zip.getEntry(names[i]);
+				assertNotNull("2.0 " + names[i], entry);
+				if (!names[i].equals("plugins/marked.jar"))
+					assertTrue("2.1 " + names[i], Arrays.equals(contents[i], readFully(zip.getInputStream(entry))));
+			}
+			assertEquals("2.2", ZipEntry.STORED, zip.getEntry("stored.txt").getMethod());
+			JarInputStream jar = new JarInputStream(zip.getInputStream(zip.getEntry("plugins/marked.jar")));
+			assertEquals("2.3", "META-INF/eclipse.inf", jar.getNextEntry().getName());
+			jar.close();
+		} finally {
+			zip.close();
+		}
+
+		// the local headers must be consistent too
+		ZipInputStream in = new ZipInputStream(new FileInputStream(result));
+		try {
+			int count = 0;
+			for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+				readFully(in);
+				count++;
+			}
+			assertEquals("3.0", names.length, count);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1)
+			bytes.write(buffer, 0, read);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] createJar(String[] names, byte[][] contents) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream out = new JarOutputStream(bytes);
+		for (int i = 0; i < names.length; i++) {
+			out.putNextEntry(new JarEntry(names[i]));
+			out.write(contents[i]);
+			out.closeEntry();
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static void writeJar(File file, String[] names, byte[][] contents) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(createJar(names, contents));
+		} finally {
+			out.close();
+		}
+	}
 }
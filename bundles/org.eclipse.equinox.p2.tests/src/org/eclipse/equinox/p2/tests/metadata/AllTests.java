@@ -21,12 +21,14 @@ public class AllTests extends TestCase {
 	public static Test suite() {
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		suite.addTestSuite(ArtifactKeyParsingTest.class);
+		suite.addTestSuite(CapabilityMatcherTest.class);
 		suite.addTestSuite(FragmentMethodTest.class);
 		suite.addTestSuite(FragmentTest.class);
 		suite.addTestSuite(InstallableUnitTest.class);
 		suite.addTestSuite(IUPersistenceTest.class);
 		suite.addTestSuite(LatestIUTest.class);
 		suite.addTestSuite(LicenseTest.class);
+		suite.addTestSuite(MetadataPoolsTest.class);
 		suite.addTestSuite(MultipleIUAndFragmentTest.class);
 		suite.addTestSuite(PersistNegation.class);
 		suite.addTestSuite(PersistFragment.class);
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.metadata;
+
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+/**
+ * Tests that requirements match installable units without evaluating their match
+ * expression exactly as the expression does, and the parsing of the range texts.
+ */
+public class CapabilityMatcherTest extends AbstractProvisioningTest {
+	private static final String[] RANGES = {"", "1.0.0", "[1.0.0,2.0.0)", "(1.0.0,2.0.0]", "[1.0.0,2.0.0]", "(1.0.0,2.0.0)", "[1.0.0,1.0.0]", "(1.0.0,3.0.0.zzz)", "raw:[1.0.0,2.0.0)", "raw:(1.0.0,M]"};
+	private static final String[] VERSIONS = {"0.0.0", "0.9.0", "1.0.0", "1.0.0.v2017", "1.5.0", "2.0.0", "2.0.0.a", "3.0.0.zzz", "raw:1.0.0.'a'", "raw:1.5", "raw:M"};
+
+	public void testSameResultAsExpression() {
+		IExpressionFactory factory = ExpressionUtil.getFactory();
+		for (int r = 0; r < RANGES.length; r++) {
+			IRequirement requirement = MetadataFactory.createRequirement("ns", "name", new VersionRange(RANGES[r]), null, false, false);
+			IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+			// the parsed expression is equal but not the same, it is evaluated
+			IMatchExpression<IInstallableUnit> evaluated = factory.matchExpression(ExpressionUtil.parse(matches.toString()), matches.getParameters());
+			assertEquals(RANGES[r], matches, evaluated);
+			for (int v = 0; v < VERSIONS.length; v++) {
+				Version version = Version.create(VERSIONS[v]);
+				IInstallableUnit iu = createIU("iu", Version.createOSGi(1, 0, 0), new IProvidedCapability[] {MetadataFactory.createProvidedCapability("other", "name", version), MetadataFactory.createProvidedCapability("ns", "name", version)});
+				String message = VERSIONS[v] + " in " + RANGES[r];
+				boolean expected = evaluated.isMatch(iu);
+				assertEquals(message, expected, matches.isMatch(iu));
+				assertEquals(message, expected, requirement.isMatch(iu));
+				assertEquals(message, expected, iu.satisfies(requirement));
+				assertEquals(message, RANGES[r].length() == 0 || new VersionRange(RANGES[r]).isIncluded(version), expected);
+			}
+			IInstallableUnit other = createIU("iu", Version.createOSGi(1, 0, 0), new IProvidedCapability[] {MetadataFactory.createProvidedCapability("ns", "otherName", Version.createOSGi(1, 0, 0))});
+			assertFalse(RANGES[r], requirement.isMatch(other));
+		}
+	}
+
+	public void testParseVersionRange() {
+		VersionRange range = MetadataPools.parseVersionRange("[1.0.0,2.0.0)");
+		assertEquals(new VersionRange("[1.0.0,2.0.0)"), range);
+		if (MetadataPools.ENABLED)
+			assertSame(range, MetadataPools.parseVersionRange(new String("[1.0.0,2.0.0)")));
+		assertEquals(VersionRange.emptyRange, MetadataPools.parseVersionRange(null));
+		assertEquals("raw:[1.0.0,2.0.0)", MetadataPools.parseVersionRange("raw:[1.0.0,2.0.0)").toString());
+		try {
+			MetadataPools.parseVersionRange("[2.0.0,1.0.0)");
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
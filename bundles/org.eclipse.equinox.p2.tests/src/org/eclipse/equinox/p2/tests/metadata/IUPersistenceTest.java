@@ -121,7 +121,11 @@ public class IUPersistenceTest extends AbstractProvisioningTest {
 	class IUStringWriter extends MetadataWriter {
 
 		public IUStringWriter(ByteArrayOutputStream stream) throws IOException {
-			super(stream, new ProcessingInstruction[] {ProcessingInstruction.makeTargetVersionInstruction(IU_TEST_TARGET, IU_TEST_VERSION)});
+			this(stream, true);
+		}
+
+		public IUStringWriter(ByteArrayOutputStream stream, boolean indent) throws IOException {
+			super(stream, new ProcessingInstruction[] {ProcessingInstruction.makeTargetVersionInstruction(IU_TEST_TARGET, IU_TEST_VERSION)}, indent);
 		}
 
 		public void writeTest(IInstallableUnit iu) {
@@ -404,6 +408,39 @@ public class IUPersistenceTest extends AbstractProvisioningTest {
 		assertTrue("Installable unit write after read after write produced different XML", iuText1.equals(iuText0));
 	}
 
+	public void testEscapedPropertiesPersistence() throws IOException {
+		MetadataFactory.InstallableUnitDescription description = new MetadataFactory.InstallableUnitDescription();
+		description.setId(id);
+		description.setVersion(version);
+		String[] values = new String[] {"<a href='x'>\"R&D\"</a>", "tab\tline\nreturn\rend\r", "caf\u00e9 \u20ac \ud83d\ude00", "", "plain"};
+		for (int i = 0; i < values.length; i++)
+			description.setProperty("key" + i, values[i]);
+		// longer than the buffer of the writer, with characters to escape across its boundaries
+		StringBuffer longValue = new StringBuffer();
+		for (int i = 0; i < 5000; i++)
+			longValue.append("&\u00e9\ud83d\ude00").append(i);
+		description.setProperty("long", longValue.toString());
+		IInstallableUnit iu0 = MetadataFactory.createInstallableUnit(description);
+
+		for (int indent = 0; indent < 2; indent++) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			new IUStringWriter(output, indent == 1).writeTest(iu0);
+			String iuText = output.toString("UTF-8");
+			assertEquals("1.0", indent == 1, iuText.indexOf("  <") >= 0);
+			assertTrue("1.0.1", iuText.indexOf("return&#xD;end&#xD;") >= 0);
+			assertTrue("1.0.2", iuText.indexOf("\ud83d\ude00") >= 0);
+
+			IUStringParser parser = new IUStringParser(TestActivator.context, TestActivator.PI_PROV_TESTS);
+			parser.parse(iuText);
+			assertTrue("Error parsing test iu: " + parser.getStatus().getMessage(), parser.getStatus().isOK());
+			IInstallableUnit iu1 = (IInstallableUnit) parser.getRootObject();
+			// the parser trims the values of the attributes
+			for (int i = 0; i < values.length; i++)
+				assertEquals("1.1." + i, values[i].trim(), iu1.getProperty("key" + i));
+			assertEquals("1.2", longValue.toString(), iu1.getProperty("long"));
+		}
+	}
+
 	private void validateIU(IInstallableUnit iu) {
 		assertTrue("Installable unit id is not correct", id.equals(iu.getId()));
 		assertTrue("Installable unit version is not correct", version.equals(iu.getVersion()));
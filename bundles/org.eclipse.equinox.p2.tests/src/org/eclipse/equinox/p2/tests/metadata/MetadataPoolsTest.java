@@ -0,0 +1,82 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 agent and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.metadata;
+
+import org.eclipse.equinox.internal.p2.core.helpers.ShardedWeakPool;
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+/**
+ * Tests the sharing of metadata objects through {@link MetadataPools}.
+ */
+public class MetadataPoolsTest extends AbstractProvisioningTest {
+
+	public void testShardedWeakPool() {
+		ShardedWeakPool<String> pool = new ShardedWeakPool<String>("test", 4, 1);
+		String first = new String("a");
+		assertSame("1.0", first, pool.add(first));
+		assertSame("1.1", first, pool.add(new String("a")));
+		assertNull("1.2", pool.add(null));
+		assertEquals("1.3", 1, pool.getHits());
+		assertEquals("1.4", 1, pool.getMisses());
+
+		// the pool never holds more than its capacity
+		for (int i = 0; i < 10; i++)
+			pool.add("value" + i);
+		assertTrue("2.0", pool.size() <= 4);
+		assertTrue("2.1", pool.getEvictions() > 0);
+
+		pool.clear();
+		assertEquals("3.0", 0, pool.size());
+		assertEquals("3.1", 0, pool.getHits());
+	}
+
+	public void testSharedVersions() {
+		if (!MetadataPools.ENABLED)
+			return;
+		Version version = Version.create("1.2.3.qualifier");
+		assertSame("1.0", version, Version.create("1.2.3.qualifier"));
+		assertSame("1.1", version, Version.parseVersion(" 1.2.3.qualifier "));
+		assertSame("1.2", version, new VersionRange("[1.2.3.qualifier,2.0.0)").getMinimum());
+
+		// a raw version is equal to the OSGi one but does not print the same
+		Version raw = Version.create("raw:1.2.3.'qualifier'");
+		assertEquals("2.0", version, raw);
+		assertNotSame("2.1", version, raw);
+		assertEquals("2.2", "raw:1.2.3.'qualifier'", raw.toString());
+		assertEquals("2.3", "1.2.3.qualifier", Version.create("1.2.3.qualifier").toString());
+	}
+
+	public void testSharedCapabilitiesAndRequirements() {
+		if (!MetadataPools.ENABLED)
+			return;
+		IProvidedCapability capability = MetadataFactory.createProvidedCapability("ns", "name", Version.create("1.0.0"));
+		assertSame("1.0", capability, MetadataFactory.createProvidedCapability(new String("ns"), new String("name"), Version.create("1.0.0")));
+
+		VersionRange range = new VersionRange("[1.0.0,2.0.0)");
+		IRequirement requirement = MetadataFactory.createRequirement("ns", "name", range, null, false, false);
+		assertSame("2.0", requirement, MetadataFactory.createRequirement("ns", "name", new VersionRange("[1.0.0,2.0.0)"), null, false, false));
+		assertNotSame("2.1", requirement, MetadataFactory.createRequirement("ns", "name", range, null, true, false));
+
+		// requirements are equal regardless of their description
+		IRequirement described = MetadataFactory.createRequirement("ns", "name", range, null, 1, 1, true, "description");
+		assertEquals("3.0", requirement, described);
+		assertEquals("3.1", "description", described.getDescription());
+		assertNull("3.2", requirement.getDescription());
+		assertNull("3.3", MetadataFactory.createRequirement("ns", "name", range, null, 1, 1, true, null).getDescription());
+
+		// raw ranges are not shared with the OSGi ones
+		IRequirement raw = MetadataFactory.createRequirement("ns", "name", new VersionRange("raw:[1.0.0,2.0.0)"), null, false, false);
+		assertNotSame("4.0", requirement, raw);
+		assertTrue("4.1", raw.toString().indexOf("raw:") != -1);
+	}
+}
@@ -257,6 +257,43 @@ public class LocalMetadataRepositoryTest extends AbstractProvisioningTest {
 		}
 	}
 
+	/**
+	 * Tests loading a repository that is large enough for its units to be built on several threads.
+	 */
+	public void testLoadLargeRepository() throws ProvisionException {
+		IMetadataRepositoryManager manager = getMetadataRepositoryManager();
+		Map properties = new HashMap();
+		properties.put(IRepository.PROP_COMPRESSED, "false");
+		URI repoURI = repoLocation.toURI();
+		IMetadataRepository repo = manager.createRepository(repoURI, "testLoadLargeRepository", IMetadataRepositoryManager.TYPE_SIMPLE_REPOSITORY, properties);
+
+		final int count = 1500;
+		List<IInstallableUnit> units = new ArrayList<IInstallableUnit>(count);
+		for (int i = 0; i < count; i++) {
+			InstallableUnitDescription descriptor = new MetadataFactory.InstallableUnitDescription();
+			descriptor.setId("iu" + i);
+			descriptor.setVersion(Version.createOSGi(1, 0, i));
+			descriptor.setFilter("(osgi.os=os" + (i % 7) + ")");
+			descriptor.setProperty(TEST_KEY, TEST_VALUE + i);
+			descriptor.setCapabilities(new IProvidedCapability[] {MetadataFactory.createProvidedCapability(IInstallableUnit.NAMESPACE_IU_ID, "iu" + i, descriptor.getVersion())});
+			if (i > 0)
+				descriptor.setRequirements(new IRequirement[] {MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "iu" + (i - 1), VersionRange.emptyRange, "(osgi.ws=ws" + (i % 3) + ")", false, false, true)});
+			units.add(MetadataFactory.createInstallableUnit(descriptor));
+		}
+		repo.addInstallableUnits(units);
+
+		manager.removeRepository(repoURI);
+		repo = manager.loadRepository(repoURI, null);
+		IQueryResult<IInstallableUnit> result = repo.query(QueryUtil.createIUAnyQuery(), getMonitor());
+		assertEquals("1.0", count, queryResultSize(result));
+		for (IInstallableUnit original : units) {
+			IInstallableUnit loaded = repo.query(QueryUtil.createIUQuery(original.getId(), original.getVersion()), getMonitor()).iterator().next();
+			assertEquals("1.1 " + original.getId(), original.getFilter(), loaded.getFilter());
+			assertEquals("1.2 " + original.getId(), original.getProperty(TEST_KEY), loaded.getProperty(TEST_KEY));
+			assertEquals("1.3 " + original.getId(), original.getRequirements(), loaded.getRequirements());
+		}
+	}
+
 	public void testUniqueURIs() throws ProvisionException, OperationCanceledException {
 		// The test data bug 278668 has multiple installable units with the same license uri
 		IMetadataRepository repo = getMetadataRepositoryManager().loadRepository(getTestData("test data bug 278668", "testData/bug278668").toURI(), null);
@@ -21,8 +21,11 @@ import org.eclipse.equinox.internal.p2.artifact.repository.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
 import org.eclipse.equinox.internal.p2.core.helpers.ServiceHelper;
+import org.eclipse.equinox.internal.p2.repository.Transport;
 import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.internal.repository.comparator.MD5ArtifactComparator;
+import org.eclipse.equinox.p2.internal.repository.mirroring.MirrorJournal;
+import org.eclipse.equinox.p2.internal.repository.mirroring.ResumableMirrorRequest;
 import org.eclipse.equinox.p2.internal.repository.tools.MirrorApplication;
 import org.eclipse.equinox.p2.internal.repository.tools.RepositoryDescriptor;
 import org.eclipse.equinox.p2.metadata.IArtifactKey;
@@ -1116,6 +1119,192 @@ public class NewMirrorApplicationArtifactTest extends AbstractProvisioningTest {
 		}
 	}
 
+	/**
+	 * Tests mirroring with several workers and a per host connection limit
+	 */
+	@Test
+	public void testArtifactMirrorWithThreads() {
+		PrintStream out = System.out;
+		try {
+			System.setOut(new PrintStream(new StringBufferStream()));
+			MirrorApplication app = new MirrorApplication();
+			app.addSource(createRepositoryDescriptor(sourceRepoLocation.toURI(), null, null, null));
+			app.addSource(createRepositoryDescriptor(sourceRepo2Location.toURI(), null, null, null));
+			app.addDestination(createRepositoryDescriptor(destRepoLocation.toURI(), null, null, null));
+			app.setThreads(4);
+			app.setMaxConnectionsPerHost(2);
+			app.setValidate(true);
+			IStatus result = app.run(null);
+			assertFalse("1.0", result.matches(IStatus.ERROR));
+		} catch (Exception e) {
+			fail("1.1", e);
+		} finally {
+			System.setOut(out);
+		}
+
+		try {
+			assertContains("2.0", getArtifactRepositoryManager().loadRepository(sourceRepoLocation.toURI(), null), getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null));
+			assertContains("2.1", getArtifactRepositoryManager().loadRepository(sourceRepo2Location.toURI(), null), getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null));
+			assertEquals("2.2", getArtifactKeyCount(sourceRepoLocation.toURI()) + getArtifactKeyCount(sourceRepo2Location.toURI()), getArtifactKeyCount(destRepoLocation.toURI()));
+		} catch (ProvisionException e) {
+			fail("2.3", e);
+		}
+	}
+
+	/**
+	 * Tests that a journaled mirror completes the destination again when a descriptor
+	 * recorded as completed is missing from it, and that cleaning the destination
+	 * discards the journal
+	 */
+	@Test
+	public void testArtifactMirrorWithJournal() throws Exception {
+		runJournaledMirror(true);
+		assertTrue("1.0", new File(destRepoLocation, MirrorJournal.JOURNAL_FOLDER).exists());
+		assertContentEquals("1.1", getArtifactRepositoryManager().loadRepository(sourceRepoLocation.toURI(), null), getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null));
+
+		//remove a descriptor behind the journal's back, the next run must mirror it again
+		IArtifactRepository destination = getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null);
+		IArtifactKey key = destination.query(ArtifactKeyQuery.ALL_KEYS, null).iterator().next();
+		destination.removeDescriptor(key, null);
+		int expected = getArtifactKeyCount(sourceRepoLocation.toURI());
+		assertEquals("2.0", expected - 1, getArtifactKeyCount(destRepoLocation.toURI()));
+
+		runJournaledMirror(true);
+		assertEquals("2.1", expected, getArtifactKeyCount(destRepoLocation.toURI()));
+		assertContentEquals("2.2", getArtifactRepositoryManager().loadRepository(sourceRepoLocation.toURI(), null), getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null));
+
+		//a clean destination starts a new journal
+		runJournaledMirror(false);
+		assertContentEquals("3.0", getArtifactRepositoryManager().loadRepository(sourceRepoLocation.toURI(), null), getArtifactRepositoryManager().loadRepository(destRepoLocation.toURI(), null));
+	}
+
+	/**
+	 * Tests that the partial downloads of different descriptors are kept in different files
+	 */
+	@Test
+	public void testJournalPartialFiles() throws Exception {
+		MirrorJournal journal = new MirrorJournal(destRepoLocation);
+		try {
+			IArtifactKey key = PublisherHelper.createBinaryArtifactKey("a", Version.create("1.0.0"));
+			ArtifactDescriptor canonical = new ArtifactDescriptor(key);
+			ArtifactDescriptor packed = new ArtifactDescriptor(key);
+			packed.setProperty(IArtifactDescriptor.FORMAT, IArtifactDescriptor.FORMAT_PACKED);
+			ArtifactDescriptor changed = new ArtifactDescriptor(key);
+			changed.setProperty(IArtifactDescriptor.DOWNLOAD_MD5, "1234");
+			IArtifactDescriptor other = new ArtifactDescriptor(PublisherHelper.createBinaryArtifactKey("a", Version.create("1.0.1")));
+
+			Set<File> files = new HashSet<File>();
+			IArtifactDescriptor[] descriptors = new IArtifactDescriptor[] {canonical, packed, changed, other};
+			for (int i = 0; i < descriptors.length; i++)
+				files.add(journal.getPartialFile(descriptors[i]));
+			assertEquals("1.0", descriptors.length, files.size());
+			assertEquals("1.1", journal.getPartialFile(canonical), journal.getPartialFile(new ArtifactDescriptor(key)));
+		} finally {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Tests that a partial download is resumed from its length, verified against a SHA-256 only
+	 * checksum, and discarded when the bytes do not match
+	 */
+	@Test
+	public void testResumePartialDownload() throws Exception {
+		final byte[] content = new byte[3000];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) (i % 251);
+		// serves the artifact from memory, from the requested offset on
+		class RangeRepository extends SimpleArtifactRepository {
+			long requestedOffset = -1;
+
+			RangeRepository(URI location) {
+				super(getAgent(), "Range Repository", location, null);
+			}
+
+			public IStatus getRawArtifact(IArtifactDescriptor descriptor, OutputStream destination, long offset, IProgressMonitor monitor) {
+				requestedOffset = offset;
+				try {
+					destination.write(content, (int) offset, content.length - (int) offset);
+				} catch (IOException e) {
+					return new Status(IStatus.ERROR, Activator.ID, e.getMessage(), e);
+				}
+				return Status.OK_STATUS;
+			}
+
+			public synchronized boolean contains(IArtifactDescriptor descriptor) {
+				return true;
+			}
+		}
+		RangeRepository source = new RangeRepository(new File(getTempFolder(), "range").toURI());
+		IArtifactRepository destination = getArtifactRepositoryManager().createRepository(destRepoLocation.toURI(), "Destination", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, null);
+		Transport transport = (Transport) getAgent().getService(Transport.SERVICE_NAME);
+
+		ArtifactDescriptor descriptor = new ArtifactDescriptor(PublisherHelper.createBinaryArtifactKey("resumed", Version.create("1.0.0")));
+		descriptor.setRepository(source);
+		descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, Integer.toString(content.length));
+		StringBuffer sha256 = new StringBuffer();
+		byte[] digest = java.security.MessageDigest.getInstance("SHA-256").digest(content);
+		for (int i = 0; i < digest.length; i++)
+			sha256.append(Integer.toHexString((digest[i] >> 4) & 0xf)).append(Integer.toHexString(digest[i] & 0xf));
+		descriptor.setProperty("download.checksum.sha-256", sha256.toString());
+
+		//corrupt bytes from an earlier run are detected and dropped
+		File partial = new File(getTempFolder(), "artifact.part");
+		writePartial(partial, new byte[1000]);
+		ResumableMirrorRequest request = new ResumableMirrorRequest(descriptor, descriptor, destination, transport, partial);
+		request.perform(source, new NullProgressMonitor());
+		assertEquals("1.0", IStatus.ERROR, request.getResult().getSeverity());
+		assertEquals("1.1", 1000, source.requestedOffset);
+		assertFalse("1.2", partial.exists());
+		assertFalse("1.3", destination.contains(descriptor));
+
+		//the missing bytes of a valid partial download are fetched
+		byte[] head = new byte[1000];
+		System.arraycopy(content, 0, head, 0, head.length);
+		writePartial(partial, head);
+		request = new ResumableMirrorRequest(descriptor, descriptor, destination, transport, partial);
+		request.perform(source, new NullProgressMonitor());
+		assertTrue("2.0", request.getResult().isOK());
+		assertEquals("2.1", 1000, source.requestedOffset);
+		assertTrue("2.2", destination.contains(descriptor));
+		ByteArrayOutputStream mirrored = new ByteArrayOutputStream();
+		destination.getRawArtifact(descriptor, mirrored, new NullProgressMonitor());
+		assertTrue("2.3", Arrays.equals(content, mirrored.toByteArray()));
+
+		//a complete partial download is not fetched again
+		destination.removeDescriptor(descriptor, new NullProgressMonitor());
+		writePartial(partial, content);
+		source.requestedOffset = -1;
+		request = new ResumableMirrorRequest(descriptor, descriptor, destination, transport, partial);
+		request.perform(source, new NullProgressMonitor());
+		assertTrue("3.0", request.getResult().isOK());
+		assertEquals("3.1", -1, source.requestedOffset);
+		assertTrue("3.2", destination.contains(descriptor));
+	}
+
+	private void writePartial(File partial, byte[] bytes) throws IOException {
+		OutputStream out = new FileOutputStream(partial);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void runJournaledMirror(boolean append) throws Exception {
+		PrintStream out = System.out;
+		try {
+			System.setOut(new PrintStream(new StringBufferStream()));
+			MirrorApplication app = new MirrorApplication();
+			app.addSource(createRepositoryDescriptor(sourceRepoLocation.toURI(), null, null, null));
+			app.addDestination(createRepositoryDescriptor(destRepoLocation.toURI(), append, null, null));
+			app.setJournal(true);
+			app.run(null);
+		} finally {
+			System.setOut(out);
+		}
+	}
+
 	//for Bug 250527
 	@Test
 	public void testIgnoreErrorsArgument() {
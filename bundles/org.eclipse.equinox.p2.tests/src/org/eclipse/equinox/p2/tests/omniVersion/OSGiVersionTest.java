@@ -231,4 +231,26 @@ public class OSGiVersionTest extends VersionTesting {
 
 	}
 
+	public void testLargeNumbers() {
+		// numbers too large for the fast path are still parsed, and compared as numbers
+		Version big = Version.parseVersion("1234567890.0.0");
+		assertEquals("1234567890.0.0", big.toString());
+		assertTrue(big.isOSGiCompatible());
+		assertOrder(Version.parseVersion("2097151.0.0"), Version.parseVersion("2097152.0.0"));
+		assertOrder(Version.parseVersion("2097152.0.0"), big);
+		assertOrder(Version.parseVersion("1.2097152.0"), Version.parseVersion("2.0.0"));
+		assertEquals(Version.parseVersion("2097152.1.1"), Version.parseVersion("raw:2097152.1.1.''"));
+	}
+
+	public void testCompareWithConstants() {
+		Version v = Version.parseVersion("0.0.0.a");
+		assertOrder(Version.emptyVersion, v);
+		assertOrder(Version.emptyVersion, Version.parseVersion("0.0.1"));
+		assertOrder(v, Version.MAX_VERSION);
+		assertOrder(Version.parseVersion("1.0.0.zzz"), Version.MAX_VERSION);
+		assertEquals(0, Version.emptyVersion.compareTo(Version.parseVersion("0.0.0")));
+		assertEquals(Version.emptyVersion, Version.parseVersion("0.0.0"));
+		assertEquals(Version.parseVersion("raw:1.0.0.m"), Version.parseVersion("1.0.0.zzz"));
+	}
+
 }
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.metadata.MetadataPools;
+import org.eclipse.equinox.p2.metadata.*;
+
+/**
+ * Performance tests for the sharing of metadata objects: the time to create them
+ * through the pools, and the heap they take when several repositories hold the same units.
+ */
+public class MetadataPoolsPerformanceTest extends ProvisioningPerformanceTest {
+	private static final int REPEATS = 5;
+	private static final int IU_COUNT = 3000;
+	private static final int REPOSITORY_COUNT = 10;
+
+	public void testCreateCapabilitiesAndRequirements() {
+		new PerformanceTestRunner() {
+			protected void setUp() {
+				MetadataPools.clear();
+			}
+
+			protected void tearDown() {
+			}
+
+			protected void test() {
+				for (int r = 0; r < REPOSITORY_COUNT; r++) {
+					for (int i = 0; i < IU_COUNT; i++)
+						createUnitMetadata(i);
+				}
+			}
+		}.run(this, "Create the capabilities and requirements of " + REPOSITORY_COUNT + " x " + IU_COUNT + " ius", REPEATS, 1);
+		System.out.println(MetadataPools.getStatistics());
+	}
+
+	/**
+	 * Prints the heap held by the metadata of several repositories of the same units.
+	 * Run it with -Declipse.p2.metadata.pools=false to compare with unshared metadata.
+	 */
+	public void testHeapFootprint() {
+		MetadataPools.clear();
+		long before = usedMemory();
+		List<Object[]> repositories = new ArrayList<Object[]>();
+		for (int r = 0; r < REPOSITORY_COUNT; r++) {
+			Object[] units = new Object[IU_COUNT];
+			for (int i = 0; i < IU_COUNT; i++)
+				units[i] = createUnitMetadata(i);
+			repositories.add(units);
+		}
+		long after = usedMemory();
+		System.out.println("Metadata of " + REPOSITORY_COUNT + " x " + IU_COUNT + " ius (pools " + (MetadataPools.ENABLED ? "enabled" : "disabled") + "): " + (after - before) / 1024 + " KB");
+		System.out.println(MetadataPools.getStatistics());
+		assertEquals(REPOSITORY_COUNT, repositories.size());
+	}
+
+	Object[] createUnitMetadata(int i) {
+		// the same text as read from the repository files, in new strings
+		String id = new String("org.eclipse.someiu" + i);
+		Version version = Version.create("1.1." + i + ".v2017");
+		IProvidedCapability capability = MetadataFactory.createProvidedCapability(new String(IInstallableUnit.NAMESPACE_IU_ID), id, version);
+		IRequirement requirement = MetadataFactory.createRequirement(new String(IInstallableUnit.NAMESPACE_IU_ID), new String("org.eclipse.someiu" + (i + 1)), new VersionRange("[1.0.0,2.0.0)"), null, false, false);
+		return new Object[] {id, version, capability, requirement};
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
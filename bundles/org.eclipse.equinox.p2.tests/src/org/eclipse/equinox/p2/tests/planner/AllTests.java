@@ -135,6 +135,8 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(PatchTestUpdate5.class);
 		suite.addTestSuite(PatchTestUsingNegativeRequirement.class);
 		suite.addTestSuite(PermissiveSlicerTest.class);
+		suite.addTestSuite(PlannerCacheTest.class);
+		suite.addTestSuite(PortfolioTest.class);
 		suite.addTestSuite(PP2ShouldFailToInstall.class);
 		suite.addTestSuite(ResolvedIUInPCR.class);
 		//		suite.addTestSuite(ProvisioningPlanQueryTest.class); disabled, see bug 313812 
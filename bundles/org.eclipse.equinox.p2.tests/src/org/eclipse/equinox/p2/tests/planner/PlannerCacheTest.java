@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: agent - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.util.Arrays;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.internal.p2.director.*;
+import org.eclipse.equinox.p2.engine.*;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+/**
+ * Tests the cache of the solutions of the planner.
+ */
+public class PlannerCacheTest extends AbstractProvisioningTest {
+	private IInstallableUnit a1;
+	private IInstallableUnit b1;
+	private IMetadataRepository repository;
+	private IProfile profile;
+	private SimplePlanner planner;
+	private PlannerCache cache;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		b1 = createIU("B", Version.create("1.0.0"), true);
+		IRequirement[] reqA = new IRequirement[] {MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "B", new VersionRange("[1.0.0,3.0.0)"), null, false, false, true)};
+		a1 = createIU("A", Version.create("1.0.0"), reqA);
+		repository = createTestMetdataRepository(new IInstallableUnit[] {a1, b1});
+
+		profile = createProfile("TestProfile." + getName());
+		planner = (SimplePlanner) createPlanner();
+		cache = planner.getPlannerCache(createContext());
+		assertNotNull(cache);
+		cache.clear();
+	}
+
+	protected void tearDown() throws Exception {
+		cache.clear();
+		super.tearDown();
+	}
+
+	private ProvisioningContext createContext() {
+		ProvisioningContext context = new ProvisioningContext(getAgent());
+		context.setProperty(PlannerCache.CONTEXT_PLANNER_CACHE, Boolean.TRUE.toString());
+		return context;
+	}
+
+	private IProvisioningPlan installA() {
+		ProfileChangeRequest req = new ProfileChangeRequest(profile);
+		req.addInstallableUnits(new IInstallableUnit[] {a1});
+		IProvisioningPlan plan = planner.getProvisioningPlan(req, createContext(), null);
+		assertEquals(IStatus.OK, plan.getStatus().getSeverity());
+		return plan;
+	}
+
+	public void testSameRequest() {
+		IProvisioningPlan plan = installA();
+		assertInstallOperand(plan, a1);
+		assertInstallOperand(plan, b1);
+
+		long hits = cache.getHits();
+		plan = installA();
+		assertTrue("The solution is not read from the cache", cache.getHits() > hits);
+		assertInstallOperand(plan, a1);
+		assertInstallOperand(plan, b1);
+	}
+
+	public void testRepositoryChange() {
+		assertInstallOperand(installA(), b1);
+
+		// the new content of the repository is part of the key
+		IInstallableUnit b2 = createIU("B", Version.create("2.0.0"), true);
+		repository.addInstallableUnits(Arrays.asList(b2));
+		IProvisioningPlan plan = installA();
+		assertInstallOperand(plan, a1);
+		assertInstallOperand(plan, b2);
+		assertNoOperand(plan, b1);
+	}
+
+	public void testDisabled() {
+		if (!Boolean.TRUE.toString().equalsIgnoreCase(System.getProperty(PlannerCache.PROP_PLANNER_CACHE)))
+			assertNull(planner.getPlannerCache(new ProvisioningContext(getAgent())));
+		ProvisioningContext context = new ProvisioningContext(getAgent());
+		context.setProperty(PlannerCache.CONTEXT_PLANNER_CACHE, Boolean.FALSE.toString());
+		assertNull(planner.getPlannerCache(context));
+	}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: agent - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.director.*;
+import org.eclipse.equinox.internal.provisional.p2.director.PlannerStatus;
+import org.eclipse.equinox.internal.provisional.p2.director.RequestStatus;
+import org.eclipse.equinox.p2.engine.*;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.planner.IPlanner;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+import org.sat4j.specs.*;
+import org.sat4j.tools.xplain.DeletionStrategy;
+import org.sat4j.tools.xplain.MinimizationStrategy;
+
+/**
+ * Tests the resolution of requests by a portfolio of differently configured solvers.
+ */
+public class PortfolioTest extends AbstractProvisioningTest {
+	private IInstallableUnit a1;
+	private IInstallableUnit b1;
+	private IInstallableUnit b2;
+	private IInstallableUnit c1;
+	private IProfile profile;
+	private IPlanner planner;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		b1 = createIU("B", Version.create("1.0.0"), true);
+		b2 = createIU("B", Version.create("2.0.0"), true);
+		a1 = createIU("A", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "B", new VersionRange("[1.0.0,3.0.0)")));
+		// C can not be installed
+		c1 = createIU("C", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "D", VersionRange.emptyRange));
+		createTestMetdataRepository(new IInstallableUnit[] {a1, b1, b2, c1});
+
+		profile = createProfile("TestProfile." + getName());
+		planner = createPlanner();
+	}
+
+	private ProvisioningContext createContext(String portfolio) {
+		ProvisioningContext context = new ProvisioningContext(getAgent());
+		context.setProperty(SimplePlanner.CONTEXT_PORTFOLIO, portfolio);
+		return context;
+	}
+
+	public void testInstall() {
+		ProfileChangeRequest req = new ProfileChangeRequest(profile);
+		req.addInstallableUnits(new IInstallableUnit[] {a1});
+		IProvisioningPlan plan = planner.getProvisioningPlan(req, createContext("4"), null);
+		assertEquals(IStatus.OK, plan.getStatus().getSeverity());
+		assertInstallOperand(plan, a1);
+		assertInstallOperand(plan, b2);
+		assertNoOperand(plan, b1);
+	}
+
+	public void testEveryConfigurationFindsTheOptimum() {
+		// versions 1 to 5 of ten units, each version greedily requiring a few of the following units, where the
+		// first solution found by a solver installs more units than needed
+		Random random = new Random(3);
+		List<IInstallableUnit> units = new ArrayList<IInstallableUnit>();
+		for (int i = 0; i < 10; i++) {
+			for (int v = 1; v <= 5; v++) {
+				List<IRequirement> requirements = new ArrayList<IRequirement>();
+				for (int k = 0; k < 3; k++) {
+					int j = i + 1 + random.nextInt(10);
+					if (j < 10)
+						requirements.add(MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "n" + j, new VersionRange("[1.0.0,6.0.0)"), null, false, false, true));
+				}
+				units.add(createIU("n" + i, Version.create(v + ".0.0"), requirements.toArray(new IRequirement[requirements.size()]), NO_PROPERTIES, true));
+			}
+		}
+		IRequirement[] roots = new IRequirement[] {MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "n0", new VersionRange("[1.0.0,6.0.0)"), null, false, false, true), MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "n7", new VersionRange("[1.0.0,6.0.0)"), null, false, false, true)};
+		IInstallableUnit entry = createIU("entry", Version.create("1.0.0"), roots, NO_PROPERTIES, true);
+		units.add(entry);
+
+		Map<String, String> context = Collections.<String, String> emptyMap();
+		for (int configuration = 0; configuration < 4; configuration++) {
+			Slicer slicer = new Slicer(new QueryableArray(units.toArray(new IInstallableUnit[units.size()])), context, false);
+			IQueryable<IInstallableUnit> slice = slicer.slice(new IInstallableUnit[] {entry}, new NullProgressMonitor());
+			Projector projector = new Projector(slice, context, Collections.<IInstallableUnit> emptySet(), false);
+			projector.setSolverConfiguration(configuration);
+			projector.encode(entry, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.<IInstallableUnit> emptyList(), new NullProgressMonitor());
+			assertEquals(IStatus.OK, projector.invokeSolver(new NullProgressMonitor()).getSeverity());
+			// the optimum installs the fourth version of n2, which requires less units than the fifth one
+			Collection<IInstallableUnit> solution = projector.extractSolution();
+			assertEquals("configuration " + configuration, 6, solution.size());
+			assertTrue("configuration " + configuration, solution.contains(createIU("n2", Version.create("4.0.0"))));
+		}
+	}
+
+	public void testExplanation() {
+		ProfileChangeRequest req = new ProfileChangeRequest(profile);
+		req.addInstallableUnits(new IInstallableUnit[] {a1, c1});
+		IProvisioningPlan plan = planner.getProvisioningPlan(req, createContext("4"), null);
+		assertEquals(IStatus.ERROR, plan.getStatus().getSeverity());
+		RequestStatus requestStatus = ((PlannerStatus) plan.getStatus()).getRequestStatus();
+		// the first explanation found by the portfolio is minimal
+		assertEquals(2, requestStatus.getExplanations().size());
+		assertEquals(Explanation.MISSING_REQUIREMENT, requestStatus.getShortExplanation());
+		assertTrue(requestStatus.getConflictsWithInstalledRoots().contains(c1));
+		assertFalse(requestStatus.getConflictsWithInstalledRoots().contains(a1));
+	}
+
+	public void testExplanationStrategy() {
+		IInstallableUnit entry = createIU("entry", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C", VersionRange.emptyRange));
+		Map<String, String> context = Collections.<String, String> emptyMap();
+		Projector reference = new Projector(new QueryableArray(new IInstallableUnit[] {entry, c1}), context, Collections.<IInstallableUnit> emptySet(), false);
+		reference.encode(entry, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.<IInstallableUnit> emptyList(), new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, reference.invokeSolver(new NullProgressMonitor()).getSeverity());
+
+		final int[] calls = new int[1];
+		MinimizationStrategy strategy = new MinimizationStrategy() {
+			private static final long serialVersionUID = 1L;
+
+			public IVecInt explain(ISolver solver, Map<Integer, ?> constrs, IVecInt assumps) throws TimeoutException {
+				calls[0]++;
+				return new DeletionStrategy().explain(solver, constrs, assumps);
+			}
+
+			public void cancelExplanationComputation() {
+				// nothing to cancel
+			}
+		};
+		Projector projector = new Projector(new QueryableArray(new IInstallableUnit[] {entry, c1}), context, Collections.<IInstallableUnit> emptySet(), false);
+		projector.setExplanationStrategy(strategy);
+		projector.encode(entry, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.<IInstallableUnit> emptyList(), new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, projector.invokeSolver(new NullProgressMonitor()).getSeverity());
+		Set<Explanation> explanation = projector.getExplanation(new NullProgressMonitor());
+		assertEquals("The explanation is not minimized by the strategy", 1, calls[0]);
+		// the constraints are named as the dependency helper names them
+		assertFalse(explanation.isEmpty());
+		assertEquals(reference.getExplanation(new NullProgressMonitor()), explanation);
+	}
+
+	public void testNoExplanationWithoutProof() {
+		IInstallableUnit entry = createIU("entry", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C", VersionRange.emptyRange));
+		Map<String, String> context = Collections.<String, String> emptyMap();
+		Projector projector = new Projector(new QueryableArray(new IInstallableUnit[] {entry, c1}), context, Collections.<IInstallableUnit> emptySet(), false);
+		projector.encode(entry, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.<IInstallableUnit> emptyList(), new NullProgressMonitor());
+		// a projector whose solver did not answer does not solve the problem again to explain it
+		assertTrue(projector.getExplanation(new NullProgressMonitor()).isEmpty());
+	}
+
+	public void testPortfolioSize() {
+		if (System.getProperty(SimplePlanner.PROP_PORTFOLIO) == null)
+			assertEquals(1, SimplePlanner.getPortfolioSize(new ProvisioningContext(getAgent())));
+		assertEquals(1, SimplePlanner.getPortfolioSize(createContext("1")));
+		assertEquals(1, SimplePlanner.getPortfolioSize(createContext("0")));
+		assertEquals(1, SimplePlanner.getPortfolioSize(createContext("many")));
+		assertEquals(3, SimplePlanner.getPortfolioSize(createContext("3")));
+		assertEquals(4, SimplePlanner.getPortfolioSize(createContext("64")));
+		int size = SimplePlanner.getPortfolioSize(createContext(Boolean.TRUE.toString()));
+		assertTrue(size >= 1 && size <= Runtime.getRuntime().availableProcessors());
+	}
+
+	public void testPortfolioMemoryBudget() {
+		long encoding = 1000L * SimplePlanner.ENCODING_BYTES_PER_IU;
+		assertEquals(4, SimplePlanner.boundPortfolioSize(4, 1000, 4 * encoding));
+		assertEquals(2, SimplePlanner.boundPortfolioSize(4, 1000, 3 * encoding - 1));
+		// a resolution always gets a projector, even when its encoding exceeds the budget
+		assertEquals(1, SimplePlanner.boundPortfolioSize(4, 1000, encoding / 2));
+		assertEquals(3, SimplePlanner.boundPortfolioSize(3, 0, 0));
+		assertTrue(SimplePlanner.getMemoryBudget() > 0);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2010 Sonatype Inc. and others.
+ *  Copyright (c) 2010, 2017 Sonatype Inc. and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -13,15 +13,20 @@ package org.eclipse.equinox.p2.tests.reconciler.dropins;
 
 import java.io.File;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Set;
+import java.util.*;
+import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.equinox.internal.p2.reconciler.dropins.ProfileSynchronizer;
+import org.eclipse.equinox.internal.provisional.p2.directorywatcher.RepositoryListener;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.internal.p2.director.ProfileChangeRequest;
 import org.eclipse.equinox.p2.engine.*;
 import org.eclipse.equinox.p2.engine.query.IUProfilePropertyQuery;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.Version;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
 import org.eclipse.equinox.p2.tests.TestActivator;
 
@@ -66,6 +71,52 @@ public class ProfileSynchronizerTest extends AbstractProvisioningTest {
 		assertEquals(originalSize - 1, registry.getProfile("SDKProfile").query(QueryUtil.ALL_UNITS, null).toUnmodifiableSet().size());
 	}
 
+	//Adds and removes dropins in separate locations, the IUs of the unchanged locations must stay installed
+	public void testIncrementalSynchronization() throws ProvisionException {
+		IMetadataRepository first = createDropinsRepository("dropin.a");
+		assertOK(new ProfileSynchronizer(agent, registry.getProfile("SDKProfile"), Arrays.asList(first)).synchronize(null));
+		assertInstalledFromDropins("dropin.a");
+
+		// the digests persisted by the last synchronization tell that only the second location changed
+		IMetadataRepository second = createDropinsRepository("dropin.b");
+		ProfileSynchronizer synchronizer = new ProfileSynchronizer(agent, registry.getProfile("SDKProfile"), Arrays.asList(first, second));
+		ProfileChangeRequest request = synchronizer.createProfileChangeRequest(new ProvisioningContext(agent));
+		assertNotNull(request);
+		assertFalse(request.getAdditions().isEmpty());
+		for (IInstallableUnit iu : request.getAdditions())
+			assertEquals("dropin.b", iu.getId());
+		assertOK(synchronizer.synchronize(null));
+		assertInstalledFromDropins("dropin.a");
+		assertInstalledFromDropins("dropin.b");
+
+		// no location changed since, there is nothing to do
+		synchronizer = new ProfileSynchronizer(agent, registry.getProfile("SDKProfile"), Arrays.asList(first, second));
+		assertNull(synchronizer.createProfileChangeRequest(new ProvisioningContext(agent)));
+		assertOK(synchronizer.synchronize(null));
+		assertInstalledFromDropins("dropin.a");
+		assertInstalledFromDropins("dropin.b");
+
+		assertOK(new ProfileSynchronizer(agent, registry.getProfile("SDKProfile"), Arrays.asList(second)).synchronize(null));
+		assertTrue(registry.getProfile("SDKProfile").query(QueryUtil.createIUQuery("dropin.a"), null).isEmpty());
+		assertInstalledFromDropins("dropin.b");
+	}
+
+	private IMetadataRepository createDropinsRepository(String id) throws ProvisionException {
+		IMetadataRepositoryManager manager = (IMetadataRepositoryManager) agent.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		IMetadataRepository repository = manager.createRepository(getTempFolder().toURI(), id, IMetadataRepositoryManager.TYPE_SIMPLE_REPOSITORY, null);
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put(RepositoryListener.FILE_NAME, new File(URIUtil.toFile(repository.getLocation()), id + ".jar").getAbsolutePath());
+		repository.addInstallableUnits(Arrays.asList(createIU(id, Version.create("1.0.0"), NO_REQUIRES, properties, false)));
+		return repository;
+	}
+
+	private void assertInstalledFromDropins(String id) {
+		IProfile profile = registry.getProfile("SDKProfile");
+		Set<IInstallableUnit> units = profile.query(QueryUtil.createIUQuery(id), null).toUnmodifiableSet();
+		assertEquals(1, units.size());
+		assertEquals(Boolean.TRUE.toString(), profile.getInstallableUnitProperty(units.iterator().next(), "org.eclipse.equinox.p2.reconciler.dropins"));
+	}
+
 	private void initializeReconciler() throws IllegalAccessException {
 		Field[] fields = org.eclipse.equinox.internal.p2.reconciler.dropins.Activator.class.getDeclaredFields();
 		for (int i = 0; i < fields.length; i++) {
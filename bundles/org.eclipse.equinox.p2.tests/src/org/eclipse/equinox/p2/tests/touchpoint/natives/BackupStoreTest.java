@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 EclipseSource and others.
+ * Copyright (c) 2014, 2017 EclipseSource and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,11 @@
 package org.eclipse.equinox.p2.tests.touchpoint.natives;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.BackupStore;
+import org.eclipse.equinox.internal.p2.touchpoint.natives.LazyBackupStore;
 import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
 
 public class BackupStoreTest extends AbstractProvisioningTest {
@@ -159,4 +163,73 @@ public class BackupStoreTest extends AbstractProvisioningTest {
 		assertFalse(new File(filePath + ".p2bu").exists());
 		assertTrue(bTxt.exists());
 	}
+
+	public void testRecoverFromJournal() throws IOException {
+		writeToFile(aTxt, "journaled eclipse.exe");
+		writeToFile(bTxt, "journaled b.txt");
+		File buParent = new File(sourceDir, "backups");
+		BackupStore store = new BackupStore(buParent, BUPREFIX) {
+			@Override
+			public boolean moveToBackupStore(File a, File b) {
+				// forces the rename in place of eclipse.exe, and a copy of everything else
+				return false;
+			}
+		};
+		store.backup(aTxt);
+		store.backup(bTxt);
+		assertFalse(aTxt.exists());
+		assertFalse(bTxt.exists());
+
+		// the process is gone, only the backup directory and its journal are left
+		BackupStore recovered = BackupStore.recover(buParent, store.getBackupName());
+		assertNotNull(recovered);
+		recovered.restore();
+		assertFileContent("eclipse.exe should be restored", aTxt, "journaled eclipse.exe");
+		assertFileContent("b.txt should be restored", bTxt, "journaled b.txt");
+		assertFalse(new File(buParent, store.getBackupName()).exists());
+		assertNull(BackupStore.recover(buParent, store.getBackupName()));
+	}
+
+	public void testRestoreAbandonedBackupWhenOpened() throws IOException {
+		writeToFile(bTxt, "abandoned b.txt");
+		File buParent = new File(sourceDir, "backups");
+		BackupStore crashed = new BackupStore(buParent, BUPREFIX);
+		crashed.backup(aTxt);
+		crashed.backup(bTxt);
+
+		// the process that created the backup is still running, its backup is left alone
+		LazyBackupStore store = new LazyBackupStore(buParent, BUPREFIX);
+		store.restore();
+		assertFalse(aTxt.exists());
+		assertFalse(bTxt.exists());
+		assertTrue(new File(buParent, crashed.getBackupName()).exists());
+
+		String abandoned = abandon(buParent, crashed.getBackupName());
+		File cTxt = new File(sourceDir, "c.txt");
+		writeToFile(cTxt, "C");
+		store.backup(cTxt);
+		assertFileContent("eclipse.exe should be restored", aTxt, "A");
+		assertFileContent("b.txt should be restored", bTxt, "abandoned b.txt");
+		assertFalse(new File(buParent, abandoned).exists());
+
+		// the backup made once the abandoned one has been restored is not affected
+		assertFalse(cTxt.exists());
+		store.restore();
+		assertFileContent("c.txt should be restored", cTxt, "C");
+	}
+
+	/*
+	 * Renames the backup directory as if the process that created it was gone: the port
+	 * that is part of its name is not bound anymore.
+	 */
+	private String abandon(File buParent, String backupName) throws IOException {
+		ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+		int port = socket.getLocalPort();
+		socket.close();
+		int separator = backupName.lastIndexOf('_');
+		long address = new BigInteger(backupName.substring(separator + 1), 16).longValue();
+		String abandoned = backupName.substring(0, separator + 1) + Long.toHexString((address & ~0xffffL) | port);
+		assertTrue(new File(buParent, backupName).renameTo(new File(buParent, abandoned)));
+		return abandoned;
+	}
 }
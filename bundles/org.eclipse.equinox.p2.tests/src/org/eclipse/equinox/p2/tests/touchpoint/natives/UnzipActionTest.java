@@ -10,8 +10,13 @@ package org.eclipse.equinox.p2.tests.touchpoint.natives;
 
 import java.io.*;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.touchpoint.natives.BackupStore;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.IBackupStore;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.NativeTouchpoint;
+import org.eclipse.equinox.internal.p2.touchpoint.natives.Util;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.actions.ActionConstants;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.actions.UnzipAction;
 import org.eclipse.equinox.p2.engine.IProfile;
@@ -218,6 +223,52 @@ public class UnzipActionTest extends AbstractProvisioningTest {
 		}
 	}
 
+	/**
+	 * Tests that an archive large enough to be extracted concurrently yields its files
+	 * in zip order and backs up the replaced files.
+	 */
+	public void testUnzipLargeArchive() throws IOException {
+		File zipFile = new File(getTempFolder(), "large.zip");
+		String[] names = new String[] {"dir/", "dir/f0.bin", "f1.bin", "dir/sub/f2.bin", "f3.bin", "f4.bin", "dir/f5.bin"};
+		byte[] content = new byte[256 * 1024];
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile));
+		try {
+			for (int i = 0; i < names.length; i++) {
+				out.putNextEntry(new ZipEntry(names[i]));
+				if (!names[i].endsWith("/")) {
+					Arrays.fill(content, (byte) i);
+					out.write(content);
+				}
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+
+		File installFolder = getTempFolder();
+		File replaced = new File(installFolder, "f3.bin");
+		writeToFile(replaced, "ORIGINAL");
+		BackupStore store = new BackupStore(getTempFolder(), "testUnzipLargeArchive");
+
+		File[] unzipped = Util.unzipFile(zipFile, installFolder, store, null, new NullProgressMonitor());
+		assertEquals(names.length, unzipped.length);
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(new File(installFolder, names[i]), unzipped[i]);
+			if (!names[i].endsWith("/")) {
+				assertEquals(content.length, unzipped[i].length());
+				InputStream in = new FileInputStream(unzipped[i]);
+				try {
+					assertEquals(i, in.read());
+				} finally {
+					in.close();
+				}
+			}
+		}
+
+		store.restore();
+		assertFileContent("Should contain text 'ORIGINAL'", replaced, "ORIGINAL");
+	}
+
 	/**
 	 * Tests that only the files specified by inclusion path are unzipped as well as undo works.
 	 */
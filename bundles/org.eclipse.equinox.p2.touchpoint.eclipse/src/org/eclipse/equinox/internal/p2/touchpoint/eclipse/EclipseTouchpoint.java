@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2015 IBM Corporation and others.
+ *  Copyright (c) 2007, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -55,8 +55,12 @@ public class EclipseTouchpoint extends Touchpoint {
 		return manipulator;
 	}
 
-	private static synchronized void saveManipulator(IProfile profile) throws FrameworkAdminRuntimeException, IOException {
-		LazyManipulator manipulator = manipulators.remove(profile);
+	private static void saveManipulator(IProfile profile) throws FrameworkAdminRuntimeException, IOException {
+		LazyManipulator manipulator;
+		synchronized (EclipseTouchpoint.class) {
+			manipulator = manipulators.remove(profile);
+		}
+		// the files are written without holding the lock shared by all the profiles
 		if (manipulator != null)
 			manipulator.save(false);
 	}
@@ -72,8 +76,11 @@ public class EclipseTouchpoint extends Touchpoint {
 		return wrapper;
 	}
 
-	private static synchronized void savePlatformConfigurationWrapper(IProfile profile) throws ProvisionException {
-		PlatformConfigurationWrapper wrapper = wrappers.remove(profile);
+	private static void savePlatformConfigurationWrapper(IProfile profile) throws ProvisionException {
+		PlatformConfigurationWrapper wrapper;
+		synchronized (EclipseTouchpoint.class) {
+			wrapper = wrappers.remove(profile);
+		}
 		if (wrapper != null)
 			wrapper.save();
 	}
@@ -87,8 +94,11 @@ public class EclipseTouchpoint extends Touchpoint {
 		return sourceManipulator;
 	}
 
-	private static synchronized void saveSourceManipulator(IProfile profile) throws IOException {
-		SourceManipulator sourceManipulator = sourceManipulators.remove(profile);
+	private static void saveSourceManipulator(IProfile profile) throws IOException {
+		SourceManipulator sourceManipulator;
+		synchronized (EclipseTouchpoint.class) {
+			sourceManipulator = sourceManipulators.remove(profile);
+		}
 		if (sourceManipulator != null)
 			sourceManipulator.save();
 	}
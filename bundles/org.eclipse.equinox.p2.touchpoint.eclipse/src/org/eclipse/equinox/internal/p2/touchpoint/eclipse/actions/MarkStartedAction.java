@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2015 IBM Corporation and others.
+ *  Copyright (c) 2008, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -54,13 +54,10 @@ public class MarkStartedAction extends ProvisioningAction {
 		if (bundleInfo.getFragmentHost() != null)
 			return Status.OK_STATUS;
 
-		BundleInfo[] bundles = manipulator.getConfigData().getBundles();
-		for (int i = 0; i < bundles.length; i++) {
-			if (bundles[i].equals(bundleInfo)) {
-				getMemento().put(ActionConstants.PARM_PREVIOUS_STARTED, Boolean.valueOf(bundles[i].isMarkedAsStarted()));
-				bundles[i].setMarkedAsStarted(Boolean.parseBoolean(started));
-				break;
-			}
+		BundleInfo bundle = manipulator.getConfigData().getBundle(bundleInfo);
+		if (bundle != null) {
+			getMemento().put(ActionConstants.PARM_PREVIOUS_STARTED, Boolean.valueOf(bundle.isMarkedAsStarted()));
+			bundle.setMarkedAsStarted(Boolean.parseBoolean(started));
 		}
 		return Status.OK_STATUS;
 	}
@@ -87,13 +84,9 @@ public class MarkStartedAction extends ProvisioningAction {
 		if (bundleInfo == null)
 			return Util.createError(NLS.bind(Messages.failed_bundleinfo, iu));
 
-		BundleInfo[] bundles = manipulator.getConfigData().getBundles();
-		for (int i = 0; i < bundles.length; i++) {
-			if (bundles[i].equals(bundleInfo)) {
-				bundles[i].setMarkedAsStarted(previousStarted.booleanValue());
-				break;
-			}
-		}
+		BundleInfo bundle = manipulator.getConfigData().getBundle(bundleInfo);
+		if (bundle != null)
+			bundle.setMarkedAsStarted(previousStarted.booleanValue());
 		return Status.OK_STATUS;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2016 IBM Corporation and others.
+ *  Copyright (c) 2008, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -53,16 +53,13 @@ public class SetStartLevelAction extends ProvisioningAction {
 		if (bundleInfo.getFragmentHost() != null)
 			return Status.OK_STATUS;
 
-		BundleInfo[] bundles = manipulator.getConfigData().getBundles();
-		for (int i = 0; i < bundles.length; i++) {
-			if (bundles[i].equals(bundleInfo)) {
-				getMemento().put(ActionConstants.PARM_PREVIOUS_START_LEVEL, Integer.valueOf(bundles[i].getStartLevel()));
-				try {
-					bundles[i].setStartLevel(Integer.parseInt(startLevel));
-				} catch (NumberFormatException e) {
-					return Util.createError(NLS.bind(Messages.error_parsing_startlevel, startLevel, bundles[i].getSymbolicName()), e);
-				}
-				break;
+		BundleInfo bundle = manipulator.getConfigData().getBundle(bundleInfo);
+		if (bundle != null) {
+			getMemento().put(ActionConstants.PARM_PREVIOUS_START_LEVEL, Integer.valueOf(bundle.getStartLevel()));
+			try {
+				bundle.setStartLevel(Integer.parseInt(startLevel));
+			} catch (NumberFormatException e) {
+				return Util.createError(NLS.bind(Messages.error_parsing_startlevel, startLevel, bundle.getSymbolicName()), e);
 			}
 		}
 		return Status.OK_STATUS;
@@ -90,13 +87,9 @@ public class SetStartLevelAction extends ProvisioningAction {
 		if (bundleInfo == null)
 			return Util.createError(NLS.bind(Messages.failed_bundleinfo, iu));
 
-		BundleInfo[] bundles = manipulator.getConfigData().getBundles();
-		for (int i = 0; i < bundles.length; i++) {
-			if (bundles[i].equals(bundleInfo)) {
-				bundles[i].setStartLevel(previousStartLevel.intValue());
-				break;
-			}
-		}
+		BundleInfo bundle = manipulator.getConfigData().getBundle(bundleInfo);
+		if (bundle != null)
+			bundle.setStartLevel(previousStartLevel.intValue());
 		return Status.OK_STATUS;
 	}
 }
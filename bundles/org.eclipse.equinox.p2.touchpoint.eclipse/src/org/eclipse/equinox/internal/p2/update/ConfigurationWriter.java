@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ import java.io.*;
 import java.net.*;
 import java.util.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.frameworkadmin.utils.Utils;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
 import org.eclipse.equinox.internal.p2.core.helpers.URLUtil;
 import org.eclipse.equinox.internal.p2.touchpoint.eclipse.Activator;
@@ -29,9 +30,12 @@ public class ConfigurationWriter implements ConfigurationConstants {
 	 * Save the given configuration to the specified location.
 	 */
 	static void save(Configuration configuration, File location, URL osgiInstallArea) throws ProvisionException {
+		// written aside and renamed, the platform never reads a partially written configuration
+		File temp = new File(location.getParentFile(), location.getName() + ".tmp"); //$NON-NLS-1$
+		boolean written = false;
 		XMLWriter writer = null;
 		try {
-			OutputStream output = new BufferedOutputStream(new FileOutputStream(location));
+			OutputStream output = new BufferedOutputStream(new FileOutputStream(temp));
 			writer = new XMLWriter(output);
 			Map<String, String> args = new HashMap<String, String>();
 
@@ -55,6 +59,7 @@ public class ConfigurationWriter implements ConfigurationConstants {
 			}
 
 			writer.endTag(ELEMENT_CONFIG);
+			written = true;
 		} catch (UnsupportedEncodingException e) {
 			throw new ProvisionException(NLS.bind(Messages.error_saving_config, location), e);
 		} catch (FileNotFoundException e) {
@@ -64,6 +69,13 @@ public class ConfigurationWriter implements ConfigurationConstants {
 				writer.flush();
 				writer.close();
 			}
+			if (!written)
+				temp.delete();
+		}
+		try {
+			Utils.replaceFile(temp, location);
+		} catch (IOException e) {
+			throw new ProvisionException(NLS.bind(Messages.error_saving_config, location), e);
 		}
 		// put the config in the cache in case someone in the same session wants to read it
 		ConfigurationCache.put(location, configuration);
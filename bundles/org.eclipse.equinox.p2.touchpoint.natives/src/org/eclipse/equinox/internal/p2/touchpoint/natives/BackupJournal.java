@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.touchpoint.natives;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The append-only record of what a {@link BackupStore} has done, kept in its backup
+ * directory. It lets a later process restore a backup that was interrupted by a crash.
+ * <p>
+ * The journal is a text file with a header line followed by one line per operation. Lines
+ * are buffered and forced to disk in batches: a lost tail only loses files that were moved
+ * into the backup directory, and those are found again by scanning the directory. Renames in
+ * place leave the file outside of the backup directory, so they are forced to disk before
+ * the rename is performed.
+ * </p>
+ */
+class BackupJournal {
+	static final String JOURNAL_NAME = "journal.p2bu"; //$NON-NLS-1$
+
+	static final char MOVED = 'B';
+	static final char COPIED = 'C';
+	static final char RENAMED = 'R';
+
+	private static final String HEADER = "p2backup"; //$NON-NLS-1$
+	private static final String VERSION = "1"; //$NON-NLS-1$
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	private static final int SYNC_INTERVAL = 64;
+
+	private final File file;
+	private FileOutputStream output;
+	private Writer writer;
+	private int unsynced;
+
+	// what is known after reading an existing journal
+	private String dummyName;
+	private long backupCount;
+	private final Map<String, String> renamed = new LinkedHashMap<String, String>();
+
+	BackupJournal(File backupDirectory) {
+		file = new File(backupDirectory, JOURNAL_NAME);
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	boolean exists() {
+		return file.isFile();
+	}
+
+	/**
+	 * Reads an existing journal. A truncated last line, as left behind by a crash, is ignored.
+	 */
+	void read() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+		try {
+			String line = reader.readLine();
+			String[] header = line == null ? null : line.split("\t"); //$NON-NLS-1$
+			if (header == null || header.length != 3 || !HEADER.equals(header[0]) || !VERSION.equals(header[1]))
+				throw new IOException(file.getAbsolutePath());
+			dummyName = header[2];
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split("\t"); //$NON-NLS-1$
+				if (parts.length < 2 || parts[0].length() != 1)
+					continue;
+				switch (parts[0].charAt(0)) {
+					case MOVED :
+					case COPIED :
+						backupCount++;
+						break;
+					case RENAMED :
+						if (parts.length == 3)
+							renamed.put(parts[1], parts[2]);
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	String getDummyName() {
+		return dummyName;
+	}
+
+	long getBackupCount() {
+		return backupCount;
+	}
+
+	Map<String, String> getRenamedInPlace() {
+		return renamed;
+	}
+
+	/**
+	 * Opens the journal for appending, writing the header if the journal is new.
+	 */
+	void open(String dummy) throws IOException {
+		if (writer != null)
+			return;
+		file.getParentFile().mkdirs();
+		boolean append = file.isFile() && file.length() > 0;
+		output = new FileOutputStream(file, append);
+		writer = new BufferedWriter(new OutputStreamWriter(output, ENCODING));
+		if (!append) {
+			writer.write(HEADER + '\t' + VERSION + '\t' + dummy + '\n');
+			sync();
+		}
+	}
+
+	boolean isOpen() {
+		return writer != null;
+	}
+
+	void record(char operation, File original) throws IOException {
+		writer.write(operation);
+		writer.write('\t');
+		writer.write(original.getAbsolutePath());
+		writer.write('\n');
+		if (++unsynced >= SYNC_INTERVAL)
+			sync();
+	}
+
+	void recordRenamed(String original, String renamedTo) throws IOException {
+		writer.write(RENAMED);
+		writer.write('\t');
+		writer.write(original);
+		writer.write('\t');
+		writer.write(renamedTo);
+		writer.write('\n');
+		sync();
+	}
+
+	void sync() throws IOException {
+		writer.flush();
+		output.getFD().sync();
+		unsynced = 0;
+	}
+
+	void close() {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			// nothing more can be done, the backup directory is still scanned on restore
+		}
+		writer = null;
+		output = null;
+	}
+
+	void delete() {
+		close();
+		file.delete();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2016 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@
 package org.eclipse.equinox.internal.p2.touchpoint.natives;
 
 import java.io.*;
+import java.math.BigInteger;
 import java.net.*;
 import java.util.*;
 import java.util.Map.Entry;
@@ -72,9 +73,15 @@ import org.eclipse.osgi.util.NLS;
  * among the backup stores.
  * 
  * <h3>Restartability</h3>
- * Not implemented - it is possible to obtain the name of the backup directories,
- * so manual restore is possible after a crash. An idea is to add persistence to a file, and
- * be able to read it back in again.
+ * Every backup is recorded in a journal kept in the backup directory (see {@link BackupJournal}).
+ * After a crash, {@link #recover(File, String)} reopens the store from its journal so that it can be
+ * restored or discarded.
+ * 
+ * A store never reopens a backup directory by itself, every instance creates a new uniquely named one.
+ * {@link #restoreAbandoned(File, String)} restores the backup directories named after a prefix whose
+ * owning process is gone: a store keeps the TCP port that is part of its name bound until it is restored
+ * or discarded, so a port that is free again tells a directory left behind by a crash apart from one in
+ * use by a running process.
  * 
  * <h3>A note about exceptions</h3>
  * In general {@link IllegalArgumentException} is thrown when attempting an operation
@@ -142,6 +149,27 @@ public class BackupStore implements IBackupStore {
 
 	private Map<String, String> renamedInPlace = new HashMap<String, String>();
 
+	/**
+	 * The persistent record of the backups, created with the first backup.
+	 */
+	private final BackupJournal journal;
+
+	/**
+	 * Set when the journal can not be written, the store then keeps working without it.
+	 */
+	private boolean journalFailed;
+
+	/**
+	 * Flag indicating if this BackupStore was read back from its journal. Backups recorded
+	 * in the last unsynchronized batch are then not counted in {@link #backupCounter}.
+	 */
+	private boolean recovered;
+
+	/**
+	 * Directories in the backup that have already been created by this store.
+	 */
+	private final Set<File> backupDirectories = new HashSet<File>();
+
 	/**
 	 * Generates a BackupStore with a default prefix of ".p2bu" for backup directory and
 	 * probe file. 
@@ -173,6 +201,100 @@ public class BackupStore implements IBackupStore {
 		backupCounter = 0;
 		restoreCounter = 0;
 		closed = false;
+		journal = new BackupJournal(new File(backupRoot, backupName));
+	}
+
+	private BackupStore(File buParentDirectory, String backupName, BackupJournal journal) {
+		this.backupRoot = buParentDirectory;
+		this.backupName = backupName;
+		this.journal = journal;
+		dummyName = journal.getDummyName();
+		backupCounter = journal.getBackupCount();
+		renamedInPlace.putAll(journal.getRenamedInPlace());
+		restoreCounter = 0;
+		closed = false;
+		recovered = true;
+	}
+
+	/**
+	 * Reopens a BackupStore that was not restored or discarded, for example because the
+	 * process crashed, from the journal kept in its backup directory. The caller must make sure
+	 * that the process that created the store is gone, see {@link #restoreAbandoned(File, String)}.
+	 *
+	 * @param buParentDirectory - the directory where the backup directory was created - if null, java.io.tmpdir is used
+	 * @param backupName - the name of the backup directory, as returned by {@link #getBackupName()}
+	 * @return the reopened store, or null if there is no journal for the given backup
+	 * @throws IOException if the journal can not be read
+	 */
+	public static BackupStore recover(File buParentDirectory, String backupName) throws IOException {
+		if (buParentDirectory == null)
+			buParentDirectory = new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
+		BackupJournal journal = new BackupJournal(new File(buParentDirectory, backupName));
+		if (!journal.exists())
+			return null;
+		try {
+			journal.read();
+		} catch (IOException e) {
+			IOException ioException = new IOException(NLS.bind(Messages.BackupStore_can_not_read_journal, journal.getFile().getAbsolutePath()));
+			ioException.initCause(e);
+			throw ioException;
+		}
+		return new BackupStore(buParentDirectory, backupName, journal);
+	}
+
+	/**
+	 * Restores the backups named after the given prefix that were left behind in the given directory
+	 * by processes that are gone. A backup that can not be restored is logged and keeps its journal,
+	 * so that it is recovered again the next time.
+	 *
+	 * @param buParentDirectory - the directory where the backup directories are created - if null, java.io.tmpdir is used
+	 * @param prefix - the prefix the backup directories were created with
+	 */
+	public static void restoreAbandoned(File buParentDirectory, String prefix) {
+		if (buParentDirectory == null)
+			buParentDirectory = new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
+		File[] candidates = buParentDirectory.listFiles();
+		if (candidates == null)
+			return;
+		for (File candidate : candidates) {
+			String name = candidate.getName();
+			if (!candidate.isDirectory() || !name.startsWith(prefix + "_") || !isAbandoned(name.substring(prefix.length() + 1))) //$NON-NLS-1$
+				continue;
+			try {
+				BackupStore store = recover(buParentDirectory, name);
+				if (store != null)
+					store.restore();
+			} catch (IOException e) {
+				LogHelper.log(new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.failed_backup_restore, name), e));
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the process that created the backup with the given unique part of its name
+	 * is gone, see {@link #genUnique()}. A backup made on another host, or whose port is bound, is
+	 * assumed to be in use.
+	 */
+	private static boolean isAbandoned(String unique) {
+		String[] parts = unique.split("_"); //$NON-NLS-1$
+		if (parts.length != 2)
+			return false;
+		long aPart;
+		try {
+			Long.parseLong(parts[0], 16);
+			aPart = new BigInteger(parts[1], 16).longValue();
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		int port = (int) (aPart & 0xffff);
+		if (port == 0 || (aPart >>> 16) != ((getAddressPart() << 16) >>> 16))
+			return false;
+		try {
+			new ServerSocket(port, 1, InetAddress.getByName("127.0.0.1")).close(); //$NON-NLS-1$
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
 	}
 
 	/**
@@ -260,11 +382,10 @@ public class BackupStore implements IBackupStore {
 	 */
 	protected void moveToBackup(File file, File buFile) throws IOException {
 		// make sure all of the directories exist / gets created
-		buFile.getParentFile().mkdirs();
-		if (buFile.getParentFile().exists() && !buFile.getParentFile().isDirectory())
-			throw new IllegalArgumentException(NLS.bind(Messages.BackupStore_file_directory_mismatch, buFile.getParentFile().getAbsolutePath()));
+		makeBackupDirectory(buFile.getParentFile());
 		if (moveToBackupStore(file, buFile)) {
 			backupCounter++;
+			journal(BackupJournal.MOVED, file);
 			return;
 		}
 		// could not move - this can happen because source and target are on different volumes, or
@@ -277,6 +398,7 @@ public class BackupStore implements IBackupStore {
 		else {
 			Util.copyStream(new FileInputStream(file), true, new FileOutputStream(buFile), true);
 			backupCounter++;
+			journal(BackupJournal.COPIED, file);
 		}
 		if (file.exists() && !file.delete())
 			throw new IOException(NLS.bind(Messages.BackupStore_can_not_delete_after_copy_0, file));
@@ -310,9 +432,54 @@ public class BackupStore implements IBackupStore {
 	protected void renameInPlace(File file) {
 		String newName = file.getAbsolutePath() + getTimeStamp() + BACKUP_FILE_EXTENSION;
 		renamedInPlace.put(file.getAbsolutePath(), newName);
+		// the renamed file is outside of the backup directory, so it must be on disk before the rename
+		if (openJournal()) {
+			try {
+				journal.recordRenamed(file.getAbsolutePath(), newName);
+			} catch (IOException e) {
+				journalFailed(e);
+			}
+		}
 		file.renameTo(new File(newName));
 	}
 
+	private void makeBackupDirectory(File directory) {
+		if (backupDirectories.contains(directory))
+			return;
+		directory.mkdirs();
+		if (directory.exists() && !directory.isDirectory())
+			throw new IllegalArgumentException(NLS.bind(Messages.BackupStore_file_directory_mismatch, directory.getAbsolutePath()));
+		backupDirectories.add(directory);
+	}
+
+	private boolean openJournal() {
+		if (journalFailed)
+			return false;
+		try {
+			journal.open(dummyName);
+			return true;
+		} catch (IOException e) {
+			journalFailed(e);
+			return false;
+		}
+	}
+
+	private void journal(char operation, File file) {
+		if (!openJournal())
+			return;
+		try {
+			journal.record(operation, file);
+		} catch (IOException e) {
+			journalFailed(e);
+		}
+	}
+
+	private void journalFailed(IOException e) {
+		journalFailed = true;
+		journal.close();
+		LogHelper.log(new Status(IStatus.WARNING, Activator.ID, NLS.bind(Messages.BackupStore_can_not_write_journal, journal.getFile().getAbsolutePath()), e));
+	}
+
 	protected String getTimeStamp() {
 		return "-" + new Date().getTime(); //$NON-NLS-1$
 	}
@@ -413,15 +580,14 @@ public class BackupStore implements IBackupStore {
 			return false;
 
 		// make sure all of the directories exist / gets created
-		buFile.getParentFile().getCanonicalFile().mkdirs();
-		if (buFile.getParentFile().exists() && !buFile.getParentFile().isDirectory())
-			throw new IllegalArgumentException(NLS.bind(Messages.BackupStore_file_directory_mismatch, buFile.getParentFile().getAbsolutePath()));
+		makeBackupDirectory(buFile.getParentFile());
 
 		// just make a copy - one has to be made in one direction anyway
 		// A renameTo followed by a copy is preferred as it preserves file permissions on the moved file
 		// but it is easier to just copy and keep original.
 		Util.copyStream(new FileInputStream(file), true, new FileOutputStream(buFile), true);
 		backupCounter++;
+		journal(BackupJournal.COPIED, file);
 		return true;
 	}
 
@@ -492,6 +658,8 @@ public class BackupStore implements IBackupStore {
 		logUnrestorables(unrestorable);
 		if (unrestorable.size() > 0)
 			restored = false;
+		// an incomplete restore keeps its journal, so that it can be recovered again
+		journal.close();
 		close(restored);
 		closed = true;
 	}
@@ -513,14 +681,16 @@ public class BackupStore implements IBackupStore {
 		if (closed)
 			return;
 		closeSocket();
+		journal.close();
 		removeBackups();
 		closed = true;
 	}
 
 	private void close(boolean fullyRestored) throws IOException {
 		closeSocket();
-		// check external tampering with backup store
-		if (backupCounter != restoreCounter) {
+		// check external tampering with backup store, a recovered store may have lost the
+		// journal records of backups that are nevertheless found in the backup directory
+		if (backupCounter != restoreCounter && !(recovered && restoreCounter > backupCounter)) {
 			if (!fullyRestored)
 				logError(NLS.bind(Messages.BackupStore_0_of_1_items_restored, new Long(restoreCounter), new Long(backupCounter)));
 			else {
@@ -660,6 +830,8 @@ public class BackupStore implements IBackupStore {
 		for (int i = 0; i < children.length; i++) {
 			// Names are  root-chars, or drive letters in the root bu directory 
 			String name = children[i].getName();
+			if (name.equals(BackupJournal.JOURNAL_NAME))
+				continue;
 			String rName = name;
 			String prefix = ""; //$NON-NLS-1$
 			while (rName.startsWith(ROOTCHAR)) {
@@ -696,7 +868,11 @@ public class BackupStore implements IBackupStore {
 	private void restoreRenamedFiles(Set<File> unrestorable) {
 		for (Entry<String, String> entry : renamedInPlace.entrySet()) {
 			File bu = new File(entry.getValue());
-			if (!bu.renameTo(new File(entry.getKey())))
+			File original = new File(entry.getKey());
+			// the rename is journaled before it is performed, it may never have happened
+			if (!bu.exists() && original.exists())
+				continue;
+			if (!bu.renameTo(original))
 				unrestorable.add(bu);
 		}
 	}
@@ -731,17 +907,7 @@ public class BackupStore implements IBackupStore {
 		// per millisecond.
 		long timePart = (System.currentTimeMillis() << 5) | (msCounter++ & 31);
 		// can't use the MAC address - but take IP address if provisioning across NFS
-		long ipPart = 0;
-		try {
-			// the returned address can be 32 bits IPv4, or 128 bits IPv6 (?)
-			// In any case use the LSB bits (as many as will fit
-			byte[] address = InetAddress.getLocalHost().getAddress();
-			for (int i = 0; i < address.length; i++)
-				ipPart = ((ipPart << 8) | (address[i] & 0xff));
-		} catch (UnknownHostException e) {
-			// there is no IP address, and there and hence no concurrency from other machines.
-			// use the default ip part 0
-		}
+		long ipPart = getAddressPart();
 		int port = 0;
 		try {
 			// TODO: this should be replaced by InetAddress.getLoopbackAddress() when 1.7 compatibility is OK
@@ -763,6 +929,21 @@ public class BackupStore implements IBackupStore {
 
 	}
 
+	private static long getAddressPart() {
+		long ipPart = 0;
+		try {
+			// the returned address can be 32 bits IPv4, or 128 bits IPv6 (?)
+			// In any case use the LSB bits (as many as will fit
+			byte[] address = InetAddress.getLocalHost().getAddress();
+			for (int i = 0; i < address.length; i++)
+				ipPart = ((ipPart << 8) | (address[i] & 0xff));
+		} catch (UnknownHostException e) {
+			// there is no IP address, and there and hence no concurrency from other machines.
+			// use the default ip part 0
+		}
+		return ipPart;
+	}
+
 	/**
 	 * Turns a file into a "relativized" absolute file.
 	 * A leading "root" is transformed to the ROOTCHAR character. On Windows, network mapped drives starts
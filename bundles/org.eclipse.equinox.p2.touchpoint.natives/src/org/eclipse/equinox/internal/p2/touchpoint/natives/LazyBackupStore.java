@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,10 +17,14 @@ import java.io.IOException;
  * LazyBackupStore is a BackupStore that only instantiates a real backup store
  * when needed.
  * 
+ * Before the real backup store is instantiated, or when there is nothing to restore,
+ * the backups with the same prefix left behind by a process that crashed are restored,
+ * see {@link BackupStore#restoreAbandoned(File, String)}.
  *
  */
 public class LazyBackupStore implements IBackupStore {
 	private BackupStore delegate;
+	private final File buParentDirectory;
 	private final String prefix;
 
 	/**
@@ -28,6 +32,16 @@ public class LazyBackupStore implements IBackupStore {
 	 * @param prefix The prefix to use in constructing the backup store directory
 	 */
 	public LazyBackupStore(String prefix) {
+		this(null, prefix);
+	}
+
+	/**
+	 * Creates a new lazy backup store
+	 * @param buParentDirectory The directory where the backup directory should be created - if null, java.io.tmpdir is used
+	 * @param prefix The prefix to use in constructing the backup store directory
+	 */
+	public LazyBackupStore(File buParentDirectory, String prefix) {
+		this.buParentDirectory = buParentDirectory;
 		this.prefix = prefix;
 	}
 
@@ -48,15 +62,18 @@ public class LazyBackupStore implements IBackupStore {
 	}
 
 	public void restore() throws IOException {
-		if (delegate == null)
+		if (delegate == null) {
+			BackupStore.restoreAbandoned(buParentDirectory, prefix);
 			return;
+		}
 		delegate.restore();
 	}
 
 	private void loadDelegate() {
 		if (delegate != null)
 			return;
-		delegate = new BackupStore(null, prefix);
+		BackupStore.restoreAbandoned(buParentDirectory, prefix);
+		delegate = new BackupStore(buParentDirectory, prefix);
 	}
 
 	public String getBackupName() {
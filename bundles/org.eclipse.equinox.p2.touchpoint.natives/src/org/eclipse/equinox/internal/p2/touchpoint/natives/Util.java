@@ -20,6 +20,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.internal.p2.core.helpers.ZipExtractor;
 import org.eclipse.equinox.p2.core.*;
 import org.eclipse.equinox.p2.engine.IProfile;
 import org.eclipse.equinox.p2.repository.IRepository;
@@ -93,7 +94,32 @@ public class Util {
 	 * It takes in count exclude/exclude pattern (that can be null, case when everything is unzipped).
 	 * If a path is specified, the path is consider as entry point in zip, as when the to directory in zip would have been the specified path.
 	 */
-	public static File[] unzipFile(File zipFile, File outputDir, String path, String[] includePatterns, String[] excludePatterns, IBackupStore store, String taskName, IProgressMonitor monitor) throws IOException {
+	public static File[] unzipFile(File zipFile, final File outputDir, String path, String[] includePatterns, String[] excludePatterns, final IBackupStore store, String taskName, IProgressMonitor monitor) throws IOException {
+		final EntryFilter filter = new EntryFilter(path, includePatterns, excludePatterns);
+		File[] extracted;
+		try {
+			// entries are selected and backed up in zip order, only their content is written concurrently
+			extracted = ZipExtractor.extract(zipFile, new ZipExtractor.IEntryHandler() {
+				public File getTarget(ZipEntry entry) {
+					String name = filter.getTargetName(entry.getName());
+					return name == null ? null : new File(outputDir, name);
+				}
+
+				public void replace(File existing) throws IOException {
+					if (store != null)
+						store.backup(existing);
+					else
+						existing.delete();
+				}
+			});
+		} catch (IOException e) {
+			// add the file name to the message
+			IOException ioException = new IOException(NLS.bind(Messages.Util_Error_Unzipping, zipFile, e.getMessage()));
+			ioException.initCause(e);
+			throw ioException;
+		}
+		if (extracted != null)
+			return extracted;
 		InputStream in = new FileInputStream(zipFile);
 		try {
 			return unzipStream(in, zipFile.length(), outputDir, path, includePatterns, excludePatterns, store, taskName, monitor);
@@ -132,74 +158,31 @@ public class Util {
 			throw new IOException(Messages.Util_Invalid_Zip_File_Format);
 		}
 
-		if (path != null && path.trim().length() == 0)
-			path = null;
-		Pattern pathRegex = path == null ? null : createAntStylePattern("(" + path + ")(*)"); //$NON-NLS-1$ //$NON-NLS-2$
-
-		Collection<Pattern> includeRegexp = new ArrayList<Pattern>();
-		Collection<Pattern> excludeRegexp = new ArrayList<Pattern>();
-		if (includePatterns != null) {
-			for (String pattern : includePatterns) {
-				if (pattern != null) {
-					includeRegexp.add(createAntStylePattern(pattern));
-				}
-			}
-		}
-		if (excludePatterns != null) {
-			for (String pattern : excludePatterns) {
-				if (pattern != null) {
-					excludeRegexp.add(createAntStylePattern(pattern));
-				}
-			}
-		}
+		EntryFilter filter = new EntryFilter(path, includePatterns, excludePatterns);
 		ArrayList<File> unzippedFiles = new ArrayList<File>();
 		do {
-			String name = ze.getName();
-			if (pathRegex == null || pathRegex.matcher(name).matches()) {
-				boolean unzip = includeRegexp.isEmpty();
-				for (Pattern pattern : includeRegexp) {
-					unzip = pattern.matcher(name).matches();
-					if (unzip)
-						break;
-				}
-				if (unzip && !excludeRegexp.isEmpty()) {
-					for (Pattern pattern : excludeRegexp) {
-						if (pattern.matcher(name).matches()) {
-							unzip = false;
-							break;
-						}
-					}
-				}
-				if (unzip) {
-					if (pathRegex != null) {
-						Matcher matcher = pathRegex.matcher(name);
-						if (matcher.matches()) {
-							name = matcher.group(2);
-							if (name.startsWith("/")) //$NON-NLS-1$
-								name = name.substring(1);
-						}
-					}
-					File outFile = new File(outputDir, name);
-					unzippedFiles.add(outFile);
-					if (ze.isDirectory()) {
-						outFile.mkdirs();
+			String name = filter.getTargetName(ze.getName());
+			if (name != null) {
+				File outFile = new File(outputDir, name);
+				unzippedFiles.add(outFile);
+				if (ze.isDirectory()) {
+					outFile.mkdirs();
+				} else {
+					if (outFile.exists()) {
+						if (store != null)
+							store.backup(outFile);
+						else
+							outFile.delete();
 					} else {
-						if (outFile.exists()) {
-							if (store != null)
-								store.backup(outFile);
-							else
-								outFile.delete();
-						} else {
-							outFile.getParentFile().mkdirs();
-						}
-						try {
-							copyStream(in, false, new FileOutputStream(outFile), true);
-						} catch (FileNotFoundException e) {
-							// TEMP: ignore this for now in case we're trying to replace
-							// a running eclipse.exe
-						}
-						outFile.setLastModified(ze.getTime());
+						outFile.getParentFile().mkdirs();
 					}
+					try {
+						copyStream(in, false, new FileOutputStream(outFile), true);
+					} catch (FileNotFoundException e) {
+						// TEMP: ignore this for now in case we're trying to replace
+						// a running eclipse.exe
+					}
+					outFile.setLastModified(ze.getTime());
 				}
 			}
 			in.closeEntry();
@@ -237,6 +220,69 @@ public class Util {
 		}
 	}
 
+	/*
+	 * Selects the entries of a zip file by path and include/exclude patterns, and computes
+	 * the name they are unzipped to.
+	 */
+	private static class EntryFilter {
+		private final Pattern pathRegex;
+		private final Collection<Pattern> includeRegexp = new ArrayList<Pattern>();
+		private final Collection<Pattern> excludeRegexp = new ArrayList<Pattern>();
+
+		EntryFilter(String path, String[] includePatterns, String[] excludePatterns) {
+			if (path != null && path.trim().length() == 0)
+				path = null;
+			pathRegex = path == null ? null : createAntStylePattern("(" + path + ")(*)"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (includePatterns != null) {
+				for (String pattern : includePatterns) {
+					if (pattern != null) {
+						includeRegexp.add(createAntStylePattern(pattern));
+					}
+				}
+			}
+			if (excludePatterns != null) {
+				for (String pattern : excludePatterns) {
+					if (pattern != null) {
+						excludeRegexp.add(createAntStylePattern(pattern));
+					}
+				}
+			}
+		}
+
+		/*
+		 * Returns the name relative to the output directory, or null if the entry is not unzipped.
+		 */
+		String getTargetName(String name) {
+			if (pathRegex != null && !pathRegex.matcher(name).matches())
+				return null;
+			boolean unzip = includeRegexp.isEmpty();
+			for (Pattern pattern : includeRegexp) {
+				unzip = pattern.matcher(name).matches();
+				if (unzip)
+					break;
+			}
+			if (unzip && !excludeRegexp.isEmpty()) {
+				for (Pattern pattern : excludeRegexp) {
+					if (pattern.matcher(name).matches()) {
+						unzip = false;
+						break;
+					}
+				}
+			}
+			if (!unzip)
+				return null;
+			if (pathRegex != null) {
+				Matcher matcher = pathRegex.matcher(name);
+				if (matcher.matches()) {
+					name = matcher.group(2);
+					if (name.startsWith("/")) //$NON-NLS-1$
+						name = name.substring(1);
+				}
+			}
+			return name;
+		}
+	}
+
 	private static Pattern createAntStylePattern(String pattern) {
 		StringBuffer sb = new StringBuffer();
 		for (int c = 0; c < pattern.length(); c++) {
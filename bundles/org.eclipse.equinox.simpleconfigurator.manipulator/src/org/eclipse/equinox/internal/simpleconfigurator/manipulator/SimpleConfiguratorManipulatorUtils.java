@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others. All rights reserved.
+ * Copyright (c) 2008, 2017 IBM Corporation and others. All rights reserved.
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v1.0 which accompanies this distribution,
  * and is available at http://www.eclipse.org/legal/epl-v10.html
@@ -31,10 +31,12 @@ public class SimpleConfiguratorManipulatorUtils {
 			throw new IllegalStateException(Messages.exception_failedToCreateDir);
 		}
 
+		// written aside and renamed, the simple configurator never reads a partially written list
+		File tempFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp"); //$NON-NLS-1$
 		IOException caughtException = null;
 		OutputStream stream = null;
 		try {
-			stream = new FileOutputStream(outputFile);
+			stream = new FileOutputStream(tempFile);
 			writeConfiguration(simpleInfos, stream);
 		} catch (IOException e) {
 			caughtException = e;
@@ -48,8 +50,11 @@ public class SimpleConfiguratorManipulatorUtils {
 					caughtException = e;
 			}
 		}
-		if (caughtException != null)
+		if (caughtException != null) {
+			tempFile.delete();
 			throw caughtException;
+		}
+		Utils.replaceFile(tempFile, outputFile);
 	}
 
 	/**